@@ -64,14 +64,19 @@ dependencies {
     implementation("androidx.room:room-runtime:$roomVersion")
     annotationProcessor("androidx.room:room-compiler:$roomVersion")
 
+    // Lifecycle - Para as consultas observáveis (LiveData) do Room e o estado que sobrevive à rotação (ViewModel)
+    val lifecycleVersion = "2.9.4"
+    implementation("androidx.lifecycle:lifecycle-livedata:$lifecycleVersion")
+    implementation("androidx.lifecycle:lifecycle-viewmodel:$lifecycleVersion")
+
     // RecyclerView e CardView - Para as listas
     implementation("androidx.recyclerview:recyclerview:1.4.0")
     implementation("androidx.cardview:cardview:1.0.0")
+    // AsyncLayoutInflater - Para pré-inflar as linhas das listas fora da thread principal
+    implementation("androidx.asynclayoutinflater:asynclayoutinflater:1.0.0")
 
     // Material Design - Para interfaces e alertas
     implementation("com.google.android.material:material:1.13.0")
 
-    // Glide - Para carregar as capas dos álbuns
-    implementation("com.github.bumptech.glide:glide:5.0.5")
     implementation(files("libs/acrcloud-universal-sdk-1.3.30.jar"))
 }
\ No newline at end of file
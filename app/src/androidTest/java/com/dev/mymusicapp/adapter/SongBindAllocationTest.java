@@ -0,0 +1,249 @@
+package com.dev.mymusicapp.adapter;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Debug;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.data.AlbumArtCache;
+import com.dev.mymusicapp.model.Song;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Garante que o bind das linhas de música não aloca objetos quando a linha é revinculada
+ * (scroll de volta, mudança da música a tocar, seleção) nem, fora do texto, quando uma linha reciclada
+ * passa a mostrar outra música de outro álbum (o caminho do scroll). Falha se alguém voltar a criar
+ * listeners, cores, chaves ou pedidos de capa dentro do bind.
+ */
+@RunWith(AndroidJUnit4.class)
+@SuppressWarnings("deprecation") // Debug.*AllocCount: continua a ser a forma mais simples de contar alocações por thread.
+public class SongBindAllocationTest {
+
+    private static final int ROWS = 12;
+    private static final int PASSES = 20;
+    // Músicas (e álbuns) distintas que passam pelas ROWS linhas, como num scroll longo.
+    private static final int DISTINCT_SONGS = ROWS * 4;
+    // Primeiro ID dos álbuns de teste: longe dos IDs reais e fora da gama em que o Long.valueOf não aloca.
+    private static final long FIRST_ALBUM_ID = 1_000_000_000L;
+    // Margem para alocações do framework que não vêm do bind e variam entre duas medições iguais: os textos
+    // medidos em background pelo SongTextPrecomputer podem chegar entre as duas, e as caches de layout do texto
+    // crescem por patamares. Bem abaixo de uma alocação por cada 100 binds (PASSES * DISTINCT_SONGS = 960).
+    private static final int FRAMEWORK_NOISE_ALLOCATIONS = 8;
+
+    private Context context;
+    private List<Song> songs;
+
+    // Evita que a alocação do teste de sanidade seja eliminada pelo compilador.
+    private static Object sink;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        songs = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            // albumId 0 = sem capa: o teste não depende do MediaStore nem de I/O.
+            songs.add(new Song(i, "Título " + i, "Artista " + i, "/music/song" + i + ".mp3", 180_000, null, 0, 0, "Álbum"));
+        }
+    }
+
+    @Test
+    public void songAdapter_rebindAllocatesNothing() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            assumeAllocationCountingWorks();
+            SongAdapter adapter = new SongAdapter((song, albumArtView) -> { }, (song, position) -> { });
+            adapter.setSongs(songs);
+            SongAdapter.SongViewHolder[] holders = createAndBind(adapter);
+
+            int allocations = countAllocations(() -> {
+                for (int pass = 0; pass < PASSES; pass++) {
+                    for (int i = 0; i < ROWS; i++) {
+                        adapter.onBindViewHolder(holders[i], i);
+                    }
+                }
+            });
+            assertEquals("O bind de uma linha já vinculada não deve alocar", 0, allocations);
+        });
+    }
+
+    @Test
+    public void songAdapter_playingHighlightAllocatesNothing() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            assumeAllocationCountingWorks();
+            SongAdapter adapter = new SongAdapter((song, albumArtView) -> { }, (song, position) -> { });
+            adapter.setSongs(songs);
+            SongAdapter.SongViewHolder[] holders = createAndBind(adapter);
+            List<Object> payloads = Collections.singletonList(SongAdapter.PAYLOAD_PLAYING_STATE);
+            String first = songs.get(0).getDataPath();
+            String second = songs.get(1).getDataPath();
+
+            int allocations = countAllocations(() -> {
+                for (int pass = 0; pass < PASSES; pass++) {
+                    adapter.setCurrentPlayingSong(pass % 2 == 0 ? first : second);
+                    for (int i = 0; i < ROWS; i++) {
+                        adapter.onBindViewHolder(holders[i], i, payloads);
+                    }
+                }
+            });
+            assertEquals("Mudar a música destacada não deve alocar", 0, allocations);
+        });
+    }
+
+    @Test
+    public void selectSongsAdapter_rebindAllocatesNothing() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            assumeAllocationCountingWorks();
+            SelectSongsAdapter adapter = new SelectSongsAdapter();
+            adapter.setSongs(songs);
+            FrameLayout parent = new FrameLayout(context);
+            SelectSongsAdapter.SelectSongViewHolder[] holders = new SelectSongsAdapter.SelectSongViewHolder[ROWS];
+            for (int i = 0; i < ROWS; i++) {
+                holders[i] = adapter.onCreateViewHolder(parent, 0);
+                adapter.onBindViewHolder(holders[i], i);
+            }
+
+            int allocations = countAllocations(() -> {
+                for (int pass = 0; pass < PASSES; pass++) {
+                    for (int i = 0; i < ROWS; i++) {
+                        adapter.onBindViewHolder(holders[i], i);
+                    }
+                }
+            });
+            assertEquals("O bind de uma linha já vinculada não deve alocar", 0, allocations);
+        });
+    }
+
+    /**
+     * O caminho real do scroll: cada linha reciclada recebe outra música, de outro álbum. Metade dos álbuns tem a
+     * miniatura em memória e a outra metade é conhecida como "sem capa". O texto das TextViews é sempre medido
+     * de novo (o que aloca dentro do framework), por isso a comparação é com as mesmas músicas num único álbum:
+     * a diferença é só o caminho da capa, que tem de ser zero (a menos de FRAMEWORK_NOISE_ALLOCATIONS).
+     */
+    @Test
+    public void songAdapter_recycledHolderBindingOtherAlbumsAllocatesOnlyForText() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            assumeAllocationCountingWorks();
+            int sizePx = context.getResources().getDimensionPixelSize(R.dimen.album_art_thumb_size);
+            seedAlbums(sizePx);
+            List<Song> distinctAlbums = rotatingSongs(true);
+            List<Song> sameAlbum = rotatingSongs(false);
+            // Uma medição de cada, descartada: os textos das duas listas (iguais) ficam medidos e em cache.
+            countRotatingBinds(distinctAlbums);
+            countRotatingBinds(sameAlbum);
+
+            int withArt = countRotatingBinds(distinctAlbums);
+            int textOnly = countRotatingBinds(sameAlbum);
+            assertTrue("Trocar de álbum no bind alocou " + (withArt - textOnly) + " objetos a mais",
+                    withArt - textOnly <= FRAMEWORK_NOISE_ALLOCATIONS);
+        });
+    }
+
+    /**
+     * A capa sozinha: as mesmas ImageViews a mostrar álbuns sempre diferentes (em memória ou sem capa).
+     */
+    @Test
+    public void albumArtCache_rotatingAlbumsAllocatesNothing() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            assumeAllocationCountingWorks();
+            int sizePx = context.getResources().getDimensionPixelSize(R.dimen.album_art_thumb_size);
+            seedAlbums(sizePx);
+            AlbumArtCache cache = AlbumArtCache.getInstance(context);
+            ImageView[] views = new ImageView[ROWS];
+            for (int i = 0; i < ROWS; i++) views[i] = new ImageView(context);
+            // Primeira volta: cada ImageView cria os seus drawables (uma vez por ImageView, não por bind).
+            for (int i = 0; i < DISTINCT_SONGS; i++) {
+                cache.loadInto(views[i % ROWS], FIRST_ALBUM_ID + i, sizePx, R.drawable.ic_music_note);
+            }
+
+            int allocations = countAllocations(() -> {
+                for (int pass = 0; pass < PASSES; pass++) {
+                    for (int i = 0; i < DISTINCT_SONGS; i++) {
+                        // Desfasado de uma posição a cada volta: a ImageView nunca recebe o álbum que já tem.
+                        cache.loadInto(views[(i + pass) % ROWS], FIRST_ALBUM_ID + i, sizePx, R.drawable.ic_music_note);
+                    }
+                }
+            });
+            assertEquals("Mostrar outro álbum já conhecido não deve alocar", 0, allocations);
+        });
+    }
+
+    // Álbuns pares com miniatura em memória, ímpares sem capa.
+    private void seedAlbums(int sizePx) {
+        AlbumArtCache cache = AlbumArtCache.getInstance(context);
+        for (int i = 0; i < DISTINCT_SONGS; i++) {
+            Bitmap bitmap = i % 2 == 0 ? Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888) : null;
+            cache.putForTesting(FIRST_ALBUM_ID + i, sizePx, bitmap);
+        }
+    }
+
+    private static List<Song> rotatingSongs(boolean distinctAlbums) {
+        List<Song> list = new ArrayList<>();
+        for (int i = 0; i < DISTINCT_SONGS; i++) {
+            long albumId = FIRST_ALBUM_ID + (distinctAlbums ? i : 0);
+            list.add(new Song(i, "Título " + i, "Artista " + i, "/music/rot" + i + ".mp3", 180_000, null, albumId, 0, "Álbum " + i));
+        }
+        return list;
+    }
+
+    // Liga as músicas às linhas em rotação (cada linha recebe sempre outra música) e conta as alocações.
+    private int countRotatingBinds(List<Song> list) {
+        SongAdapter adapter = new SongAdapter((song, albumArtView) -> { }, (song, position) -> { });
+        adapter.setSongs(list);
+        SongAdapter.SongViewHolder[] holders = createAndBind(adapter);
+        // Uma volta de aquecimento: drawables das ImageViews, caches de texto do framework.
+        for (int i = 0; i < DISTINCT_SONGS; i++) {
+            adapter.onBindViewHolder(holders[i % ROWS], i);
+        }
+        return countAllocations(() -> {
+            for (int pass = 0; pass < PASSES; pass++) {
+                for (int i = 0; i < DISTINCT_SONGS; i++) {
+                    adapter.onBindViewHolder(holders[(i + pass) % ROWS], i);
+                }
+            }
+        });
+    }
+
+    private SongAdapter.SongViewHolder[] createAndBind(SongAdapter adapter) {
+        FrameLayout parent = new FrameLayout(context);
+        SongAdapter.SongViewHolder[] holders = new SongAdapter.SongViewHolder[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            holders[i] = adapter.onCreateViewHolder(parent, SongRowPool.VIEW_TYPE_SONG);
+            adapter.onBindViewHolder(holders[i], i);
+        }
+        return holders;
+    }
+
+    private static int countAllocations(Runnable work) {
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        try {
+            work.run();
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        return Debug.getThreadAllocCount();
+    }
+
+    /**
+     * Alguns runtimes ignoram a contagem de alocações; nesse caso o teste é ignorado em vez de passar sem medir nada.
+     */
+    private static void assumeAllocationCountingWorks() {
+        int allocations = countAllocations(() -> sink = new Object[1]);
+        assumeTrue("Contagem de alocações indisponível neste dispositivo", allocations > 0);
+    }
+}
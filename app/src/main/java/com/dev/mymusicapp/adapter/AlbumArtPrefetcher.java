@@ -0,0 +1,150 @@
+package com.dev.mymusicapp.adapter;
+
+import android.os.SystemClock;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.data.AlbumArtCache;
+
+/**
+ * AlbumArtPrefetcher começa a carregar as capas das linhas que estão prestes a aparecer durante o scroll.
+ *
+ * O número de linhas antecipadas depende da velocidade do scroll, e o número de pedidos em curso é limitado.
+ * Os pedidos das linhas que já ficaram para trás (num "fling" rápido) são cancelados antes de gastarem I/O.
+ * Complementa o prefetch do próprio LinearLayoutManager (GapWorker), que só cria e vincula uma ou duas
+ * linhas à frente.
+ */
+public class AlbumArtPrefetcher extends RecyclerView.OnScrollListener {
+
+    /**
+     * Implementado pelos adapters que mostram capas de álbum.
+     */
+    public interface AlbumIdProvider {
+        int getItemCount();
+
+        long getAlbumIdAt(int position);
+    }
+
+    // Máximo de capas a carregar antecipadamente ao mesmo tempo.
+    private static final int MAX_IN_FLIGHT = 8;
+    // Quanto tempo de scroll (à velocidade atual) queremos ter coberto com capas já carregadas.
+    private static final long LOOKAHEAD_MS = 500;
+    private static final int MIN_LOOKAHEAD_ROWS = 3;
+    private static final int MAX_LOOKAHEAD_ROWS = 40;
+
+    private final AlbumArtCache cache;
+    private final AlbumIdProvider provider;
+    private final int sizePx;
+
+    // Pedidos em curso e a posição da linha a que pertencem (arrays paralelos, no máximo MAX_IN_FLIGHT).
+    private final AlbumArtCache.Prefetch[] inFlight = new AlbumArtCache.Prefetch[MAX_IN_FLIGHT];
+    private final int[] inFlightPositions = new int[MAX_IN_FLIGHT];
+    private int inFlightCount = 0;
+
+    private long lastScrollTime = 0;
+
+    private AlbumArtPrefetcher(@NonNull RecyclerView recyclerView, @NonNull AlbumIdProvider provider) {
+        this.cache = AlbumArtCache.getInstance(recyclerView.getContext());
+        this.provider = provider;
+        this.sizePx = recyclerView.getResources().getDimensionPixelSize(R.dimen.album_art_thumb_size);
+    }
+
+    /**
+     * Liga um prefetcher ao RecyclerView.
+     */
+    public static AlbumArtPrefetcher attach(@NonNull RecyclerView recyclerView, @NonNull AlbumIdProvider provider) {
+        AlbumArtPrefetcher prefetcher = new AlbumArtPrefetcher(recyclerView, provider);
+        recyclerView.addOnScrollListener(prefetcher);
+        return prefetcher;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0 || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) return;
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) return;
+
+        // Estima a velocidade (píxeis por milissegundo) e converte-a em número de linhas a antecipar.
+        long now = SystemClock.uptimeMillis();
+        long elapsed = now - lastScrollTime;
+        lastScrollTime = now;
+        if (elapsed <= 0 || elapsed > 100) elapsed = 16; // Início de um novo gesto: assume um frame.
+        float velocity = Math.abs(dy) / (float) elapsed;
+        View firstChild = layoutManager.findViewByPosition(first);
+        int rowHeight = firstChild != null ? Math.max(1, firstChild.getHeight()) : 1;
+        int lookahead = (int) (velocity * LOOKAHEAD_MS / rowHeight);
+        lookahead = Math.max(MIN_LOOKAHEAD_ROWS, Math.min(MAX_LOOKAHEAD_ROWS, lookahead));
+
+        boolean scrollingDown = dy > 0;
+        int windowStart = scrollingDown ? last + 1 : first - lookahead;
+        int windowEnd = scrollingDown ? last + lookahead : first - 1;
+
+        releaseStale(first, last, windowStart, windowEnd);
+
+        int itemCount = provider.getItemCount();
+        for (int i = 1; i <= lookahead && inFlightCount < MAX_IN_FLIGHT; i++) {
+            int position = scrollingDown ? last + i : first - i;
+            if (position < 0 || position >= itemCount) break;
+            if (isInFlight(position)) continue;
+            AlbumArtCache.Prefetch prefetch = cache.prefetch(provider.getAlbumIdAt(position), sizePx);
+            if (prefetch != null) {
+                inFlight[inFlightCount] = prefetch;
+                inFlightPositions[inFlightCount] = position;
+                inFlightCount++;
+            }
+        }
+    }
+
+    /**
+     * Liberta os pedidos terminados, os das linhas que já estão visíveis (o bind trata delas)
+     * e cancela os das linhas que ficaram fora da janela de antecipação.
+     */
+    private void releaseStale(int first, int last, int windowStart, int windowEnd) {
+        int kept = 0;
+        for (int i = 0; i < inFlightCount; i++) {
+            AlbumArtCache.Prefetch prefetch = inFlight[i];
+            int position = inFlightPositions[i];
+            boolean visible = position >= first && position <= last;
+            boolean ahead = position >= windowStart && position <= windowEnd;
+            if (prefetch.isDone() || visible) {
+                continue;
+            }
+            if (!ahead) {
+                // A linha foi ultrapassada (ou o scroll inverteu): não vale a pena carregar a capa.
+                cache.cancel(prefetch);
+                continue;
+            }
+            inFlight[kept] = prefetch;
+            inFlightPositions[kept] = position;
+            kept++;
+        }
+        for (int i = kept; i < inFlightCount; i++) {
+            inFlight[i] = null;
+        }
+        inFlightCount = kept;
+    }
+
+    private boolean isInFlight(int position) {
+        for (int i = 0; i < inFlightCount; i++) {
+            if (inFlightPositions[i] == position) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cancela todos os pedidos antecipados (ex: quando a lista é substituída ou a Activity é destruída).
+     */
+    public void cancelAll() {
+        for (int i = 0; i < inFlightCount; i++) {
+            cache.cancel(inFlight[i]);
+            inFlight[i] = null;
+        }
+        inFlightCount = 0;
+    }
+}
@@ -0,0 +1,97 @@
+package com.dev.mymusicapp.adapter;
+
+import android.annotation.SuppressLint;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.data.FolderTree;
+import com.dev.mymusicapp.databinding.ListItemGroupBinding;
+
+/**
+ * FolderAdapter mostra as subpastas de uma pasta da FolderTree, com o número de músicas de cada uma.
+ * Os itens são os próprios nós da árvore (int), por isso a lista não cria objetos por pasta.
+ */
+public class FolderAdapter extends RecyclerView.Adapter<FolderAdapter.FolderViewHolder> {
+
+    private final OnFolderClickListener clickListener;
+    private FolderTree tree;
+    private int[] nodes = new int[0];
+
+    /**
+     * Interface para ser implementada pela Activity que quer saber qual pasta foi aberta.
+     */
+    public interface OnFolderClickListener {
+        void onFolderClick(FolderTree tree, int node);
+    }
+
+    public FolderAdapter(OnFolderClickListener clickListener) {
+        this.clickListener = clickListener;
+    }
+
+    /**
+     * Mostra as subpastas de um nó. Cada recarregamento da biblioteca cria uma árvore nova, por isso
+     * a lista é simplesmente substituída.
+     */
+    @SuppressLint("NotifyDataSetChanged")
+    public void setFolders(@NonNull FolderTree tree, @NonNull int[] nodes) {
+        this.tree = tree;
+        this.nodes = nodes;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Um tipo diferente do das linhas de música, porque as duas listas partilham o mesmo RecyclerView
+     * (e as linhas de música vêm do pool partilhado do SongRowPool).
+     */
+    @Override
+    public int getItemViewType(int position) {
+        return R.layout.list_item_group;
+    }
+
+    @NonNull
+    @Override
+    public FolderViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ListItemGroupBinding binding = ListItemGroupBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
+        return new FolderViewHolder(binding);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull FolderViewHolder holder, int position) {
+        holder.bind(nodes[position]);
+    }
+
+    @Override
+    public int getItemCount() {
+        return nodes.length;
+    }
+
+    class FolderViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        private final ListItemGroupBinding binding;
+
+        FolderViewHolder(ListItemGroupBinding binding) {
+            super(binding.getRoot());
+            this.binding = binding;
+            binding.groupArtImageView.setImageResource(R.drawable.ic_folder);
+            itemView.setOnClickListener(this);
+        }
+
+        void bind(int node) {
+            binding.textViewGroupName.setText(tree.getName(node));
+            int count = tree.getSongCount(node);
+            binding.textViewGroupDetails.setText(count + (count == 1 ? " música" : " músicas"));
+        }
+
+        @Override
+        public void onClick(View v) {
+            int position = getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                clickListener.onFolderClick(tree, nodes[position]);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.dev.mymusicapp.adapter;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.data.AlbumArtCache;
+import com.dev.mymusicapp.data.LibraryGroups;
+import com.dev.mymusicapp.databinding.ListItemGroupBinding;
+
+import java.util.List;
+
+/**
+ * GroupAdapter mostra uma lista de grupos da biblioteca (artistas ou álbuns), com a capa,
+ * o número de músicas e a duração total de cada um.
+ */
+public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHolder> {
+
+    /**
+     * Os grupos de fotografias diferentes são objetos diferentes: são o mesmo item se tiverem o mesmo nome e álbum,
+     * e o mesmo conteúdo se os totais não mudaram.
+     */
+    private static final DiffUtil.ItemCallback<LibraryGroups.Group> DIFF_CALLBACK = new DiffUtil.ItemCallback<LibraryGroups.Group>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull LibraryGroups.Group oldItem, @NonNull LibraryGroups.Group newItem) {
+            return oldItem.getAlbumId() == newItem.getAlbumId() && oldItem.getName().equals(newItem.getName());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull LibraryGroups.Group oldItem, @NonNull LibraryGroups.Group newItem) {
+            return oldItem.getSongCount() == newItem.getSongCount()
+                    && oldItem.getTotalDuration() == newItem.getTotalDuration()
+                    && oldItem.getChildren().size() == newItem.getChildren().size();
+        }
+    };
+
+    private final AsyncListDiffer<LibraryGroups.Group> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final OnGroupClickListener clickListener;
+
+    /**
+     * Interface para ser implementada pela Activity que quer saber qual grupo foi clicado.
+     */
+    public interface OnGroupClickListener {
+        void onGroupClick(LibraryGroups.Group group);
+    }
+
+    public GroupAdapter(OnGroupClickListener clickListener) {
+        this.clickListener = clickListener;
+    }
+
+    @NonNull
+    @Override
+    public GroupViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ListItemGroupBinding binding = ListItemGroupBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
+        return new GroupViewHolder(binding);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull GroupViewHolder holder, int position) {
+        holder.bind(differ.getCurrentList().get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    public void setGroups(List<LibraryGroups.Group> groups) {
+        differ.submitList(groups);
+    }
+
+    /**
+     * Texto com os totais de um grupo, ex: "3 álbuns · 25 músicas · 1 h 42 min".
+     */
+    @NonNull
+    public static String describe(@NonNull LibraryGroups.Group group) {
+        StringBuilder text = new StringBuilder();
+        int albums = group.getChildren().size();
+        if (albums > 0) {
+            text.append(albums).append(albums == 1 ? " álbum · " : " álbuns · ");
+        }
+        int songs = group.getSongCount();
+        text.append(songs).append(songs == 1 ? " música · " : " músicas · ");
+        long minutes = group.getTotalDuration() / 60_000;
+        if (minutes >= 60) {
+            text.append(minutes / 60).append(" h ");
+        }
+        text.append(minutes % 60).append(" min");
+        return text.toString();
+    }
+
+    class GroupViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        private final ListItemGroupBinding binding;
+        private final AlbumArtCache albumArtCache;
+        private final int albumArtSizePx;
+
+        GroupViewHolder(ListItemGroupBinding binding) {
+            super(binding.getRoot());
+            this.binding = binding;
+            Context context = binding.getRoot().getContext();
+            this.albumArtCache = AlbumArtCache.getInstance(context);
+            this.albumArtSizePx = context.getResources().getDimensionPixelSize(R.dimen.album_art_thumb_size);
+            itemView.setOnClickListener(this);
+        }
+
+        void bind(LibraryGroups.Group group) {
+            binding.textViewGroupName.setText(group.getName());
+            binding.textViewGroupDetails.setText(describe(group));
+            albumArtCache.loadInto(binding.groupArtImageView, group.getAlbumId(), albumArtSizePx, R.drawable.ic_music_note);
+        }
+
+        @Override
+        public void onClick(View v) {
+            int position = getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                clickListener.onGroupClick(differ.getCurrentList().get(position));
+            }
+        }
+    }
+}
@@ -3,11 +3,13 @@ package com.dev.mymusicapp.adapter;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.dev.mymusicapp.databinding.PlaylistItemBinding;
 import com.dev.mymusicapp.model.Playlist;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * PlaylistAdapter é uma classe que "adapta" uma lista de objetos 'Playlist' para ser exibida
@@ -15,9 +17,24 @@ import java.util.List;
  */
 public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.PlaylistViewHolder> {
 
+    /**
+     * Compara duas listas de playlists pelo ID (mesmo item) e pelo nome (mesmo conteúdo).
+     */
+    private static final DiffUtil.ItemCallback<Playlist> DIFF_CALLBACK = new DiffUtil.ItemCallback<Playlist>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Playlist oldItem, @NonNull Playlist newItem) {
+            return oldItem.playlistId == newItem.playlistId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Playlist oldItem, @NonNull Playlist newItem) {
+            return Objects.equals(oldItem.name, newItem.name);
+        }
+    };
+
     // A lista de dados (playlists) que o adapter vai exibir.
-    // É inicializada como uma lista vazia para evitar NullPointerExceptions.
-    private List<Playlist> playlists = new ArrayList<>();
+    // O AsyncListDiffer começa com uma lista vazia e calcula as diferenças em background.
+    private final AsyncListDiffer<Playlist> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
 
     // Interfaces para comunicar eventos de clique de volta para a Activity/Fragment.
     // Este é o padrão "listener" ou "callback".
@@ -71,7 +88,7 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
     @Override
     public void onBindViewHolder(@NonNull PlaylistViewHolder holder, int position) {
         // Obtém o objeto Playlist da nossa lista de dados na posição correta.
-        Playlist currentPlaylist = playlists.get(position);
+        Playlist currentPlaylist = differ.getCurrentList().get(position);
         // Chama o metodo 'bind' do ViewHolder para preencher a View com os dados da playlist.
         holder.bind(currentPlaylist, clickListener, longClickListener);
     }
@@ -82,7 +99,7 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
      */
     @Override
     public int getItemCount() {
-        return playlists.size();
+        return differ.getCurrentList().size();
     }
 
     /**
@@ -90,9 +107,8 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
      * @param playlists A nova lista de playlists a ser exibida.
      */
     public void setPlaylists(List<Playlist> playlists) {
-        this.playlists = playlists;
-        // Notifica o RecyclerView que os dados mudaram, para que ele possa redesenhar a lista.
-        notifyDataSetChanged();
+        // Só as linhas que realmente mudaram são notificadas ao RecyclerView.
+        differ.submitList(playlists);
     }
 
     /**
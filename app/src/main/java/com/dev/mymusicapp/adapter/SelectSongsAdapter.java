@@ -4,54 +4,118 @@ import android.view.LayoutInflater;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
-import com.bumptech.glide.Glide;
 import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.data.AlbumArtCache;
 import com.dev.mymusicapp.databinding.SelectSongItemBinding;
 import com.dev.mymusicapp.model.Song;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Este adapter é responsável por exibir uma lista de músicas onde o utilizador pode selecionar
  * múltiplas faixas através de checkboxes.
+ *
+ * A seleção é guardada num BitSet indexado pela posição da música na lista (1 bit por música),
+ * por isso selecionar tudo, inverter ou selecionar um intervalo custa o mesmo com 50 músicas ou 50 mil.
+ * Um clique longo seleciona todas as músicas entre a última linha tocada e a linha do clique.
  */
-public class SelectSongsAdapter extends RecyclerView.Adapter<SelectSongsAdapter.SelectSongViewHolder> {
+public class SelectSongsAdapter extends RecyclerView.Adapter<SelectSongsAdapter.SelectSongViewHolder> implements AlbumArtPrefetcher.AlbumIdProvider {
 
-    // A lista completa de todas as músicas disponíveis para seleção.
-    private final List<Song> allSongs = new ArrayList<>();
+    /**
+     * Avisa a Activity sempre que o número de músicas selecionadas muda.
+     */
+    public interface OnSelectionChangedListener {
+        void onSelectionChanged(int selectedCount);
+    }
+
+    // Payload usado quando só o estado da checkbox mudou (o texto e a capa não são revinculados).
+    static final Object PAYLOAD_SELECTION = new Object();
 
-    // Um 'Set' é usado para armazenar os identificadores únicos (dataPath) das músicas selecionadas.
-    // Usar um Set é muito eficiente para adicionar, remover e verificar se um item existe.
-    private final Set<String> selectedSongPaths = new HashSet<>();
+    // A lista completa de todas as músicas disponíveis para seleção (imutável, partilhada com a biblioteca).
+    private List<Song> allSongs = Collections.emptyList();
+
+    // Bit 'i' ligado = a música na posição 'i' está selecionada.
+    private final BitSet selected = new BitSet();
+
+    // A última linha tocada: ponto de partida da seleção por intervalo.
+    private int anchorPosition = RecyclerView.NO_POSITION;
+
+    private OnSelectionChangedListener selectionListener;
+
+    public void setOnSelectionChangedListener(OnSelectionChangedListener listener) {
+        this.selectionListener = listener;
+    }
 
     /**
      * Metodo público para a Activity popular o adapter com a lista de todas as músicas.
-     * @param songs A lista de músicas a ser exibida.
+     * Se a lista mudar (ex: a biblioteca foi recarregada), as músicas que estavam selecionadas continuam
+     * selecionadas nas suas novas posições.
+     * @param songs A lista de músicas a ser exibida. Não deve ser alterada depois.
      */
     public void setSongs(List<Song> songs) {
-        allSongs.clear(); // Limpa a lista antiga
-        allSongs.addAll(songs); // Adiciona todas as novas músicas
+        List<Song> previous = allSongs;
+        allSongs = songs;
+        if (!selected.isEmpty()) {
+            remapSelection(previous, songs);
+        }
+        anchorPosition = RecyclerView.NO_POSITION;
         notifyDataSetChanged(); // Notifica o RecyclerView para se redesenhar
+        notifySelectionChanged();
     }
 
     /**
-     * Retorna uma lista contendo apenas os objetos Song que foram selecionados pelo utilizador.
-     * Este metodo é chamado pela Activity quando o utilizador confirma a sua seleção.
-     * @return Uma ArrayList de Songs selecionadas.
+     * Transporta a seleção da lista antiga para a nova, pelo ID das músicas.
+     * Ordena os IDs selecionados e percorre a nova lista uma vez (sem um mapa com todas as músicas).
      */
-    public ArrayList<Song> getSelectedSongs() {
-        ArrayList<Song> selectedSongs = new ArrayList<>();
-        // Percorre todas as músicas
-        for (Song song : allSongs) {
-            // Se o caminho da música estiver no nosso Set de selecionados, adiciona-a à lista de retorno.
-            if (selectedSongPaths.contains(song.getDataPath())) {
-                selectedSongs.add(song);
+    private void remapSelection(List<Song> previous, List<Song> songs) {
+        long[] selectedIds = new long[selected.cardinality()];
+        int count = 0;
+        for (int i = selected.nextSetBit(0); i >= 0 && i < previous.size(); i = selected.nextSetBit(i + 1)) {
+            selectedIds[count++] = previous.get(i).getId();
+        }
+        Arrays.sort(selectedIds, 0, count);
+        selected.clear();
+        for (int i = 0; i < songs.size(); i++) {
+            if (Arrays.binarySearch(selectedIds, 0, count, songs.get(i).getId()) >= 0) {
+                selected.set(i);
             }
         }
-        return selectedSongs;
+    }
+
+    /**
+     * Seleciona todas as músicas.
+     */
+    public void selectAll() {
+        selected.set(0, allSongs.size());
+        notifyItemRangeChanged(0, allSongs.size(), PAYLOAD_SELECTION);
+        notifySelectionChanged();
+    }
+
+    /**
+     * Inverte a seleção: as músicas selecionadas deixam de estar e vice-versa.
+     */
+    public void invertSelection() {
+        selected.flip(0, allSongs.size());
+        notifyItemRangeChanged(0, allSongs.size(), PAYLOAD_SELECTION);
+        notifySelectionChanged();
+    }
+
+    /**
+     * Retorna o número de músicas selecionadas.
+     */
+    public int getSelectedCount() {
+        return selected.cardinality();
+    }
+
+    /**
+     * Retorna a seleção como um conjunto de posições na lista recebida em 'setSongs' (uma cópia).
+     * Para a biblioteca, estas posições são os índices da LibrarySnapshot.
+     */
+    public BitSet getSelectedPositions() {
+        return (BitSet) selected.clone();
     }
 
     /**
@@ -64,7 +128,13 @@ public class SelectSongsAdapter extends RecyclerView.Adapter<SelectSongsAdapter.
         SelectSongItemBinding binding = SelectSongItemBinding.inflate(
                 LayoutInflater.from(parent.getContext()), parent, false
         );
-        return new SelectSongViewHolder(binding);
+        SelectSongViewHolder holder = new SelectSongViewHolder(binding);
+
+        // Configura o listener de clique para a linha inteira uma única vez por ViewHolder.
+        // A música é lida da posição atual da linha, por isso não é preciso um novo listener a cada bind.
+        holder.itemView.setOnClickListener(v -> toggleSelection(holder.getBindingAdapterPosition()));
+        holder.itemView.setOnLongClickListener(v -> selectRangeTo(holder.getBindingAdapterPosition()));
+        return holder;
     }
 
     /**
@@ -72,26 +142,54 @@ public class SelectSongsAdapter extends RecyclerView.Adapter<SelectSongsAdapter.
      */
     @Override
     public void onBindViewHolder(@NonNull SelectSongViewHolder holder, int position) {
-        // Obtém a música para a posição atual.
-        Song currentSong = allSongs.get(position);
-
         // Chama o metodo 'bind' do ViewHolder, passando a música e indicando se ela está selecionada.
-        holder.bind(currentSong, selectedSongPaths.contains(currentSong.getDataPath()));
-
-        // Configura o listener de clique para a linha inteira do item.
-        holder.itemView.setOnClickListener(v -> {
-            // Inverte o estado de seleção da música.
-            if (selectedSongPaths.contains(currentSong.getDataPath())) {
-                // Se já estava selecionada, remove do Set.
-                selectedSongPaths.remove(currentSong.getDataPath());
-            } else {
-                // Se não estava selecionada, adiciona ao Set.
-                selectedSongPaths.add(currentSong.getDataPath());
-            }
-            // Notifica o adapter que APENAS este item mudou. É mais eficiente que 'notifyDataSetChanged()',
-            // pois redesenha apenas esta linha, permitindo uma animação suave da checkbox.
-            notifyItemChanged(holder.getAdapterPosition());
-        });
+        holder.bind(allSongs.get(position), selected.get(position));
+    }
+
+    /**
+     * Versão com payloads: quando só a seleção mudou, atualiza apenas a checkbox.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull SelectSongViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        holder.setChecked(selected.get(position));
+    }
+
+    /**
+     * Inverte o estado de seleção da música na posição indicada.
+     */
+    private void toggleSelection(int position) {
+        if (position == RecyclerView.NO_POSITION) return;
+        selected.flip(position);
+        anchorPosition = position;
+        // Só a checkbox desta linha é atualizada, sem revincular o resto da linha.
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+        notifySelectionChanged();
+    }
+
+    /**
+     * Seleciona todas as músicas entre a última linha tocada e esta (como Shift+clique num computador).
+     * Sem linha anterior, seleciona só esta.
+     */
+    private boolean selectRangeTo(int position) {
+        if (position == RecyclerView.NO_POSITION) return false;
+        int anchor = anchorPosition != RecyclerView.NO_POSITION && anchorPosition < allSongs.size() ? anchorPosition : position;
+        int from = Math.min(anchor, position);
+        int to = Math.max(anchor, position);
+        selected.set(from, to + 1);
+        anchorPosition = position;
+        notifyItemRangeChanged(from, to - from + 1, PAYLOAD_SELECTION);
+        notifySelectionChanged();
+        return true;
+    }
+
+    private void notifySelectionChanged() {
+        if (selectionListener != null) {
+            selectionListener.onSelectionChanged(selected.cardinality());
+        }
     }
 
     /**
@@ -102,37 +200,56 @@ public class SelectSongsAdapter extends RecyclerView.Adapter<SelectSongsAdapter.
         return allSongs.size();
     }
 
+    /**
+     * Usado pelo AlbumArtPrefetcher para saber que capa antecipar para uma posição.
+     */
+    @Override
+    public long getAlbumIdAt(int position) {
+        return allSongs.get(position).getAlbumId();
+    }
+
     /**
      * ViewHolder para a nossa lista de seleção. Ele armazena as referências das Views de cada item.
      */
     static class SelectSongViewHolder extends RecyclerView.ViewHolder {
         private final SelectSongItemBinding binding;
+        private final AlbumArtCache albumArtCache;
+        // Tamanho da miniatura em píxeis, lido uma vez por ViewHolder.
+        private final int albumArtSizePx;
+
+        // A música que a linha mostra neste momento.
+        private Song boundSong;
 
         public SelectSongViewHolder(SelectSongItemBinding binding) {
             super(binding.getRoot());
             this.binding = binding;
+            this.albumArtCache = AlbumArtCache.getInstance(binding.getRoot().getContext());
+            this.albumArtSizePx = binding.getRoot().getResources().getDimensionPixelSize(R.dimen.album_art_thumb_size);
         }
 
         /**
          * Preenche a UI do item com os dados da música.
+         * Se a linha já mostra esta mesma música (ex: só a seleção mudou), o texto e a capa não são tocados.
          * @param song O objeto Song a ser exibido.
          * @param isSelected True se o item deve ser mostrado como selecionado (checkbox marcada).
          */
         public void bind(Song song, boolean isSelected) {
-            // Define o texto do título e do artista.
-            binding.textViewTitle.setText(song.getTitle());
-            binding.textViewArtist.setText(song.getArtist());
+            if (song != boundSong) {
+                boundSong = song;
+                // Define o texto do título e do artista.
+                binding.textViewTitle.setText(song.getTitle());
+                binding.textViewArtist.setText(song.getArtist());
+
+                // Carrega a capa a partir da cache por álbum (miniatura circular já pronta).
+                albumArtCache.loadInto(binding.albumArtImageViewItem, song.getAlbumId(), albumArtSizePx, R.drawable.ic_music_note);
+            }
 
             // Define o estado da checkbox (marcada ou desmarcada) com base no parâmetro 'isSelected'.
-            binding.checkboxSelectSong.setChecked(isSelected);
+            setChecked(isSelected);
+        }
 
-            // Usa o Glide para carregar a capa do álbum.
-            Glide.with(itemView.getContext())
-                    .load(song.getAlbumArtUri())
-                    .placeholder(R.drawable.ic_music_note) // Imagem padrão enquanto carrega
-                    .error(R.drawable.ic_music_note)       // Imagem padrão em caso de erro
-                    .circleCrop()                          // Torna a imagem circular
-                    .into(binding.albumArtImageViewItem);
+        void setChecked(boolean isSelected) {
+            binding.checkboxSelectSong.setChecked(isSelected);
         }
     }
 }
@@ -0,0 +1,101 @@
+package com.dev.mymusicapp.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.databinding.ListItemGroupBinding;
+import com.dev.mymusicapp.model.SmartList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SmartListAdapter mostra as listas inteligentes (ex: "Mais ouvidas", playlists com regras) antes das playlists do utilizador,
+ * com o mesmo aspeto das linhas de grupos da navegação.
+ */
+public class SmartListAdapter extends RecyclerView.Adapter<SmartListAdapter.SmartListViewHolder> {
+
+    private final List<SmartList> lists = new ArrayList<>();
+    private final OnSmartListClickListener clickListener;
+    private final OnSmartListLongClickListener longClickListener;
+
+    /**
+     * Interface para ser implementada pela Activity que quer saber qual lista foi clicada.
+     */
+    public interface OnSmartListClickListener {
+        void onSmartListClick(SmartList list);
+    }
+
+    /**
+     * Interface para ser implementada pela Activity que quer ouvir por cliques longos (ex: apagar uma playlist com regras).
+     */
+    public interface OnSmartListLongClickListener {
+        void onSmartListLongClick(SmartList list);
+    }
+
+    public SmartListAdapter(OnSmartListClickListener clickListener, OnSmartListLongClickListener longClickListener) {
+        this.clickListener = clickListener;
+        this.longClickListener = longClickListener;
+    }
+
+    public void setLists(List<SmartList> lists) {
+        this.lists.clear();
+        this.lists.addAll(lists);
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public SmartListViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ListItemGroupBinding binding = ListItemGroupBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
+        return new SmartListViewHolder(binding);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SmartListViewHolder holder, int position) {
+        holder.bind(lists.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return lists.size();
+    }
+
+    class SmartListViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener, View.OnLongClickListener {
+        private final ListItemGroupBinding binding;
+
+        SmartListViewHolder(ListItemGroupBinding binding) {
+            super(binding.getRoot());
+            this.binding = binding;
+            binding.groupArtImageView.setImageResource(R.drawable.ic_playlist);
+            itemView.setOnClickListener(this);
+            itemView.setOnLongClickListener(this);
+        }
+
+        void bind(SmartList list) {
+            binding.textViewGroupName.setText(list.name);
+            binding.textViewGroupDetails.setText(list.details);
+        }
+
+        @Override
+        public void onClick(View v) {
+            int position = getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                clickListener.onSmartListClick(lists.get(position));
+            }
+        }
+
+        @Override
+        public boolean onLongClick(View v) {
+            int position = getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION || longClickListener == null) return false;
+            longClickListener.onSmartListLongClick(lists.get(position));
+            return true;
+        }
+    }
+}
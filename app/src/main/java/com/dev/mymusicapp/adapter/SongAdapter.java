@@ -1,36 +1,89 @@
 package com.dev.mymusicapp.adapter;
 
+import android.content.Context;
+import android.content.res.ColorStateList;
 import android.graphics.Color;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.data.AlbumArtCache;
 import com.dev.mymusicapp.databinding.ListItemSongBinding;
 import com.dev.mymusicapp.model.Song;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * SongAdapter é a classe responsável por adaptar uma lista de objetos 'Song' para ser exibida
  * num RecyclerView. Ele gere a criação das views para cada música, a vinculação dos dados
  * e a interação do utilizador (cliques).
+ *
+ * Tem também um modo de seleção múltipla (usado na PlaylistDetailActivity): enquanto está ativo, um clique
+ * marca/desmarca a linha em vez de a abrir. A seleção é guardada pelo caminho das músicas, por isso
+ * sobrevive às atualizações da lista feitas pelo AsyncListDiffer.
  */
-public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder> {
+public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder> implements AlbumArtPrefetcher.AlbumIdProvider {
+
+    /**
+     * Compara duas listas de músicas para que o RecyclerView só redesenhe as linhas que mudaram.
+     * Duas músicas são o "mesmo item" se tiverem o mesmo caminho (a chave primária no Room).
+     */
+    private static final DiffUtil.ItemCallback<Song> DIFF_CALLBACK = new DiffUtil.ItemCallback<Song>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Song oldItem, @NonNull Song newItem) {
+            return oldItem.getDataPath().equals(newItem.getDataPath());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Song oldItem, @NonNull Song newItem) {
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getArtist(), newItem.getArtist())
+                    && oldItem.getDuration() == newItem.getDuration()
+                    && Objects.equals(oldItem.getAlbumArtUri(), newItem.getAlbumArtUri());
+        }
+    };
 
     // A lista de músicas que o adapter está a exibir no momento.
-    private List<Song> songs = new ArrayList<>();
+    // O AsyncListDiffer calcula as diferenças numa thread de background e só notifica as posições alteradas.
+    private final AsyncListDiffer<Song> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
 
     // Listeners para comunicar eventos de clique de volta para a Activity/Fragment.
     private final OnSongClickListener clickListener;
     private final OnSongLongClickListener longClickListener;
 
+    // Payload usado quando só o destaque da música a tocar mudou.
+    static final Object PAYLOAD_PLAYING_STATE = new Object();
+    // Payload usado quando só a seleção mudou.
+    static final Object PAYLOAD_SELECTION = new Object();
+
+    // Modo de seleção múltipla e os caminhos das músicas selecionadas.
+    private boolean selectionMode;
+    private final Set<String> selectedPaths = new HashSet<>();
+    private OnSelectionChangedListener selectionListener;
+
+    // Os textos das linhas são medidos em background por páginas deste tamanho (ver SongTextPrecomputer).
+    private static final int TEXT_PAGE_SIZE = 50;
+
+    // Obtido quando a primeira linha é criada (precisa de um contexto). Até lá não há nada para medir.
+    private SongTextPrecomputer textPrecomputer;
+    // Páginas da lista atual cujos textos já foram pedidos.
+    private final BitSet precomputedPages = new BitSet();
+
     // Armazena o ID (caminho do ficheiro) da música que está a tocar atualmente, para fins de destaque.
     private String currentPlayingSongPath = null;
 
@@ -43,10 +96,17 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
     }
 
     /**
-     * Interface para o clique longo.
+     * Interface para o clique longo. Recebe também a posição da linha na lista atual do adapter.
      */
     public interface OnSongLongClickListener {
-        void onSongLongClick(Song song);
+        void onSongLongClick(Song song, int position);
+    }
+
+    /**
+     * Avisa a Activity sempre que o número de músicas selecionadas muda (no modo de seleção).
+     */
+    public interface OnSelectionChangedListener {
+        void onSelectionChanged(int selectedCount);
     }
 
     /**
@@ -62,9 +122,73 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
      * @param songPath O dataPath da música atual.
      */
     public void setCurrentPlayingSong(String songPath) {
+        if (Objects.equals(songPath, currentPlayingSongPath)) return;
         this.currentPlayingSongPath = songPath;
-        // Notifica o adapter que os dados mudaram, para que ele possa redesenhar a lista e aplicar o destaque.
-        notifyDataSetChanged();
+        // Só a cor do título muda: o payload faz o RecyclerView atualizar apenas isso nas linhas visíveis,
+        // sem voltar a vincular o texto e a capa de cada linha.
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_PLAYING_STATE);
+    }
+
+    public void setOnSelectionChangedListener(OnSelectionChangedListener listener) {
+        this.selectionListener = listener;
+    }
+
+    // --- Seleção múltipla ---
+
+    /**
+     * Entra no modo de seleção, com a música desta posição já selecionada.
+     */
+    public void startSelection(int position) {
+        selectionMode = true;
+        toggleSelection(position);
+    }
+
+    /**
+     * Sai do modo de seleção e desmarca tudo (só as linhas que estavam marcadas são atualizadas).
+     */
+    public void clearSelection() {
+        selectionMode = false;
+        if (selectedPaths.isEmpty()) return;
+        List<Song> songs = differ.getCurrentList();
+        for (int i = 0; i < songs.size(); i++) {
+            if (selectedPaths.remove(songs.get(i).getDataPath())) notifyItemChanged(i, PAYLOAD_SELECTION);
+        }
+        selectedPaths.clear();
+        notifySelectionChanged();
+    }
+
+    public void selectAll() {
+        for (Song song : differ.getCurrentList()) selectedPaths.add(song.getDataPath());
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        notifySelectionChanged();
+    }
+
+    public boolean isSelectionMode() {
+        return selectionMode;
+    }
+
+    /**
+     * Os caminhos das músicas selecionadas, pela ordem da lista (uma cópia).
+     */
+    @NonNull
+    public List<String> getSelectedPaths() {
+        List<String> paths = new ArrayList<>(selectedPaths.size());
+        for (Song song : differ.getCurrentList()) {
+            if (selectedPaths.contains(song.getDataPath())) paths.add(song.getDataPath());
+        }
+        return paths;
+    }
+
+    // A posição vem da linha clicada: evita procurar a música numa lista que pode ter milhares.
+    private void toggleSelection(int position) {
+        String path = differ.getCurrentList().get(position).getDataPath();
+        if (!selectedPaths.remove(path)) selectedPaths.add(path);
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+        notifySelectionChanged();
+    }
+
+    private void notifySelectionChanged() {
+        if (selectionListener != null) selectionListener.onSelectionChanged(selectedPaths.size());
     }
 
     /**
@@ -73,20 +197,93 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
     @NonNull
     @Override
     public SongViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        // Infla o layout 'list_item_song.xml' usando ViewBinding.
-        ListItemSongBinding binding = ListItemSongBinding.inflate(
-                LayoutInflater.from(parent.getContext()), parent, false
-        );
+        // Usa uma linha já pré-inflacionada em background, se houver; senão infla 'list_item_song.xml'.
+        ListItemSongBinding binding = SongRowPool.getInstance(parent.getContext()).createRow(parent);
+        if (textPrecomputer == null) {
+            textPrecomputer = SongTextPrecomputer.getInstance(parent.getContext());
+        }
         return new SongViewHolder(binding);
     }
 
+    @Override
+    public int getItemViewType(int position) {
+        return SongRowPool.VIEW_TYPE_SONG;
+    }
+
     /**
      * Chamado pelo RecyclerView para associar os dados de uma música a uma View específica.
      */
     @Override
     public void onBindViewHolder(@NonNull SongViewHolder holder, int position) {
-        // Passa o objeto Song, os listeners e o ID da música atual para o ViewHolder.
-        holder.bind(songs.get(position), clickListener, longClickListener, currentPlayingSongPath);
+        Song song = differ.getCurrentList().get(position);
+        holder.bind(song, isPlaying(song));
+        // Sempre, porque a linha pode vir de outro ecrã através do pool partilhado.
+        holder.setChecked(selectedPaths.contains(song.getDataPath()));
+        // Garante que a página atual e as vizinhas (nos dois sentidos do scroll) já estão a ser medidas.
+        precomputePageOf(position);
+        precomputePageOf(position + TEXT_PAGE_SIZE / 2);
+        precomputePageOf(position - TEXT_PAGE_SIZE / 2);
+    }
+
+    /**
+     * Pede a medição em background dos textos da página que contém a posição, se ainda não foi pedida.
+     */
+    private void precomputePageOf(int position) {
+        List<Song> songs = differ.getCurrentList();
+        if (textPrecomputer == null || position < 0 || position >= songs.size()) return;
+        int page = position / TEXT_PAGE_SIZE;
+        if (precomputedPages.get(page)) return;
+        int from = page * TEXT_PAGE_SIZE;
+        if (textPrecomputer.precompute(songs, from, Math.min(songs.size(), from + TEXT_PAGE_SIZE))) {
+            precomputedPages.set(page);
+        }
+    }
+
+    /**
+     * Versão com payloads: quando só mudou a música a tocar, atualiza apenas o destaque da linha.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull SongViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        Song song = differ.getCurrentList().get(position);
+        for (Object payload : payloads) {
+            if (payload == PAYLOAD_SELECTION) holder.setChecked(selectedPaths.contains(song.getDataPath()));
+            else holder.setPlaying(isPlaying(song));
+        }
+    }
+
+    private boolean isPlaying(Song song) {
+        return song.getDataPath().equals(currentPlayingSongPath);
+    }
+
+    /**
+     * Chamado pelo ViewHolder quando a linha é clicada. A música é lida da posição atual da linha,
+     * por isso o listener pode ser criado uma única vez por linha.
+     */
+    void dispatchClick(int position, View albumArtView) {
+        if (selectionMode) {
+            toggleSelection(position);
+            return;
+        }
+        clickListener.onSongClick(differ.getCurrentList().get(position), albumArtView);
+    }
+
+    /**
+     * Chamado pelo ViewHolder num clique longo.
+     * @return 'true' se o evento foi tratado.
+     */
+    boolean dispatchLongClick(int position) {
+        if (selectionMode) {
+            toggleSelection(position);
+            return true;
+        }
+        // Só chama o listener se ele tiver sido fornecido (não for nulo).
+        if (longClickListener == null) return false;
+        longClickListener.onSongLongClick(differ.getCurrentList().get(position), position);
+        return true;
     }
 
     /**
@@ -94,79 +291,170 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
      */
     @Override
     public int getItemCount() {
-        // A verificação 'songs != null' é uma salvaguarda para evitar crashes.
-        return songs != null ? songs.size() : 0;
+        return differ.getCurrentList().size();
     }
 
     /**
      * Atualiza a lista de músicas do adapter.
+     * A nova lista é comparada com a atual em background, por isso adicionar ou remover uma música
+     * só anima essa linha em vez de recarregar e revincular a lista inteira.
      */
     public void setSongs(List<Song> songs) {
-        // Garante que a lista interna nunca seja nula.
-        if (songs == null) {
-            this.songs = new ArrayList<>();
-        } else {
-            this.songs = songs;
-        }
-        notifyDataSetChanged();
+        setSongs(songs, null);
     }
 
     /**
-     * Retorna a lista de músicas que o adapter está a usar no momento.
+     * Como setSongs(List), mas chama commitCallback quando a nova lista já está a ser mostrada.
+     */
+    public void setSongs(@Nullable List<Song> songs, @Nullable Runnable commitCallback) {
+        // Uma lista nula é tratada como lista vazia.
+        differ.submitList(songs, () -> onListCommitted(commitCallback));
+    }
+
+    /**
+     * Troca a lista inteira sem a comparar com a atual (ex: pesquisa, mudança de ordem). Comparar duas listas
+     * grandes e quase sem nada em comum custaria segundos ao DiffUtil; aqui a lista é esvaziada e a nova
+     * é mostrada de imediato, ainda dentro desta chamada. Uma comparação pendente é descartada.
+     */
+    public void replaceSongs(@Nullable List<Song> songs, @Nullable Runnable commitCallback) {
+        differ.submitList(null);
+        differ.submitList(songs, () -> onListCommitted(commitCallback));
+    }
+
+    private void onListCommitted(@Nullable Runnable commitCallback) {
+        // Nova lista: as páginas passam a ter outras músicas. Os textos já medidos continuam
+        // na cache (por string), por isso só os novos são medidos. A primeira página é pedida já.
+        precomputedPages.clear();
+        precomputePageOf(0);
+        if (commitCallback != null) commitCallback.run();
+    }
+
+    /**
+     * Usado pelo AlbumArtPrefetcher para saber que capa antecipar para uma posição.
+     */
+    @Override
+    public long getAlbumIdAt(int position) {
+        return differ.getCurrentList().get(position).getAlbumId();
+    }
+
+    /**
+     * Retorna a lista de músicas que o adapter está a usar no momento (só de leitura).
      */
     public List<Song> getSongs() {
-        return songs;
+        return differ.getCurrentList();
     }
 
     /**
      * A classe ViewHolder que representa a view de um único item na lista.
+     *
+     * Tudo o que não depende da música (listeners, cores, tamanho da capa) é preparado uma única vez no construtor,
+     * para que o bind durante o scroll não aloque objetos. Os listeners não guardam a música nem a Activity:
+     * perguntam ao adapter a que a linha está ligada no momento, por isso a linha pode passar de um ecrã
+     * para outro através do pool partilhado (SongRowPool).
      */
-    static class SongViewHolder extends RecyclerView.ViewHolder {
+    static class SongViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener, View.OnLongClickListener {
         private final ListItemSongBinding binding;
+        private final AlbumArtCache albumArtCache;
+        private final SongTextPrecomputer textPrecomputer;
+        // Parâmetros de medição destas TextViews, no formato partilhado pelo SongTextPrecomputer.
+        private final PrecomputedTextCompat.Params titleParams;
+        private final PrecomputedTextCompat.Params artistParams;
+        // Tamanho da miniatura em píxeis, lido uma vez por ViewHolder.
+        private final int albumArtSizePx;
+        // Cores do título (normal e da música a tocar), resolvidas uma única vez.
+        private final ColorStateList defaultTitleColor;
+        private final ColorStateList playingTitleColor;
+        // Fundo da linha normal e selecionada.
+        private final int defaultBackgroundColor;
+        private final int checkedBackgroundColor;
+
+        // A música que a linha mostra neste momento e se o destaque já foi aplicado ('null' = ainda não).
+        private Song boundSong;
+        private Boolean showingPlaying;
+        private boolean showingChecked;
 
         public SongViewHolder(ListItemSongBinding binding) {
             super(binding.getRoot());
             this.binding = binding;
+            Context context = binding.getRoot().getContext();
+            this.albumArtCache = AlbumArtCache.getInstance(context);
+            this.textPrecomputer = SongTextPrecomputer.getInstance(context);
+            textPrecomputer.adoptParams(binding.textViewTitle, binding.textViewArtist);
+            this.titleParams = textPrecomputer.getTitleParams();
+            this.artistParams = textPrecomputer.getArtistParams();
+            this.albumArtSizePx = context.getResources().getDimensionPixelSize(R.dimen.album_art_thumb_size);
+            // Cor padrão: branco, para o tema escuro.
+            this.defaultTitleColor = ColorStateList.valueOf(Color.WHITE);
+            this.playingTitleColor = ColorStateList.valueOf(ContextCompat.getColor(context, R.color.teal_200));
+            this.defaultBackgroundColor = ContextCompat.getColor(context, R.color.black);
+            this.checkedBackgroundColor = ContextCompat.getColor(context, R.color.teal_700);
+            itemView.setOnClickListener(this);
+            itemView.setOnLongClickListener(this);
         }
 
         /**
-         * Preenche a UI do item com os dados da música e configura os listeners.
+         * Preenche a UI do item com os dados da música.
+         * Se a linha já mostra esta mesma música (ex: foi revinculada), o texto e a capa não são tocados.
          */
-        public void bind(final Song song, final OnSongClickListener clickListener, final OnSongLongClickListener longClickListener, String currentPlayingSongPath) {
-            // Define o texto do título e do artista.
-            binding.textViewTitle.setText(song.getTitle());
-            binding.textViewArtist.setText(song.getArtist());
-
-            // Configura o listener de clique curto.
-            // Passa a referência da ImageView para permitir a animação de transição.
-            itemView.setOnClickListener(v -> clickListener.onSongClick(song, binding.albumArtImageViewItem));
-
-            // Configura o listener de clique longo.
-            itemView.setOnLongClickListener(v -> {
-                // Só chama o listener se ele tiver sido fornecido (não for nulo).
-                if (longClickListener != null) {
-                    longClickListener.onSongLongClick(song);
-                    return true; // Retorna 'true' para indicar que o evento foi tratado.
-                }
-                return false;
-            });
-
-            // Usa a biblioteca Glide para carregar a imagem da capa do álbum.
-            Glide.with(itemView.getContext())
-                    .load(song.getAlbumArtUri())
-                    .placeholder(R.drawable.ic_music_note) // Imagem a ser mostrada enquanto carrega.
-                    .error(R.drawable.ic_music_note)       // Imagem a ser mostrada se houver erro ou não houver capa.
-                    .circleCrop()                          // Aplica um corte circular à imagem.
-                    .into(binding.albumArtImageViewItem);  // A ImageView onde a imagem será exibida.
-
-            // Lógica para destacar a música que está a tocar.
-            if (song.getDataPath().equals(currentPlayingSongPath)) {
-                // Se o ID desta música é o mesmo da que está a tocar, muda a cor do texto.
-                binding.textViewTitle.setTextColor(ContextCompat.getColor(itemView.getContext(), R.color.teal_200));
+        public void bind(Song song, boolean playing) {
+            if (song != boundSong) {
+                boundSong = song;
+                // Define o texto do título e do artista. Se já foram medidos em background, a TextView
+                // só tem de os aplicar; senão (ex: salto para longe na lista) usa o texto simples.
+                setText(binding.textViewTitle, song.getTitle(), textPrecomputer.getTitle(song.getTitle()), titleParams);
+                setText(binding.textViewArtist, song.getArtist(), textPrecomputer.getArtist(song.getArtist()), artistParams);
+
+                // Mostra a capa a partir da cache por álbum: a miniatura circular é partilhada por todas as
+                // faixas do mesmo álbum e os álbuns sem capa mostram logo a nota musical, sem nova tentativa.
+                albumArtCache.loadInto(binding.albumArtImageViewItem, song.getAlbumId(), albumArtSizePx, R.drawable.ic_music_note);
+            }
+            setPlaying(playing);
+        }
+
+        private static void setText(TextView textView, String text, @Nullable PrecomputedTextCompat precomputed,
+                                    PrecomputedTextCompat.Params params) {
+            // Os parâmetros têm de ser exatamente os desta TextView, senão o texto medido não pode ser usado.
+            if (precomputed != null && precomputed.getParams() == params) {
+                TextViewCompat.setPrecomputedText(textView, precomputed);
             } else {
-                // Senão, usa a cor padrão (branco, para o tema escuro).
-                binding.textViewTitle.setTextColor(Color.WHITE);
+                textView.setText(text);
             }
         }
+
+        /**
+         * Destaca (ou não) o título da música que está a tocar. Só mexe na TextView quando o estado muda.
+         */
+        void setPlaying(boolean playing) {
+            if (showingPlaying != null && showingPlaying == playing) return;
+            showingPlaying = playing;
+            binding.textViewTitle.setTextColor(playing ? playingTitleColor : defaultTitleColor);
+        }
+
+        /**
+         * Marca (ou não) a linha como selecionada. Só mexe no fundo quando o estado muda.
+         */
+        void setChecked(boolean checked) {
+            if (showingChecked == checked) return;
+            showingChecked = checked;
+            binding.rowContent.setBackgroundColor(checked ? checkedBackgroundColor : defaultBackgroundColor);
+        }
+
+        @Override
+        public void onClick(View v) {
+            RecyclerView.Adapter<?> adapter = getBindingAdapter();
+            int position = getBindingAdapterPosition();
+            if (adapter instanceof SongAdapter && position != RecyclerView.NO_POSITION) {
+                // Passa a referência da ImageView para permitir a animação de transição.
+                ((SongAdapter) adapter).dispatchClick(position, binding.albumArtImageViewItem);
+            }
+        }
+
+        @Override
+        public boolean onLongClick(View v) {
+            RecyclerView.Adapter<?> adapter = getBindingAdapter();
+            int position = getBindingAdapterPosition();
+            return adapter instanceof SongAdapter && position != RecyclerView.NO_POSITION
+                    && ((SongAdapter) adapter).dispatchLongClick(position);
+        }
     }
-}
\ No newline at end of file
+}
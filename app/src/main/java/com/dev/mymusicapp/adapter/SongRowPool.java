@@ -0,0 +1,109 @@
+package com.dev.mymusicapp.adapter;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.appcompat.view.ContextThemeWrapper;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.databinding.ListItemSongBinding;
+
+import java.util.ArrayDeque;
+
+/**
+ * SongRowPool partilha as linhas 'list_item_song' entre todas as listas de músicas da app
+ * (MainActivity, PlaylistDetailActivity e a fila da PlayerActivity).
+ *
+ * - Um único RecycledViewPool é usado por todos esses RecyclerViews, por isso as linhas criadas num ecrã
+ *   são reutilizadas no seguinte em vez de serem inflacionadas de novo.
+ * - Logo após o arranque, quando a thread principal fica livre, algumas linhas são pré-inflacionadas
+ *   em background com o AsyncLayoutInflater; o SongAdapter usa-as antes de inflacionar uma nova.
+ *
+ * As linhas são sempre criadas com o contexto da aplicação (com o tema da app), nunca com o de uma Activity,
+ * para que possam passar de um ecrã para outro sem prender Activities já destruídas em memória.
+ */
+public final class SongRowPool {
+
+    // Tipo de view das linhas de música no SongAdapter (só existe um).
+    static final int VIEW_TYPE_SONG = 0;
+
+    // Quantas linhas guardar no pool partilhado e quantas pré-inflacionar (cerca de um ecrã e meio).
+    private static final int MAX_POOLED_ROWS = 30;
+    private static final int PREWARM_ROWS = 14;
+
+    private static SongRowPool instance;
+
+    private final Context themedContext;
+    private final RecyclerView.RecycledViewPool recycledViewPool = new RecyclerView.RecycledViewPool();
+    // Linhas já inflacionadas em background, à espera de serem usadas. Só acedido na thread principal.
+    private final ArrayDeque<View> prewarmedRows = new ArrayDeque<>();
+    private boolean prewarmStarted = false;
+
+    private SongRowPool(Context context) {
+        this.themedContext = new ContextThemeWrapper(context.getApplicationContext(), R.style.Theme_MyMusicApp);
+        recycledViewPool.setMaxRecycledViews(VIEW_TYPE_SONG, MAX_POOLED_ROWS);
+    }
+
+    /**
+     * Retorna a instância única. Só deve ser usada na thread principal.
+     */
+    @MainThread
+    public static SongRowPool getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new SongRowPool(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Faz o RecyclerView usar o pool partilhado de linhas de música.
+     */
+    @MainThread
+    public void attach(@NonNull RecyclerView recyclerView) {
+        recyclerView.setRecycledViewPool(recycledViewPool);
+    }
+
+    /**
+     * Devolve as linhas do RecyclerView ao pool partilhado, para que o próximo ecrã as reutilize.
+     * Deve ser chamado no onDestroy da Activity. O 'swapAdapter' (ao contrário do 'setAdapter') não limpa o pool.
+     */
+    @MainThread
+    public void detach(@NonNull RecyclerView recyclerView) {
+        recyclerView.swapAdapter(null, true);
+    }
+
+    /**
+     * Pré-inflaciona algumas linhas em background. Só tem efeito na primeira chamada.
+     */
+    @MainThread
+    public void prewarm() {
+        if (prewarmStarted) return;
+        prewarmStarted = true;
+        AsyncLayoutInflater inflater = new AsyncLayoutInflater(themedContext);
+        // O pai só serve para gerar os LayoutParams corretos (match_parent); as views não lhe são adicionadas.
+        FrameLayout parent = new FrameLayout(themedContext);
+        for (int i = 0; i < PREWARM_ROWS; i++) {
+            inflater.inflate(R.layout.list_item_song, parent, (view, resid, p) -> prewarmedRows.add(view));
+        }
+    }
+
+    /**
+     * Cria a binding de uma nova linha: usa uma linha pré-inflacionada, se houver, senão inflaciona agora.
+     */
+    @MainThread
+    @NonNull
+    ListItemSongBinding createRow(@NonNull ViewGroup parent) {
+        View prewarmed = prewarmedRows.poll();
+        if (prewarmed != null) {
+            return ListItemSongBinding.bind(prewarmed);
+        }
+        return ListItemSongBinding.inflate(LayoutInflater.from(themedContext), parent, false);
+    }
+}
@@ -0,0 +1,154 @@
+package com.dev.mymusicapp.adapter;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.LruCache;
+import android.widget.TextView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import com.dev.mymusicapp.model.Song;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SongTextPrecomputer mede o título e o artista das linhas de música em background (PrecomputedText),
+ * uma página de cada vez, para que o bind só tenha de aplicar texto já medido em vez de medir glifos
+ * na thread principal durante o scroll.
+ *
+ * Os textos são guardados por string, por isso os artistas repetidos e as listas filtradas pela pesquisa
+ * reutilizam as medições já feitas. As páginas pedidas há muito tempo (num "fling" rápido) são descartadas
+ * antes de serem medidas.
+ */
+final class SongTextPrecomputer implements ComponentCallbacks2 {
+
+    // Quantos textos medidos guardar de cada tipo (alguns ecrãs de linhas, nos dois sentidos).
+    private static final int MAX_ENTRIES = 400;
+    // Pedidos com mais do que este número de pedidos mais recentes à frente já não interessam.
+    private static final int MAX_PENDING_PAGES = 3;
+
+    private static SongTextPrecomputer instance;
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final LruCache<String, PrecomputedTextCompat> titles = new LruCache<>(MAX_ENTRIES);
+    private final LruCache<String, PrecomputedTextCompat> artists = new LruCache<>(MAX_ENTRIES);
+    private final AtomicLong latestRequest = new AtomicLong();
+
+    // Parâmetros de medição das TextViews das linhas. Só alterados na thread principal.
+    private volatile PrecomputedTextCompat.Params titleParams;
+    private volatile PrecomputedTextCompat.Params artistParams;
+
+    private SongTextPrecomputer(Context context) {
+        context.getApplicationContext().registerComponentCallbacks(this);
+    }
+
+    @MainThread
+    static SongTextPrecomputer getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new SongTextPrecomputer(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Regista os parâmetros de medição (fonte, tamanho, quebra de linha) das TextViews de uma linha.
+     * Chamado uma vez por ViewHolder. Se os parâmetros mudarem (ex: outro tamanho de letra), os textos
+     * medidos com os antigos são descartados.
+     */
+    @MainThread
+    void adoptParams(@NonNull TextView titleView, @NonNull TextView artistView) {
+        PrecomputedTextCompat.Params title = TextViewCompat.getTextMetricsParams(titleView);
+        if (!title.equals(titleParams)) {
+            titleParams = title;
+            titles.evictAll();
+        }
+        PrecomputedTextCompat.Params artist = TextViewCompat.getTextMetricsParams(artistView);
+        if (!artist.equals(artistParams)) {
+            artistParams = artist;
+            artists.evictAll();
+        }
+    }
+
+    PrecomputedTextCompat.Params getTitleParams() {
+        return titleParams;
+    }
+
+    PrecomputedTextCompat.Params getArtistParams() {
+        return artistParams;
+    }
+
+    /**
+     * Retorna o título já medido, ou 'null' se ainda não foi medido (o bind usa então o texto simples).
+     */
+    @Nullable
+    PrecomputedTextCompat getTitle(@Nullable String title) {
+        return title != null ? titles.get(title) : null;
+    }
+
+    @Nullable
+    PrecomputedTextCompat getArtist(@Nullable String artist) {
+        return artist != null ? artists.get(artist) : null;
+    }
+
+    /**
+     * Mede em background os textos das músicas entre 'from' (inclusive) e 'to' (exclusive).
+     * @return 'false' se ainda nenhuma linha registou os parâmetros de medição (nada foi pedido).
+     */
+    @MainThread
+    boolean precompute(@NonNull List<Song> songs, int from, int to) {
+        final PrecomputedTextCompat.Params title = titleParams;
+        final PrecomputedTextCompat.Params artist = artistParams;
+        if (title == null || artist == null) return false;
+        if (from >= to) return true;
+
+        final long request = latestRequest.incrementAndGet();
+        // A lista das páginas é imutável (AsyncListDiffer / LibrarySnapshot), por isso pode ser lida em background.
+        executorService.execute(() -> {
+            for (int i = from; i < to; i++) {
+                if (latestRequest.get() - request > MAX_PENDING_PAGES) {
+                    // O utilizador já passou esta página: as mais recentes têm prioridade.
+                    return;
+                }
+                Song song = songs.get(i);
+                measure(titles, song.getTitle(), title);
+                measure(artists, song.getArtist(), artist);
+            }
+        });
+        return true;
+    }
+
+    private static void measure(LruCache<String, PrecomputedTextCompat> cache, @Nullable String text,
+                                PrecomputedTextCompat.Params params) {
+        if (text == null || cache.get(text) != null) return;
+        cache.put(text, PrecomputedTextCompat.create(text, params));
+    }
+
+    // --- Avisos de memória do sistema (ComponentCallbacks2) ---
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            // Os textos são baratos de medir de novo quando a app voltar ao primeiro plano.
+            titles.evictAll();
+            artists.evictAll();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        // Os parâmetros são comparados em 'adoptParams', quando as novas linhas são criadas.
+    }
+}
@@ -0,0 +1,511 @@
+package com.dev.mymusicapp.data;
+
+import android.content.ComponentCallbacks2;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.util.Log;
+import android.util.LongSparseArray;
+import android.util.Size;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.core.content.ContextCompat;
+
+import com.dev.mymusicapp.R;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * AlbumArtCache guarda as capas dos álbuns já recortadas em círculo e no tamanho final.
+ *
+ * A chave é o ID do álbum (e o tamanho pedido), por isso todas as faixas do mesmo álbum partilham
+ * a mesma miniatura: a imagem é descodificada e recortada uma única vez, guardada em memória (LruCache)
+ * e em disco (pasta de cache da app). Os álbuns sem capa também são memorizados ("resultado negativo"),
+ * para que uma falha não seja repetida a cada scroll.
+ *
+ * A imagem original vem, por ordem, das capas embutidas já extraídas (EmbeddedArtStore) ou do MediaStore.
+ *
+ * O caminho do bind (loadInto com a capa em memória ou um álbum sem capa) não aloca nada: as chaves ficam em
+ * estruturas de 'long' (sem Long), cada ImageView reutiliza o seu ThumbnailDrawable e o seu placeholder, e as
+ * listas de espera dos pedidos são reaproveitadas. Só um pedido novo (que vai ler do disco) aloca.
+ */
+public class AlbumArtCache implements ComponentCallbacks2 {
+
+    private static final String TAG = "AlbumArtCache";
+
+    // Sufixo do ficheiro que marca, em disco, um álbum sem capa.
+    private static final String NO_ART_SUFFIX = ".none";
+
+    // Instância única, criada com o mesmo padrão "double-checked locking" da AppDatabase.
+    private static volatile AlbumArtCache INSTANCE;
+
+    private final ContentResolver contentResolver;
+    private final EmbeddedArtStore embeddedArtStore;
+    private final File diskDir;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Poucas threads bastam: o trabalho é sobretudo I/O e descodificação de imagens pequenas.
+    private final ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+    // Cache em memória das miniaturas, limitada pelo número de bytes ocupados pelos bitmaps.
+    private final BitmapLruCache memoryCache;
+
+    // Álbuns que sabemos não ter capa (o valor é sempre Boolean.TRUE). Consultado antes de qualquer I/O;
+    // acedido de várias threads, sempre com o lock do próprio array.
+    private final LongSparseArray<Boolean> albumsWithoutArt = new LongSparseArray<>();
+
+    // Pedidos em curso e as ImageViews à espera de cada um. Só acedido na thread principal.
+    private final LongSparseArray<ArrayList<ImageView>> pendingRequests = new LongSparseArray<>();
+    // Listas de espera já usadas, reaproveitadas pelos pedidos seguintes. Só acedido na thread principal.
+    private final ArrayDeque<ArrayList<ImageView>> spareLists = new ArrayDeque<>();
+
+    private AlbumArtCache(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.contentResolver = appContext.getContentResolver();
+        this.embeddedArtStore = EmbeddedArtStore.getInstance(appContext);
+        this.diskDir = new File(appContext.getCacheDir(), "album_art");
+
+        // Usa 1/16 da memória disponível para a app. Chega para várias páginas de miniaturas pequenas.
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16);
+        this.memoryCache = new BitmapLruCache(maxBytes);
+        appContext.registerComponentCallbacks(this);
+    }
+
+    public static AlbumArtCache getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (AlbumArtCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AlbumArtCache(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Mostra a capa do álbum na ImageView. Se a miniatura estiver em memória, é aplicada de imediato;
+     * senão mostra o placeholder e carrega-a em background (disco ou MediaStore).
+     *
+     * @param imageView     A ImageView de destino.
+     * @param albumId       O ID do álbum no MediaStore.
+     * @param sizePx        O tamanho (largura = altura) da miniatura, em píxeis.
+     * @param placeholderRes Imagem mostrada enquanto carrega ou quando não há capa.
+     */
+    @MainThread
+    public void loadInto(@NonNull ImageView imageView, long albumId, int sizePx, @DrawableRes int placeholderRes) {
+        long key = cacheKey(albumId, sizePx);
+        // A tag indica qual a capa que esta ImageView quer mostrar agora (as views são recicladas).
+        ArtTarget target = targetOf(imageView);
+        if (target.key == key && target.placeholderRes == placeholderRes && target.complete) {
+            // A ImageView já mostra esta capa (ex: a mesma linha foi revinculada): não há nada a fazer nem a alocar.
+            return;
+        }
+        target.key = key;
+        target.placeholderRes = placeholderRes;
+        target.complete = false;
+
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            showThumbnail(imageView, target, cached);
+            target.complete = true;
+            return;
+        }
+        showPlaceholder(imageView, target);
+        if (albumId <= 0 || hasNoArt(albumId)) {
+            // Resultado negativo já conhecido: não há nada para carregar.
+            target.complete = true;
+            return;
+        }
+
+        ArrayList<ImageView> waiting = pendingRequests.get(key);
+        if (waiting != null) {
+            // Já há um pedido para esta capa; esta ImageView só tem de esperar por ele.
+            if (!waiting.contains(imageView)) waiting.add(imageView);
+            return;
+        }
+        waiting = obtainList();
+        waiting.add(imageView);
+        pendingRequests.put(key, waiting);
+
+        // A tarefa em background é a única alocação de um pedido novo (que vai, de qualquer forma, ler do disco).
+        executorService.execute(() -> {
+            Bitmap bitmap = loadThumbnail(albumId, sizePx);
+            mainHandler.post(() -> deliver(key, bitmap));
+        });
+    }
+
+    /**
+     * Pedido antecipado de uma capa (ver AlbumArtPrefetcher). Pode ser cancelado enquanto ainda
+     * não começou a ser processado.
+     */
+    public static final class Prefetch {
+        private final long key;
+        private final Future<?> future;
+
+        private Prefetch(long key, Future<?> future) {
+            this.key = key;
+            this.future = future;
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+    }
+
+    /**
+     * Começa a carregar uma capa antes de a linha aparecer no ecrã, para que já esteja em memória no bind.
+     * @return O pedido criado, ou 'null' se a capa já estiver em memória, a carregar, ou se o álbum não tiver capa.
+     */
+    @MainThread
+    @Nullable
+    public Prefetch prefetch(long albumId, int sizePx) {
+        long key = cacheKey(albumId, sizePx);
+        if (albumId <= 0 || hasNoArt(albumId)
+                || pendingRequests.get(key) != null || memoryCache.get(key) != null) {
+            return null;
+        }
+        // Regista o pedido sem ImageViews à espera; um bind posterior junta-se a ele em vez de repetir o trabalho.
+        pendingRequests.put(key, obtainList());
+        Future<?> future = executorService.submit(() -> {
+            Bitmap bitmap = loadThumbnail(albumId, sizePx);
+            mainHandler.post(() -> deliver(key, bitmap));
+        });
+        return new Prefetch(key, future);
+    }
+
+    /**
+     * Cancela um pedido antecipado, se ainda não tiver começado e nenhuma linha visível depender dele.
+     */
+    @MainThread
+    public void cancel(@NonNull Prefetch prefetch) {
+        ArrayList<ImageView> waiting = pendingRequests.get(prefetch.key);
+        if (waiting != null && !waiting.isEmpty()) {
+            // Uma linha visível já está à espera desta capa: o pedido deixou de ser só antecipado.
+            return;
+        }
+        if (prefetch.future.cancel(false) && waiting != null) {
+            pendingRequests.remove(prefetch.key);
+            recycleList(waiting);
+        }
+    }
+
+    /**
+     * Entrega o resultado de um pedido a todas as ImageViews que ainda esperam por esta capa.
+     */
+    @MainThread
+    private void deliver(long key, @Nullable Bitmap bitmap) {
+        ArrayList<ImageView> waiting = pendingRequests.get(key);
+        if (waiting == null) return;
+        pendingRequests.remove(key);
+        if (bitmap != null) {
+            for (int i = 0; i < waiting.size(); i++) {
+                ImageView imageView = waiting.get(i);
+                // Só aplica se a ImageView não tiver sido reciclada para outra música entretanto.
+                Object tag = imageView.getTag(R.id.album_art_cache_key);
+                if (tag instanceof ArtTarget && ((ArtTarget) tag).key == key) {
+                    showThumbnail(imageView, (ArtTarget) tag, bitmap);
+                    ((ArtTarget) tag).complete = true;
+                }
+            }
+        }
+        recycleList(waiting);
+    }
+
+    private ArrayList<ImageView> obtainList() {
+        ArrayList<ImageView> list = spareLists.poll();
+        return list != null ? list : new ArrayList<>(2);
+    }
+
+    private void recycleList(ArrayList<ImageView> list) {
+        list.clear();
+        spareLists.offer(list);
+    }
+
+    /**
+     * O que uma ImageView está a mostrar (ou à espera de mostrar). É criado uma única vez por ImageView
+     * e depois reutilizado, para que o bind de uma linha não tenha de alocar uma chave nova.
+     */
+    private static final class ArtTarget {
+        long key = Long.MIN_VALUE;
+        int placeholderRes;
+        // 'true' quando a imagem final (a capa ou o placeholder de um álbum sem capa) já foi aplicada.
+        boolean complete;
+        // Os drawables desta ImageView, trocados entre si em vez de recriados a cada bind.
+        final ThumbnailDrawable thumbnail = new ThumbnailDrawable();
+        @Nullable
+        Drawable placeholder;
+        int loadedPlaceholderRes;
+    }
+
+    private static void showThumbnail(ImageView imageView, ArtTarget target, Bitmap bitmap) {
+        ThumbnailDrawable thumbnail = target.thumbnail;
+        Bitmap previous = thumbnail.getBitmap();
+        boolean sameSize = previous != null
+                && previous.getWidth() == bitmap.getWidth() && previous.getHeight() == bitmap.getHeight();
+        thumbnail.setBitmap(bitmap);
+        if (imageView.getDrawable() != thumbnail) {
+            imageView.setImageDrawable(thumbnail);
+        } else if (sameSize) {
+            thumbnail.invalidateSelf();
+        } else {
+            // O tamanho intrínseco mudou: a ImageView tem de voltar a calcular a escala.
+            imageView.setImageDrawable(null);
+            imageView.setImageDrawable(thumbnail);
+        }
+    }
+
+    private static void showPlaceholder(ImageView imageView, ArtTarget target) {
+        if (target.placeholder == null || target.loadedPlaceholderRes != target.placeholderRes) {
+            target.placeholder = ContextCompat.getDrawable(imageView.getContext(), target.placeholderRes);
+            target.loadedPlaceholderRes = target.placeholderRes;
+        }
+        if (imageView.getDrawable() != target.placeholder) {
+            imageView.setImageDrawable(target.placeholder);
+        }
+    }
+
+    private static ArtTarget targetOf(@NonNull ImageView imageView) {
+        Object tag = imageView.getTag(R.id.album_art_cache_key);
+        if (tag instanceof ArtTarget) {
+            return (ArtTarget) tag;
+        }
+        ArtTarget target = new ArtTarget();
+        imageView.setTag(R.id.album_art_cache_key, target);
+        return target;
+    }
+
+    /**
+     * Procura a miniatura em memória, depois em disco, nas capas embutidas e, por fim, no MediaStore.
+     * @return A miniatura recortada, ou 'null' se o álbum não tiver capa.
+     */
+    @WorkerThread
+    @Nullable
+    private Bitmap loadThumbnail(long albumId, int sizePx) {
+        long key = cacheKey(albumId, sizePx);
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) return bitmap;
+
+        if (new File(diskDir, albumId + NO_ART_SUFFIX).exists()) {
+            setNoArt(albumId, true);
+            return null;
+        }
+
+        File diskFile = new File(diskDir, albumId + "_" + sizePx + ".png");
+        if (diskFile.exists()) {
+            bitmap = BitmapFactory.decodeFile(diskFile.getPath());
+        }
+
+        if (bitmap == null) {
+            Bitmap source = embeddedArtStore.decodeThumbnail(albumId, sizePx);
+            try {
+                if (source == null) source = decodeSource(albumId, sizePx);
+            } catch (FileNotFoundException e) {
+                // O álbum não tem capa no MediaStore: memorizamos o resultado negativo.
+                rememberNoArt(albumId);
+                return null;
+            } catch (IOException | RuntimeException e) {
+                // Erro transitório (ex: permissões): não memorizamos, para tentar de novo mais tarde.
+                Log.w(TAG, "Falha ao ler a capa do álbum " + albumId, e);
+                return null;
+            }
+            if (source == null) {
+                rememberNoArt(albumId);
+                return null;
+            }
+            bitmap = circleCrop(source, sizePx);
+            if (bitmap != source) source.recycle();
+            writeToDisk(diskFile, bitmap);
+        }
+
+        memoryCache.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Lê a imagem original da capa, já reduzida para perto do tamanho final.
+     * No Android 10+ usa a API de miniaturas do MediaStore; o URI 'albumart' antigo falha muitas vezes.
+     */
+    @WorkerThread
+    @Nullable
+    private Bitmap decodeSource(long albumId, int sizePx) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Uri albumUri = ContentUris.withAppendedId(MediaStore.Audio.Albums.EXTERNAL_CONTENT_URI, albumId);
+            // Sem capa, o MediaProvider lança FileNotFoundException, que passa tal e qual e fica memorizada.
+            // Qualquer outra IOException (ficheiro ocupado, falha a descodificar) é transitória: não pode
+            // virar um marcador permanente.
+            return contentResolver.loadThumbnail(albumUri, new Size(sizePx, sizePx), null);
+        }
+
+        Uri artUri = ContentUris.withAppendedId(Uri.parse("content://media/external/audio/albumart"), albumId);
+        // Primeira passagem: só lê as dimensões, para escolher um fator de redução.
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = contentResolver.openInputStream(artUri)) {
+            if (in == null) return null;
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= sizePx && options.outHeight / (sampleSize * 2) >= sizePx) {
+            sampleSize *= 2;
+        }
+        // Segunda passagem: descodifica já reduzida.
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        try (InputStream in = contentResolver.openInputStream(artUri)) {
+            if (in == null) return null;
+            return BitmapFactory.decodeStream(in, null, options);
+        }
+    }
+
+    /**
+     * Recorta a imagem num círculo do tamanho final (center-crop), uma única vez por álbum e tamanho.
+     */
+    static Bitmap circleCrop(@NonNull Bitmap source, int sizePx) {
+        Bitmap output = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(output);
+
+        float scale = Math.max((float) sizePx / source.getWidth(), (float) sizePx / source.getHeight());
+        Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        matrix.postTranslate((sizePx - source.getWidth() * scale) / 2f, (sizePx - source.getHeight() * scale) / 2f);
+
+        BitmapShader shader = new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        shader.setLocalMatrix(matrix);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        paint.setShader(shader);
+
+        float radius = sizePx / 2f;
+        canvas.drawCircle(radius, radius, radius, paint);
+        return output;
+    }
+
+    /**
+     * Chamado pelo EmbeddedArtExtractor quando encontra a capa embutida de um álbum: esquece o resultado
+     * negativo que o MediaStore possa ter deixado, para que a capa seja carregada no próximo bind.
+     */
+    @WorkerThread
+    void onEmbeddedArtAvailable(long albumId) {
+        setNoArt(albumId, false);
+        //noinspection ResultOfMethodCallIgnored
+        new File(diskDir, albumId + NO_ART_SUFFIX).delete();
+    }
+
+    /**
+     * Põe na cache em memória uma miniatura (ou, com 'null', um álbum sem capa), como se tivesse sido carregada.
+     * Usado pelos testes de alocação, que não podem depender do MediaStore.
+     */
+    @VisibleForTesting
+    public void putForTesting(long albumId, int sizePx, @Nullable Bitmap bitmap) {
+        if (bitmap != null) {
+            memoryCache.put(cacheKey(albumId, sizePx), bitmap);
+        } else {
+            setNoArt(albumId, true);
+        }
+    }
+
+    private boolean hasNoArt(long albumId) {
+        synchronized (albumsWithoutArt) {
+            return albumsWithoutArt.get(albumId) != null;
+        }
+    }
+
+    private void setNoArt(long albumId, boolean noArt) {
+        synchronized (albumsWithoutArt) {
+            if (noArt) {
+                albumsWithoutArt.put(albumId, Boolean.TRUE);
+            } else {
+                albumsWithoutArt.remove(albumId);
+            }
+        }
+    }
+
+    private void rememberNoArt(long albumId) {
+        setNoArt(albumId, true);
+        try {
+            if (diskDir.exists() || diskDir.mkdirs()) {
+                //noinspection ResultOfMethodCallIgnored
+                new File(diskDir, albumId + NO_ART_SUFFIX).createNewFile();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Não foi possível guardar o resultado negativo do álbum " + albumId, e);
+        }
+    }
+
+    private void writeToDisk(File file, Bitmap bitmap) {
+        if (!diskDir.exists() && !diskDir.mkdirs()) return;
+        // Escreve num ficheiro temporário e depois renomeia, para nunca deixar um ficheiro meio escrito.
+        File tmp = new File(diskDir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Falha ao gravar a capa em disco", e);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Junta o ID do álbum e o tamanho numa única chave numérica (o tamanho ocupa os 16 bits de baixo).
+     */
+    static long cacheKey(long albumId, int sizePx) {
+        return (albumId << 16) | (sizePx & 0xFFFF);
+    }
+
+    // --- Avisos de memória do sistema (ComponentCallbacks2) ---
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            // A app está em background: as miniaturas podem ser relidas do disco quando voltar.
+            memoryCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            memoryCache.trimToSize(memoryCache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        memoryCache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        // As miniaturas não dependem da configuração.
+    }
+}
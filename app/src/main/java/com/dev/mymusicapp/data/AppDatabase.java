@@ -2,13 +2,24 @@ package com.dev.mymusicapp.data;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.dev.mymusicapp.model.ContainerHint;
+import com.dev.mymusicapp.model.MissingSong;
+import com.dev.mymusicapp.model.PlayEvent;
 import com.dev.mymusicapp.model.Playlist;
+import com.dev.mymusicapp.model.PlaylistRule;
 import com.dev.mymusicapp.model.PlaylistSongCrossRef;
+import com.dev.mymusicapp.model.RulePlaylist;
 import com.dev.mymusicapp.model.Song;
+import com.dev.mymusicapp.model.SongStats;
+import com.dev.mymusicapp.model.SongTags;
+import com.dev.mymusicapp.model.UnplayableFile;
 
 /**
  * A anotação @Database diz ao Room que esta classe representa a base de dados da aplicação.
@@ -18,7 +29,8 @@ import com.dev.mymusicapp.model.Song;
  * exportSchema   Se deve ou não exportar o esquema da base de dados para um ficheiro JSON. É útil para versionamento complexo,
  * mas para este projeto, definimos como 'false' para simplificar.
  */
-@Database(entities = {Playlist.class, Song.class, PlaylistSongCrossRef.class}, version = 1, exportSchema = false)
+@Database(entities = {Playlist.class, Song.class, PlaylistSongCrossRef.class, SongTags.class, PlayEvent.class, SongStats.class,
+        RulePlaylist.class, PlaylistRule.class, MissingSong.class, UnplayableFile.class, ContainerHint.class}, version = 12, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
 
     /**
@@ -29,6 +41,41 @@ public abstract class AppDatabase extends RoomDatabase {
      */
     public abstract PlaylistDao playlistDao();
 
+    /**
+     * Acesso às etiquetas lidas dos ficheiros pelo TagIndexer.
+     */
+    public abstract SongTagsDao songTagsDao();
+
+    /**
+     * Acesso ao histórico de reprodução escrito pelo PlayHistoryRecorder.
+     */
+    public abstract PlayHistoryDao playHistoryDao();
+
+    /**
+     * Acesso ao resumo do histórico por música (listas "Mais ouvidas" e "Ouvidas recentemente").
+     */
+    public abstract SongStatsDao songStatsDao();
+
+    /**
+     * Acesso às playlists com regras e à execução das regras.
+     */
+    public abstract RulePlaylistDao rulePlaylistDao();
+
+    /**
+     * Acesso à verificação da tabela 'songs' contra o MediaStore (ficheiros movidos ou apagados).
+     */
+    public abstract SongReconcileDao songReconcileDao();
+
+    /**
+     * Acesso à lista de ficheiros que não se conseguem tocar.
+     */
+    public abstract UnplayableFileDao unplayableFileDao();
+
+    /**
+     * Acesso ao formato conhecido de cada ficheiro (o extrator que o player usa).
+     */
+    public abstract ContainerHintDao containerHintDao();
+
     /**
      * Implementação do padrão Singleton para a nossa base de dados.
      * A palavra-chave 'volatile' garante que a variável INSTANCE seja sempre lida da memória principal,
@@ -38,6 +85,144 @@ public abstract class AppDatabase extends RoomDatabase {
      */
     private static volatile AppDatabase INSTANCE;
 
+    /**
+     * Migrações entre versões do esquema. Cada uma altera as tabelas existentes sem apagar
+     * as playlists que o utilizador já criou.
+     */
+    // v1 → v2: a tabela 'songs' passa a guardar o ID do álbum (chave da cache de capas).
+    // As linhas antigas recuperam o ID a partir do URI da capa, que termina com ele.
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE songs ADD COLUMN albumId INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("UPDATE songs SET albumId = CAST(substr(albumArtUri, length('content://media/external/audio/albumart/') + 1) AS INTEGER) "
+                    + "WHERE albumArtUri LIKE 'content://media/external/audio/albumart/%'");
+        }
+    };
+
+    // v2 → v3: a tabela 'songs' passa a guardar a data em que a música foi adicionada (ordenação por data).
+    // As linhas antigas ficam com 0 até a música voltar a ser guardada.
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE songs ADD COLUMN dateAdded INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    // v3 → v4: a tabela 'songs' passa a guardar o nome do álbum (navegação por artista e álbum).
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE songs ADD COLUMN album TEXT");
+        }
+    };
+
+    // v4 → v5: nova tabela 'song_tags' com as etiquetas lidas dos ficheiros (género, álbum, faixa, ano).
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS song_tags (dataPath TEXT NOT NULL, fileSize INTEGER NOT NULL, "
+                    + "lastModified INTEGER NOT NULL, format TEXT, genre TEXT, album TEXT, trackNumber INTEGER NOT NULL, "
+                    + "year INTEGER NOT NULL, PRIMARY KEY(dataPath))");
+        }
+    };
+
+    // v5 → v6: nova tabela 'play_history' com os eventos de reprodução (começou, saltada, chegou ao fim).
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS play_history (id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "dataPath TEXT NOT NULL, type INTEGER NOT NULL, timestamp INTEGER NOT NULL, positionMs INTEGER NOT NULL)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_play_history_dataPath ON play_history (dataPath)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_play_history_timestamp ON play_history (timestamp)");
+        }
+    };
+
+    // v6 → v7: nova tabela 'song_stats' com o resumo do histórico por música, preenchida a partir do histórico
+    // já existente. O score inicial é aproximado pela audição mais recente (fica abaixo do valor exato e
+    // corrige-se com as audições seguintes): o SQLite do Android não tem funções logarítmicas.
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS song_stats (dataPath TEXT NOT NULL, playCount INTEGER NOT NULL, "
+                    + "skipCount INTEGER NOT NULL, lastPlayed INTEGER NOT NULL, score REAL NOT NULL, PRIMARY KEY(dataPath))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_song_stats_lastPlayed ON song_stats (lastPlayed)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_song_stats_score ON song_stats (score)");
+            long minListen = PlayHistoryRecorder.MIN_LISTEN_MS;
+            database.execSQL("INSERT INTO song_stats (dataPath, playCount, skipCount, lastPlayed, score) "
+                    + "SELECT dataPath, "
+                    + "SUM(type = 2 OR (type = 1 AND positionMs >= " + minListen + ")), "
+                    + "SUM(type = 1 AND positionMs < " + minListen + "), "
+                    + "MAX(CASE WHEN type = 0 THEN timestamp ELSE 0 END), "
+                    + "COALESCE(MAX(CASE WHEN type = 2 OR (type = 1 AND positionMs >= " + minListen + ") "
+                    + "THEN timestamp * 1.0 / " + SongStats.HALF_LIFE_MS + " END), 0) "
+                    + "FROM play_history GROUP BY dataPath");
+        }
+    };
+
+    // v7 → v8: playlists com regras ('rule_playlists' e 'playlist_rules') e índices na tabela 'songs',
+    // que passa a guardar uma cópia da biblioteca, para as colunas usadas pelas regras.
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS rule_playlists (rulePlaylistId INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "name TEXT, matchAll INTEGER NOT NULL)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS playlist_rules (ruleId INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "rulePlaylistId INTEGER NOT NULL, field TEXT NOT NULL, value TEXT NOT NULL)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_playlist_rules_rulePlaylistId ON playlist_rules (rulePlaylistId)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_songs_artist ON songs (artist)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_songs_album ON songs (album)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_songs_duration ON songs (duration)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_songs_dateAdded ON songs (dateAdded)");
+        }
+    };
+
+    /**
+     * Migração da versão 8 para a 9: cria a tabela 'missing_songs' e o índice (id, dataPath) de 'songs',
+     * usados pelo SongReconciler.
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS missing_songs (dataPath TEXT NOT NULL, missingSince INTEGER NOT NULL, "
+                    + "PRIMARY KEY(dataPath))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_songs_id_dataPath ON songs (id, dataPath)");
+        }
+    };
+
+    /**
+     * Migração da versão 9 para a 10: cria a tabela 'unplayable_files', usada pelo UnplayableFiles.
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS unplayable_files (dataPath TEXT NOT NULL, fileSize INTEGER NOT NULL, "
+                    + "lastModified INTEGER NOT NULL, reason INTEGER NOT NULL, PRIMARY KEY(dataPath))");
+        }
+    };
+
+    /**
+     * Migração da versão 10 para a 11: cria a tabela 'container_hints', usada pelo ContainerHints.
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS container_hints (dataPath TEXT NOT NULL, container TEXT NOT NULL, "
+                    + "PRIMARY KEY(dataPath))");
+        }
+    };
+
+    /**
+     * Migração da versão 11 para a 12: apaga as entradas de 'unplayable_files' com o motivo 4 ("formato
+     * desconhecido"), que deixou de existir. Esses ficheiros podem ser tocáveis e voltam a ser verificados.
+     */
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("DELETE FROM unplayable_files WHERE reason = 4");
+        }
+    };
+
     /**
      * Metodo estático público que retorna a instância única da base de dados.
      * Se a instância ainda não existir, ela será criada.
@@ -57,6 +242,7 @@ public abstract class AppDatabase extends RoomDatabase {
                     // Se a instância ainda é nula, usamos o Room.databaseBuilder para criar a nossa base de dados.
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                                     AppDatabase.class, "music_database") // O nome do ficheiro da base de dados no dispositivo será "music_database".
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12) // Atualiza bases de dados antigas sem perder as playlists.
                             .build(); // Constrói e retorna a instância da base de dados.
                 }
             }
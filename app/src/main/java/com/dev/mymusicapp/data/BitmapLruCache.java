@@ -0,0 +1,98 @@
+package com.dev.mymusicapp.data;
+
+import android.graphics.Bitmap;
+import android.util.LongSparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Cache LRU de bitmaps com chaves 'long', limitada pelo número de bytes ocupados.
+ *
+ * Faz o mesmo que um LruCache<Long, Bitmap>, mas sem converter a chave num Long: um get (o caminho do scroll)
+ * não aloca nada. As entradas ficam num LongSparseArray e numa lista duplamente ligada pela ordem de uso;
+ * só um put de uma chave nova cria um nó. Thread-safe (os métodos são synchronized, como no LruCache).
+ */
+final class BitmapLruCache {
+
+    private static final class Node {
+        long key;
+        Bitmap bitmap;
+        Node previous;
+        Node next;
+    }
+
+    private final LongSparseArray<Node> nodes = new LongSparseArray<>();
+    private final int maxBytes;
+    private int sizeBytes;
+    // 'head' é a entrada usada mais recentemente; 'tail' a primeira a sair.
+    private Node head;
+    private Node tail;
+
+    BitmapLruCache(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Nullable
+    synchronized Bitmap get(long key) {
+        Node node = nodes.get(key);
+        if (node == null) return null;
+        if (node != head) {
+            unlink(node);
+            linkAsHead(node);
+        }
+        return node.bitmap;
+    }
+
+    synchronized void put(long key, @NonNull Bitmap bitmap) {
+        Node node = nodes.get(key);
+        if (node != null) {
+            sizeBytes -= node.bitmap.getAllocationByteCount();
+            unlink(node);
+        } else {
+            node = new Node();
+            node.key = key;
+            nodes.put(key, node);
+        }
+        node.bitmap = bitmap;
+        sizeBytes += bitmap.getAllocationByteCount();
+        linkAsHead(node);
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Retira as entradas menos usadas até o total não passar de 'limitBytes'.
+     */
+    synchronized void trimToSize(int limitBytes) {
+        while (sizeBytes > limitBytes && tail != null) {
+            Node node = tail;
+            unlink(node);
+            nodes.remove(node.key);
+            sizeBytes -= node.bitmap.getAllocationByteCount();
+        }
+    }
+
+    synchronized void evictAll() {
+        trimToSize(-1);
+    }
+
+    int maxSize() {
+        return maxBytes;
+    }
+
+    private void unlink(Node node) {
+        if (node.previous != null) node.previous.next = node.next;
+        else head = node.next;
+        if (node.next != null) node.next.previous = node.previous;
+        else tail = node.previous;
+        node.previous = null;
+        node.next = null;
+    }
+
+    private void linkAsHead(Node node) {
+        node.next = head;
+        if (head != null) head.previous = node;
+        head = node;
+        if (tail == null) tail = node;
+    }
+}
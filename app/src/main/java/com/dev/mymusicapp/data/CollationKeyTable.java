@@ -0,0 +1,99 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+
+import java.text.Collator;
+import java.util.Arrays;
+
+/**
+ * CollationKeyTable guarda as chaves de ordenação (Collator) de um texto de cada música, calculadas uma única vez.
+ *
+ * Em vez de um objeto CollationKey por música, todas as chaves ficam seguidas num único array de bytes,
+ * com um array de inteiros a marcar onde cada uma começa. Comparar duas músicas é comparar dois intervalos
+ * de bytes, o que é muito mais rápido do que chamar Collator.compare dentro de uma ordenação.
+ */
+final class CollationKeyTable {
+
+    static final CollationKeyTable EMPTY = new CollationKeyTable(new byte[0], new int[1]);
+
+    private final byte[] bytes;
+    // A chave 'i' ocupa bytes[offsets[i] .. offsets[i + 1]).
+    private final int[] offsets;
+
+    private CollationKeyTable(byte[] bytes, int[] offsets) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+    }
+
+    int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Compara as chaves 'a' e 'b' (bytes sem sinal, como CollationKey.compareTo).
+     */
+    int compare(int a, int b) {
+        int i = offsets[a], endA = offsets[a + 1];
+        int j = offsets[b], endB = offsets[b + 1];
+        while (i < endA && j < endB) {
+            int diff = (bytes[i++] & 0xFF) - (bytes[j++] & 0xFF);
+            if (diff != 0) return diff;
+        }
+        return (endA - offsets[a]) - (endB - offsets[b]);
+    }
+
+    /**
+     * Cria uma nova tabela com as mesmas chaves pela ordem indicada: a chave 'i' da nova tabela é a chave 'order[i]' desta.
+     */
+    @NonNull
+    CollationKeyTable permute(@NonNull int[] order) {
+        Builder builder = new Builder(order.length, bytes.length);
+        for (int index : order) {
+            builder.addFrom(this, index);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Acumula chaves, pela ordem em que são adicionadas.
+     */
+    static final class Builder {
+        private byte[] bytes;
+        private final int[] offsets;
+        private int count = 0;
+
+        Builder(int capacity, int expectedBytes) {
+            this.bytes = new byte[Math.max(16, expectedBytes)];
+            this.offsets = new int[capacity + 1];
+        }
+
+        /**
+         * Calcula e adiciona a chave de um texto.
+         */
+        void add(@NonNull Collator collator, @NonNull String text) {
+            append(collator.getCollationKey(text).toByteArray(), 0, -1);
+        }
+
+        /**
+         * Copia uma chave já calculada noutra tabela (sem voltar a usar o Collator).
+         */
+        void addFrom(@NonNull CollationKeyTable table, int index) {
+            append(table.bytes, table.offsets[index], table.offsets[index + 1] - table.offsets[index]);
+        }
+
+        private void append(byte[] source, int from, int length) {
+            if (length < 0) length = source.length;
+            int start = offsets[count];
+            if (start + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + length));
+            }
+            System.arraycopy(source, from, bytes, start, length);
+            offsets[++count] = start + length;
+        }
+
+        @NonNull
+        CollationKeyTable build() {
+            return new CollationKeyTable(Arrays.copyOf(bytes, offsets[count]), Arrays.copyOf(offsets, count + 1));
+        }
+    }
+}
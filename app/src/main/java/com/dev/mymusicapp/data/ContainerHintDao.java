@@ -0,0 +1,21 @@
+package com.dev.mymusicapp.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.dev.mymusicapp.model.ContainerHint;
+
+import java.util.List;
+
+@Dao
+public interface ContainerHintDao {
+
+    // Carregada uma vez para memória pelo ContainerHints.
+    @Query("SELECT * FROM container_hints")
+    List<ContainerHint> getAll();
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(ContainerHint hint);
+}
@@ -0,0 +1,102 @@
+package com.dev.mymusicapp.data;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dev.mymusicapp.model.ContainerHint;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ContainerHints guarda o formato (ContainerType) de cada ficheiro, detetado pelo PlayabilityProbe quando a
+ * música está para tocar. Com o formato conhecido o player usa diretamente o extrator certo, em vez de ler o
+ * início do ficheiro com cada extrator até um o reconhecer (lento num cartão SD).
+ *
+ * Se o extrator indicado falhar, forget marca o ficheiro como SNIFF: a partir daí usa-se sempre a deteção do
+ * ExoPlayer e a mesma dica não volta a ser gravada. A tabela 'container_hints' é mantida em memória; get pode
+ * ser chamado de qualquer thread (o player chama-o na thread de carregamento).
+ */
+public class ContainerHints {
+
+    private static final String TAG = "ContainerHints";
+
+    private static volatile ContainerHints INSTANCE;
+
+    private final ContainerHintDao dao;
+    private final Map<String, ContainerType> hints = new ConcurrentHashMap<>();
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        runnable.run();
+    }, "ContainerHints"));
+
+    private ContainerHints(Context context) {
+        dao = AppDatabase.getDatabase(context.getApplicationContext()).containerHintDao();
+        executorService.execute(() -> {
+            for (ContainerHint hint : dao.getAll()) {
+                try {
+                    // putIfAbsent: uma dica gravada entretanto é mais recente do que a da base de dados.
+                    hints.putIfAbsent(hint.dataPath, ContainerType.valueOf(hint.container));
+                } catch (IllegalArgumentException e) {
+                    // Um formato que deixou de existir: fica a deteção do ExoPlayer.
+                }
+            }
+            Log.d(TAG, hints.size() + " formatos conhecidos");
+        });
+    }
+
+    public static ContainerHints getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (ContainerHints.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ContainerHints(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @return O formato do ficheiro, ou null se ainda não é conhecido. SNIFF quer dizer "usar a deteção do ExoPlayer".
+     */
+    @Nullable
+    public ContainerType get(@NonNull String dataPath) {
+        return hints.get(dataPath);
+    }
+
+    /**
+     * Grava o formato detetado (só escreve na base de dados se mudou). Ignorado se o ficheiro está marcado como SNIFF.
+     */
+    public void put(@NonNull String dataPath, @NonNull ContainerType container) {
+        ContainerType previous = hints.get(dataPath);
+        if (previous == container || previous == ContainerType.SNIFF) return;
+        hints.put(dataPath, container);
+        save(dataPath, container);
+    }
+
+    /**
+     * O extrator indicado não conseguiu abrir o ficheiro: passa a usar-se a deteção do ExoPlayer.
+     * @return 'true' se havia uma dica (vale a pena tentar de novo sem ela).
+     */
+    public boolean forget(@NonNull String dataPath) {
+        ContainerType previous = hints.get(dataPath);
+        if (previous == null || previous == ContainerType.SNIFF) return false;
+        hints.put(dataPath, ContainerType.SNIFF);
+        save(dataPath, ContainerType.SNIFF);
+        Log.w(TAG, "Formato " + previous + " errado: " + dataPath);
+        return true;
+    }
+
+    private void save(String dataPath, ContainerType container) {
+        ContainerHint hint = new ContainerHint();
+        hint.dataPath = dataPath;
+        hint.container = container.name();
+        executorService.execute(() -> dao.upsert(hint));
+    }
+}
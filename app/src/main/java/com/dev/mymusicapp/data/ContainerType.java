@@ -0,0 +1,49 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * O formato (contentor) de um ficheiro de áudio, detetado pelos primeiros bytes. É guardado pelo ContainerHints
+ * para o player abrir o ficheiro diretamente com o extrator certo, sem testar os outros.
+ */
+public enum ContainerType {
+    MP3,
+    ADTS,
+    FLAC,
+    OGG,
+    MP4,
+    WAV,
+    AMR,
+    MATROSKA,
+    // O extrator indicado falhou neste ficheiro: usa-se sempre a deteção do ExoPlayer.
+    SNIFF;
+
+    /**
+     * @param head Os primeiros bytes do áudio (depois da etiqueta ID3v2, se houver), pelo menos 12.
+     * @return O formato, ou null se a assinatura não é reconhecida (fica a deteção do ExoPlayer).
+     */
+    @Nullable
+    static ContainerType detect(@NonNull ByteBuffer head) {
+        if (TagInput.startsWith(head, 0, "fLaC")) return FLAC;
+        if (TagInput.startsWith(head, 0, "OggS")) return OGG;
+        if (TagInput.startsWith(head, 0, "RIFF")) return TagInput.startsWith(head, 8, "WAVE") ? WAV : null;
+        if (TagInput.startsWith(head, 0, "#!AMR")) return AMR;
+        if (TagInput.startsWith(head, 4, "ftyp")) return MP4;
+        if (head.limit() >= 4 && head.getInt(0) == 0x1A45DFA3) return MATROSKA;
+        return head.limit() >= 2 ? frameSync(head, 0) : null;
+    }
+
+    /**
+     * O formato do frame MPEG que começa em 'offset': 11 bits de sincronismo; o ADTS (AAC) tem 12 e "layer" 00.
+     */
+    @Nullable
+    static ContainerType frameSync(@NonNull ByteBuffer buffer, int offset) {
+        if ((buffer.get(offset) & 0xFF) != 0xFF) return null;
+        int next = buffer.get(offset + 1) & 0xFF;
+        if ((next & 0xF6) == 0xF0) return ADTS;
+        return (next & 0xE0) == 0xE0 ? MP3 : null;
+    }
+}
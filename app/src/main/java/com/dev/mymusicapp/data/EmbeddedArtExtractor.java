@@ -0,0 +1,214 @@
+package com.dev.mymusicapp.data;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dev.mymusicapp.model.Song;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * EmbeddedArtExtractor procura, em background, as capas embutidas nos ficheiros (APIC do ID3v2, 'covr' do MP4,
+ * PICTURE / METADATA_BLOCK_PICTURE do FLAC e do Ogg) dos álbuns que ainda não foram verificados, e guarda-as
+ * no EmbeddedArtStore. Muitos ficheiros têm capa embutida que o URI 'albumart' do MediaStore não encontra.
+ *
+ * - Só duas threads de trabalho, com prioridade de background: cada imagem embutida pode ter vários megabytes
+ *   e é descodificada, por isso o paralelismo é limitado para não disputar memória nem I/O com a reprodução.
+ * - Por álbum são tentadas no máximo MAX_SONGS_PER_ALBUM faixas; a primeira capa encontrada serve o álbum todo.
+ * - A imagem é descodificada já reduzida (inSampleSize) e recortada num quadrado pequeno. Antes disso
+ *   é calculado o hash do conteúdo: se essa imagem já estiver guardada (outro álbum com a mesma capa),
+ *   só se acrescenta o registo ao índice, sem descodificar nada.
+ * - Os álbuns sem capa embutida também ficam registados, para não serem relidos a cada arranque.
+ */
+public class EmbeddedArtExtractor {
+
+    private static final String TAG = "EmbeddedArtExtractor";
+
+    private static final int THREADS = 2;
+    // Álbuns por tarefa: o pedido seguinte interrompe o trabalho entre álbuns.
+    private static final int BATCH_SIZE = 16;
+    private static final int MAX_SONGS_PER_ALBUM = 3;
+
+    private static volatile EmbeddedArtExtractor INSTANCE;
+
+    private final Context appContext;
+    private final EmbeddedArtStore store;
+    // Coordena as extrações, uma de cada vez.
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final ExecutorService workers;
+
+    // A fotografia mais recente que falta processar ('null' quando não há nada pendente).
+    private final AtomicReference<LibrarySnapshot> requested = new AtomicReference<>();
+
+    private EmbeddedArtExtractor(Context context) {
+        appContext = context.getApplicationContext();
+        store = EmbeddedArtStore.getInstance(appContext);
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(THREADS, runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "EmbeddedArt-" + threadNumber.incrementAndGet()));
+    }
+
+    public static EmbeddedArtExtractor getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (EmbeddedArtExtractor.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new EmbeddedArtExtractor(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Pede a extração das capas dos álbuns ainda não verificados. Pedidos seguidos juntam-se
+     * e só a fotografia mais recente é processada.
+     */
+    public void requestExtraction(@NonNull LibrarySnapshot snapshot) {
+        if (requested.getAndSet(snapshot) == null) {
+            coordinator.execute(this::drainRequests);
+        }
+    }
+
+    private void drainRequests() {
+        LibrarySnapshot snapshot;
+        while ((snapshot = requested.get()) != null) {
+            try {
+                extract(snapshot);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Falha na extração das capas embutidas", e);
+            }
+            requested.compareAndSet(snapshot, null);
+        }
+    }
+
+    private boolean isSuperseded(LibrarySnapshot snapshot) {
+        return requested.get() != snapshot;
+    }
+
+    private void extract(LibrarySnapshot snapshot) {
+        List<LibraryGroups.Group> pending = new ArrayList<>();
+        for (LibraryGroups.Group album : snapshot.getGroups().getAlbums()) {
+            if (album.getAlbumId() > 0 && !store.hasEntry(album.getAlbumId())) {
+                pending.add(album);
+            }
+        }
+        if (pending.isEmpty()) return;
+
+        long start = System.nanoTime();
+        CompletionService<Integer> completion = new ExecutorCompletionService<>(workers);
+        int batches = 0;
+        for (int i = 0; i < pending.size(); i += BATCH_SIZE) {
+            final List<LibraryGroups.Group> batch = pending.subList(i, Math.min(pending.size(), i + BATCH_SIZE));
+            completion.submit(() -> extractBatch(batch, snapshot));
+            batches++;
+        }
+        int found = 0;
+        for (int i = 0; i < batches; i++) {
+            try {
+                found += completion.take().get();
+            } catch (ExecutionException e) {
+                Log.w(TAG, "Lote de capas falhou", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        Log.d(TAG, "Capas embutidas: " + found + " de " + pending.size() + " álbuns em "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Processa um lote de álbuns numa thread de trabalho.
+     * @return Quantos álbuns ficaram com capa.
+     */
+    private int extractBatch(List<LibraryGroups.Group> albums, LibrarySnapshot snapshot) throws NoSuchAlgorithmException {
+        TagReader reader = new TagReader();
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        int found = 0;
+        for (LibraryGroups.Group album : albums) {
+            if (isSuperseded(snapshot)) break;
+            long hash = EmbeddedArtStore.NO_ART;
+            List<Song> songs = album.getSongs();
+            for (int i = 0; i < songs.size() && i < MAX_SONGS_PER_ALBUM && hash == EmbeddedArtStore.NO_ART; i++) {
+                byte[] picture = reader.readPicture(songs.get(i).getDataPath());
+                if (picture != null) hash = store(picture, digest);
+            }
+            store.put(album.getAlbumId(), hash);
+            if (hash != EmbeddedArtStore.NO_ART) {
+                found++;
+                AlbumArtCache.getInstance(appContext).onEmbeddedArtAvailable(album.getAlbumId());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Guarda a miniatura da imagem, se ainda não existir uma com o mesmo conteúdo.
+     * @return O hash da imagem, ou NO_ART se não for uma imagem que se consiga descodificar.
+     */
+    private long store(byte[] picture, MessageDigest digest) {
+        long hash = contentHash(picture, digest);
+        if (store.fileForHash(hash).exists()) return hash;
+        Bitmap thumbnail = decodeThumbnail(picture);
+        if (thumbnail == null) return EmbeddedArtStore.NO_ART;
+        boolean written = store.writeThumbnail(hash, thumbnail);
+        thumbnail.recycle();
+        return written ? hash : EmbeddedArtStore.NO_ART;
+    }
+
+    // Os primeiros 8 bytes do SHA-1; nunca devolve NO_ART (reservado).
+    private static long contentHash(byte[] picture, MessageDigest digest) {
+        byte[] sha = digest.digest(picture);
+        long hash = 0;
+        for (int i = 0; i < 8; i++) hash = (hash << 8) | (sha[i] & 0xFF);
+        return hash == EmbeddedArtStore.NO_ART ? 1 : hash;
+    }
+
+    /**
+     * Descodifica a imagem já reduzida (a primeira potência de 2 que ainda cobre a miniatura)
+     * e recorta o quadrado central no tamanho da miniatura.
+     */
+    @Nullable
+    private static Bitmap decodeThumbnail(byte[] picture) {
+        int size = EmbeddedArtStore.THUMBNAIL_SIZE;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(picture, 0, picture.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= size && options.outHeight / (sampleSize * 2) >= size) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap source = BitmapFactory.decodeByteArray(picture, 0, picture.length, options);
+        if (source == null) return null;
+
+        int side = Math.min(source.getWidth(), source.getHeight());
+        Bitmap square = Bitmap.createBitmap(source, (source.getWidth() - side) / 2, (source.getHeight() - side) / 2, side, side);
+        if (square != source) source.recycle();
+        if (side <= size) return square;
+        Bitmap scaled = Bitmap.createScaledBitmap(square, size, size, true);
+        if (scaled != square) square.recycle();
+        return scaled;
+    }
+}
@@ -0,0 +1,191 @@
+package com.dev.mymusicapp.data;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * EmbeddedArtStore guarda em disco as capas extraídas dos próprios ficheiros (ver EmbeddedArtExtractor).
+ *
+ * - Cada imagem diferente é guardada uma única vez, como uma miniatura quadrada em JPEG cujo nome é o hash
+ *   do conteúdo original: as faixas de um álbum (ou vários álbuns) com a mesma capa embutida partilham o ficheiro.
+ * - Um índice binário ('index.bin') associa cada álbum ao hash da sua capa. Só se acrescentam registos de
+ *   16 bytes no fim (o último registo de um álbum ganha), cada um com uma única escrita. Um registo incompleto
+ *   deixado por uma escrita interrompida é cortado ao carregar o índice, antes de se acrescentar outro: assim
+ *   os registos seguintes não ficam desalinhados e perde-se no máximo o registo em curso.
+ *   O hash 0 marca um álbum já verificado sem capa embutida.
+ *
+ * Fica na pasta de ficheiros da app (e não na de cache) porque voltar a extrair tudo obriga a reler todos os ficheiros.
+ */
+public class EmbeddedArtStore {
+
+    private static final String TAG = "EmbeddedArtStore";
+
+    // Hash reservado para "verificado, sem capa embutida".
+    static final long NO_ART = 0L;
+    // Lado das miniaturas guardadas: chega para as capas das listas e do leitor, que são recortadas a partir desta.
+    static final int THUMBNAIL_SIZE = 256;
+
+    private static final String INDEX_FILE = "index.bin";
+    private static final int RECORD_SIZE = 16;
+
+    private static volatile EmbeddedArtStore INSTANCE;
+
+    private final File dir;
+    // Álbum → hash da capa. Carregado do índice na primeira utilização; protegido por 'this'.
+    private Map<Long, Long> index;
+    // Um registo do índice (álbum, hash), escrito de uma só vez. Protegido por 'this'.
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    private EmbeddedArtStore(Context context) {
+        dir = new File(context.getApplicationContext().getFilesDir(), "embedded_art");
+    }
+
+    public static EmbeddedArtStore getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (EmbeddedArtStore.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new EmbeddedArtStore(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Indica se o álbum já foi verificado (com ou sem capa embutida).
+     */
+    @WorkerThread
+    synchronized boolean hasEntry(long albumId) {
+        return index().containsKey(albumId);
+    }
+
+    /**
+     * O ficheiro da miniatura do álbum, ou null se o álbum não tiver capa embutida (ou ainda não foi verificado).
+     */
+    @WorkerThread
+    @Nullable
+    public synchronized File getThumbnailFile(long albumId) {
+        Long hash = index().get(albumId);
+        if (hash == null || hash == NO_ART) return null;
+        File file = fileForHash(hash);
+        return file.exists() ? file : null;
+    }
+
+    /**
+     * Descodifica a miniatura do álbum, já reduzida para perto de 'sizePx'.
+     * @return O bitmap, ou null se o álbum não tiver capa embutida guardada.
+     */
+    @WorkerThread
+    @Nullable
+    public Bitmap decodeThumbnail(long albumId, int sizePx) {
+        File file = getThumbnailFile(albumId);
+        if (file == null) return null;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        // As miniaturas têm THUMBNAIL_SIZE de lado; para tamanhos pequenos basta metade (ou menos) dos píxeis.
+        int sampleSize = 1;
+        while (THUMBNAIL_SIZE / (sampleSize * 2) >= sizePx) sampleSize *= 2;
+        options.inSampleSize = sampleSize;
+        return BitmapFactory.decodeFile(file.getPath(), options);
+    }
+
+    /**
+     * O ficheiro de uma imagem pelo hash do seu conteúdo (pode ainda não existir).
+     */
+    @NonNull
+    File fileForHash(long hash) {
+        return new File(dir, String.format(Locale.ROOT, "%016x.jpg", hash));
+    }
+
+    /**
+     * Guarda uma miniatura nova, escrevendo num ficheiro temporário e renomeando no fim.
+     * @return 'false' se não foi possível escrever.
+     */
+    @WorkerThread
+    boolean writeThumbnail(long hash, @NonNull Bitmap thumbnail) {
+        if (!dir.exists() && !dir.mkdirs()) return false;
+        File file = fileForHash(hash);
+        File tmp = new File(dir, file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, 88, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Falha ao gravar a capa embutida", e);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return false;
+        }
+        if (!tmp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return file.exists();
+        }
+        return true;
+    }
+
+    /**
+     * Associa o álbum à capa com este hash (ou a NO_ART) e acrescenta o registo ao índice.
+     */
+    @WorkerThread
+    synchronized void put(long albumId, long hash) {
+        Long previous = index().put(albumId, hash);
+        if (previous != null && previous == hash) return;
+        if (!dir.exists() && !dir.mkdirs()) return;
+        record.clear();
+        record.putLong(albumId).putLong(hash);
+        try (FileOutputStream out = new FileOutputStream(new File(dir, INDEX_FILE), true)) {
+            out.write(record.array(), 0, RECORD_SIZE);
+        } catch (IOException e) {
+            // Fica só em memória: o álbum volta a ser verificado no próximo arranque.
+            Log.w(TAG, "Falha ao escrever o índice das capas embutidas", e);
+        }
+    }
+
+    // Lê o índice na primeira utilização. Um registo incompleto no fim (escrita interrompida) é cortado,
+    // para o próximo put ficar alinhado com os registos anteriores.
+    private Map<Long, Long> index() {
+        if (index != null) return index;
+        index = new HashMap<>();
+        File file = new File(dir, INDEX_FILE);
+        if (!file.exists()) return index;
+        long records = file.length() / RECORD_SIZE;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            for (long i = 0; i < records; i++) {
+                index.put(in.readLong(), in.readLong());
+            }
+        } catch (EOFException e) {
+            // Índice truncado: ficam os registos completos.
+        } catch (IOException e) {
+            Log.w(TAG, "Falha ao ler o índice das capas embutidas", e);
+        }
+        if (file.length() != records * RECORD_SIZE) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(records * RECORD_SIZE);
+            } catch (IOException e) {
+                // Sem cortar, um registo novo ficaria desalinhado: é melhor recomeçar o índice do zero.
+                Log.w(TAG, "Falha ao cortar o índice das capas embutidas", e);
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+                index.clear();
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,98 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dev.mymusicapp.model.SongTags;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Lê as etiquetas e a capa de um ficheiro FLAC: percorre os cabeçalhos dos blocos de metadados (4 bytes cada)
+ * e só o bloco pedido é lido (VORBIS_COMMENT para as etiquetas, PICTURE para a capa). Os outros são saltados.
+ */
+final class FlacTagReader {
+
+    private static final int BLOCK_VORBIS_COMMENT = 4;
+    private static final int BLOCK_PICTURE = 6;
+
+    private FlacTagReader() {
+    }
+
+    /**
+     * @param offset A posição do "fLaC" (0, ou depois de um ID3v2).
+     */
+    static void parse(@NonNull TagInput input, long offset, @NonNull SongTags tags) throws IOException {
+        long comments = findBlock(input, offset, BLOCK_VORBIS_COMMENT, false);
+        if (comments >= 0) {
+            int length = blockLength(input.read(comments, 4));
+            VorbisComments.parse(input.read(comments + 4, Math.min(length, TagInput.MAX_READ)), tags);
+        }
+    }
+
+    /**
+     * Lê a imagem de um bloco PICTURE: a capa da frente, se houver, senão a primeira imagem.
+     * @return Os bytes da imagem, ou null.
+     */
+    @Nullable
+    static byte[] readPicture(@NonNull TagInput input, long offset) throws IOException {
+        long front = findBlock(input, offset, BLOCK_PICTURE, true);
+        long block = front >= 0 ? front : findBlock(input, offset, BLOCK_PICTURE, false);
+        if (block < 0) return null;
+        int length = blockLength(input.read(block, 4));
+        return pictureData(ByteBuffer.wrap(input.readBytes(block + 4, length)));
+    }
+
+    /**
+     * Extrai a imagem da estrutura de imagem do FLAC (big-endian): tipo, MIME, descrição, dimensões, dados.
+     * A mesma estrutura aparece, em base64, nos comentários do Ogg.
+     */
+    @Nullable
+    static byte[] pictureData(@NonNull ByteBuffer picture) {
+        try {
+            picture.position(4); // Tipo de imagem.
+            int mimeLength = picture.getInt();
+            picture.position(picture.position() + mimeLength);
+            int descriptionLength = picture.getInt();
+            picture.position(picture.position() + descriptionLength + 16); // Largura, altura, profundidade, cores.
+            int dataLength = picture.getInt();
+            if (dataLength <= 0 || dataLength > picture.remaining()) return null;
+            byte[] data = new byte[dataLength];
+            picture.get(data);
+            return data;
+        } catch (RuntimeException e) {
+            // Estrutura truncada ou inválida.
+            return null;
+        }
+    }
+
+    /**
+     * @param frontCoverOnly Nos blocos PICTURE, só aceita a capa da frente.
+     * @return A posição do cabeçalho do primeiro bloco do tipo pedido, ou -1.
+     */
+    private static long findBlock(TagInput input, long offset, int wantedType, boolean frontCoverOnly) throws IOException {
+        long position = offset + 4;
+        while (position + 4 <= input.size()) {
+            ByteBuffer header = input.read(position, 4);
+            if (header.limit() < 4) return -1;
+            int first = header.get(0) & 0xFF;
+            boolean last = (first & 0x80) != 0;
+            int type = first & 0x7F;
+            int length = blockLength(header);
+            if (type == wantedType) {
+                if (!frontCoverOnly || input.read(position + 4, 4).getInt(0) == Id3v2TagReader.PICTURE_FRONT_COVER) {
+                    return position;
+                }
+            }
+            if (last) return -1;
+            position += 4 + length;
+        }
+        return -1;
+    }
+
+    // Cabeçalho de um bloco: [último (1 bit) + tipo (7 bits)][comprimento (24 bits)].
+    private static int blockLength(ByteBuffer header) {
+        return ((header.get(1) & 0xFF) << 16) | ((header.get(2) & 0xFF) << 8) | (header.get(3) & 0xFF);
+    }
+}
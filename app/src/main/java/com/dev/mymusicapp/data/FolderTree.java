@@ -0,0 +1,324 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+
+import com.dev.mymusicapp.model.Song;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * FolderTree é a árvore de pastas da biblioteca: uma trie comprimida sobre os caminhos dos ficheiros
+ * (getDataPath), com o número de músicas de cada pasta (incluindo as subpastas).
+ *
+ * - "Comprimida": uma cadeia de pastas com um só filho e sem músicas (ex: /storage/emulated/0/Music)
+ *   é um único nó, em vez de um nó por pasta.
+ * - Os nós não guardam Strings: o nome de um nó é um intervalo [início, fim) do caminho de uma das suas
+ *   músicas, que já está em memória. Cada nó ocupa alguns inteiros em arrays paralelos.
+ * - Os filhos de cada nó ficam numa lista ligada já ordenada pelo nome, por isso listar uma pasta custa
+ *   O(filhos), sem ordenar nem percorrer a biblioteca.
+ *
+ * É construída a partir de uma LibrarySnapshot (uma vez por fotografia) e nunca é alterada depois.
+ */
+public final class FolderTree {
+
+    // O nó raiz (caminho vazio). Os seus filhos são as pastas de topo.
+    public static final int ROOT = 0;
+    public static final int NO_NODE = -1;
+
+    private final List<Song> songs;
+
+    // Nome do nó 'i': songs.get(labelSong[i]).getDataPath().substring(labelStart[i], labelEnd[i]).
+    // Inclui a '/' inicial de cada pasta (ex: "/Music" ou "/storage/emulated/0/Music").
+    private int[] labelSong;
+    private int[] labelStart;
+    private int[] labelEnd;
+    private int[] parent;
+    private int[] firstChild;
+    private int[] lastChild;
+    private int[] nextSibling;
+    private int[] songCount;
+    // As músicas que estão diretamente na pasta, numa lista ligada pelas posições na biblioteca.
+    private int[] firstSong;
+    private int[] lastSong;
+    private int[] directCount;
+    private final int[] nextSong;
+    private int nodeCount = 0;
+
+    FolderTree(@NonNull List<Song> songs) {
+        this.songs = songs;
+        int n = songs.size();
+        int capacity = Math.max(16, n / 4);
+        labelSong = new int[capacity];
+        labelStart = new int[capacity];
+        labelEnd = new int[capacity];
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        lastChild = new int[capacity];
+        nextSibling = new int[capacity];
+        songCount = new int[capacity];
+        firstSong = new int[capacity];
+        lastSong = new int[capacity];
+        directCount = new int[capacity];
+        nextSong = new int[n];
+        Arrays.fill(nextSong, -1);
+        newNode(NO_NODE, 0, 0, 0);
+
+        // Com os caminhos ordenados, todas as músicas de uma pasta ficam seguidas: a pasta onde a próxima
+        // música entra é sempre o último filho do nó, por isso não é preciso procurar entre os irmãos.
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        IntSort.stableSort(order, (a, b) -> compareFolders(songs.get(a).getDataPath(), songs.get(b).getDataPath()));
+        for (int libraryIndex : order) {
+            insert(libraryIndex);
+        }
+    }
+
+    /**
+     * Compara as pastas de dois caminhos, letra a letra, com a '/' antes de qualquer outro carácter
+     * (assim "Rock" vem antes de "Rock Nacional", e o conteúdo de cada pasta fica seguido).
+     * Caminhos da mesma pasta são comparados pelo nome do ficheiro.
+     */
+    private static int compareFolders(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char ca = a.charAt(i), cb = b.charAt(i);
+            if (ca != cb) {
+                if (ca == '/') return -1;
+                if (cb == '/') return 1;
+                return ca - cb;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    private int newNode(int parentNode, int song, int start, int end) {
+        if (nodeCount == labelSong.length) {
+            int capacity = nodeCount * 2;
+            labelSong = Arrays.copyOf(labelSong, capacity);
+            labelStart = Arrays.copyOf(labelStart, capacity);
+            labelEnd = Arrays.copyOf(labelEnd, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            lastChild = Arrays.copyOf(lastChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            songCount = Arrays.copyOf(songCount, capacity);
+            firstSong = Arrays.copyOf(firstSong, capacity);
+            lastSong = Arrays.copyOf(lastSong, capacity);
+            directCount = Arrays.copyOf(directCount, capacity);
+        }
+        int node = nodeCount++;
+        labelSong[node] = song;
+        labelStart[node] = start;
+        labelEnd[node] = end;
+        parent[node] = parentNode;
+        firstChild[node] = NO_NODE;
+        lastChild[node] = NO_NODE;
+        nextSibling[node] = NO_NODE;
+        songCount[node] = 0;
+        firstSong[node] = -1;
+        lastSong[node] = -1;
+        directCount[node] = 0;
+        if (parentNode != NO_NODE) {
+            if (lastChild[parentNode] == NO_NODE) {
+                firstChild[parentNode] = node;
+            } else {
+                nextSibling[lastChild[parentNode]] = node;
+            }
+            lastChild[parentNode] = node;
+        }
+        return node;
+    }
+
+    /**
+     * Desce pela árvore até à pasta da música, criando ou dividindo nós quando preciso, e conta a música
+     * em todos os nós do caminho.
+     */
+    private void insert(int libraryIndex) {
+        String path = songs.get(libraryIndex).getDataPath();
+        int folderEnd = Math.max(0, path.lastIndexOf('/'));
+        int node = ROOT;
+        int position = 0;
+        songCount[ROOT]++;
+        while (position < folderEnd) {
+            int child = lastChild[node];
+            int matched = child != NO_NODE ? matchedLength(child, path, position, folderEnd) : 0;
+            if (matched == 0) {
+                // Pasta nova: um só nó com o resto do caminho.
+                node = newNode(node, libraryIndex, position, folderEnd);
+                position = folderEnd;
+            } else {
+                if (matched < labelEnd[child] - labelStart[child]) {
+                    split(child, matched);
+                }
+                node = child;
+                position += matched;
+            }
+            songCount[node]++;
+        }
+        if (lastSong[node] == -1) {
+            firstSong[node] = libraryIndex;
+        } else {
+            nextSong[lastSong[node]] = libraryIndex;
+        }
+        lastSong[node] = libraryIndex;
+        directCount[node]++;
+    }
+
+    /**
+     * Quantos caracteres do nome do nó coincidem com path[from, to), arredondado para pastas inteiras.
+     */
+    private int matchedLength(int node, String path, int from, int to) {
+        String label = songs.get(labelSong[node]).getDataPath();
+        int start = labelStart[node];
+        int length = labelEnd[node] - start;
+        int common = 0;
+        int max = Math.min(length, to - from);
+        while (common < max && label.charAt(start + common) == path.charAt(from + common)) {
+            common++;
+        }
+        // Só conta até ao fim da última pasta completa dos dois lados.
+        while (common > 0 && !((common == length || label.charAt(start + common) == '/')
+                && (from + common == to || path.charAt(from + common) == '/'))) {
+            common--;
+        }
+        return common;
+    }
+
+    /**
+     * Divide o nó em dois: ele fica com os primeiros 'length' caracteres do nome e um novo filho fica com
+     * o resto, os filhos e as músicas. O nó mantém a sua posição entre os irmãos.
+     */
+    private void split(int node, int length) {
+        int tail = newNode(NO_NODE, labelSong[node], labelStart[node] + length, labelEnd[node]);
+        labelEnd[node] = labelStart[node] + length;
+
+        parent[tail] = node;
+        firstChild[tail] = firstChild[node];
+        lastChild[tail] = lastChild[node];
+        for (int child = firstChild[tail]; child != NO_NODE; child = nextSibling[child]) {
+            parent[child] = tail;
+        }
+        songCount[tail] = songCount[node];
+        firstSong[tail] = firstSong[node];
+        lastSong[tail] = lastSong[node];
+        directCount[tail] = directCount[node];
+
+        firstChild[node] = tail;
+        lastChild[node] = tail;
+        firstSong[node] = -1;
+        lastSong[node] = -1;
+        directCount[node] = 0;
+    }
+
+    /**
+     * O nome do nó: uma ou mais pastas, sem a '/' inicial (ex: "Music" ou "storage/emulated/0/Music").
+     */
+    @NonNull
+    public String getName(int node) {
+        if (node == ROOT) return "/";
+        return songs.get(labelSong[node]).getDataPath().substring(labelStart[node] + 1, labelEnd[node]);
+    }
+
+    /**
+     * O caminho completo da pasta (ex: "/storage/emulated/0/Music/Rock").
+     */
+    @NonNull
+    public String getPath(int node) {
+        if (node == ROOT) return "/";
+        // O nome de um nó é um intervalo do caminho de uma música que está dentro dele: o início desse
+        // caminho é o caminho da pasta.
+        return songs.get(labelSong[node]).getDataPath().substring(0, labelEnd[node]);
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * O número de músicas da pasta, incluindo as de todas as subpastas.
+     */
+    public int getSongCount(int node) {
+        return songCount[node];
+    }
+
+    /**
+     * As subpastas do nó, ordenadas pelo nome. O(filhos).
+     */
+    @NonNull
+    public int[] getChildren(int node) {
+        int count = 0;
+        for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) count++;
+        int[] children = new int[count];
+        int i = 0;
+        for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) children[i++] = child;
+        return children;
+    }
+
+    /**
+     * As músicas que estão diretamente nesta pasta (não nas subpastas), pelo nome do ficheiro.
+     */
+    @NonNull
+    public List<Song> getSongs(int node) {
+        final int[] indices = new int[directCount[node]];
+        int i = 0;
+        for (int song = firstSong[node]; song != -1; song = nextSong[song]) indices[i++] = song;
+        return new FolderSongs(indices);
+    }
+
+    private final class FolderSongs extends AbstractList<Song> implements RandomAccess {
+        private final int[] indices;
+
+        FolderSongs(int[] indices) {
+            this.indices = indices;
+        }
+
+        @Override
+        public Song get(int index) {
+            return songs.get(indices[index]);
+        }
+
+        @Override
+        public int size() {
+            return indices.length;
+        }
+    }
+
+    /**
+     * Encontra o nó de uma pasta pelo caminho completo, ou NO_NODE. O(profundidade).
+     * Usado para voltar a encontrar a mesma pasta depois de a biblioteca ser recarregada.
+     */
+    public int findNode(@NonNull String folderPath) {
+        if (folderPath.equals("/") || folderPath.isEmpty()) return ROOT;
+        int node = ROOT;
+        int position = 0;
+        while (position < folderPath.length()) {
+            int next = NO_NODE;
+            for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+                int length = labelEnd[child] - labelStart[child];
+                if (matchedLength(child, folderPath, position, folderPath.length()) == length) {
+                    next = child;
+                    position += length;
+                    break;
+                }
+            }
+            if (next == NO_NODE) return NO_NODE;
+            node = next;
+        }
+        return node;
+    }
+
+    /**
+     * O ponto de partida da navegação: desce enquanto houver uma só subpasta e nenhuma música,
+     * para não obrigar a abrir "storage", "emulated", "0"... um a um.
+     */
+    public int getStartNode() {
+        int node = ROOT;
+        while (directCount[node] == 0 && firstChild[node] != NO_NODE && nextSibling[firstChild[node]] == NO_NODE) {
+            node = firstChild[node];
+        }
+        return node;
+    }
+}
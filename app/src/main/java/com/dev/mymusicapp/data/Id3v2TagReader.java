@@ -0,0 +1,237 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dev.mymusicapp.model.SongTags;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lê as frames de texto e a capa de uma etiqueta ID3v2 (versões 2.2, 2.3 e 2.4) no início do ficheiro.
+ * Percorre apenas os cabeçalhos das frames; só o conteúdo das frames que interessam é lido,
+ * por isso uma capa (APIC) de vários megabytes é saltada sem custo quando só se querem as etiquetas.
+ */
+final class Id3v2TagReader {
+
+    // As frames de texto são curtas; uma maior do que isto é lixo ou não é texto.
+    private static final int MAX_TEXT_FRAME = 4 * 1024;
+    // O cabeçalho de uma frame APIC (tipo MIME + descrição) cabe folgadamente nisto.
+    private static final int MAX_PICTURE_HEADER = 1024;
+    // Tipo de imagem "capa da frente" (o mesmo valor no ID3v2 e no FLAC).
+    static final int PICTURE_FRONT_COVER = 3;
+
+    private Id3v2TagReader() {
+    }
+
+    /**
+     * Recebe cada frame da etiqueta: o ID e onde está o conteúdo no ficheiro.
+     */
+    private interface FrameVisitor {
+        /**
+         * @return 'false' para parar de percorrer as frames.
+         */
+        boolean visit(String id, long position, int size) throws IOException;
+    }
+
+    /**
+     * @return A posição do primeiro byte depois da etiqueta (onde começa o áudio, ou outro cabeçalho).
+     */
+    static long parse(@NonNull TagInput input, @NonNull SongTags tags) throws IOException {
+        return walkFrames(input, (id, position, size) -> {
+            int field = fieldOf(id);
+            if (field != FIELD_NONE && size <= MAX_TEXT_FRAME) {
+                apply(field, decodeText(input.read(position, size)), tags);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Lê a imagem de uma frame APIC (PIC na 2.2): a capa da frente, se houver, senão a primeira imagem.
+     * Só os bytes da imagem escolhida são lidos.
+     * @return Os bytes da imagem (JPEG/PNG), ou null se a etiqueta não tiver imagens.
+     */
+    @Nullable
+    static byte[] readPicture(@NonNull TagInput input) throws IOException {
+        final long[] chosen = {-1, 0};
+        walkFrames(input, (id, position, size) -> {
+            if (!id.equals("APIC") && !id.equals("PIC")) return true;
+            // Cabeçalho da imagem: codificação, tipo MIME (ou formato de 3 letras na 2.2), tipo de imagem, descrição.
+            ByteBuffer header = input.read(position, Math.min(size, MAX_PICTURE_HEADER));
+            int encoding = header.get(0);
+            int offset = 1;
+            if (id.equals("PIC")) {
+                offset += 3;
+            } else {
+                while (offset < header.limit() && header.get(offset) != 0) offset++;
+                offset++;
+            }
+            if (offset >= header.limit()) return true;
+            int pictureType = header.get(offset++) & 0xFF;
+            // A descrição termina com um nulo (ou dois, em UTF-16).
+            boolean wide = encoding == 1 || encoding == 2;
+            while (offset < header.limit()) {
+                if (wide) {
+                    if (offset + 1 < header.limit() && header.get(offset) == 0 && header.get(offset + 1) == 0) {
+                        offset += 2;
+                        break;
+                    }
+                    offset += 2;
+                } else if (header.get(offset++) == 0) {
+                    break;
+                }
+            }
+            if (offset >= size) return true;
+            if (chosen[0] < 0 || pictureType == PICTURE_FRONT_COVER) {
+                chosen[0] = position + offset;
+                chosen[1] = size - offset;
+            }
+            // Encontrada a capa da frente, não é preciso ver mais.
+            return pictureType != PICTURE_FRONT_COVER;
+        });
+        return chosen[0] < 0 ? null : input.readBytes(chosen[0], (int) chosen[1]);
+    }
+
+    /**
+     * A posição do primeiro byte depois da etiqueta, lida só do cabeçalho (sem percorrer as frames).
+     */
+    static long tagEnd(@NonNull TagInput input) throws IOException {
+        ByteBuffer header = input.read(0, 10);
+        if (header.limit() < 10) return 0;
+        return tagEnd(header);
+    }
+
+    // [ID3][versão (2)][flags][tamanho syncsafe (4)], mais o rodapé opcional (só na 2.4).
+    private static long tagEnd(ByteBuffer header) {
+        return 10L + syncsafe(header, 6) + ((header.get(5) & 0x10) != 0 ? 10 : 0);
+    }
+
+    /**
+     * Percorre apenas os cabeçalhos das frames e entrega cada uma ao visitante.
+     * @return A posição do primeiro byte depois da etiqueta.
+     */
+    private static long walkFrames(TagInput input, FrameVisitor visitor) throws IOException {
+        ByteBuffer header = input.read(0, 10);
+        if (header.limit() < 10) return 0;
+        int major = header.get(3) & 0xFF;
+        int flags = header.get(5) & 0xFF;
+        long end = 10L + syncsafe(header, 6);
+        long tagEnd = tagEnd(header);
+        if (major < 2 || major > 4) return tagEnd;
+
+        long position = 10;
+        if ((flags & 0x40) != 0 && major >= 3) {
+            // Cabeçalho estendido: na 2.3 o tamanho não se inclui a si próprio, na 2.4 sim.
+            ByteBuffer extended = input.read(position, 4);
+            position += major == 4 ? syncsafe(extended, 0) : extended.getInt(0) + 4L;
+        }
+
+        int frameHeaderSize = major == 2 ? 6 : 10;
+        while (position + frameHeaderSize <= end) {
+            ByteBuffer frame = input.read(position, frameHeaderSize);
+            if (frame.limit() < frameHeaderSize || frame.get(0) == 0) break; // Início do "padding".
+            String id;
+            long size;
+            boolean hasDataLength = false;
+            if (major == 2) {
+                id = ascii(frame, 3);
+                size = ((frame.get(3) & 0xFF) << 16) | ((frame.get(4) & 0xFF) << 8) | (frame.get(5) & 0xFF);
+            } else {
+                id = ascii(frame, 4);
+                size = major == 4 ? syncsafe(frame, 4) : frame.getInt(4) & 0xFFFFFFFFL;
+                // Na 2.4 o conteúdo pode começar com o tamanho original (4 bytes) antes dos dados.
+                hasDataLength = major == 4 && (frame.get(9) & 0x01) != 0;
+            }
+            position += frameHeaderSize;
+            if (size <= 0 || position + size > end) break;
+
+            int skip = hasDataLength ? 4 : 0;
+            if (size > skip && !visitor.visit(id, position + skip, (int) size - skip)) break;
+            position += size;
+        }
+        return tagEnd;
+    }
+
+    private static final int FIELD_NONE = 0;
+    private static final int FIELD_GENRE = 1;
+    private static final int FIELD_ALBUM = 2;
+    private static final int FIELD_TRACK = 3;
+    private static final int FIELD_YEAR = 4;
+
+    // IDs de 3 letras (2.2) e de 4 letras (2.3 / 2.4).
+    private static int fieldOf(String id) {
+        switch (id) {
+            case "TCON":
+            case "TCO":
+                return FIELD_GENRE;
+            case "TALB":
+            case "TAL":
+                return FIELD_ALBUM;
+            case "TRCK":
+            case "TRK":
+                return FIELD_TRACK;
+            case "TYER":
+            case "TYE":
+            case "TDRC":
+                return FIELD_YEAR;
+            default:
+                return FIELD_NONE;
+        }
+    }
+
+    private static void apply(int field, String value, SongTags tags) {
+        switch (field) {
+            case FIELD_GENRE:
+                TagReader.setGenre(tags, value);
+                break;
+            case FIELD_ALBUM:
+                TagReader.setAlbum(tags, value);
+                break;
+            case FIELD_TRACK:
+                TagReader.setTrackNumber(tags, value);
+                break;
+            case FIELD_YEAR:
+                TagReader.setYear(tags, value);
+                break;
+        }
+    }
+
+    /**
+     * O primeiro byte de uma frame de texto indica a codificação do resto.
+     */
+    private static String decodeText(ByteBuffer data) {
+        if (data.limit() < 1) return null;
+        Charset charset;
+        switch (data.get(0)) {
+            case 1:
+                charset = StandardCharsets.UTF_16; // Com BOM.
+                break;
+            case 2:
+                charset = StandardCharsets.UTF_16BE;
+                break;
+            case 3:
+                charset = StandardCharsets.UTF_8;
+                break;
+            default:
+                charset = StandardCharsets.ISO_8859_1;
+                break;
+        }
+        return new String(data.array(), data.arrayOffset() + 1, data.limit() - 1, charset);
+    }
+
+    // Inteiro de 28 bits guardado em 4 bytes de 7 bits (o bit mais alto de cada byte é sempre 0).
+    private static int syncsafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7F) << 21) | ((buffer.get(offset + 1) & 0x7F) << 14)
+                | ((buffer.get(offset + 2) & 0x7F) << 7) | (buffer.get(offset + 3) & 0x7F);
+    }
+
+    private static String ascii(ByteBuffer buffer, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) chars[i] = (char) (buffer.get(i) & 0xFF);
+        return new String(chars);
+    }
+}
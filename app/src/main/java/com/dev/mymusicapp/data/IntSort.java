@@ -0,0 +1,62 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Ordenação estável de arrays de posições (int[]) com um comparador sobre as posições, sem criar objetos
+ * por elemento (ao contrário de ordenar um Integer[] ou uma List).
+ */
+final class IntSort {
+
+    interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    private IntSort() {
+    }
+
+    /**
+     * Ordena o array por merge sort: O(n log n) e estável (elementos iguais mantêm a ordem).
+     */
+    static void stableSort(@NonNull int[] values, @NonNull IntComparator comparator) {
+        if (values.length < 2) return;
+        int[] buffer = new int[values.length];
+        int[] from = values;
+        int[] to = buffer;
+        // Merge sort "bottom-up": junta blocos de 1, 2, 4, ... alternando entre os dois arrays.
+        for (int width = 1; width < values.length; width *= 2) {
+            for (int start = 0; start < values.length; start += 2 * width) {
+                int middle = Math.min(start + width, values.length);
+                int end = Math.min(start + 2 * width, values.length);
+                mergeRuns(from, start, middle, from, middle, end, to, start, comparator);
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != values) {
+            System.arraycopy(from, 0, values, 0, values.length);
+        }
+    }
+
+    /**
+     * Junta duas sequências já ordenadas numa só, em O(n). Em caso de empate, os elementos de 'first' vêm primeiro.
+     */
+    @NonNull
+    static int[] merge(@NonNull int[] first, @NonNull int[] second, @NonNull IntComparator comparator) {
+        int[] out = new int[first.length + second.length];
+        mergeRuns(first, 0, first.length, second, 0, second.length, out, 0, comparator);
+        return out;
+    }
+
+    private static void mergeRuns(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo,
+                                  int[] out, int outFrom, IntComparator comparator) {
+        int i = aFrom, j = bFrom, k = outFrom;
+        while (i < aTo && j < bTo) {
+            // '<=' mantém a estabilidade: num empate, ganha a primeira sequência.
+            out[k++] = comparator.compare(a[i], b[j]) <= 0 ? a[i++] : b[j++];
+        }
+        while (i < aTo) out[k++] = a[i++];
+        while (j < bTo) out[k++] = b[j++];
+    }
+}
@@ -0,0 +1,277 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dev.mymusicapp.model.Song;
+
+import java.text.Collator;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * LibraryGroups é o índice de agrupamento da biblioteca: artistas → álbuns → músicas, com o número de músicas
+ * e a duração total de cada grupo. Alimenta os ecrãs de navegação por artista e por álbum.
+ *
+ * É construído a partir de uma LibrarySnapshot numa única passagem pela ordem por artista (que a fotografia
+ * já tem calculada), por isso não faz nenhuma consulta ao MediaStore nem volta a ordenar as músicas: os
+ * artistas saem seguidos e já ordenados, e dentro de cada grupo as músicas ficam por título. Só os nomes
+ * dos álbuns (muito menos do que as músicas) são ordenados. Cada fotografia tem o seu próprio índice, por
+ * isso ele acompanha qualquer recarregamento da biblioteca.
+ *
+ * Os grupos guardam posições na biblioteca (int[]), não cópias das músicas.
+ */
+public final class LibraryGroups {
+
+    // Nome mostrado para as músicas sem álbum nas etiquetas.
+    public static final String UNKNOWN_ALBUM = "Álbum desconhecido";
+
+    private final List<Group> artists;
+    private final List<Group> albums;
+    private final Map<String, Group> artistByName;
+    private final Map<Long, Group> albumById;
+
+    /**
+     * Um artista ou um álbum: nome, músicas (posições na biblioteca) e totais.
+     * Os grupos de artista têm como filhos os seus álbuns (só com as músicas desse artista).
+     */
+    public static final class Group {
+        private final String name;
+        private final long albumId;
+        private final int[] songIndices;
+        private final long totalDuration;
+        private final List<Group> children;
+        private final List<Song> librarySongs;
+
+        Group(String name, long albumId, int[] songIndices, long totalDuration, List<Group> children, List<Song> librarySongs) {
+            this.name = name;
+            this.albumId = albumId;
+            this.songIndices = songIndices;
+            this.totalDuration = totalDuration;
+            this.children = children;
+            this.librarySongs = librarySongs;
+        }
+
+        @NonNull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * O ID do álbum (para a capa). Nos artistas é o álbum da primeira música.
+         */
+        public long getAlbumId() {
+            return albumId;
+        }
+
+        public int getSongCount() {
+            return songIndices.length;
+        }
+
+        /**
+         * A soma das durações das músicas do grupo, em milissegundos.
+         */
+        public long getTotalDuration() {
+            return totalDuration;
+        }
+
+        /**
+         * Os álbuns de um artista, por ordem alfabética. Vazio para os álbuns.
+         */
+        @NonNull
+        public List<Group> getChildren() {
+            return children;
+        }
+
+        /**
+         * As músicas do grupo, por título. Não copia nada: é uma vista sobre a fotografia da biblioteca.
+         */
+        @NonNull
+        public List<Song> getSongs() {
+            return new GroupSongs(librarySongs, songIndices);
+        }
+    }
+
+    private static final class GroupSongs extends AbstractList<Song> implements RandomAccess {
+        private final List<Song> songs;
+        private final int[] indices;
+
+        GroupSongs(List<Song> songs, int[] indices) {
+            this.songs = songs;
+            this.indices = indices;
+        }
+
+        @Override
+        public Song get(int index) {
+            return songs.get(indices[index]);
+        }
+
+        @Override
+        public int size() {
+            return indices.length;
+        }
+    }
+
+    /**
+     * Acumula as posições de um grupo durante a passagem pela biblioteca.
+     */
+    private static final class Accumulator {
+        final String name;
+        final long albumId;
+        int[] indices = new int[8];
+        int count = 0;
+        long duration = 0;
+        // Só nos artistas: os seus álbuns, pela ordem em que aparecem.
+        Map<Long, Accumulator> albums;
+
+        Accumulator(String name, long albumId) {
+            this.name = name;
+            this.albumId = albumId;
+        }
+
+        void add(int libraryIndex, long songDuration) {
+            if (count == indices.length) {
+                int[] grown = new int[count * 2];
+                System.arraycopy(indices, 0, grown, 0, count);
+                indices = grown;
+            }
+            indices[count++] = libraryIndex;
+            duration += songDuration;
+        }
+
+        int[] toIndices() {
+            // Dentro de um artista as posições já chegam por ordem (a ordem por artista desempata por título);
+            // só um álbum com vários artistas recebe as posições intercaladas.
+            int[] out = Arrays.copyOf(indices, count);
+            Arrays.sort(out);
+            return out;
+        }
+    }
+
+    /**
+     * Constrói o índice de uma fotografia.
+     * @param artistOrder As posições na biblioteca por ordem de artista (artistas iguais ficam seguidos).
+     * @param sameArtist  Diz se duas posições na biblioteca têm o mesmo artista (segundo o Collator da fotografia).
+     */
+    LibraryGroups(@NonNull List<Song> songs, @NonNull int[] artistOrder, @NonNull IntSort.IntComparator sameArtist,
+                  @NonNull Locale locale) {
+        List<Accumulator> artistAccumulators = new ArrayList<>();
+        // Os álbuns são identificados pelo ID do MediaStore (dois álbuns diferentes podem ter o mesmo nome).
+        Map<Long, Accumulator> albumAccumulators = new HashMap<>();
+        Accumulator artist = null;
+        int previous = -1;
+
+        for (int libraryIndex : artistOrder) {
+            Song song = songs.get(libraryIndex);
+            if (artist == null || sameArtist.compare(previous, libraryIndex) != 0) {
+                artist = new Accumulator(song.getArtist(), song.getAlbumId());
+                artist.albums = new HashMap<>();
+                artistAccumulators.add(artist);
+            }
+            previous = libraryIndex;
+            long duration = song.getDuration();
+            artist.add(libraryIndex, duration);
+
+            long albumId = song.getAlbumId();
+            Accumulator artistAlbum = artist.albums.get(albumId);
+            if (artistAlbum == null) {
+                artistAlbum = new Accumulator(albumNameOf(song), albumId);
+                artist.albums.put(albumId, artistAlbum);
+            }
+            artistAlbum.add(libraryIndex, duration);
+
+            Accumulator album = albumAccumulators.get(albumId);
+            if (album == null) {
+                album = new Accumulator(albumNameOf(song), albumId);
+                albumAccumulators.put(albumId, album);
+            }
+            album.add(libraryIndex, duration);
+        }
+
+        Collator collator = Collator.getInstance(locale);
+        collator.setStrength(Collator.SECONDARY);
+
+        List<Group> albumGroups = new ArrayList<>(albumAccumulators.size());
+        this.albumById = new HashMap<>(albumAccumulators.size() * 2);
+        for (Accumulator album : albumAccumulators.values()) {
+            Group group = toGroup(album, Collections.emptyList(), songs);
+            albumGroups.add(group);
+            albumById.put(album.albumId, group);
+        }
+        sortByName(albumGroups, collator);
+        this.albums = Collections.unmodifiableList(albumGroups);
+
+        List<Group> artistGroups = new ArrayList<>(artistAccumulators.size());
+        this.artistByName = new HashMap<>(artistAccumulators.size() * 2);
+        for (Accumulator accumulator : artistAccumulators) {
+            List<Group> children = new ArrayList<>(accumulator.albums.size());
+            for (Accumulator album : accumulator.albums.values()) {
+                children.add(toGroup(album, Collections.emptyList(), songs));
+            }
+            sortByName(children, collator);
+            Group group = toGroup(accumulator, Collections.unmodifiableList(children), songs);
+            artistGroups.add(group);
+            artistByName.put(group.getName(), group);
+        }
+        this.artists = Collections.unmodifiableList(artistGroups);
+    }
+
+    private static Group toGroup(Accumulator accumulator, List<Group> children, List<Song> songs) {
+        return new Group(accumulator.name, accumulator.albumId, accumulator.toIndices(), accumulator.duration, children, songs);
+    }
+
+    private static String albumNameOf(Song song) {
+        String album = song.getAlbum();
+        return album != null && !album.isEmpty() ? album : UNKNOWN_ALBUM;
+    }
+
+    private static void sortByName(List<Group> groups, Collator collator) {
+        if (groups.size() < 2) return;
+        // Uma chave por grupo em vez de Collator.compare dentro da ordenação.
+        CollationKeyTable.Builder builder = new CollationKeyTable.Builder(groups.size(), groups.size() * 24);
+        for (Group group : groups) {
+            builder.add(collator, group.getName());
+        }
+        final CollationKeyTable keys = builder.build();
+        int[] order = new int[groups.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        IntSort.stableSort(order, keys::compare);
+        List<Group> sorted = new ArrayList<>(groups.size());
+        for (int index : order) sorted.add(groups.get(index));
+        groups.clear();
+        groups.addAll(sorted);
+    }
+
+    /**
+     * Os artistas, por ordem alfabética.
+     */
+    @NonNull
+    public List<Group> getArtists() {
+        return artists;
+    }
+
+    /**
+     * Todos os álbuns, por ordem alfabética (com as músicas de todos os artistas).
+     */
+    @NonNull
+    public List<Group> getAlbums() {
+        return albums;
+    }
+
+    @Nullable
+    public Group findArtist(@Nullable String name) {
+        return name != null ? artistByName.get(name) : null;
+    }
+
+    @Nullable
+    public Group findAlbum(long albumId) {
+        return albumById.get(albumId);
+    }
+}
@@ -0,0 +1,426 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dev.mymusicapp.model.Song;
+
+import java.text.Collator;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * LibrarySnapshot é uma "fotografia" imutável da biblioteca de músicas num dado momento.
+ * Todos os ecrãs (e o MusicService) leem a mesma instância, por isso não é preciso copiar a lista
+ * para Intents ou para o serviço.
+ *
+ * A lista base está ordenada por título segundo as regras do idioma do dispositivo (Collator). As outras
+ * ordens (ver SortMode) são permutações dessa lista, calculadas uma vez junto com ela, tal como as secções
+ * alfabéticas para o scroll rápido. As chaves de ordenação de cada música são calculadas uma única vez
+ * (CollationKeyTable); quando a biblioteca é recarregada, as músicas que não mudaram reutilizam as chaves e
+ * a ordem da fotografia anterior, e só as novas são ordenadas e depois juntadas (merge) às restantes.
+ *
+ * Os índices derivados (caminho → posição, ID → posição, agrupamento por artista e álbum,
+ * árvore de pastas) são construídos só quando são precisos
+ * e podem ser descartados em situações de pouca memória; voltam a ser construídos no próximo acesso.
+ */
+public final class LibrarySnapshot {
+
+    // Uma biblioteca vazia, usada antes do primeiro carregamento ou quando não há permissões.
+    public static final LibrarySnapshot EMPTY = new LibrarySnapshot(Collections.emptyList(), 0);
+
+    // As músicas por ordem de título: a "posição na biblioteca" de uma música é o seu índice nesta lista.
+    private final List<Song> songs;
+    private final long version;
+
+    // Chaves de ordenação do título e do artista de cada música (pela posição na biblioteca) e o idioma delas.
+    private final Locale collationLocale;
+    private final CollationKeyTable titleKeys;
+    private final CollationKeyTable artistKeys;
+
+    // As outras ordens, como listas de posições na biblioteca (a ordem por título é a própria lista).
+    private final int[] artistOrder;
+    private final int[] durationOrder;
+    private final int[] dateAddedOrder;
+
+    // Etiqueta da secção alfabética de cada música, por título e por artista (a mesma instância de String
+    // para toda a secção), e os índices de secções das listas completas.
+    private final String[] titleSectionLabels;
+    private final String[] artistSectionLabels;
+    private final SectionIndex titleSections;
+    private final SectionIndex artistSections;
+
+    // Índices derivados. São 'volatile' porque podem ser descartados por outra thread (onTrimMemory).
+    private volatile Map<String, Integer> positionByPath;
+    private volatile Map<Long, Integer> positionById;
+    // Para cada ordem, a posição (nessa ordem) de cada música da biblioteca.
+    private volatile int[][] inverseOrders;
+    // Artistas → álbuns → músicas, para os ecrãs de navegação.
+    private volatile LibraryGroups groups;
+    // A árvore de pastas, para a navegação por pasta.
+    private volatile FolderTree folders;
+
+    LibrarySnapshot(@NonNull List<Song> loaded, long version) {
+        this(loaded, version, null);
+    }
+
+    /**
+     * @param loaded   As músicas, pela ordem em que vieram do MediaStore.
+     * @param previous A fotografia anterior, se houver: as músicas que não mudaram reutilizam as suas chaves e ordem.
+     */
+    LibrarySnapshot(@NonNull List<Song> loaded, long version, @Nullable LibrarySnapshot previous) {
+        this.version = version;
+        this.collationLocale = Locale.getDefault();
+        final int n = loaded.size();
+        boolean reuse = previous != null && !previous.isEmpty() && previous.collationLocale.equals(collationLocale);
+
+        // 1. Chaves pela ordem de chegada. Só as músicas novas ou alteradas passam pelo Collator.
+        Collator collator = Collator.getInstance(collationLocale);
+        collator.setStrength(Collator.SECONDARY); // Ignora maiúsculas, mas "e" vem antes de "é".
+        CollationKeyTable.Builder titleBuilder = new CollationKeyTable.Builder(n, n * 32);
+        CollationKeyTable.Builder artistBuilder = new CollationKeyTable.Builder(n, n * 24);
+        int[] loadedIndexOfPrevious = reuse ? new int[previous.size()] : new int[0];
+        Arrays.fill(loadedIndexOfPrevious, -1);
+        boolean[] fresh = new boolean[n];
+        int keptCount = 0;
+        for (int i = 0; i < n; i++) {
+            Song song = loaded.get(i);
+            int before = reuse ? previous.indexOfId(song.getId()) : -1;
+            if (before >= 0 && hasSameSortFields(previous.songs.get(before), song)) {
+                titleBuilder.addFrom(previous.titleKeys, before);
+                artistBuilder.addFrom(previous.artistKeys, before);
+                loadedIndexOfPrevious[before] = i;
+                keptCount++;
+            } else {
+                titleBuilder.add(collator, song.getTitle());
+                artistBuilder.add(collator, song.getArtist());
+                fresh[i] = true;
+            }
+        }
+        final CollationKeyTable loadedTitleKeys = titleBuilder.build();
+        final CollationKeyTable loadedArtistKeys = artistBuilder.build();
+
+        // 2. Ordem por título. Títulos iguais ficam pela ordem do MediaStore.
+        IntSort.IntComparator byTitle = (a, b) -> {
+            int c = loadedTitleKeys.compare(a, b);
+            return c != 0 ? c : Integer.compare(a, b);
+        };
+        int[] titleOrder;
+        if (keptCount > 0) {
+            // As músicas que já existiam já estão ordenadas (pela fotografia anterior): só as novas são ordenadas.
+            int[] kept = new int[keptCount];
+            int k = 0;
+            for (int before = 0; before < loadedIndexOfPrevious.length; before++) {
+                if (loadedIndexOfPrevious[before] >= 0) kept[k++] = loadedIndexOfPrevious[before];
+            }
+            int[] added = indicesWhere(fresh, true, n - keptCount);
+            IntSort.stableSort(added, byTitle);
+            titleOrder = IntSort.merge(kept, added, byTitle);
+        } else {
+            titleOrder = indicesWhere(fresh, true, n);
+            IntSort.stableSort(titleOrder, byTitle);
+        }
+
+        List<Song> sorted = new ArrayList<>(n);
+        int[] positionOfLoaded = new int[n];
+        for (int position = 0; position < n; position++) {
+            sorted.add(loaded.get(titleOrder[position]));
+            positionOfLoaded[titleOrder[position]] = position;
+        }
+        this.songs = Collections.unmodifiableList(sorted);
+        this.titleKeys = loadedTitleKeys.permute(titleOrder);
+        this.artistKeys = loadedArtistKeys.permute(titleOrder);
+
+        // 3. Ordem por artista (e, para o mesmo artista, por título), também com merge quando possível.
+        final CollationKeyTable artists = artistKeys;
+        IntSort.IntComparator byArtist = (a, b) -> {
+            int c = artists.compare(a, b);
+            return c != 0 ? c : Integer.compare(a, b);
+        };
+        if (keptCount > 0) {
+            int[] kept = new int[keptCount];
+            int k = 0;
+            for (int before : previous.artistOrder) {
+                int loadedIndex = loadedIndexOfPrevious[before];
+                if (loadedIndex >= 0) kept[k++] = positionOfLoaded[loadedIndex];
+            }
+            int[] added = new int[n - keptCount];
+            int a = 0;
+            for (int position = 0; position < n; position++) {
+                if (fresh[titleOrder[position]]) added[a++] = position;
+            }
+            IntSort.stableSort(added, byArtist);
+            this.artistOrder = IntSort.merge(kept, added, byArtist);
+        } else {
+            this.artistOrder = identity(n);
+            IntSort.stableSort(artistOrder, byArtist);
+        }
+
+        // 4. Duração (mais curtas primeiro) e data (mais recentes primeiro). Empates ficam por título.
+        final long[] durations = new long[n];
+        final long[] datesAdded = new long[n];
+        for (int position = 0; position < n; position++) {
+            durations[position] = sorted.get(position).getDuration();
+            datesAdded[position] = sorted.get(position).getDateAdded();
+        }
+        this.durationOrder = identity(n);
+        IntSort.stableSort(durationOrder, (a, b) -> Long.compare(durations[a], durations[b]));
+        this.dateAddedOrder = identity(n);
+        IntSort.stableSort(dateAddedOrder, (a, b) -> Long.compare(datesAdded[b], datesAdded[a]));
+
+        // 5. Secções alfabéticas.
+        Map<String, String> canonicalLabels = new HashMap<>();
+        this.titleSectionLabels = new String[n];
+        this.artistSectionLabels = new String[n];
+        for (int position = 0; position < n; position++) {
+            Song song = sorted.get(position);
+            titleSectionLabels[position] = canonical(canonicalLabels, SectionIndex.sectionLabelOf(song.getTitle()));
+            artistSectionLabels[position] = canonical(canonicalLabels, SectionIndex.sectionLabelOf(song.getArtist()));
+        }
+        SectionIndex.Builder titleBuilderSections = new SectionIndex.Builder();
+        SectionIndex.Builder artistBuilderSections = new SectionIndex.Builder();
+        for (int position = 0; position < n; position++) {
+            titleBuilderSections.add(titleSectionLabels[position]);
+            artistBuilderSections.add(artistSectionLabels[artistOrder[position]]);
+        }
+        this.titleSections = titleBuilderSections.build();
+        this.artistSections = artistBuilderSections.build();
+    }
+
+    // Os campos que entram nas chaves de ordenação: se mudarem, a música é tratada como nova.
+    private static boolean hasSameSortFields(Song before, Song now) {
+        return Objects.equals(before.getTitle(), now.getTitle()) && Objects.equals(before.getArtist(), now.getArtist());
+    }
+
+    private static int[] indicesWhere(boolean[] flags, boolean value, int count) {
+        int[] indices = new int[count];
+        int k = 0;
+        for (int i = 0; i < flags.length && k < count; i++) {
+            if (flags[i] == value) indices[k++] = i;
+        }
+        return indices;
+    }
+
+    private static int[] identity(int n) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) values[i] = i;
+        return values;
+    }
+
+    private static String canonical(Map<String, String> labels, String label) {
+        String existing = labels.get(label);
+        if (existing != null) return existing;
+        labels.put(label, label);
+        return label;
+    }
+
+    /**
+     * A lista de músicas por ordem de título, só de leitura.
+     */
+    @NonNull
+    public List<Song> getSongs() {
+        return songs;
+    }
+
+    /**
+     * A lista de músicas na ordem pedida, só de leitura. Não copia a lista: é uma vista sobre a ordem já calculada.
+     */
+    @NonNull
+    public List<Song> getSongs(@NonNull SortMode mode) {
+        final int[] order = orderOf(mode);
+        if (order == null) return songs;
+        return new OrderedSongs(order);
+    }
+
+    /**
+     * A posição na biblioteca (índice em getSongs()) da música que está na posição 'position' da ordem 'mode'.
+     */
+    public int getLibraryIndex(@NonNull SortMode mode, int position) {
+        int[] order = orderOf(mode);
+        return order == null ? position : order[position];
+    }
+
+    /**
+     * A posição, na ordem 'mode', da música que está na posição 'libraryIndex' da biblioteca. Retorna -1 para -1.
+     */
+    public int getPosition(@NonNull SortMode mode, int libraryIndex) {
+        int[] order = orderOf(mode);
+        if (order == null || libraryIndex < 0) return libraryIndex;
+        int[][] inverses = inverseOrders;
+        if (inverses == null) {
+            inverses = new int[SortMode.values().length][];
+            inverseOrders = inverses;
+        }
+        int[] inverse = inverses[mode.ordinal()];
+        if (inverse == null) {
+            inverse = new int[order.length];
+            for (int position = 0; position < order.length; position++) {
+                inverse[order[position]] = position;
+            }
+            inverses[mode.ordinal()] = inverse;
+        }
+        return inverse[libraryIndex];
+    }
+
+    /**
+     * A etiqueta da secção alfabética da música na posição 'libraryIndex' da biblioteca, para a ordem 'mode'.
+     * Usado para construir o SectionIndex de uma lista filtrada, sem voltar a analisar os textos.
+     * As ordens não alfabéticas não têm secções (retorna "").
+     */
+    @NonNull
+    public String getSectionLabel(@NonNull SortMode mode, int libraryIndex) {
+        switch (mode) {
+            case TITLE:
+                return titleSectionLabels[libraryIndex];
+            case ARTIST:
+                return artistSectionLabels[libraryIndex];
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * As secções alfabéticas da biblioteca completa na ordem 'mode' (vazio para as ordens não alfabéticas).
+     */
+    @NonNull
+    public SectionIndex getSectionIndex(@NonNull SortMode mode) {
+        switch (mode) {
+            case TITLE:
+                return titleSections;
+            case ARTIST:
+                return artistSections;
+            default:
+                return SectionIndex.EMPTY;
+        }
+    }
+
+    @Nullable
+    private int[] orderOf(SortMode mode) {
+        switch (mode) {
+            case ARTIST:
+                return artistOrder;
+            case DURATION:
+                return durationOrder;
+            case DATE_ADDED:
+                return dateAddedOrder;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Vista só de leitura das músicas numa ordem, sem cópia.
+     */
+    private final class OrderedSongs extends AbstractList<Song> implements RandomAccess {
+        private final int[] order;
+
+        OrderedSongs(int[] order) {
+            this.order = order;
+        }
+
+        @Override
+        public Song get(int index) {
+            return songs.get(order[index]);
+        }
+
+        @Override
+        public int size() {
+            return order.length;
+        }
+    }
+
+    /**
+     * Número que aumenta a cada novo carregamento da biblioteca.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return songs.size();
+    }
+
+    public boolean isEmpty() {
+        return songs.isEmpty();
+    }
+
+    /**
+     * Retorna a posição da música com este caminho, ou -1 se não existir. O(1) depois da primeira chamada.
+     */
+    public int indexOfPath(@Nullable String dataPath) {
+        if (dataPath == null) return -1;
+        Map<String, Integer> index = positionByPath;
+        if (index == null) {
+            index = new HashMap<>(songs.size() * 2);
+            for (int i = 0; i < songs.size(); i++) {
+                index.put(songs.get(i).getDataPath(), i);
+            }
+            positionByPath = index;
+        }
+        Integer position = index.get(dataPath);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * Retorna a posição da música com este ID do MediaStore, ou -1 se não existir.
+     */
+    public int indexOfId(long id) {
+        Map<Long, Integer> index = positionById;
+        if (index == null) {
+            index = new HashMap<>(songs.size() * 2);
+            for (int i = 0; i < songs.size(); i++) {
+                index.put(songs.get(i).getId(), i);
+            }
+            positionById = index;
+        }
+        Integer position = index.get(id);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * O agrupamento da biblioteca por artista e por álbum. É construído na primeira chamada, numa só passagem
+     * pela ordem por artista; deve ser chamado fora da thread principal.
+     */
+    @NonNull
+    public LibraryGroups getGroups() {
+        LibraryGroups index = groups;
+        if (index == null) {
+            final CollationKeyTable artists = artistKeys;
+            index = new LibraryGroups(songs, artistOrder, artists::compare, collationLocale);
+            groups = index;
+        }
+        return index;
+    }
+
+    /**
+     * A árvore de pastas da biblioteca. É construída na primeira chamada; deve ser chamado fora da thread principal.
+     */
+    @NonNull
+    public FolderTree getFolders() {
+        FolderTree tree = folders;
+        if (tree == null) {
+            tree = new FolderTree(songs);
+            folders = tree;
+        }
+        return tree;
+    }
+
+    /**
+     * Descarta os índices derivados para libertar memória. A lista de músicas não é afetada.
+     */
+    void trimDerivedIndexes() {
+        positionByPath = null;
+        positionById = null;
+        inverseOrders = null;
+        groups = null;
+        folders = null;
+    }
+}
@@ -0,0 +1,107 @@
+package com.dev.mymusicapp.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.dev.mymusicapp.model.Song;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * LibraryTableSync mantém na tabela 'songs' uma cópia da biblioteca, para que as playlists com regras
+ * sejam consultas SQL (ver RuleCompiler) em vez de filtros em Java sobre a lista inteira.
+ *
+ * Só as músicas novas ou alteradas são escritas, em lotes (cada lote numa transação), por isso um
+ * recarregamento sem mudanças não invalida a tabela nem as listas que a observam. As linhas de músicas
+ * que saíram da biblioteca não são apagadas aqui: podem estar em playlists, e as listas já as omitem
+ * (as músicas mostradas vêm sempre da fotografia da biblioteca). Quem as corrige ou apaga é o SongReconciler.
+ */
+public class LibraryTableSync {
+
+    private static final String TAG = "LibraryTableSync";
+
+    private static final int BATCH_SIZE = 500;
+
+    private static volatile LibraryTableSync INSTANCE;
+
+    private final PlaylistDao dao;
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    // A fotografia mais recente que falta copiar ('null' quando não há nada pendente).
+    private final AtomicReference<LibrarySnapshot> requested = new AtomicReference<>();
+
+    private LibraryTableSync(Context context) {
+        dao = AppDatabase.getDatabase(context.getApplicationContext()).playlistDao();
+    }
+
+    public static LibraryTableSync getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (LibraryTableSync.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new LibraryTableSync(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Pede a cópia de uma fotografia. Pedidos seguidos juntam-se e só a mais recente é copiada.
+     */
+    public void requestSync(@NonNull LibrarySnapshot snapshot) {
+        if (requested.getAndSet(snapshot) == null) {
+            executorService.execute(this::drainRequests);
+        }
+    }
+
+    private void drainRequests() {
+        LibrarySnapshot snapshot;
+        while ((snapshot = requested.get()) != null) {
+            try {
+                sync(snapshot);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Falha ao copiar a biblioteca para a base de dados", e);
+            }
+            requested.compareAndSet(snapshot, null);
+        }
+    }
+
+    private void sync(LibrarySnapshot snapshot) {
+        Map<String, Song> stored = new HashMap<>();
+        for (Song song : dao.getAllSongs()) {
+            stored.put(song.getDataPath(), song);
+        }
+        List<Song> changed = new ArrayList<>();
+        for (Song song : snapshot.getSongs()) {
+            if (!sameColumns(stored.get(song.getDataPath()), song)) changed.add(song);
+        }
+        for (int i = 0; i < changed.size(); i += BATCH_SIZE) {
+            if (requested.get() != snapshot) return; // Chegou uma fotografia mais recente.
+            dao.upsertSongs(changed.subList(i, Math.min(changed.size(), i + BATCH_SIZE)));
+        }
+        if (!changed.isEmpty()) {
+            Log.d(TAG, changed.size() + " músicas copiadas para a tabela 'songs'");
+        }
+    }
+
+    private static boolean sameColumns(Song stored, Song song) {
+        return stored != null
+                && stored.getId() == song.getId()
+                && stored.getDuration() == song.getDuration()
+                && stored.getAlbumId() == song.getAlbumId()
+                && stored.getDateAdded() == song.getDateAdded()
+                && stored.getTitle().equals(song.getTitle())
+                && stored.getArtist().equals(song.getArtist())
+                && Objects.equals(stored.getAlbum(), song.getAlbum())
+                && Objects.equals(stored.getAlbumArtUri(), song.getAlbumArtUri());
+    }
+}
@@ -0,0 +1,156 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dev.mymusicapp.model.SongTags;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lê as etiquetas e a capa de um ficheiro MP4/M4A no estilo do iTunes: moov → udta → meta → ilst.
+ * Os átomos são percorridos pelos cabeçalhos (8 ou 16 bytes); o áudio (mdat), as tabelas das faixas (trak)
+ * e, quando só se querem as etiquetas, a capa (covr) são saltados sem serem lidos.
+ */
+final class Mp4TagReader {
+
+    private static final int MOOV = fourCc('m', 'o', 'o', 'v');
+    private static final int UDTA = fourCc('u', 'd', 't', 'a');
+    private static final int META = fourCc('m', 'e', 't', 'a');
+    private static final int ILST = fourCc('i', 'l', 's', 't');
+    private static final int HDLR = fourCc('h', 'd', 'l', 'r');
+    private static final int DATA = fourCc('d', 'a', 't', 'a');
+    // Os átomos de texto do iTunes começam com o byte 0xA9 ("©").
+    private static final int GENRE_TEXT = fourCc(0xA9, 'g', 'e', 'n');
+    private static final int GENRE_ID3 = fourCc('g', 'n', 'r', 'e');
+    private static final int ALBUM = fourCc(0xA9, 'a', 'l', 'b');
+    private static final int TRACK = fourCc('t', 'r', 'k', 'n');
+    private static final int DAY = fourCc(0xA9, 'd', 'a', 'y');
+    private static final int COVER = fourCc('c', 'o', 'v', 'r');
+
+    // Os itens de texto são curtos; maiores do que isto não são lidos.
+    private static final int MAX_ITEM = 4 * 1024;
+
+    private Mp4TagReader() {
+    }
+
+    private static int fourCc(int a, int b, int c, int d) {
+        return (a << 24) | (b << 16) | (c << 8) | d;
+    }
+
+    static void parse(@NonNull TagInput input, @NonNull SongTags tags) throws IOException {
+        long[] box = new long[2];
+        if (!findItemList(input, box)) return;
+
+        long position = box[0];
+        long end = box[1];
+        while (position + 8 <= end) {
+            ByteBuffer header = input.read(position, 8);
+            if (header.limit() < 8) return;
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int type = header.getInt(4);
+            if (size < 8 || position + size > end) return;
+            if (size <= MAX_ITEM && (type == GENRE_TEXT || type == GENRE_ID3 || type == ALBUM || type == TRACK || type == DAY)) {
+                readItem(input.read(position + 8, (int) size - 8), type, tags);
+            }
+            position += size;
+        }
+    }
+
+    /**
+     * A primeira imagem do item 'covr' (JPEG ou PNG), ou null. Só os bytes da imagem são lidos.
+     */
+    @Nullable
+    static byte[] readPicture(@NonNull TagInput input) throws IOException {
+        long[] box = new long[2];
+        if (!findItemList(input, box)) return null;
+        if (!findChild(input, box[0], box[1], COVER, box)) return null;
+        // Dentro do 'covr', um átomo 'data' por imagem: [tamanho][data][tipo (4)][idioma (4)][imagem].
+        ByteBuffer data = input.read(box[0], 8);
+        if (data.limit() < 8 || data.getInt(4) != DATA) return null;
+        long dataSize = data.getInt(0) & 0xFFFFFFFFL;
+        if (dataSize <= 16 || dataSize - 16 > TagInput.MAX_PICTURE || box[0] + dataSize > box[1]) return null;
+        return input.readBytes(box[0] + 16, (int) (dataSize - 16));
+    }
+
+    /**
+     * Procura o 'ilst' (moov → udta → meta → ilst).
+     * @param box Recebe o início e o fim do conteúdo do 'ilst'.
+     */
+    private static boolean findItemList(TagInput input, long[] box) throws IOException {
+        if (!findChild(input, 0, input.size(), MOOV, box)) return false;
+        if (!findChild(input, box[0], box[1], UDTA, box)) return false;
+        if (!findChild(input, box[0], box[1], META, box)) return false;
+        long metaStart = box[0];
+        // 'meta' é normalmente um "full box" (4 bytes de versão/flags antes dos filhos), mas há ficheiros
+        // (estilo QuickTime) em que os filhos começam logo: nesse caso o primeiro filho é o 'hdlr'.
+        ByteBuffer peek = input.read(metaStart, 8);
+        if (peek.limit() < 8) return false;
+        if (peek.getInt(4) != HDLR) metaStart += 4;
+        return findChild(input, metaStart, box[1], ILST, box);
+    }
+
+    /**
+     * Um item do 'ilst' contém um átomo 'data': [tamanho][data][tipo (4)][idioma (4)][valor].
+     */
+    private static void readItem(ByteBuffer item, int type, SongTags tags) {
+        if (item.limit() < 16 || item.getInt(4) != DATA) return;
+        int dataSize = Math.min(item.getInt(0), item.limit());
+        int valueStart = 16;
+        int valueLength = dataSize - valueStart;
+        if (valueLength <= 0) return;
+        if (type == GENRE_ID3) {
+            // Número do género do ID3v1 mais um.
+            if (valueLength >= 2) {
+                TagReader.setGenre(tags, TagReader.id3v1Genre((item.getShort(valueStart) & 0xFFFF) - 1));
+            }
+        } else if (type == TRACK) {
+            // [0 0][faixa (2)][total (2)]...
+            if (valueLength >= 4 && tags.trackNumber == 0) {
+                tags.trackNumber = item.getShort(valueStart + 2) & 0xFFFF;
+            }
+        } else {
+            String value = new String(item.array(), item.arrayOffset() + valueStart, valueLength, StandardCharsets.UTF_8);
+            if (type == GENRE_TEXT) {
+                TagReader.setGenre(tags, value);
+            } else if (type == ALBUM) {
+                TagReader.setAlbum(tags, value);
+            } else {
+                TagReader.setYear(tags, value);
+            }
+        }
+    }
+
+    /**
+     * Procura um átomo filho em [from, to) pelos cabeçalhos.
+     * @param bounds Recebe o início e o fim do conteúdo do átomo encontrado.
+     */
+    private static boolean findChild(TagInput input, long from, long to, int type, long[] bounds) throws IOException {
+        long position = from;
+        while (position + 8 <= to) {
+            ByteBuffer header = input.read(position, 16);
+            if (header.limit() < 8) return false;
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int headerSize = 8;
+            if (size == 1) {
+                // Tamanho de 64 bits a seguir ao tipo (átomos 'mdat' grandes).
+                if (header.limit() < 16) return false;
+                size = header.getLong(8);
+                headerSize = 16;
+            } else if (size == 0) {
+                // O átomo vai até ao fim do contentor.
+                size = to - position;
+            }
+            if (size < headerSize || position + size > to) return false;
+            if (header.getInt(4) == type) {
+                bounds[0] = position + headerSize;
+                bounds[1] = position + size;
+                return true;
+            }
+            position += size;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,185 @@
+package com.dev.mymusicapp.data;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.dev.mymusicapp.model.Song;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * MusicLibrary é a cache da biblioteca de músicas partilhada por todo o processo.
+ *
+ * - Todos os ecrãs (MainActivity, SelectSongsActivity, ...) e o MusicService leem a mesma
+ *   LibrarySnapshot imutável, por isso a lista não é copiada para Intents nem para o serviço.
+ * - Pedidos de carregamento simultâneos partilham a mesma leitura do MediaStore ("single-flight").
+ * - Em situações de pouca memória (onTrimMemory) são descartados primeiro os dados derivados
+ *   (índices), que podem ser reconstruídos, e nunca a lista em si.
+ */
+public class MusicLibrary implements ComponentCallbacks2 {
+
+    private static final String TAG = "MusicLibrary";
+
+    // Instância única, criada com o mesmo padrão "double-checked locking" da AppDatabase.
+    private static volatile MusicLibrary INSTANCE;
+
+    private final Context appContext;
+    private final SongRepository songRepository = new SongRepository();
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    // A última fotografia carregada. Fica 'null' até ao fim do primeiro carregamento.
+    private final MutableLiveData<LibrarySnapshot> library = new MutableLiveData<>();
+    private volatile LibrarySnapshot snapshot;
+
+    // O carregamento que está a decorrer neste momento (ou 'null'). Protegido por 'this'.
+    private FutureTask<LibrarySnapshot> inFlightLoad;
+    private long nextVersion = 1;
+
+    private MusicLibrary(Context context) {
+        this.appContext = context.getApplicationContext();
+        // Regista-se para receber os avisos de memória do sistema.
+        appContext.registerComponentCallbacks(this);
+    }
+
+    /**
+     * Retorna a instância única da biblioteca.
+     * @param context Qualquer contexto; só o contexto da aplicação é guardado.
+     */
+    public static MusicLibrary getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (MusicLibrary.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new MusicLibrary(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Fotografia observável da biblioteca, emitida na thread principal a cada (re)carregamento.
+     */
+    public LiveData<LibrarySnapshot> getLibrary() {
+        return library;
+    }
+
+    /**
+     * Retorna a última fotografia carregada, ou 'null' se a biblioteca ainda não foi carregada.
+     */
+    @Nullable
+    public LibrarySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Carrega a biblioteca em background, mas apenas se ainda não tiver sido carregada.
+     * Chamadas seguintes (por exemplo, depois de uma rotação) não fazem qualquer I/O.
+     */
+    public synchronized Future<LibrarySnapshot> loadIfNeeded() {
+        if (inFlightLoad != null) return inFlightLoad;
+        if (snapshot != null) {
+            FutureTask<LibrarySnapshot> done = new FutureTask<>(() -> snapshot);
+            done.run();
+            return done;
+        }
+        return reload();
+    }
+
+    /**
+     * Volta a ler o MediaStore em background. Se já houver uma leitura a decorrer,
+     * o pedido junta-se a ela em vez de iniciar outra.
+     */
+    public synchronized Future<LibrarySnapshot> reload() {
+        if (inFlightLoad != null) return inFlightLoad;
+        final long version = nextVersion++;
+        FutureTask<LibrarySnapshot> task = new FutureTask<>(() -> {
+            try {
+                List<Song> loadedSongs = songRepository.getSongs(appContext);
+                // As músicas que já estavam na fotografia anterior reaproveitam as chaves e a ordem dela.
+                LibrarySnapshot loaded = new LibrarySnapshot(loadedSongs, version, snapshot);
+                publish(loaded);
+                return loaded;
+            } catch (RuntimeException e) {
+                // Se a leitura falhar (ex: permissão revogada), o próximo pedido pode tentar de novo.
+                clearInFlightLoad();
+                throw e;
+            }
+        });
+        inFlightLoad = task;
+        executorService.execute(task);
+        return task;
+    }
+
+    /**
+     * Versão bloqueante para código que já corre em background. Nunca deve ser chamada na thread principal.
+     * Espera pelo carregamento em curso ou inicia um, se for necessário.
+     */
+    @NonNull
+    public LibrarySnapshot awaitSnapshot() {
+        LibrarySnapshot current = snapshot;
+        if (current != null) return current;
+        try {
+            return loadIfNeeded().get();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Falha ao carregar a biblioteca", e);
+            return LibrarySnapshot.EMPTY;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return LibrarySnapshot.EMPTY;
+        }
+    }
+
+    private synchronized void publish(LibrarySnapshot loaded) {
+        snapshot = loaded;
+        inFlightLoad = null;
+        library.postValue(loaded);
+        // Lê em background as etiquetas dos ficheiros novos ou alterados (os restantes já estão guardados).
+        TagIndexer.getInstance(appContext).requestIndex(loaded);
+        // E procura as capas embutidas dos álbuns ainda não verificados.
+        EmbeddedArtExtractor.getInstance(appContext).requestExtraction(loaded);
+        // E mantém a cópia da biblioteca na tabela 'songs', consultada pelas playlists com regras.
+        LibraryTableSync.getInstance(appContext).requestSync(loaded);
+        // E corrige as cópias de músicas que foram movidas ou apagadas (no máximo de 10 em 10 minutos).
+        SongReconciler.getInstance(appContext).requestReconcile();
+    }
+
+    private synchronized void clearInFlightLoad() {
+        inFlightLoad = null;
+    }
+
+    // --- Avisos de memória do sistema (ComponentCallbacks2) ---
+
+    @Override
+    public void onTrimMemory(int level) {
+        // A partir do momento em que a UI fica escondida ou o sistema começa a ficar sem memória,
+        // descartamos os índices derivados. A lista em si é mantida, pois é partilhada pelos ecrãs.
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            LibrarySnapshot current = snapshot;
+            if (current != null) {
+                current.trimDerivedIndexes();
+            }
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        // A biblioteca não depende da configuração.
+    }
+}
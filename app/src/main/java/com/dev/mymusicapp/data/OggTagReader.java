@@ -0,0 +1,92 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dev.mymusicapp.model.SongTags;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Lê as etiquetas e a capa de um ficheiro Ogg (Vorbis ou Opus). Os comentários estão no segundo pacote do fluxo,
+ * logo nas primeiras páginas: as páginas são percorridas pelos cabeçalhos e só os segmentos desse
+ * pacote são copiados, até um limite (os comentários podem trazer uma capa inteira no fim, em base64:
+ * para as etiquetas o limite é pequeno, para a capa é o de TagInput.MAX_PICTURE).
+ */
+final class OggTagReader {
+
+    private static final int PAGE_HEADER_SIZE = 27;
+    private static final int MAX_PAGES = 64;
+    private static final int MAX_COMMENT_BYTES = 256 * 1024;
+
+    private OggTagReader() {
+    }
+
+    static void parse(@NonNull TagInput input, @NonNull SongTags tags) throws IOException {
+        ByteBuffer comments = readComments(input, MAX_COMMENT_BYTES);
+        if (comments != null) VorbisComments.parse(comments, tags);
+    }
+
+    /**
+     * A capa guardada no campo METADATA_BLOCK_PICTURE dos comentários, ou null.
+     */
+    @Nullable
+    static byte[] readPicture(@NonNull TagInput input) throws IOException {
+        ByteBuffer comments = readComments(input, TagInput.MAX_PICTURE);
+        return comments != null ? VorbisComments.readPicture(comments) : null;
+    }
+
+    /**
+     * Junta os segmentos do pacote de comentários (até 'maxBytes') e devolve a lista de comentários
+     * que vem depois do identificador do pacote, ou null se não for Vorbis nem Opus.
+     */
+    @Nullable
+    private static ByteBuffer readComments(TagInput input, int maxBytes) throws IOException {
+        byte[] packet = new byte[4 * 1024];
+        int packetLength = 0;
+        int packetIndex = 0;
+        long position = 0;
+        for (int page = 0; page < MAX_PAGES && packetIndex <= 1; page++) {
+            ByteBuffer header = input.read(position, PAGE_HEADER_SIZE);
+            if (header.limit() < PAGE_HEADER_SIZE || !TagInput.startsWith(header, 0, "OggS")) break;
+            int segments = header.get(26) & 0xFF;
+            ByteBuffer table = input.read(position + PAGE_HEADER_SIZE, segments);
+            if (table.limit() < segments) break;
+            int[] lacing = new int[segments];
+            int bodySize = 0;
+            for (int i = 0; i < segments; i++) {
+                lacing[i] = table.get(i) & 0xFF;
+                bodySize += lacing[i];
+            }
+            long bodyPosition = position + PAGE_HEADER_SIZE + segments;
+            ByteBuffer body = input.read(bodyPosition, bodySize);
+            int offset = 0;
+            for (int i = 0; i < segments && packetIndex <= 1; i++) {
+                int length = Math.min(lacing[i], body.limit() - offset);
+                if (packetIndex == 1 && length > 0 && packetLength + length <= maxBytes) {
+                    if (packetLength + length > packet.length) {
+                        packet = Arrays.copyOf(packet, Math.max(packet.length * 2, packetLength + length));
+                    }
+                    body.position(offset);
+                    body.get(packet, packetLength, length);
+                    packetLength += length;
+                }
+                offset += lacing[i];
+                // Um segmento com menos de 255 bytes fecha o pacote.
+                if (lacing[i] < 255) packetIndex++;
+            }
+            position = bodyPosition + bodySize;
+        }
+        ByteBuffer comments = ByteBuffer.wrap(packet, 0, packetLength).slice();
+        if (TagInput.startsWith(comments, 0, "\u0003vorbis")) {
+            comments.position(7);
+        } else if (TagInput.startsWith(comments, 0, "OpusTags")) {
+            comments.position(8);
+        } else {
+            return null;
+        }
+        return comments.slice();
+    }
+}
@@ -0,0 +1,23 @@
+package com.dev.mymusicapp.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import com.dev.mymusicapp.model.PlayEvent;
+
+import java.util.List;
+
+@Dao
+public interface PlayHistoryDao {
+
+    // Cada lote do PlayHistoryRecorder é escrito numa única transação.
+    @Insert
+    void insertAll(List<PlayEvent> events);
+
+    @Query("SELECT * FROM play_history ORDER BY timestamp DESC LIMIT :limit")
+    List<PlayEvent> getRecent(int limit);
+
+    @Query("SELECT COUNT(*) FROM play_history WHERE dataPath = :dataPath AND type = :type")
+    int countEvents(String dataPath, int type);
+}
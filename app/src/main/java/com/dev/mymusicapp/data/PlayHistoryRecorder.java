@@ -0,0 +1,229 @@
+package com.dev.mymusicapp.data;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import com.dev.mymusicapp.model.PlayEvent;
+import com.dev.mymusicapp.model.SongStats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PlayHistoryRecorder recebe os eventos de reprodução do MusicService (começou, saltada, chegou ao fim)
+ * e escreve-os na tabela 'play_history' sem nunca tocar no disco na thread do player.
+ *
+ * - Os eventos entram num buffer circular em memória, sem locks: só a thread principal escreve (o player
+ *   corre nela) e só a thread de escrita lê. Cada lado avança o seu contador e publica-o com lazySet
+ *   depois de escrever/ler os campos, por isso nenhum lado espera pelo outro.
+ * - O primeiro evento depois de uma escrita agenda a próxima para daqui a FLUSH_INTERVAL_MS; se o buffer
+ *   chegar a metade antes disso, a escrita é antecipada. Cada escrita é um lote numa única transação.
+ * - Se o processo morrer, perdem-se no máximo os eventos de uma janela (FLUSH_INTERVAL_MS). Quando o
+ *   serviço termina, flush() escreve logo o que estiver pendente.
+ * - Se o buffer encher (a base de dados bloqueada muito tempo), os eventos novos são descartados e contados
+ *   em vez de bloquear a reprodução.
+ * - Na mesma transação de cada lote é atualizado o resumo por música ('song_stats'): só as linhas das músicas
+ *   do lote são lidas e reescritas, por isso o custo de manter as listas inteligentes não cresce com o histórico.
+ */
+public class PlayHistoryRecorder {
+
+    private static final String TAG = "PlayHistoryRecorder";
+
+    // Potência de 2, para o índice no buffer ser só uma máscara.
+    private static final int CAPACITY = 256;
+    private static final int MASK = CAPACITY - 1;
+    private static final long FLUSH_INTERVAL_MS = 10_000;
+    // Uma música saltada depois de ouvida este tempo conta como audição.
+    static final long MIN_LISTEN_MS = 30_000;
+
+    private static volatile PlayHistoryRecorder INSTANCE;
+
+    private final AppDatabase db;
+    private final PlayHistoryDao dao;
+    private final SongStatsDao statsDao;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        runnable.run();
+    }, "PlayHistoryWriter"));
+
+    // O buffer: um evento por posição, em arrays paralelos pré-alocados (registar um evento não aloca nada).
+    private final String[] paths = new String[CAPACITY];
+    private final int[] types = new int[CAPACITY];
+    private final long[] timestamps = new long[CAPACITY];
+    private final long[] positions = new long[CAPACITY];
+
+    // Número total de eventos escritos no buffer (só a thread principal o avança).
+    private final AtomicLong head = new AtomicLong();
+    // Número total de eventos já retirados (só a thread de escrita o avança).
+    private final AtomicLong tail = new AtomicLong();
+    // 'true' enquanto há uma escrita agendada e ainda não começada.
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private PlayHistoryRecorder(Context context) {
+        db = AppDatabase.getDatabase(context.getApplicationContext());
+        dao = db.playHistoryDao();
+        statsDao = db.songStatsDao();
+    }
+
+    public static PlayHistoryRecorder getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (PlayHistoryRecorder.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new PlayHistoryRecorder(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Regista um evento. Só pode ser chamado na thread principal (o buffer tem um único produtor).
+     *
+     * @param dataPath   A música.
+     * @param type       PlayEvent.TYPE_PLAY, TYPE_SKIP ou TYPE_COMPLETE.
+     * @param positionMs Até onde foi ouvida.
+     */
+    @MainThread
+    public void record(@NonNull String dataPath, int type, long positionMs) {
+        long sequence = head.get();
+        long pending = sequence - tail.get();
+        if (pending >= CAPACITY) {
+            dropped.incrementAndGet();
+            scheduleFlush(0);
+            return;
+        }
+        int slot = (int) (sequence & MASK);
+        paths[slot] = dataPath;
+        types[slot] = type;
+        timestamps[slot] = System.currentTimeMillis();
+        positions[slot] = positionMs;
+        // Publica o evento: os campos acima ficam visíveis para quem ler o novo valor de 'head'.
+        head.lazySet(sequence + 1);
+
+        // Ao chegar a metade, a escrita é antecipada (uma única vez, para não encher a fila da thread de escrita).
+        scheduleFlush(pending + 1 == CAPACITY / 2 ? 0 : FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Escreve já o que estiver pendente (ex: o serviço vai terminar). Não bloqueia quem chama.
+     */
+    public void flush() {
+        writer.execute(this::drain);
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (delayMs == 0) {
+            writer.execute(this::drain);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            writer.schedule(() -> {
+                flushScheduled.set(false);
+                drain();
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Corre na thread de escrita: retira todos os eventos publicados e escreve-os num único lote.
+     */
+    private void drain() {
+        long from = tail.get();
+        long to = head.get();
+        if (from == to) return;
+        List<PlayEvent> batch = new ArrayList<>((int) (to - from));
+        for (long sequence = from; sequence < to; sequence++) {
+            int slot = (int) (sequence & MASK);
+            PlayEvent event = new PlayEvent();
+            event.dataPath = paths[slot];
+            event.type = types[slot];
+            event.timestamp = timestamps[slot];
+            event.positionMs = positions[slot];
+            paths[slot] = null;
+            batch.add(event);
+        }
+        // Liberta as posições para o produtor só depois de copiadas.
+        tail.lazySet(to);
+        try {
+            db.runInTransaction(() -> {
+                dao.insertAll(batch);
+                updateStats(batch);
+            });
+        } catch (RuntimeException e) {
+            // Ex: disco cheio. Os eventos deste lote perdem-se, mas o player não é afetado.
+            Log.e(TAG, "Falha ao escrever o histórico de reprodução", e);
+            return;
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            // Só quando a fila encheu: o resto dos lotes não deixa rasto no Logcat.
+            Log.w(TAG, "Histórico: " + lost + " eventos descartados (fila cheia)");
+        }
+    }
+
+    /**
+     * Junta os eventos do lote ao resumo das músicas envolvidas. Corre dentro da transação do lote.
+     */
+    private void updateStats(List<PlayEvent> batch) {
+        Map<String, SongStats> touched = new HashMap<>();
+        for (PlayEvent event : batch) touched.put(event.dataPath, null);
+        for (SongStats stats : statsDao.getByPaths(new ArrayList<>(touched.keySet()))) {
+            touched.put(stats.dataPath, stats);
+        }
+        for (PlayEvent event : batch) {
+            SongStats stats = touched.get(event.dataPath);
+            if (stats == null) {
+                stats = new SongStats();
+                stats.dataPath = event.dataPath;
+                touched.put(event.dataPath, stats);
+            }
+            apply(stats, event);
+        }
+        statsDao.upsertAll(new ArrayList<>(touched.values()));
+    }
+
+    /**
+     * Junta um evento ao resumo da música. Usado também pelo MusicService para manter os pesos do shuffle
+     * inteligente em memória.
+     */
+    public static void apply(@NonNull SongStats stats, @NonNull PlayEvent event) {
+        switch (event.type) {
+            case PlayEvent.TYPE_PLAY:
+                stats.lastPlayed = Math.max(stats.lastPlayed, event.timestamp);
+                break;
+            case PlayEvent.TYPE_SKIP:
+                if (event.positionMs < MIN_LISTEN_MS) {
+                    stats.skipCount++;
+                    break;
+                }
+                // Ouvida o suficiente: conta como audição.
+                // fall through
+            case PlayEvent.TYPE_COMPLETE:
+                stats.playCount++;
+                stats.score = addDecayed(stats.score, event.timestamp);
+                break;
+        }
+    }
+
+    /**
+     * Soma uma audição no instante 't' ao score: log2(2^score + 2^(t / meia-vida)), calculado sem overflow
+     * (os expoentes passam dos milhares).
+     */
+    static double addDecayed(double score, long timestamp) {
+        double point = (double) timestamp / SongStats.HALF_LIFE_MS;
+        if (score <= 0) return point;
+        double high = Math.max(score, point);
+        double low = Math.min(score, point);
+        return high + Math.log1p(Math.pow(2, low - high)) / Math.log(2);
+    }
+}
@@ -0,0 +1,99 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dev.mymusicapp.model.UnplayableFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * Verificação rápida de um ficheiro antes de chegar ao player: existe, pode ser lido, não está vazio e não é só
+ * zeros (ficheiro truncado ou pré-alocado por uma cópia interrompida). Normalmente só se leem os primeiros
+ * SCAN_BYTES; só um início a zeros obriga a ler até ZERO_CHECK_BYTES.
+ *
+ * O formato reconhecido pela assinatura fica em getContainer(), para o ContainerHints.
+ *
+ * Na dúvida o ficheiro é dado como bom: um início que não se reconhece (AC-3, MPEG-TS, FLV, um MP3 com mais
+ * lixo à frente do que SCAN_BYTES, ...) não é um erro, e fica o erro do player para decidir. Uma instância não
+ * é thread-safe (reutiliza o buffer do TagInput).
+ */
+final class PlayabilityProbe {
+
+    // Os MP3 sem ID3v2 podem ter lixo antes do primeiro frame: procura-se aqui o sincronismo, só para a dica.
+    private static final int SCAN_BYTES = 4096;
+    // O extrator de MP3 do ExoPlayer procura o sincronismo até esta distância: zeros até aqui não tocam.
+    private static final int ZERO_CHECK_BYTES = 128 * 1024;
+
+    private final TagInput input = new TagInput();
+    @Nullable
+    private ContainerType container;
+
+    /**
+     * @return 0 se o ficheiro pode ser tocável, senão um dos UnplayableFile.REASON_* (só em falhas certas).
+     */
+    int probe(@NonNull File file) {
+        container = null;
+        if (!file.exists()) return UnplayableFile.REASON_MISSING;
+        if (!file.canRead()) return UnplayableFile.REASON_UNREADABLE;
+        if (file.length() == 0) return UnplayableFile.REASON_EMPTY;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            input.open(raf.getChannel());
+            long offset = 0;
+            ByteBuffer head = input.read(0, 12);
+            if (TagInput.startsWith(head, 0, "ID3")) {
+                offset = Id3v2TagReader.tagEnd(input);
+                if (offset >= input.size()) return UnplayableFile.REASON_EMPTY; // Só etiquetas, sem áudio.
+                head = input.read(offset, 12);
+            }
+            container = ContainerType.detect(head);
+            if (container != null) return 0;
+            ByteBuffer scan = input.read(offset, (int) Math.min(SCAN_BYTES, input.size() - offset));
+            container = findFrameSync(scan);
+            if (container != null || !isZeros(scan)) return 0;
+            return isZeros(offset + scan.limit(), Math.min(input.size(), offset + ZERO_CHECK_BYTES))
+                    ? UnplayableFile.REASON_ZEROS : 0;
+        } catch (IOException | RuntimeException e) {
+            container = null;
+            return UnplayableFile.REASON_UNREADABLE;
+        }
+    }
+
+    /**
+     * O formato detetado na última chamada a probe, ou null se não foi reconhecido (ou o ficheiro é mau).
+     */
+    @Nullable
+    ContainerType getContainer() {
+        return container;
+    }
+
+    private static boolean isZeros(ByteBuffer buffer) {
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) != 0) return false;
+        }
+        return true;
+    }
+
+    // Lê [from, to) em blocos de SCAN_BYTES.
+    private boolean isZeros(long from, long to) throws IOException {
+        for (long position = from; position < to; position += SCAN_BYTES) {
+            ByteBuffer block = input.read(position, (int) Math.min(SCAN_BYTES, to - position));
+            if (block.limit() == 0) break;
+            if (!isZeros(block)) return false;
+        }
+        return true;
+    }
+
+    // O primeiro sincronismo de frame MPEG (MP3) ou ADTS (AAC).
+    @Nullable
+    private static ContainerType findFrameSync(ByteBuffer buffer) {
+        for (int i = 0; i + 1 < buffer.limit(); i++) {
+            ContainerType type = ContainerType.frameSync(buffer, i);
+            if (type != null) return type;
+        }
+        return null;
+    }
+}
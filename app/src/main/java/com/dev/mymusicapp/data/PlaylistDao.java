@@ -1,6 +1,9 @@
 package com.dev.mymusicapp.data;
 
+import android.database.Cursor;
+
 import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
@@ -17,26 +20,53 @@ import java.util.List;
 @Dao
 public interface PlaylistDao {
 
+    // Limite de parâmetros por instrução no SQLite das versões de Android suportadas ('IN (:lista)' gasta um por item).
+    int MAX_BIND_ARGS = 900;
+
     // --- Operações de Playlist ---
+    // Devolve o id gerado (usado para preencher logo a playlist nova).
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertPlaylist(Playlist playlist);
+    long insertPlaylist(Playlist playlist);
 
     @Query("SELECT * FROM playlists")
     List<Playlist> getAllPlaylists();
 
+    // Versão observável: o InvalidationTracker do Room volta a emitir apenas quando a tabela 'playlists' muda.
+    @Query("SELECT * FROM playlists")
+    LiveData<List<Playlist>> observeAllPlaylists();
+
     // --- Operações de Músicas ---
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     void insertSong(Song song);
 
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertSongs(List<Song> songs);
+
+    // Cópia da biblioteca usada pelas playlists com regras (ver LibraryTableSync).
+    @Query("SELECT * FROM songs")
+    List<Song> getAllSongs();
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertSongs(List<Song> songs);
+
     // --- Operações de Relação ---
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     void insertPlaylistSongCrossRef(PlaylistSongCrossRef crossRef);
 
+    // Usado pela importação de M3U, em lotes; as entradas repetidas no ficheiro são ignoradas pela chave composta.
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertPlaylistSongCrossRefs(List<PlaylistSongCrossRef> crossRefs);
+
     // --- Operações de Relacionamento ---
     @Transaction
     @Query("SELECT * FROM playlists WHERE playlistId = :playlistId")
     PlaylistWithSongs getPlaylistWithSongs(int playlistId);
 
+    // Versão observável: volta a emitir quando 'playlists', 'songs' ou 'PlaylistSongCrossRef' mudam.
+    @Transaction
+    @Query("SELECT * FROM playlists WHERE playlistId = :playlistId")
+    LiveData<PlaylistWithSongs> observePlaylistWithSongs(int playlistId);
+
     @Query("DELETE FROM PlaylistSongCrossRef WHERE playlistId = :playlistId AND dataPath = :dataPath")
     void deleteSongFromPlaylist(int playlistId, @NonNull String dataPath);
 
@@ -50,4 +80,114 @@ public interface PlaylistDao {
 
     @Query("SELECT COUNT(*) FROM PlaylistSongCrossRef WHERE playlistId = :playlistId AND dataPath = :dataPath")
     int countSongInPlaylist(int playlistId, @NonNull String dataPath);
+
+    // Para a exportação: as linhas são lidas uma a uma do Cursor, pela ordem em que foram adicionadas (rowid).
+    @Query("SELECT s.dataPath, s.title, s.artist, s.duration FROM PlaylistSongCrossRef c "
+            + "JOIN songs s ON s.dataPath = c.dataPath WHERE c.playlistId = :playlistId ORDER BY c.rowid")
+    Cursor queryPlaylistForExport(int playlistId);
+
+    // --- Operações em lote (seleção múltipla na PlaylistDetailActivity) ---
+
+    @Query("DELETE FROM PlaylistSongCrossRef WHERE playlistId = :playlistId AND dataPath IN (:dataPaths)")
+    void deleteSongsFromPlaylistChunk(int playlistId, List<String> dataPaths);
+
+    @Query("INSERT OR IGNORE INTO PlaylistSongCrossRef (playlistId, dataPath) "
+            + "SELECT :targetId, dataPath FROM PlaylistSongCrossRef WHERE playlistId = :sourceId AND dataPath IN (:dataPaths)")
+    void copySongsChunk(int sourceId, int targetId, List<String> dataPaths);
+
+    /**
+     * Remove as músicas da playlist numa só transação (a lista observada só volta a emitir uma vez).
+     */
+    @Transaction
+    default void deleteSongsFromPlaylist(int playlistId, @NonNull List<String> dataPaths) {
+        for (int i = 0; i < dataPaths.size(); i += MAX_BIND_ARGS) {
+            deleteSongsFromPlaylistChunk(playlistId, dataPaths.subList(i, Math.min(dataPaths.size(), i + MAX_BIND_ARGS)));
+        }
+    }
+
+    /**
+     * Copia as músicas para outra playlist (as que já lá estão são ignoradas), numa só transação.
+     */
+    @Transaction
+    default void copySongsToPlaylist(int sourceId, int targetId, @NonNull List<String> dataPaths) {
+        for (int i = 0; i < dataPaths.size(); i += MAX_BIND_ARGS) {
+            copySongsChunk(sourceId, targetId, dataPaths.subList(i, Math.min(dataPaths.size(), i + MAX_BIND_ARGS)));
+        }
+    }
+
+    /**
+     * Move as músicas para outra playlist: copia e remove da origem na mesma transação.
+     */
+    @Transaction
+    default void moveSongsToPlaylist(int sourceId, int targetId, @NonNull List<String> dataPaths) {
+        copySongsToPlaylist(sourceId, targetId, dataPaths);
+        deleteSongsFromPlaylist(sourceId, dataPaths);
+    }
+
+    // --- Operações entre playlists ---
+    // Cada uma é uma única instrução: o SQLite calcula o resultado pelo índice da chave (playlistId, dataPath)
+    // e insere-o diretamente na playlist de destino. 'OR IGNORE' salta as músicas que o destino já tem.
+
+    @Query("INSERT OR IGNORE INTO PlaylistSongCrossRef (playlistId, dataPath) "
+            + "SELECT :targetId, dataPath FROM PlaylistSongCrossRef WHERE playlistId = :sourceId")
+    void copySongs(int sourceId, int targetId);
+
+    @Query("INSERT OR IGNORE INTO PlaylistSongCrossRef (playlistId, dataPath) "
+            + "SELECT :targetId, dataPath FROM PlaylistSongCrossRef WHERE playlistId = :firstId "
+            + "UNION SELECT :targetId, dataPath FROM PlaylistSongCrossRef WHERE playlistId = :secondId")
+    void insertUnion(int firstId, int secondId, int targetId);
+
+    @Query("INSERT OR IGNORE INTO PlaylistSongCrossRef (playlistId, dataPath) "
+            + "SELECT :targetId, dataPath FROM PlaylistSongCrossRef WHERE playlistId = :firstId "
+            + "INTERSECT SELECT :targetId, dataPath FROM PlaylistSongCrossRef WHERE playlistId = :secondId")
+    void insertIntersection(int firstId, int secondId, int targetId);
+
+    @Query("INSERT OR IGNORE INTO PlaylistSongCrossRef (playlistId, dataPath) "
+            + "SELECT :targetId, dataPath FROM PlaylistSongCrossRef WHERE playlistId = :firstId "
+            + "EXCEPT SELECT :targetId, dataPath FROM PlaylistSongCrossRef WHERE playlistId = :secondId")
+    void insertDifference(int firstId, int secondId, int targetId);
+
+    /**
+     * Acrescenta à playlist de destino o resultado da operação entre 'firstId' e 'secondId'.
+     * O destino pode ser uma playlist nova ou uma existente (incluindo uma das duas).
+     */
+    default void applySetOperation(@NonNull PlaylistSetOperation operation, int firstId, int secondId, int targetId) {
+        switch (operation) {
+            case UNION:
+                insertUnion(firstId, secondId, targetId);
+                break;
+            case INTERSECT:
+                insertIntersection(firstId, secondId, targetId);
+                break;
+            case EXCEPT:
+                insertDifference(firstId, secondId, targetId);
+                break;
+        }
+    }
+
+    /**
+     * Cria uma playlist nova com o resultado da operação, numa só transação (a lista observada só é invalidada uma vez).
+     * @return O id da playlist criada.
+     */
+    @Transaction
+    default int createFromSetOperation(@NonNull String name, @NonNull PlaylistSetOperation operation, int firstId, int secondId) {
+        Playlist playlist = new Playlist();
+        playlist.name = name;
+        int targetId = (int) insertPlaylist(playlist);
+        applySetOperation(operation, firstId, secondId, targetId);
+        return targetId;
+    }
+
+    /**
+     * Duplica uma playlist: cria a nova e copia as músicas com um único INSERT ... SELECT.
+     * @return O id da playlist criada.
+     */
+    @Transaction
+    default int duplicatePlaylist(int sourceId, @NonNull String name) {
+        Playlist playlist = new Playlist();
+        playlist.name = name;
+        int targetId = (int) insertPlaylist(playlist);
+        copySongs(sourceId, targetId);
+        return targetId;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package com.dev.mymusicapp.data;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.dev.mymusicapp.model.Playlist;
+import com.dev.mymusicapp.model.PlaylistSongCrossRef;
+import com.dev.mymusicapp.model.Song;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * PlaylistFiles importa e exporta playlists em ficheiros M3U/M3U8 (e importa PLS).
+ *
+ * - A importação lê o ficheiro linha a linha: só o lote atual fica em memória, qualquer que seja o tamanho do
+ *   ficheiro. Cada entrada é procurada na biblioteca pelo caminho completo e, se não existir (ficheiro criado
+ *   noutro dispositivo, caminho relativo), pelo nome do ficheiro, desempatando pelas pastas finais do caminho.
+ * - As músicas encontradas são inseridas em lotes de BATCH_SIZE, cada um numa transação.
+ * - A exportação percorre um Cursor e escreve cada linha diretamente, sem montar a lista de músicas.
+ *
+ * Os ficheiros são escritos em UTF-8 (M3U8); na leitura também se assume UTF-8, que cobre o ASCII dos M3U antigos.
+ */
+public final class PlaylistFiles {
+
+    private static final String TAG = "PlaylistFiles";
+
+    private static final int BATCH_SIZE = 500;
+
+    private PlaylistFiles() {
+    }
+
+    /**
+     * O resultado de uma importação.
+     */
+    public static final class ImportResult {
+        // -1 se nenhuma entrada foi encontrada (nesse caso a playlist não é criada).
+        public final int playlistId;
+        public final int matched;
+        public final int missing;
+
+        ImportResult(int playlistId, int matched, int missing) {
+            this.playlistId = playlistId;
+            this.matched = matched;
+            this.missing = missing;
+        }
+    }
+
+    /**
+     * Cria uma playlist com as entradas do ficheiro que existem na biblioteca.
+     *
+     * @param in   O ficheiro (M3U, M3U8 ou PLS; o formato é detetado pelo conteúdo). Não é fechado aqui.
+     * @param name O nome da playlist nova.
+     * @throws IOException Se a leitura falhar a meio; a playlist criada é apagada antes de propagar o erro.
+     */
+    @WorkerThread
+    @NonNull
+    public static ImportResult importPlaylist(@NonNull AppDatabase db, @NonNull LibrarySnapshot library,
+                                              @NonNull InputStream in, @NonNull String name) throws IOException {
+        long start = System.nanoTime();
+        PlaylistDao dao = db.playlistDao();
+        Playlist playlist = new Playlist();
+        playlist.name = name;
+        int playlistId = (int) dao.insertPlaylist(playlist);
+
+        FileNameIndex fileNames = new FileNameIndex(library.getSongs());
+        List<Song> songs = new ArrayList<>(BATCH_SIZE);
+        List<PlaylistSongCrossRef> crossRefs = new ArrayList<>(BATCH_SIZE);
+        int matched = 0;
+        int missing = 0;
+        boolean pls = false;
+        boolean firstLine = true;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                if (firstLine) {
+                    // Remove o BOM que alguns editores põem no início dos M3U8.
+                    if (line.startsWith("\uFEFF")) line = line.substring(1);
+                    firstLine = false;
+                }
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.equalsIgnoreCase("[playlist]")) {
+                    pls = true;
+                    continue;
+                }
+                String entry = pls ? plsEntry(line) : (line.startsWith("#") ? null : line);
+                if (entry == null) continue;
+
+                Song song = resolve(entry, library, fileNames);
+                if (song == null) {
+                    missing++;
+                    continue;
+                }
+                matched++;
+                songs.add(song);
+                PlaylistSongCrossRef crossRef = new PlaylistSongCrossRef();
+                crossRef.playlistId = playlistId;
+                crossRef.dataPath = song.getDataPath();
+                crossRefs.add(crossRef);
+                if (crossRefs.size() == BATCH_SIZE) {
+                    insertBatch(db, songs, crossRefs);
+                }
+            }
+            insertBatch(db, songs, crossRefs);
+        } catch (IOException | RuntimeException e) {
+            // Ficheiro ilegível a meio (ou a base de dados falhou): os lotes já escritos são desfeitos, para não
+            // ficar uma playlist meio importada com a mensagem de erro.
+            removePlaylist(dao, playlistId);
+            throw e;
+        }
+
+        if (matched == 0) {
+            removePlaylist(dao, playlistId);
+            playlistId = -1;
+        }
+        Log.d(TAG, "Importação: " + matched + " encontradas, " + missing + " em falta, em "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return new ImportResult(playlistId, matched, missing);
+    }
+
+    private static void removePlaylist(PlaylistDao dao, int playlistId) {
+        dao.deleteCrossRefsByPlaylistId(playlistId);
+        dao.deletePlaylistById(playlistId);
+    }
+
+    private static void insertBatch(AppDatabase db, List<Song> songs, List<PlaylistSongCrossRef> crossRefs) {
+        if (crossRefs.isEmpty()) return;
+        db.runInTransaction(() -> {
+            // As músicas têm de existir na tabela 'songs' para a playlist as mostrar.
+            db.playlistDao().insertSongs(songs);
+            db.playlistDao().insertPlaylistSongCrossRefs(crossRefs);
+        });
+        songs.clear();
+        crossRefs.clear();
+    }
+
+    // "File1=/caminho/musica.mp3" → "/caminho/musica.mp3"; as outras chaves (Title1, Length1, ...) são ignoradas.
+    @Nullable
+    private static String plsEntry(String line) {
+        if (line.length() < 5 || !line.regionMatches(true, 0, "File", 0, 4)) return null;
+        int equals = line.indexOf('=');
+        return equals > 0 && equals < line.length() - 1 ? line.substring(equals + 1).trim() : null;
+    }
+
+    @Nullable
+    private static Song resolve(String entry, LibrarySnapshot library, FileNameIndex fileNames) {
+        String path = entry;
+        if (path.startsWith("file://")) {
+            path = Uri.decode(path.substring("file://".length()));
+        }
+        path = path.replace('\\', '/');
+        int index = library.indexOfPath(path);
+        if (index >= 0) return library.getSongs().get(index);
+        return fileNames.find(path);
+    }
+
+    /**
+     * Escreve a playlist em formato M3U8 (com #EXTINF), pela ordem em que as músicas foram adicionadas.
+     * @return Quantas músicas foram escritas.
+     */
+    @WorkerThread
+    public static int exportPlaylist(@NonNull AppDatabase db, int playlistId, @NonNull OutputStream out) throws IOException {
+        int written = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("#EXTM3U\n");
+        try (Cursor cursor = db.playlistDao().queryPlaylistForExport(playlistId)) {
+            int pathColumn = cursor.getColumnIndexOrThrow("dataPath");
+            int titleColumn = cursor.getColumnIndexOrThrow("title");
+            int artistColumn = cursor.getColumnIndexOrThrow("artist");
+            int durationColumn = cursor.getColumnIndexOrThrow("duration");
+            while (cursor.moveToNext()) {
+                writer.write("#EXTINF:");
+                writer.write(Long.toString(cursor.getLong(durationColumn) / 1000));
+                writer.write(',');
+                writer.write(cursor.getString(artistColumn));
+                writer.write(" - ");
+                writer.write(cursor.getString(titleColumn));
+                writer.write('\n');
+                writer.write(cursor.getString(pathColumn));
+                writer.write('\n');
+                written++;
+            }
+        }
+        writer.flush();
+        return written;
+    }
+
+    /**
+     * Índice da biblioteca pelo nome do ficheiro (sem distinguir maiúsculas). Os nomes repetidos (ex: "01 Intro.mp3"
+     * em vários álbuns) guardam todas as posições e o desempate é feito pelas pastas que precedem o nome.
+     */
+    private static final class FileNameIndex {
+
+        private final List<Song> songs;
+        private final Map<String, Integer> first = new HashMap<>();
+        private final Map<String, List<Integer>> repeated = new HashMap<>();
+
+        FileNameIndex(List<Song> songs) {
+            this.songs = songs;
+            for (int i = 0; i < songs.size(); i++) {
+                String key = fileName(songs.get(i).getDataPath());
+                Integer previous = first.putIfAbsent(key, i);
+                if (previous != null) {
+                    List<Integer> positions = repeated.get(key);
+                    if (positions == null) {
+                        positions = new ArrayList<>();
+                        positions.add(previous);
+                        repeated.put(key, positions);
+                    }
+                    positions.add(i);
+                }
+            }
+        }
+
+        @Nullable
+        Song find(String path) {
+            String key = fileName(path);
+            Integer position = first.get(key);
+            if (position == null) return null;
+            List<Integer> positions = repeated.get(key);
+            if (positions == null) return songs.get(position);
+            Song best = null;
+            int bestScore = -1;
+            for (int candidate : positions) {
+                Song song = songs.get(candidate);
+                int score = commonSuffixSegments(path, song.getDataPath());
+                if (score > bestScore) {
+                    best = song;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+
+        private static String fileName(String path) {
+            return path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+        }
+
+        // Quantas pastas finais coincidem (ex: ".../Álbum/01.mp3" e "/sdcard/Música/Álbum/01.mp3" → 1).
+        private static int commonSuffixSegments(String a, String b) {
+            String[] left = a.toLowerCase(Locale.ROOT).split("/");
+            String[] right = b.toLowerCase(Locale.ROOT).split("/");
+            int count = 0;
+            for (int i = left.length - 2, j = right.length - 2; i >= 0 && j >= 0; i--, j--) {
+                if (!left[i].equals(right[j])) break;
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+
+/**
+ * As operações entre duas playlists (A e B). Cada uma é executada pelo PlaylistDao numa única instrução
+ * INSERT ... SELECT sobre 'PlaylistSongCrossRef', sem carregar as músicas para a memória.
+ */
+public enum PlaylistSetOperation {
+    UNION("Juntar as duas", " + "),
+    INTERSECT("Só as que estão nas duas", " ∩ "),
+    EXCEPT("Só as que não estão na segunda", " − ");
+
+    private final String label;
+    // Usado no nome sugerido para a playlist resultante (ex: "Ginásio − Relax").
+    private final String symbol;
+
+    PlaylistSetOperation(String label, String symbol) {
+        this.label = label;
+        this.symbol = symbol;
+    }
+
+    @NonNull
+    public String getLabel() {
+        return label;
+    }
+
+    @NonNull
+    public String resultName(@NonNull String first, @NonNull String second) {
+        return first + symbol + second;
+    }
+}
@@ -0,0 +1,151 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+
+import com.dev.mymusicapp.model.PlaylistRule;
+import com.dev.mymusicapp.model.RulePlaylistWithRules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converte as regras de uma playlist numa consulta SQL parametrizada sobre a tabela 'songs'
+ * (com 'song_stats' e 'song_tags' só quando alguma regra precisa delas). Os valores escritos pelo
+ * utilizador vão sempre como argumentos '?', nunca no texto da consulta.
+ *
+ * As regras numéricas (duração, data de adição, contagens) são comparações de intervalo sobre colunas
+ * indexadas. As regras "contém" são LIKE '%valor%', que o SQLite não consegue resolver pelo índice:
+ * quando são combinadas com "todas as regras", as outras condições reduzem primeiro as linhas.
+ */
+public final class RuleCompiler {
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final long DAY_MS = 24 * 60 * MINUTE_MS;
+
+    private RuleCompiler() {
+    }
+
+    /**
+     * Uma consulta compilada: o texto e os argumentos. Duas compilações iguais têm a mesma chave,
+     * o que permite reutilizar o resultado em cache (ver SmartLists).
+     */
+    public static final class Compiled {
+        private final String sql;
+        private final Object[] args;
+
+        private Compiled(String sql, Object[] args) {
+            this.sql = sql;
+            this.args = args;
+        }
+
+        @NonNull
+        public SimpleSQLiteQuery toQuery() {
+            return new SimpleSQLiteQuery(sql, args);
+        }
+
+        @NonNull
+        public String getCacheKey() {
+            return sql + '|' + Arrays.toString(args);
+        }
+    }
+
+    /**
+     * @param nowMs O instante a que as regras relativas ("nos últimos N dias") se referem.
+     * @return A consulta, ou null se a playlist não tiver nenhuma regra válida.
+     */
+    @Nullable
+    public static Compiled compile(@NonNull RulePlaylistWithRules playlist, long nowMs) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        boolean needsStats = false;
+        boolean needsTags = false;
+        for (PlaylistRule rule : playlist.rules) {
+            RuleField field = parseField(rule.field);
+            if (field == null) continue;
+            String value = rule.value.trim();
+            long number = 0;
+            if (field.isNumeric()) {
+                try {
+                    number = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+            } else if (value.isEmpty()) {
+                continue;
+            }
+            switch (field) {
+                case ARTIST_CONTAINS:
+                    conditions.add("s.artist LIKE ? ESCAPE '\\'");
+                    args.add(containsPattern(value));
+                    break;
+                case TITLE_CONTAINS:
+                    conditions.add("s.title LIKE ? ESCAPE '\\'");
+                    args.add(containsPattern(value));
+                    break;
+                case ALBUM_CONTAINS:
+                    conditions.add("s.album LIKE ? ESCAPE '\\'");
+                    args.add(containsPattern(value));
+                    break;
+                case GENRE_IS:
+                    conditions.add("t.genre = ? COLLATE NOCASE");
+                    args.add(value);
+                    needsTags = true;
+                    break;
+                case DURATION_UNDER:
+                    conditions.add("s.duration < ?");
+                    args.add(number * MINUTE_MS);
+                    break;
+                case DURATION_OVER:
+                    conditions.add("s.duration > ?");
+                    args.add(number * MINUTE_MS);
+                    break;
+                case ADDED_WITHIN_DAYS:
+                    // 'dateAdded' está em segundos.
+                    conditions.add("s.dateAdded >= ?");
+                    args.add((nowMs - number * DAY_MS) / 1000);
+                    break;
+                case PLAY_COUNT_OVER:
+                    conditions.add("COALESCE(st.playCount, 0) > ?");
+                    args.add(number);
+                    needsStats = true;
+                    break;
+                case PLAYED_WITHIN_DAYS:
+                    conditions.add("st.lastPlayed >= ?");
+                    args.add(nowMs - number * DAY_MS);
+                    needsStats = true;
+                    break;
+            }
+        }
+        if (conditions.isEmpty()) return null;
+
+        StringBuilder sql = new StringBuilder("SELECT s.dataPath FROM songs s");
+        if (needsStats) sql.append(" LEFT JOIN song_stats st ON st.dataPath = s.dataPath");
+        if (needsTags) sql.append(" LEFT JOIN song_tags t ON t.dataPath = s.dataPath");
+        sql.append(" WHERE ");
+        String joiner = playlist.playlist.matchAll ? " AND " : " OR ";
+        for (int i = 0; i < conditions.size(); i++) {
+            if (i > 0) sql.append(joiner);
+            sql.append('(').append(conditions.get(i)).append(')');
+        }
+        sql.append(" ORDER BY s.title COLLATE NOCASE");
+        return new Compiled(sql.toString(), args.toArray());
+    }
+
+    @Nullable
+    static RuleField parseField(@NonNull String name) {
+        try {
+            return RuleField.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            // Regra de uma versão futura (ou corrompida): é ignorada.
+            return null;
+        }
+    }
+
+    // "%valor%", com os carateres especiais do LIKE escapados.
+    private static String containsPattern(String value) {
+        return "%" + value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
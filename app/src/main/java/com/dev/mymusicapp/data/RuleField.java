@@ -0,0 +1,37 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Os tipos de regra das playlists com regras. Cada um já inclui o operador (ex: "duração menor que"),
+ * para que o diálogo de criação só tenha de pedir o valor.
+ */
+public enum RuleField {
+    ARTIST_CONTAINS("Artista contém", false),
+    TITLE_CONTAINS("Título contém", false),
+    ALBUM_CONTAINS("Álbum contém", false),
+    GENRE_IS("Género é", false),
+    DURATION_UNDER("Duração menor que (min)", true),
+    DURATION_OVER("Duração maior que (min)", true),
+    ADDED_WITHIN_DAYS("Adicionada nos últimos (dias)", true),
+    PLAY_COUNT_OVER("Ouvida mais de (vezes)", true),
+    PLAYED_WITHIN_DAYS("Ouvida nos últimos (dias)", true);
+
+    private final String label;
+    // Se o valor é um número inteiro (senão é texto).
+    private final boolean numeric;
+
+    RuleField(String label, boolean numeric) {
+        this.label = label;
+        this.numeric = numeric;
+    }
+
+    @NonNull
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean isNumeric() {
+        return numeric;
+    }
+}
@@ -0,0 +1,49 @@
+package com.dev.mymusicapp.data;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.room.Transaction;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import com.dev.mymusicapp.model.PlaylistRule;
+import com.dev.mymusicapp.model.RulePlaylist;
+import com.dev.mymusicapp.model.RulePlaylistWithRules;
+import com.dev.mymusicapp.model.Song;
+import com.dev.mymusicapp.model.SongStats;
+import com.dev.mymusicapp.model.SongTags;
+
+import java.util.List;
+
+@Dao
+public interface RulePlaylistDao {
+
+    @Insert
+    long insertPlaylist(RulePlaylist playlist);
+
+    @Insert
+    void insertRules(List<PlaylistRule> rules);
+
+    @Transaction
+    @Query("SELECT * FROM rule_playlists ORDER BY name COLLATE NOCASE")
+    LiveData<List<RulePlaylistWithRules>> observeAll();
+
+    @Transaction
+    @Query("SELECT * FROM rule_playlists WHERE rulePlaylistId = :rulePlaylistId")
+    LiveData<RulePlaylistWithRules> observe(int rulePlaylistId);
+
+    @Query("DELETE FROM playlist_rules WHERE rulePlaylistId = :rulePlaylistId")
+    void deleteRules(int rulePlaylistId);
+
+    @Query("DELETE FROM rule_playlists WHERE rulePlaylistId = :rulePlaylistId")
+    void deletePlaylist(int rulePlaylistId);
+
+    /**
+     * Executa as regras compiladas pelo RuleCompiler (devolve os caminhos das músicas, pela ordem da lista).
+     * O Room volta a executar a consulta só quando uma das tabelas que ela pode ler é alterada.
+     */
+    @RawQuery(observedEntities = {Song.class, SongStats.class, SongTags.class})
+    LiveData<List<String>> observePaths(SupportSQLiteQuery query);
+}
@@ -0,0 +1,123 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * SectionIndex divide uma lista ordenada de músicas em secções alfabéticas ("A", "B", ..., "#")
+ * e guarda a posição onde cada secção começa. É usado pela barra de scroll rápido da MainActivity.
+ *
+ * Saltar para uma secção é um acesso direto ao array; descobrir a secção de uma posição é uma pesquisa
+ * binária sobre as posições iniciais. Nunca é preciso percorrer a lista.
+ *
+ * O índice da biblioteca completa é construído uma vez por LibrarySnapshot. O de uma lista filtrada
+ * é construído com o Builder durante a própria filtragem, à medida que as músicas são aceites.
+ */
+public final class SectionIndex {
+
+    public static final SectionIndex EMPTY = new SectionIndex(new String[0], new int[0], 0);
+
+    // Etiqueta de cada secção e a posição (na lista) da sua primeira música, por ordem.
+    private final String[] labels;
+    private final int[] starts;
+    private final int itemCount;
+
+    private SectionIndex(String[] labels, int[] starts, int itemCount) {
+        this.labels = labels;
+        this.starts = starts;
+        this.itemCount = itemCount;
+    }
+
+    public int getSectionCount() {
+        return labels.length;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    @NonNull
+    public String getLabel(int section) {
+        return labels[section];
+    }
+
+    /**
+     * Posição da primeira música da secção.
+     */
+    public int getPositionForSection(int section) {
+        return starts[section];
+    }
+
+    /**
+     * Número de músicas na secção.
+     */
+    public int getSectionSize(int section) {
+        int end = section + 1 < starts.length ? starts[section + 1] : itemCount;
+        return end - starts[section];
+    }
+
+    /**
+     * A secção que contém a posição, por pesquisa binária. Retorna -1 se a lista estiver vazia.
+     */
+    public int getSectionForPosition(int position) {
+        if (starts.length == 0) return -1;
+        int found = Arrays.binarySearch(starts, position);
+        // Sem correspondência exata, o binarySearch devolve (-(ponto de inserção) - 1); a secção é a anterior.
+        return found >= 0 ? found : Math.max(0, -found - 2);
+    }
+
+    /**
+     * A etiqueta da secção de um título: a primeira letra sem acentos, em maiúscula ("Água" → "A"),
+     * ou "#" para títulos que começam por números ou símbolos.
+     */
+    @NonNull
+    static String sectionLabelOf(@Nullable String title) {
+        if (title == null || title.isEmpty()) return "#";
+        int codePoint = title.codePointAt(0);
+        if (!Character.isLetter(codePoint)) return "#";
+        String letter = new String(Character.toChars(codePoint));
+        // A decomposição separa a letra base dos acentos, que ficam como caracteres seguintes.
+        String base = Normalizer.normalize(letter, Normalizer.Form.NFD);
+        return base.substring(0, Character.charCount(base.codePointAt(0))).toUpperCase(Locale.getDefault());
+    }
+
+    /**
+     * Constrói um SectionIndex a partir das secções das músicas, adicionadas pela ordem da lista.
+     * Como a lista está ordenada, as músicas de cada secção chegam seguidas: basta registar cada mudança.
+     */
+    public static final class Builder {
+        private String[] labels = new String[32];
+        private int[] starts = new int[32];
+        private int sectionCount = 0;
+        private int itemCount = 0;
+        private String lastLabel = null;
+
+        /**
+         * Regista a próxima música da lista, dada a etiqueta da sua secção.
+         */
+        public void add(@NonNull String label) {
+            // As etiquetas vêm sempre da mesma tabela (LibrarySnapshot), por isso basta comparar referências.
+            //noinspection StringEquality
+            if (label != lastLabel) {
+                if (sectionCount == labels.length) {
+                    labels = Arrays.copyOf(labels, sectionCount * 2);
+                    starts = Arrays.copyOf(starts, sectionCount * 2);
+                }
+                labels[sectionCount] = label;
+                starts[sectionCount] = itemCount;
+                sectionCount++;
+                lastLabel = label;
+            }
+            itemCount++;
+        }
+
+        @NonNull
+        public SectionIndex build() {
+            return new SectionIndex(Arrays.copyOf(labels, sectionCount), Arrays.copyOf(starts, sectionCount), itemCount);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.dev.mymusicapp.data;
+
+import android.content.Context;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+
+import com.dev.mymusicapp.model.RulePlaylistWithRules;
+import com.dev.mymusicapp.model.SmartList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * As listas inteligentes e a consulta de cada uma:
+ * - "Mais ouvidas" e "Ouvidas recentemente" são leituras pelos índices da tabela 'song_stats', que o
+ *   PlayHistoryRecorder mantém atualizada a cada lote do histórico;
+ * - as playlists com regras são as regras compiladas em SQL pelo RuleCompiler.
+ *
+ * Os LiveData do Room só voltam a executar a consulta quando uma das tabelas lidas muda. Os resultados
+ * das regras ficam em cache (pela consulta compilada), por isso reabrir uma lista sem mudanças nas
+ * tabelas não volta a executá-la.
+ */
+public final class SmartLists {
+
+    public static final String KEY_MOST_PLAYED = "most_played";
+    public static final String KEY_RECENTLY_PLAYED = "recently_played";
+    // As playlists com regras: "rule:" seguido do ID.
+    private static final String RULE_PREFIX = "rule:";
+
+    // Tamanho de cada lista.
+    private static final int LIMIT = 100;
+    // As regras relativas ("nos últimos N dias") usam a hora atual arredondada, para que a mesma lista
+    // aberta várias vezes seguidas dê a mesma consulta (e o mesmo resultado em cache).
+    private static final long NOW_GRANULARITY_MS = 60 * 60 * 1000;
+
+    // Resultados das regras, pela chave da consulta compilada.
+    private static final LruCache<String, LiveData<List<String>>> RULE_RESULTS = new LruCache<>(16);
+
+    private SmartLists() {
+    }
+
+    /**
+     * As listas fixas seguidas das playlists com regras.
+     */
+    @NonNull
+    public static List<SmartList> withRulePlaylists(@Nullable List<RulePlaylistWithRules> rulePlaylists) {
+        List<SmartList> lists = new ArrayList<>(getAll());
+        if (rulePlaylists != null) {
+            for (RulePlaylistWithRules playlist : rulePlaylists) {
+                int rules = playlist.rules.size();
+                String details = rules + (rules == 1 ? " regra" : " regras")
+                        + (rules > 1 ? (playlist.playlist.matchAll ? " · todas" : " · qualquer uma") : "");
+                lists.add(new SmartList(RULE_PREFIX + playlist.playlist.rulePlaylistId,
+                        playlist.playlist.name != null ? playlist.playlist.name : "", details));
+            }
+        }
+        return lists;
+    }
+
+    /**
+     * O ID da playlist com regras desta lista, ou -1 se for uma das listas fixas.
+     */
+    public static int getRulePlaylistId(@NonNull String key) {
+        if (!key.startsWith(RULE_PREFIX)) return -1;
+        try {
+            return Integer.parseInt(key.substring(RULE_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * As listas fixas, pela ordem em que são mostradas.
+     */
+    @NonNull
+    public static List<SmartList> getAll() {
+        return Arrays.asList(
+                new SmartList(KEY_MOST_PLAYED, "Mais ouvidas", "As " + LIMIT + " músicas mais ouvidas nas últimas semanas"),
+                new SmartList(KEY_RECENTLY_PLAYED, "Ouvidas recentemente", "As últimas " + LIMIT + " músicas ouvidas"));
+    }
+
+    /**
+     * Os caminhos das músicas de uma lista, pela ordem da lista, ou null se a chave não existir.
+     */
+    @Nullable
+    public static LiveData<List<String>> observePaths(@NonNull Context context, @NonNull String key) {
+        AppDatabase db = AppDatabase.getDatabase(context.getApplicationContext());
+        int rulePlaylistId = getRulePlaylistId(key);
+        if (rulePlaylistId >= 0) {
+            RulePlaylistDao ruleDao = db.rulePlaylistDao();
+            // Sempre que as regras mudam, a consulta é recompilada (e procurada na cache).
+            return Transformations.switchMap(ruleDao.observe(rulePlaylistId), playlist -> {
+                if (playlist == null) return new MutableLiveData<>(Collections.emptyList());
+                long now = System.currentTimeMillis() / NOW_GRANULARITY_MS * NOW_GRANULARITY_MS;
+                RuleCompiler.Compiled compiled = RuleCompiler.compile(playlist, now);
+                if (compiled == null) return new MutableLiveData<>(Collections.emptyList());
+                return cachedResult(ruleDao, compiled);
+            });
+        }
+        SongStatsDao dao = db.songStatsDao();
+        switch (key) {
+            case KEY_MOST_PLAYED:
+                return dao.observeMostPlayed(LIMIT);
+            case KEY_RECENTLY_PLAYED:
+                return dao.observeRecentlyPlayed(LIMIT);
+            default:
+                return null;
+        }
+    }
+
+    private static LiveData<List<String>> cachedResult(RulePlaylistDao dao, RuleCompiler.Compiled compiled) {
+        synchronized (RULE_RESULTS) {
+            String cacheKey = compiled.getCacheKey();
+            LiveData<List<String>> result = RULE_RESULTS.get(cacheKey);
+            if (result == null) {
+                // O LiveData do Room guarda o último resultado e só volta a consultar depois de uma invalidação.
+                result = dao.observePaths(compiled.toQuery());
+                RULE_RESULTS.put(cacheKey, result);
+            }
+            return result;
+        }
+    }
+}
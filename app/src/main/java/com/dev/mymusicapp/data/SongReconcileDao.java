@@ -0,0 +1,120 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.dev.mymusicapp.model.MissingSong;
+
+import java.util.List;
+
+@Dao
+public interface SongReconcileDao {
+
+    /**
+     * Uma linha de 'songs' reduzida à chave: é o que a comparação com o MediaStore precisa.
+     */
+    class SongKey {
+        public long id;
+        @NonNull
+        public String dataPath = "";
+    }
+
+    // Páginas ordenadas pelo ID do MediaStore (e pelo caminho, para IDs repetidos), lidas pelo índice (id, dataPath).
+    @Query("SELECT id, dataPath FROM songs WHERE id > :afterId OR (id = :afterId AND dataPath > :afterPath) "
+            + "ORDER BY id, dataPath LIMIT :limit")
+    List<SongKey> getKeysAfter(long afterId, @NonNull String afterPath, int limit);
+
+    // --- Músicas em falta ---
+
+    @Query("SELECT dataPath FROM missing_songs")
+    List<String> getMissingPaths();
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertMissing(List<MissingSong> missing);
+
+    @Query("DELETE FROM missing_songs WHERE dataPath IN (:dataPaths)")
+    void deleteMissing(List<String> dataPaths);
+
+    // As músicas em falta de uma playlist (a PlaylistDetailActivity não as põe na fila de reprodução).
+    @Query("SELECT m.dataPath FROM missing_songs m JOIN PlaylistSongCrossRef c ON c.dataPath = m.dataPath "
+            + "WHERE c.playlistId = :playlistId")
+    LiveData<List<String>> observeMissingInPlaylist(int playlistId);
+
+    // Em falta há mais tempo do que o período de tolerância, ou sem nada da(o) utilizador(a): em nenhuma playlist e
+    // sem estatísticas (as contagens e o score alimentam as listas inteligentes e o shuffle inteligente, e um
+    // cartão SD retirado não os deve apagar).
+    @Query("SELECT m.dataPath FROM missing_songs m WHERE m.missingSince < :cutoff "
+            + "OR (NOT EXISTS (SELECT 1 FROM PlaylistSongCrossRef c WHERE c.dataPath = m.dataPath) "
+            + "AND NOT EXISTS (SELECT 1 FROM song_stats s WHERE s.dataPath = m.dataPath)) LIMIT :limit")
+    List<String> getCollectable(long cutoff, int limit);
+
+    // --- Ficheiros movidos: o caminho antigo passa a ser o novo em todas as tabelas ---
+
+    @Query("INSERT OR IGNORE INTO songs (dataPath, id, title, artist, duration, albumArtUri, albumId, dateAdded, album) "
+            + "SELECT :newPath, id, title, artist, duration, albumArtUri, albumId, dateAdded, album FROM songs WHERE dataPath = :oldPath")
+    void copySongRow(@NonNull String oldPath, @NonNull String newPath);
+
+    // 'OR IGNORE': se a playlist já tem o caminho novo, a linha antiga fica e é apagada a seguir.
+    @Query("UPDATE OR IGNORE PlaylistSongCrossRef SET dataPath = :newPath WHERE dataPath = :oldPath")
+    void moveCrossRefs(@NonNull String oldPath, @NonNull String newPath);
+
+    @Query("UPDATE OR IGNORE song_stats SET dataPath = :newPath WHERE dataPath = :oldPath")
+    void moveStats(@NonNull String oldPath, @NonNull String newPath);
+
+    @Query("UPDATE play_history SET dataPath = :newPath WHERE dataPath = :oldPath")
+    void moveHistory(@NonNull String oldPath, @NonNull String newPath);
+
+    // --- Remoção (por lotes de caminhos) ---
+
+    @Query("DELETE FROM PlaylistSongCrossRef WHERE dataPath IN (:dataPaths)")
+    void deleteCrossRefs(List<String> dataPaths);
+
+    @Query("DELETE FROM song_stats WHERE dataPath IN (:dataPaths)")
+    void deleteStats(List<String> dataPaths);
+
+    // As etiquetas são relidas pelo TagIndexer se o ficheiro voltar.
+    @Query("DELETE FROM song_tags WHERE dataPath IN (:dataPaths)")
+    void deleteTags(List<String> dataPaths);
+
+    @Query("DELETE FROM songs WHERE dataPath IN (:dataPaths)")
+    void deleteSongs(List<String> dataPaths);
+
+    /**
+     * Passa as músicas movidas para o caminho novo (playlists, estatísticas e histórico), numa só transação.
+     * As listas têm o mesmo tamanho: oldPaths[i] passou a newPaths[i].
+     */
+    @Transaction
+    default void relocate(@NonNull List<String> oldPaths, @NonNull List<String> newPaths) {
+        for (int i = 0; i < oldPaths.size(); i++) {
+            String oldPath = oldPaths.get(i);
+            String newPath = newPaths.get(i);
+            copySongRow(oldPath, newPath);
+            moveCrossRefs(oldPath, newPath);
+            moveStats(oldPath, newPath);
+            moveHistory(oldPath, newPath);
+        }
+        // O que não pôde ser movido (o destino já existia) e as linhas antigas.
+        deleteCrossRefs(oldPaths);
+        deleteStats(oldPaths);
+        deleteTags(oldPaths);
+        deleteSongs(oldPaths);
+        deleteMissing(oldPaths);
+    }
+
+    /**
+     * Apaga as músicas em todas as tabelas (o histórico fica), numa só transação.
+     */
+    @Transaction
+    default void collect(@NonNull List<String> dataPaths) {
+        deleteCrossRefs(dataPaths);
+        deleteStats(dataPaths);
+        deleteTags(dataPaths);
+        deleteSongs(dataPaths);
+        deleteMissing(dataPaths);
+    }
+}
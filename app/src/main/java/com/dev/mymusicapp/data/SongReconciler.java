@@ -0,0 +1,198 @@
+package com.dev.mymusicapp.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Process;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import com.dev.mymusicapp.model.MissingSong;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * SongReconciler compara, em background, a tabela 'songs' com o MediaStore e corrige as linhas que já não
+ * correspondem a um ficheiro (as playlists guardam cópias das músicas que nunca eram apagadas).
+ *
+ * - As duas fontes são percorridas ordenadas pelo ID do MediaStore, numa única passagem de "merge": a tabela
+ *   'songs' em páginas de PAGE_SIZE (pelo índice (id, dataPath)) e o MediaStore num único Cursor. Só uma página
+ *   e o lote de correções ficam em memória, qualquer que seja o tamanho da biblioteca.
+ * - Mesmo ID com outro caminho: o ficheiro foi movido ou renomeado. As playlists, as estatísticas e o histórico
+ *   passam para o caminho novo.
+ * - ID que já não existe no MediaStore: a música é marcada em 'missing_songs'. Se voltar (ex: cartão SD
+ *   reinserido), a marca é retirada.
+ * - Por fim, as músicas marcadas há mais de GRACE_PERIOD_MS são apagadas em lotes (cada lote numa transação).
+ *   Só as que não têm dados da(o) utilizador(a) (nenhuma playlist, nenhumas estatísticas) são apagadas logo:
+ *   as etiquetas são relidas se o ficheiro voltar.
+ *
+ * Se o MediaStore não devolver nenhuma música (armazenamento indisponível, permissão revogada) nada é marcado.
+ */
+public class SongReconciler {
+
+    private static final String TAG = "SongReconciler";
+
+    private static final int PAGE_SIZE = 500;
+    // Correções acumuladas antes de cada escrita (abaixo do limite de parâmetros do SQLite).
+    private static final int BATCH_SIZE = 200;
+    // Um cartão SD retirado não deve esvaziar as playlists nem apagar as estatísticas: essas músicas esperam este tempo.
+    static final long GRACE_PERIOD_MS = 30L * 24 * 60 * 60 * 1000;
+    // Recarregamentos seguidos da biblioteca não repetem a verificação antes deste intervalo.
+    private static final long MIN_INTERVAL_MS = 10 * 60 * 1000;
+
+    private static volatile SongReconciler INSTANCE;
+
+    private final Context appContext;
+    private final SongReconcileDao dao;
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        runnable.run();
+    }, "SongReconciler"));
+
+    // 'true' enquanto há uma verificação agendada ou a decorrer.
+    private final AtomicBoolean pending = new AtomicBoolean();
+    // Quando terminou a última verificação (SystemClock.elapsedRealtime), 0 se ainda nenhuma.
+    private volatile long lastRun;
+
+    private SongReconciler(Context context) {
+        appContext = context.getApplicationContext();
+        dao = AppDatabase.getDatabase(appContext).songReconcileDao();
+    }
+
+    public static SongReconciler getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (SongReconciler.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SongReconciler(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Pede uma verificação. Ignorado se já houver uma pendente ou se a última foi há menos de MIN_INTERVAL_MS.
+     */
+    public void requestReconcile() {
+        if (lastRun != 0 && SystemClock.elapsedRealtime() - lastRun < MIN_INTERVAL_MS) return;
+        if (!pending.compareAndSet(false, true)) return;
+        executorService.execute(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                // Ex: permissão revogada a meio. Tenta de novo no próximo pedido.
+                Log.e(TAG, "Falha ao verificar a tabela 'songs'", e);
+            } finally {
+                lastRun = SystemClock.elapsedRealtime();
+                pending.set(false);
+            }
+        });
+    }
+
+    private void reconcile() {
+        long start = SystemClock.elapsedRealtime();
+        Set<String> missing = new HashSet<>(dao.getMissingPaths());
+        Stats stats = new Stats();
+
+        String[] projection = {MediaStore.Audio.Media._ID, MediaStore.Audio.Media.DATA};
+        try (Cursor media = appContext.getContentResolver().query(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, projection,
+                MediaStore.Audio.Media.IS_MUSIC + " != 0", null, MediaStore.Audio.Media._ID + " ASC")) {
+            if (media == null || media.getCount() == 0) {
+                Log.w(TAG, "MediaStore vazio ou indisponível: verificação adiada");
+                return;
+            }
+            merge(media, missing, stats);
+        }
+        int collected = collect();
+        Log.d(TAG, "Verificação: " + stats.moved + " movidas, " + stats.missing + " em falta, " + stats.returned
+                + " de volta, " + collected + " apagadas, em " + (SystemClock.elapsedRealtime() - start) + " ms");
+    }
+
+    private static final class Stats {
+        int moved;
+        int missing;
+        int returned;
+    }
+
+    /**
+     * A passagem de "merge": para cada linha de 'songs' (por ID), avança o Cursor do MediaStore até esse ID.
+     */
+    private void merge(Cursor media, Set<String> knownMissing, Stats stats) {
+        int idColumn = media.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
+        int dataColumn = media.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA);
+        boolean hasMedia = media.moveToFirst();
+
+        List<String> movedFrom = new ArrayList<>();
+        List<String> movedTo = new ArrayList<>();
+        List<MissingSong> newlyMissing = new ArrayList<>();
+        List<String> returned = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        long afterId = Long.MIN_VALUE;
+        String afterPath = "";
+        List<SongReconcileDao.SongKey> page;
+        do {
+            page = dao.getKeysAfter(afterId, afterPath, PAGE_SIZE);
+            for (SongReconcileDao.SongKey key : page) {
+                while (hasMedia && media.getLong(idColumn) < key.id) {
+                    hasMedia = media.moveToNext();
+                }
+                String mediaPath = hasMedia && media.getLong(idColumn) == key.id ? media.getString(dataColumn) : null;
+                if (mediaPath == null) {
+                    if (!knownMissing.contains(key.dataPath)) {
+                        MissingSong song = new MissingSong();
+                        song.dataPath = key.dataPath;
+                        song.missingSince = now;
+                        newlyMissing.add(song);
+                    }
+                } else if (!mediaPath.equals(key.dataPath)) {
+                    movedFrom.add(key.dataPath);
+                    movedTo.add(mediaPath);
+                } else if (knownMissing.contains(key.dataPath)) {
+                    returned.add(key.dataPath);
+                }
+                afterId = key.id;
+                afterPath = key.dataPath;
+            }
+            // Cada tipo de correção é escrito quando o lote enche (e no fim).
+            boolean last = page.size() < PAGE_SIZE;
+            if (movedFrom.size() >= BATCH_SIZE || (last && !movedFrom.isEmpty())) {
+                dao.relocate(movedFrom, movedTo);
+                stats.moved += movedFrom.size();
+                movedFrom.clear();
+                movedTo.clear();
+            }
+            if (newlyMissing.size() >= BATCH_SIZE || (last && !newlyMissing.isEmpty())) {
+                dao.insertMissing(newlyMissing);
+                stats.missing += newlyMissing.size();
+                newlyMissing.clear();
+            }
+            if (returned.size() >= BATCH_SIZE || (last && !returned.isEmpty())) {
+                dao.deleteMissing(returned);
+                stats.returned += returned.size();
+                returned.clear();
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    /**
+     * Apaga as músicas em falta que já não são precisas, um lote de cada vez.
+     * @return Quantas foram apagadas.
+     */
+    private int collect() {
+        long cutoff = System.currentTimeMillis() - GRACE_PERIOD_MS;
+        int total = 0;
+        List<String> batch;
+        while (!(batch = dao.getCollectable(cutoff, BATCH_SIZE)).isEmpty()) {
+            dao.collect(batch);
+            total += batch.size();
+        }
+        return total;
+    }
+}
@@ -38,7 +38,9 @@ public class SongRepository {
                 MediaStore.Audio.Media.ARTIST,    // O nome do artista.
                 MediaStore.Audio.Media.DATA,      // O caminho completo do ficheiro no armazenamento.
                 MediaStore.Audio.Media.DURATION,  // A duração da música em milissegundos.
-                MediaStore.Audio.Media.ALBUM_ID   // O ID do álbum, usado para encontrar a capa.
+                MediaStore.Audio.Media.ALBUM_ID,  // O ID do álbum, usado para encontrar a capa.
+                MediaStore.Audio.Media.ALBUM,     // O nome do álbum (para agrupar por álbum sem novas consultas).
+                MediaStore.Audio.Media.DATE_ADDED // Quando a música foi adicionada (para ordenar por data).
         };
 
         // Cria um filtro para obter apenas ficheiros que são marcados como música (e não toques, alarmes, etc.).
@@ -56,6 +58,8 @@ public class SongRepository {
             int dataColumn = cursor.getColumnIndex(MediaStore.Audio.Media.DATA);
             int durationColumn = cursor.getColumnIndex(MediaStore.Audio.Media.DURATION);
             int albumIdColumn = cursor.getColumnIndex(MediaStore.Audio.Media.ALBUM_ID);
+            int dateAddedColumn = cursor.getColumnIndex(MediaStore.Audio.Media.DATE_ADDED);
+            int albumColumn = cursor.getColumnIndex(MediaStore.Audio.Media.ALBUM);
 
             // Percorre cada linha (cada música) que o Cursor encontrou.
             do {
@@ -66,6 +70,8 @@ public class SongRepository {
                 String dataPath = cursor.getString(dataColumn);
                 long duration = cursor.getLong(durationColumn);
                 long albumId = cursor.getLong(albumIdColumn);
+                long dateAdded = cursor.getLong(dateAddedColumn);
+                String album = cursor.getString(albumColumn);
 
                 // Constrói o URI especial para a capa do álbum, usando o ID do álbum.
                 Uri albumArtUri = ContentUris.withAppendedId(
@@ -73,7 +79,7 @@ public class SongRepository {
                 );
 
                 // Cria um novo objeto Song com os dados extraídos e adiciona-o à nossa lista.
-                songList.add(new Song(id, title, artist, dataPath, duration, albumArtUri.toString()));
+                songList.add(new Song(id, title, artist, dataPath, duration, albumArtUri.toString(), albumId, dateAdded, album));
 
             } while (cursor.moveToNext()); // Move para a próxima música encontrada.
 
@@ -0,0 +1,29 @@
+package com.dev.mymusicapp.data;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.dev.mymusicapp.model.SongStats;
+
+import java.util.List;
+
+@Dao
+public interface SongStatsDao {
+
+    @Query("SELECT * FROM song_stats WHERE dataPath IN (:dataPaths)")
+    List<SongStats> getByPaths(List<String> dataPaths);
+
+    // Escrito na mesma transação que o lote de eventos que deu origem a estas linhas.
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertAll(List<SongStats> stats);
+
+    // Leituras pelo índice de 'score' e de 'lastPlayed'; voltam a emitir só quando 'song_stats' muda.
+    @Query("SELECT dataPath FROM song_stats WHERE score > 0 ORDER BY score DESC LIMIT :limit")
+    LiveData<List<String>> observeMostPlayed(int limit);
+
+    @Query("SELECT dataPath FROM song_stats WHERE lastPlayed > 0 ORDER BY lastPlayed DESC LIMIT :limit")
+    LiveData<List<String>> observeRecentlyPlayed(int limit);
+}
@@ -0,0 +1,29 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.dev.mymusicapp.model.SongTags;
+
+import java.util.List;
+
+@Dao
+public interface SongTagsDao {
+
+    // Cada lote é escrito numa única transação; um lote escrito é um "ponto de controlo" da indexação.
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<SongTags> tags);
+
+    @Query("SELECT * FROM song_tags")
+    List<SongTags> getAll();
+
+    @Query("SELECT * FROM song_tags WHERE dataPath = :dataPath")
+    SongTags getByPath(@NonNull String dataPath);
+
+    // Apaga as etiquetas de ficheiros que já não estão na biblioteca.
+    @Query("DELETE FROM song_tags WHERE dataPath IN (:dataPaths)")
+    void deleteByPaths(List<String> dataPaths);
+}
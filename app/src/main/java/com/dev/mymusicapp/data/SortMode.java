@@ -0,0 +1,22 @@
+package com.dev.mymusicapp.data;
+
+/**
+ * As ordens em que a biblioteca pode ser mostrada. Cada LibrarySnapshot já traz todas calculadas.
+ */
+public enum SortMode {
+    TITLE(true),
+    ARTIST(true),
+    DURATION(false),
+    DATE_ADDED(false);
+
+    // Se a ordem tem secções alfabéticas (e, por isso, barra de scroll rápido por letra).
+    private final boolean alphabetical;
+
+    SortMode(boolean alphabetical) {
+        this.alphabetical = alphabetical;
+    }
+
+    public boolean isAlphabetical() {
+        return alphabetical;
+    }
+}
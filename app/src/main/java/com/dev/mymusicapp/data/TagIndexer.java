@@ -0,0 +1,182 @@
+package com.dev.mymusicapp.data;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.dev.mymusicapp.model.Song;
+import com.dev.mymusicapp.model.SongTags;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * TagIndexer lê em background as etiquetas (género, álbum, faixa, ano) de todos os ficheiros da biblioteca
+ * e guarda-as na tabela 'song_tags' do Room.
+ *
+ * - Os ficheiros são divididos em lotes e lidos em paralelo, uma thread por núcleo, com prioridade de background.
+ *   Cada leitura só toca nos cabeçalhos do ficheiro (ver TagReader).
+ * - Cada lote lido é escrito numa transação assim que fica pronto: é um ponto de controlo. Se o processo
+ *   morrer a meio, a próxima indexação salta os ficheiros já guardados (mesmo tamanho e data de modificação)
+ *   e continua a partir daí.
+ * - Um pedido com uma fotografia mais recente da biblioteca interrompe a indexação em curso, que é retomada
+ *   com a nova fotografia (sem repetir o que já foi escrito).
+ */
+public class TagIndexer {
+
+    private static final String TAG = "TagIndexer";
+
+    // Ficheiros por lote: pequeno o suficiente para perder pouco trabalho se o processo morrer.
+    private static final int BATCH_SIZE = 64;
+    // Limite de variáveis por consulta do SQLite.
+    private static final int DELETE_CHUNK = 500;
+
+    private static volatile TagIndexer INSTANCE;
+
+    private final SongTagsDao dao;
+    // Coordena as indexações, uma de cada vez.
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final ExecutorService workers;
+
+    // A fotografia mais recente que falta indexar ('null' quando não há nada pendente).
+    private final AtomicReference<LibrarySnapshot> requested = new AtomicReference<>();
+
+    private TagIndexer(Context context) {
+        dao = AppDatabase.getDatabase(context.getApplicationContext()).songTagsDao();
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> new Thread(() -> {
+            // As leituras não devem competir com a UI nem com a reprodução.
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "TagIndexer-" + threadNumber.incrementAndGet()));
+    }
+
+    public static TagIndexer getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (TagIndexer.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new TagIndexer(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Pede a indexação de uma fotografia da biblioteca. Pode ser chamado de qualquer thread;
+     * pedidos seguidos juntam-se e só a fotografia mais recente é indexada.
+     */
+    public void requestIndex(@NonNull LibrarySnapshot snapshot) {
+        if (requested.getAndSet(snapshot) == null) {
+            coordinator.execute(this::drainRequests);
+        }
+    }
+
+    /**
+     * As etiquetas guardadas de um ficheiro, ou null se ainda não foi indexado.
+     */
+    @WorkerThread
+    @Nullable
+    public SongTags getTags(@NonNull String dataPath) {
+        return dao.getByPath(dataPath);
+    }
+
+    private void drainRequests() {
+        LibrarySnapshot snapshot;
+        while ((snapshot = requested.get()) != null) {
+            try {
+                index(snapshot);
+            } catch (RuntimeException e) {
+                // Ex: base de dados indisponível. O próximo carregamento da biblioteca volta a tentar.
+                Log.e(TAG, "Falha na indexação das etiquetas", e);
+            }
+            requested.compareAndSet(snapshot, null);
+        }
+    }
+
+    private boolean isSuperseded(LibrarySnapshot snapshot) {
+        return requested.get() != snapshot;
+    }
+
+    private void index(LibrarySnapshot snapshot) {
+        // 1. O que já está guardado: só são lidos os ficheiros novos ou alterados desde a última vez.
+        Map<String, SongTags> stored = new HashMap<>();
+        for (SongTags tags : dao.getAll()) {
+            stored.put(tags.dataPath, tags);
+        }
+        List<String> pending = new ArrayList<>();
+        for (Song song : snapshot.getSongs()) {
+            String path = song.getDataPath();
+            SongTags known = stored.remove(path);
+            File file = new File(path);
+            if (known == null || known.fileSize != file.length() || known.lastModified != file.lastModified()) {
+                pending.add(path);
+            }
+        }
+
+        // 2. O que sobrou no mapa pertence a ficheiros que saíram da biblioteca.
+        if (!stored.isEmpty()) {
+            List<String> removed = new ArrayList<>(stored.keySet());
+            for (int i = 0; i < removed.size(); i += DELETE_CHUNK) {
+                dao.deleteByPaths(removed.subList(i, Math.min(removed.size(), i + DELETE_CHUNK)));
+            }
+        }
+        if (pending.isEmpty()) return;
+
+        // 3. Lotes em paralelo; cada lote é escrito assim que termina, pela ordem em que terminam.
+        long start = System.nanoTime();
+        CompletionService<List<SongTags>> completion = new ExecutorCompletionService<>(workers);
+        int batches = 0;
+        for (int i = 0; i < pending.size(); i += BATCH_SIZE) {
+            final List<String> batch = pending.subList(i, Math.min(pending.size(), i + BATCH_SIZE));
+            completion.submit(() -> readBatch(batch, snapshot));
+            batches++;
+        }
+        int written = 0;
+        for (int i = 0; i < batches; i++) {
+            try {
+                List<SongTags> result = completion.take().get();
+                if (!result.isEmpty()) {
+                    dao.insertAll(result);
+                    written += result.size();
+                }
+            } catch (ExecutionException e) {
+                Log.w(TAG, "Lote de etiquetas falhou", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        Log.d(TAG, "Etiquetas indexadas: " + written + " de " + pending.size() + " ficheiros em "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Lê um lote de ficheiros numa thread de trabalho. Para a meio (devolvendo o que já leu) se entretanto
+     * chegou uma fotografia mais recente.
+     */
+    private List<SongTags> readBatch(List<String> paths, LibrarySnapshot snapshot) {
+        TagReader reader = new TagReader();
+        List<SongTags> result = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            if (isSuperseded(snapshot)) break;
+            result.add(reader.read(path));
+        }
+        return result;
+    }
+}
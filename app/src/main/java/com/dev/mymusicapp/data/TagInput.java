@@ -0,0 +1,85 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Leituras posicionais (FileChannel.read com posição) de pequenos blocos de um ficheiro de áudio.
+ * Os leitores de etiquetas só pedem os cabeçalhos e as partes que interessam, e saltam o resto
+ * (capas, áudio) sem o ler. O mesmo buffer é reutilizado entre leituras e entre ficheiros.
+ */
+final class TagInput {
+
+    // Nenhum bloco de etiquetas legítimo que nos interesse passa disto.
+    static final int MAX_READ = 1 << 20;
+    // Nem nenhuma capa embutida.
+    static final int MAX_PICTURE = 16 << 20;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+    private FileChannel channel;
+    private long size;
+
+    void open(@NonNull FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Lê até 'length' bytes a partir de 'position' (menos, se o ficheiro acabar antes). O buffer devolvido é
+     * big-endian, começa na posição 0 e só é válido até à leitura seguinte.
+     */
+    @NonNull
+    ByteBuffer read(long position, int length) throws IOException {
+        if (length < 0 || length > MAX_READ) {
+            throw new IOException("Bloco de etiquetas inválido: " + length + " bytes");
+        }
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) break;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Lê exatamente 'length' bytes para um array novo (usado para as capas, que são entregues ao BitmapFactory).
+     */
+    @NonNull
+    byte[] readBytes(long position, int length) throws IOException {
+        if (length <= 0 || length > MAX_PICTURE || position + length > size) {
+            throw new IOException("Imagem embutida inválida: " + length + " bytes");
+        }
+        ByteBuffer target = ByteBuffer.allocate(length);
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new IOException("Ficheiro truncado");
+            }
+        }
+        return target.array();
+    }
+
+    /**
+     * Verifica se os bytes em 'offset' do buffer são o texto ASCII indicado (ex: "ID3", "fLaC").
+     */
+    static boolean startsWith(@NonNull ByteBuffer buffer, int offset, @NonNull String magic) {
+        if (buffer.limit() < offset + magic.length()) return false;
+        for (int i = 0; i < magic.length(); i++) {
+            if (buffer.get(offset + i) != (byte) magic.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,193 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dev.mymusicapp.model.SongTags;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * TagReader lê as etiquetas (género, álbum, faixa, ano) de um ficheiro de áudio, reconhecendo o formato
+ * pelo conteúdo e não pela extensão:
+ * - MP3 (e qualquer ficheiro com ID3v2 no início): Id3v2TagReader;
+ * - FLAC: bloco VORBIS_COMMENT (FlacTagReader);
+ * - Ogg Vorbis / Opus: pacote de comentários (OggTagReader);
+ * - M4A/MP4: átomos moov/udta/meta/ilst (Mp4TagReader).
+ *
+ * Só os cabeçalhos são lidos, com leituras posicionais. Uma instância não é thread-safe (reutiliza o buffer):
+ * cada thread do TagIndexer (e do EmbeddedArtExtractor, para as capas) usa a sua.
+ */
+final class TagReader {
+
+    // Os 80 géneros do ID3v1, usados pelas etiquetas que guardam o género como número (ex: "(17)" = Rock).
+    private static final String[] ID3V1_GENRES = {
+            "Blues", "Classic Rock", "Country", "Dance", "Disco", "Funk", "Grunge", "Hip-Hop", "Jazz", "Metal",
+            "New Age", "Oldies", "Other", "Pop", "R&B", "Rap", "Reggae", "Rock", "Techno", "Industrial",
+            "Alternative", "Ska", "Death Metal", "Pranks", "Soundtrack", "Euro-Techno", "Ambient", "Trip-Hop", "Vocal", "Jazz+Funk",
+            "Fusion", "Trance", "Classical", "Instrumental", "Acid", "House", "Game", "Sound Clip", "Gospel", "Noise",
+            "AlternRock", "Bass", "Soul", "Punk", "Space", "Meditative", "Instrumental Pop", "Instrumental Rock", "Ethnic", "Gothic",
+            "Darkwave", "Techno-Industrial", "Electronic", "Pop-Folk", "Eurodance", "Dream", "Southern Rock", "Comedy", "Cult", "Gangsta",
+            "Top 40", "Christian Rap", "Pop/Funk", "Jungle", "Native American", "Cabaret", "New Wave", "Psychedelic", "Rave", "Showtunes",
+            "Trailer", "Lo-Fi", "Tribal", "Acid Punk", "Acid Jazz", "Polka", "Retro", "Musical", "Rock & Roll", "Hard Rock"
+    };
+
+    private final TagInput input = new TagInput();
+
+    /**
+     * Lê as etiquetas de um ficheiro. Nunca falha: um ficheiro ilegível ou sem etiquetas devolve um registo
+     * só com o caminho, o tamanho e a data (para não ser tentado outra vez enquanto não mudar).
+     */
+    @NonNull
+    SongTags read(@NonNull String dataPath) {
+        SongTags tags = new SongTags();
+        tags.dataPath = dataPath;
+        File file = new File(dataPath);
+        tags.fileSize = file.length();
+        tags.lastModified = file.lastModified();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            input.open(raf.getChannel());
+            parse(tags);
+        } catch (IOException | RuntimeException e) {
+            // Ficheiro corrompido, truncado ou sem permissão: fica o que já foi lido.
+        }
+        return tags;
+    }
+
+    /**
+     * Lê a capa embutida num ficheiro (APIC do ID3v2, bloco PICTURE do FLAC, METADATA_BLOCK_PICTURE do Ogg,
+     * 'covr' do MP4). Só os bytes da imagem escolhida são lidos.
+     * @return Os bytes da imagem (JPEG/PNG), ou null se não houver capa ou o ficheiro não se conseguir ler.
+     */
+    @Nullable
+    byte[] readPicture(@NonNull String dataPath) {
+        try (RandomAccessFile raf = new RandomAccessFile(dataPath, "r")) {
+            input.open(raf.getChannel());
+            ByteBuffer head = input.read(0, 12);
+            long offset = 0;
+            if (TagInput.startsWith(head, 0, "ID3")) {
+                byte[] picture = Id3v2TagReader.readPicture(input);
+                if (picture != null) return picture;
+                offset = Id3v2TagReader.tagEnd(input);
+                head = input.read(offset, 12);
+            }
+            if (TagInput.startsWith(head, 0, "fLaC")) {
+                return FlacTagReader.readPicture(input, offset);
+            } else if (TagInput.startsWith(head, 0, "OggS")) {
+                return OggTagReader.readPicture(input);
+            } else if (TagInput.startsWith(head, 4, "ftyp")) {
+                return Mp4TagReader.readPicture(input);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Sem capa legível.
+        }
+        return null;
+    }
+
+    private void parse(SongTags tags) throws IOException {
+        ByteBuffer head = input.read(0, 12);
+        long offset = 0;
+        if (TagInput.startsWith(head, 0, "ID3")) {
+            tags.format = "mp3";
+            offset = Id3v2TagReader.parse(input, tags);
+            // Alguns FLAC trazem um ID3v2 antes do "fLaC".
+            head = input.read(offset, 12);
+        }
+        if (TagInput.startsWith(head, 0, "fLaC")) {
+            tags.format = "flac";
+            FlacTagReader.parse(input, offset, tags);
+        } else if (TagInput.startsWith(head, 0, "OggS")) {
+            tags.format = "ogg";
+            OggTagReader.parse(input, tags);
+        } else if (TagInput.startsWith(head, 4, "ftyp")) {
+            tags.format = "m4a";
+            Mp4TagReader.parse(input, tags);
+        }
+    }
+
+    // --- Normalização dos valores, comum a todos os formatos ---
+    // Só preenchem campos ainda vazios: a primeira etiqueta encontrada ganha.
+
+    static void setGenre(@NonNull SongTags tags, @Nullable String value) {
+        value = clean(value);
+        if (value == null || tags.genre != null) return;
+        tags.genre = genreName(value);
+    }
+
+    static void setAlbum(@NonNull SongTags tags, @Nullable String value) {
+        value = clean(value);
+        if (value == null || tags.album != null) return;
+        tags.album = value;
+    }
+
+    /**
+     * "3", "03" ou "3/12" → 3.
+     */
+    static void setTrackNumber(@NonNull SongTags tags, @Nullable String value) {
+        if (tags.trackNumber == 0) tags.trackNumber = leadingNumber(value, 4);
+    }
+
+    /**
+     * "1999" ou "1999-05-01" → 1999.
+     */
+    static void setYear(@NonNull SongTags tags, @Nullable String value) {
+        if (tags.year != 0) return;
+        int year = leadingNumber(value, 4);
+        if (year >= 1000) tags.year = year;
+    }
+
+    /**
+     * O nome do género do ID3v1 com este número (0 a 79), ou null.
+     */
+    @Nullable
+    static String id3v1Genre(int index) {
+        return index >= 0 && index < ID3V1_GENRES.length ? ID3V1_GENRES[index] : null;
+    }
+
+    // "(17)", "17", "(17)Rock" → "Rock"; "RX" e "CR" são os códigos especiais do ID3v2.
+    private static String genreName(String value) {
+        if (value.equals("RX") || value.equals("(RX)")) return "Remix";
+        if (value.equals("CR") || value.equals("(CR)")) return "Cover";
+        String number = value;
+        if (value.startsWith("(")) {
+            int close = value.indexOf(')');
+            if (close > 1) {
+                String refinement = clean(value.substring(close + 1));
+                if (refinement != null) return refinement;
+                number = value.substring(1, close);
+            }
+        }
+        int digits = 0;
+        while (digits < number.length() && Character.isDigit(number.charAt(digits))) digits++;
+        if (digits > 0 && digits == number.length() && digits <= 3) {
+            String name = id3v1Genre(Integer.parseInt(number));
+            if (name != null) return name;
+        }
+        return value;
+    }
+
+    private static int leadingNumber(@Nullable String value, int maxDigits) {
+        value = clean(value);
+        if (value == null) return 0;
+        int result = 0;
+        for (int i = 0; i < value.length() && i < maxDigits; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') break;
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    // Tira espaços e os terminadores nulos; um texto vazio conta como ausente.
+    @Nullable
+    private static String clean(@Nullable String value) {
+        if (value == null) return null;
+        int end = value.indexOf('\0');
+        if (end >= 0) value = value.substring(0, end);
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,65 @@
+package com.dev.mymusicapp.data;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Drawable de uma miniatura da AlbumArtCache cujo bitmap pode ser trocado. Cada ImageView tem o seu e,
+ * quando a linha é reciclada para outro álbum, só muda o bitmap: o ImageView.setImageBitmap criaria um
+ * BitmapDrawable novo a cada bind.
+ */
+final class ThumbnailDrawable extends Drawable {
+
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    @Nullable
+    private Bitmap bitmap;
+
+    @Nullable
+    Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    void setBitmap(@Nullable Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        if (bitmap != null) canvas.drawBitmap(bitmap, null, getBounds(), paint);
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return bitmap != null ? bitmap.getWidth() : -1;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return bitmap != null ? bitmap.getHeight() : -1;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        paint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        paint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation") // Obrigatório implementar; as miniaturas são círculos com fundo transparente.
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -0,0 +1,25 @@
+package com.dev.mymusicapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.dev.mymusicapp.model.UnplayableFile;
+
+import java.util.List;
+
+@Dao
+public interface UnplayableFileDao {
+
+    // Carregada uma vez para memória pelo UnplayableFiles (só tem os ficheiros com problemas).
+    @Query("SELECT * FROM unplayable_files")
+    List<UnplayableFile> getAll();
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(UnplayableFile file);
+
+    @Query("DELETE FROM unplayable_files WHERE dataPath = :dataPath")
+    void delete(@NonNull String dataPath);
+}
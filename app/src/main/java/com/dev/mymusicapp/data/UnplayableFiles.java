@@ -0,0 +1,153 @@
+package com.dev.mymusicapp.data;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.dev.mymusicapp.model.UnplayableFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * UnplayableFiles é a lista dos ficheiros que não se conseguem tocar, guardada na tabela 'unplayable_files'
+ * e mantida em memória para o MusicService a consultar a cada mudança de música sem tocar na base de dados.
+ *
+ * - requestProbe verifica, em background, as próximas músicas da fila com o PlayabilityProbe (existe, pode ser
+ *   lido, não está vazio nem só com zeros). Um ficheiro já na lista só volta a ser lido se o tamanho ou a data
+ *   de modificação mudaram; se estiver bom, sai da lista.
+ * - O formato detetado nas verificações é entregue ao ContainerHints.
+ * - markBad regista um ficheiro que deu erro no player, mesmo que a verificação o tenha dado como bom.
+ *
+ * Até a lista ser carregada (logo na primeira utilização) isKnownBad devolve 'false': nesse intervalo os
+ * ficheiros estragados ainda são apanhados pelo requestProbe ou pelo erro do player.
+ */
+public class UnplayableFiles {
+
+    private static final String TAG = "UnplayableFiles";
+
+    private static volatile UnplayableFiles INSTANCE;
+
+    private final UnplayableFileDao dao;
+    private final ContainerHints containerHints;
+    private final Map<String, UnplayableFile> badFiles = new ConcurrentHashMap<>();
+    private final PlayabilityProbe probe = new PlayabilityProbe();
+    // Uma só thread: as verificações e as escritas ficam por ordem e o PlayabilityProbe não é partilhado.
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        runnable.run();
+    }, "UnplayableFiles"));
+
+    /**
+     * Recebe, numa thread de background, os caminhos verificados que não se conseguem tocar.
+     */
+    public interface ProbeCallback {
+        void onUnplayable(@NonNull List<String> dataPaths);
+    }
+
+    private UnplayableFiles(Context context) {
+        dao = AppDatabase.getDatabase(context.getApplicationContext()).unplayableFileDao();
+        containerHints = ContainerHints.getInstance(context);
+        executorService.execute(() -> {
+            for (UnplayableFile file : dao.getAll()) {
+                badFiles.put(file.dataPath, file);
+            }
+            Log.d(TAG, badFiles.size() + " ficheiros marcados como não tocáveis");
+        });
+    }
+
+    public static UnplayableFiles getInstance(final Context context) {
+        if (INSTANCE == null) {
+            synchronized (UnplayableFiles.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new UnplayableFiles(context);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Consulta só a memória: pode ser chamado na thread principal.
+     */
+    public boolean isKnownBad(@NonNull String dataPath) {
+        return badFiles.containsKey(dataPath);
+    }
+
+    /**
+     * Verifica estes ficheiros e chama o callback com os que não se conseguem tocar (só se houver algum).
+     */
+    public void requestProbe(@NonNull List<String> dataPaths, @NonNull ProbeCallback callback) {
+        if (dataPaths.isEmpty()) return;
+        List<String> paths = new ArrayList<>(dataPaths);
+        executorService.execute(() -> {
+            List<String> unplayable = new ArrayList<>();
+            for (String path : paths) {
+                if (check(path)) unplayable.add(path);
+            }
+            if (!unplayable.isEmpty()) callback.onUnplayable(unplayable);
+        });
+    }
+
+    /**
+     * Marca um ficheiro que o player não conseguiu abrir ou descodificar. Chamado na thread principal:
+     * o caminho entra já na memória e o tamanho e a data do ficheiro são lidos em background.
+     */
+    public void markBad(@NonNull String dataPath) {
+        UnplayableFile placeholder = new UnplayableFile();
+        placeholder.dataPath = dataPath;
+        placeholder.reason = UnplayableFile.REASON_PLAYER_ERROR;
+        badFiles.put(dataPath, placeholder);
+        executorService.execute(() -> {
+            UnplayableFile entry = newEntry(dataPath, new File(dataPath), UnplayableFile.REASON_PLAYER_ERROR);
+            // Uma verificação entretanto pode já ter substituído a entrada provisória: essa fica.
+            badFiles.replace(dataPath, placeholder, entry);
+            dao.upsert(entry);
+        });
+    }
+
+    /**
+     * @return 'true' se o ficheiro não se consegue tocar.
+     */
+    private boolean check(String dataPath) {
+        File file = new File(dataPath);
+        UnplayableFile known = badFiles.get(dataPath);
+        if (known != null) {
+            // A mesma versão do ficheiro: o resultado anterior continua válido.
+            if (known.fileSize == file.length() && known.lastModified == file.lastModified()) return true;
+        }
+        int reason = probe.probe(file);
+        if (reason != 0) {
+            UnplayableFile entry = newEntry(dataPath, file, reason);
+            badFiles.put(dataPath, entry);
+            dao.upsert(entry);
+            Log.w(TAG, "Ficheiro não tocável (" + reason + "): " + dataPath);
+            return true;
+        }
+        ContainerType container = probe.getContainer();
+        if (container != null) containerHints.put(dataPath, container);
+        if (known != null) {
+            // Foi corrigido ou substituído.
+            badFiles.remove(dataPath);
+            dao.delete(dataPath);
+        }
+        return false;
+    }
+
+    private static UnplayableFile newEntry(String dataPath, File file, int reason) {
+        UnplayableFile entry = new UnplayableFile();
+        entry.dataPath = dataPath;
+        // Para um ficheiro em falta ambos são 0: se voltar a aparecer, é verificado de novo.
+        entry.fileSize = file.length();
+        entry.lastModified = file.lastModified();
+        entry.reason = reason;
+        return entry;
+    }
+}
@@ -0,0 +1,116 @@
+package com.dev.mymusicapp.data;
+
+import android.util.Base64;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dev.mymusicapp.model.SongTags;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Lê uma lista de "Vorbis comments" (campos "CHAVE=valor"), o formato de etiquetas do FLAC, do Ogg Vorbis
+ * e do Opus. Tolera listas truncadas: lê os campos que estiverem completos.
+ */
+final class VorbisComments {
+
+    // Campo com uma imagem (estrutura de imagem do FLAC em base64), usado pelo Ogg para as capas.
+    private static final String PICTURE_KEY = "METADATA_BLOCK_PICTURE";
+
+    private VorbisComments() {
+    }
+
+    /**
+     * Recebe cada campo: a chave e onde está o valor no buffer.
+     */
+    private interface FieldVisitor {
+        void visit(String key, ByteBuffer data, int from, int to);
+    }
+
+    /**
+     * @param data Os bytes a partir do início da lista (o comprimento do "vendor"). São lidos em little-endian.
+     */
+    static void parse(@NonNull ByteBuffer data, @NonNull SongTags tags) {
+        walk(data, (key, buffer, from, to) -> apply(key, buffer, from, to, tags));
+    }
+
+    /**
+     * Procura a capa num campo METADATA_BLOCK_PICTURE (a da frente, se houver várias).
+     * @return Os bytes da imagem, ou null.
+     */
+    @Nullable
+    static byte[] readPicture(@NonNull ByteBuffer data) {
+        final byte[][] chosen = new byte[1][];
+        final boolean[] front = {false};
+        walk(data, (key, buffer, from, to) -> {
+            if (front[0] || !PICTURE_KEY.equalsIgnoreCase(key)) return;
+            byte[] block;
+            try {
+                block = Base64.decode(buffer.array(), buffer.arrayOffset() + from, to - from, Base64.DEFAULT);
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+            ByteBuffer picture = ByteBuffer.wrap(block);
+            int type = picture.remaining() >= 4 ? picture.getInt(0) : -1;
+            byte[] image = FlacTagReader.pictureData(picture);
+            if (image != null && (chosen[0] == null || type == Id3v2TagReader.PICTURE_FRONT_COVER)) {
+                chosen[0] = image;
+                front[0] = type == Id3v2TagReader.PICTURE_FRONT_COVER;
+            }
+        });
+        return chosen[0];
+    }
+
+    private static void walk(ByteBuffer data, FieldVisitor visitor) {
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.remaining() < 4) return;
+        long vendorLength = data.getInt() & 0xFFFFFFFFL;
+        if (vendorLength > data.remaining() - 4) return;
+        data.position(data.position() + (int) vendorLength);
+        long count = data.getInt() & 0xFFFFFFFFL;
+        for (long i = 0; i < count && data.remaining() >= 4; i++) {
+            long length = data.getInt() & 0xFFFFFFFFL;
+            if (length > data.remaining()) return;
+            int start = data.position();
+            data.position(start + (int) length);
+            // Só a chave é descodificada aqui: o valor (que pode ser uma capa inteira em base64) fica para o visitante.
+            int equals = indexOf(data, start, start + (int) length, (byte) '=');
+            if (equals < 0) continue;
+            String key = new String(data.array(), data.arrayOffset() + start, equals - start, StandardCharsets.US_ASCII);
+            visitor.visit(key, data, equals + 1, start + (int) length);
+        }
+    }
+
+    private static void apply(String key, ByteBuffer data, int from, int to, SongTags tags) {
+        switch (key.toUpperCase(Locale.ROOT)) {
+            case "GENRE":
+                TagReader.setGenre(tags, text(data, from, to));
+                break;
+            case "ALBUM":
+                TagReader.setAlbum(tags, text(data, from, to));
+                break;
+            case "TRACKNUMBER":
+                TagReader.setTrackNumber(tags, text(data, from, to));
+                break;
+            case "DATE":
+            case "YEAR":
+                TagReader.setYear(tags, text(data, from, to));
+                break;
+        }
+    }
+
+    private static String text(ByteBuffer data, int from, int to) {
+        return new String(data.array(), data.arrayOffset() + from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(ByteBuffer data, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (data.get(i) == value) return i;
+        }
+        return -1;
+    }
+}
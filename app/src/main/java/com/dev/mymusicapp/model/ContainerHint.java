@@ -0,0 +1,23 @@
+package com.dev.mymusicapp.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * A anotação @Entity diz ao Room que esta classe representa uma tabela na base de dados.
+ * A tabela "container_hints" guarda o formato de cada ficheiro já verificado (ver ContainerHints), para o
+ * player o abrir com o extrator certo em vez de testar todos.
+ */
+@Entity(tableName = "container_hints")
+public class ContainerHint {
+
+    // O caminho do ficheiro, a mesma chave da tabela 'songs'.
+    @PrimaryKey
+    @NonNull
+    public String dataPath = "";
+
+    // O nome de um ContainerType (ex: "MP3", "FLAC").
+    @NonNull
+    public String container = "";
+}
@@ -0,0 +1,23 @@
+package com.dev.mymusicapp.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * A anotação @Entity diz ao Room que esta classe representa uma tabela na base de dados.
+ * A tabela "missing_songs" marca as linhas de 'songs' cujo ficheiro deixou de existir no MediaStore
+ * (apagado, ou num cartão SD retirado). É preenchida pelo SongReconciler; uma linha marcada há mais de
+ * SongReconciler.GRACE_PERIOD_MS (ou que não está em nenhuma playlist) é apagada em todas as tabelas.
+ */
+@Entity(tableName = "missing_songs")
+public class MissingSong {
+
+    // O caminho do ficheiro, a mesma chave da tabela 'songs'.
+    @PrimaryKey
+    @NonNull
+    public String dataPath = "";
+
+    // Quando se deu pela falta do ficheiro (milissegundos desde 1970).
+    public long missingSince;
+}
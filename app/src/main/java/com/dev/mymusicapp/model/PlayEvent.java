@@ -0,0 +1,39 @@
+package com.dev.mymusicapp.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * A anotação @Entity diz ao Room que esta classe representa uma tabela na base de dados.
+ * A tabela "play_history" é o registo de tudo o que foi ouvido: uma linha por evento (começou, foi saltada,
+ * chegou ao fim), escrita em lotes pelo PlayHistoryRecorder. É a base do "ouvidas recentemente",
+ * das "mais ouvidas" e das estatísticas de músicas saltadas.
+ *
+ * Os índices em 'dataPath' e 'timestamp' servem as consultas por música e por período.
+ */
+@Entity(tableName = "play_history", indices = {@Index("dataPath"), @Index("timestamp")})
+public class PlayEvent {
+
+    // Tipos de evento.
+    public static final int TYPE_PLAY = 0;
+    public static final int TYPE_SKIP = 1;
+    public static final int TYPE_COMPLETE = 2;
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    // O caminho do ficheiro, a mesma chave da tabela 'songs'.
+    @NonNull
+    public String dataPath = "";
+
+    // Um dos TYPE_*.
+    public int type;
+
+    // Quando aconteceu (milissegundos desde 1970).
+    public long timestamp;
+
+    // Até onde a música foi ouvida, em milissegundos (0 num TYPE_PLAY).
+    public long positionMs;
+}
@@ -0,0 +1,29 @@
+package com.dev.mymusicapp.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * A anotação @Entity diz ao Room que esta classe representa uma tabela na base de dados.
+ * Cada linha de "playlist_rules" é uma regra de uma RulePlaylist: um campo (com o operador implícito,
+ * ex: RuleField.DURATION_UNDER) e o valor escrito pelo utilizador.
+ */
+@Entity(tableName = "playlist_rules", indices = {@Index("rulePlaylistId")})
+public class PlaylistRule {
+
+    @PrimaryKey(autoGenerate = true)
+    public int ruleId;
+
+    // A RulePlaylist a que a regra pertence.
+    public int rulePlaylistId;
+
+    // O nome de um RuleField (ex: "ARTIST_CONTAINS").
+    @NonNull
+    public String field = "";
+
+    // O valor da regra, como foi escrito (texto ou número).
+    @NonNull
+    public String value = "";
+}
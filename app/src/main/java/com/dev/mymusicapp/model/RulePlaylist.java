@@ -0,0 +1,21 @@
+package com.dev.mymusicapp.model;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * A anotação @Entity diz ao Room que esta classe representa uma tabela na base de dados.
+ * A tabela "rule_playlists" guarda as playlists definidas por regras (ex: "artista contém X", "duração < 4 min"):
+ * as músicas não são guardadas, são o resultado das regras (tabela 'playlist_rules') no momento em que se abre a lista.
+ */
+@Entity(tableName = "rule_playlists")
+public class RulePlaylist {
+
+    @PrimaryKey(autoGenerate = true)
+    public int rulePlaylistId;
+
+    public String name;
+
+    // 'true': a música tem de cumprir todas as regras; 'false': basta uma.
+    public boolean matchAll = true;
+}
@@ -0,0 +1,18 @@
+package com.dev.mymusicapp.model;
+
+import androidx.room.Embedded;
+import androidx.room.Relation;
+
+import java.util.List;
+
+/**
+ * Não é uma tabela: junta uma RulePlaylist com as suas regras numa só consulta (como PlaylistWithSongs).
+ */
+public class RulePlaylistWithRules {
+
+    @Embedded
+    public RulePlaylist playlist;
+
+    @Relation(parentColumn = "rulePlaylistId", entityColumn = "rulePlaylistId")
+    public List<PlaylistRule> rules;
+}
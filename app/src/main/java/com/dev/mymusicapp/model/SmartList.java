@@ -0,0 +1,25 @@
+package com.dev.mymusicapp.model;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Uma lista inteligente, mostrada ao lado das playlists: as músicas não são escolhidas pelo utilizador,
+ * são calculadas a partir do histórico de reprodução (ver SmartLists). Não é uma tabela: a lista de
+ * listas inteligentes é fixa e as músicas de cada uma vêm de consultas à tabela 'song_stats'.
+ */
+public class SmartList {
+
+    // Identifica a lista (ex: SmartLists.KEY_MOST_PLAYED); é o que passa entre ecrãs.
+    @NonNull
+    public final String key;
+    @NonNull
+    public final String name;
+    @NonNull
+    public final String details;
+
+    public SmartList(@NonNull String key, @NonNull String name, @NonNull String details) {
+        this.key = key;
+        this.name = name;
+        this.details = details;
+    }
+}
@@ -2,15 +2,19 @@ package com.dev.mymusicapp.model;
 
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import java.io.Serializable;
 
 /**
  * A anotação @Entity diz ao Room que esta classe representa uma tabela na base de dados.
- * O nome da tabela será "songs".
+ * O nome da tabela será "songs". Além das músicas das playlists, guarda uma cópia da biblioteca inteira
+ * (ver LibraryTableSync), para que as playlists com regras sejam consultas SQL; os índices servem essas regras
+ * e, o de (id, dataPath), a comparação ordenada com o MediaStore feita pelo SongReconciler.
  */
-@Entity(tableName = "songs")
+@Entity(tableName = "songs", indices = {@Index("artist"), @Index("album"), @Index("duration"), @Index("dateAdded"),
+        @Index({"id", "dataPath"})})
 /**
  * A classe Song é um "Model" ou POJO (Plain Old Java Object) que representa uma única música.
  * Ela implementa 'Serializable' para que objetos desta classe possam ser passados entre Activities
@@ -33,18 +37,24 @@ public class Song implements Serializable {
     private final String artist; // O nome do artista.
     private final long duration; // A duração da música em milissegundos.
     private final String albumArtUri; // O URI (endereço) para a imagem da capa do álbum.
+    private final long albumId; // O ID do álbum no MediaStore, usado como chave da cache de capas.
+    private final long dateAdded; // Quando o ficheiro foi adicionado ao dispositivo (segundos desde 1970).
+    private final String album; // O nome do álbum (pode ser nulo em ficheiros sem etiquetas).
 
     /**
      * Construtor da classe Song. É usado para criar uma nova instância de uma música
      * com todos os seus atributos.
      */
-    public Song(long id, @NonNull String title, @NonNull String artist, @NonNull String dataPath, long duration, String albumArtUri) {
+    public Song(long id, @NonNull String title, @NonNull String artist, @NonNull String dataPath, long duration, String albumArtUri, long albumId, long dateAdded, String album) {
         this.id = id;
         this.title = title;
         this.artist = artist;
         this.dataPath = dataPath;
         this.duration = duration;
         this.albumArtUri = albumArtUri;
+        this.albumId = albumId;
+        this.dateAdded = dateAdded;
+        this.album = album;
     }
 
     // --- MÉTODOS GETTER ---
@@ -77,4 +87,16 @@ public class Song implements Serializable {
     public String getAlbumArtUri() {
         return albumArtUri;
     }
+
+    public long getAlbumId() {
+        return albumId;
+    }
+
+    public long getDateAdded() {
+        return dateAdded;
+    }
+
+    public String getAlbum() {
+        return album;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.dev.mymusicapp.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * A anotação @Entity diz ao Room que esta classe representa uma tabela na base de dados.
+ * A tabela "song_stats" é um resumo do histórico ('play_history') por música, mantido pelo PlayHistoryRecorder
+ * na mesma transação em que escreve cada lote de eventos. Assim as listas "Mais ouvidas" e "Ouvidas
+ * recentemente" são uma leitura por índice, sem agrupar o histórico inteiro.
+ *
+ * O 'score' é uma contagem com decaimento (cada audição vale metade ao fim de SongStats.HALF_LIFE_MS),
+ * guardada em escala logarítmica e relativa a uma origem fixa: score = log2(Σ 2^(t / HALF_LIFE_MS)).
+ * Desta forma o decaimento não obriga a reescrever as outras linhas, e ordenar por 'score' dá a ordem atual.
+ */
+@Entity(tableName = "song_stats", indices = {@Index("lastPlayed"), @Index("score")})
+public class SongStats {
+
+    // Ao fim deste tempo uma audição conta metade.
+    public static final long HALF_LIFE_MS = 14L * 24 * 60 * 60 * 1000;
+
+    // O caminho do ficheiro, a mesma chave da tabela 'songs'.
+    @PrimaryKey
+    @NonNull
+    public String dataPath = "";
+
+    // Audições contadas: a música chegou ao fim, ou foi ouvida pelo menos PlayHistoryRecorder.MIN_LISTEN_MS.
+    public int playCount;
+    // Saltadas antes disso.
+    public int skipCount;
+    // Quando começou a tocar pela última vez (milissegundos desde 1970), 0 se nunca.
+    public long lastPlayed;
+    // 0 enquanto não houver audições contadas.
+    public double score;
+}
@@ -0,0 +1,35 @@
+package com.dev.mymusicapp.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * A anotação @Entity diz ao Room que esta classe representa uma tabela na base de dados.
+ * A tabela "song_tags" guarda as etiquetas lidas diretamente dos ficheiros (ID3v2, Vorbis comments, átomos MP4)
+ * pelo TagIndexer, porque as do MediaStore estão muitas vezes erradas ou em falta.
+ *
+ * O tamanho e a data de modificação do ficheiro ficam guardados junto com as etiquetas: enquanto não mudarem,
+ * o ficheiro não volta a ser lido. Ficheiros sem etiquetas (ou ilegíveis) também ficam registados, com os
+ * campos vazios, para não serem tentados outra vez.
+ */
+@Entity(tableName = "song_tags")
+public class SongTags {
+
+    // O caminho do ficheiro, a mesma chave da tabela 'songs'.
+    @PrimaryKey
+    @NonNull
+    public String dataPath = "";
+
+    public long fileSize;
+    public long lastModified;
+
+    // O formato detetado pelo conteúdo do ficheiro ("mp3", "flac", "ogg", "m4a"), ou null se não for reconhecido.
+    public String format;
+
+    public String genre;
+    public String album;
+    // 0 quando a etiqueta não existe.
+    public int trackNumber;
+    public int year;
+}
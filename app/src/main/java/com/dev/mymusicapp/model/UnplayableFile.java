@@ -0,0 +1,35 @@
+package com.dev.mymusicapp.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * A anotação @Entity diz ao Room que esta classe representa uma tabela na base de dados.
+ * A tabela "unplayable_files" guarda os ficheiros que não se conseguem tocar (em falta, ilegíveis, vazios,
+ * só com zeros ou que já deram erro no player), para que o MusicService os salte sem esperar
+ * pelo erro. O tamanho e a data de modificação identificam a versão do ficheiro: se mudarem (ex: o ficheiro
+ * foi substituído), a entrada deixa de valer e o ficheiro volta a ser verificado.
+ */
+@Entity(tableName = "unplayable_files")
+public class UnplayableFile {
+
+    // Motivos (ver UnplayableFiles).
+    public static final int REASON_MISSING = 1;
+    public static final int REASON_UNREADABLE = 2;
+    public static final int REASON_EMPTY = 3;
+    public static final int REASON_PLAYER_ERROR = 5;
+    public static final int REASON_ZEROS = 6;
+
+    // O caminho do ficheiro, a mesma chave da tabela 'songs'.
+    @PrimaryKey
+    @NonNull
+    public String dataPath = "";
+
+    // File.length() e File.lastModified() quando foi verificado (0 se o ficheiro não existia).
+    public long fileSize;
+    public long lastModified;
+
+    // Um dos REASON_*.
+    public int reason;
+}
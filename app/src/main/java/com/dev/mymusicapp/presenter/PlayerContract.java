@@ -32,8 +32,8 @@ public interface PlayerContract {
         // Muda o ícone do botão principal para "Pause".
         void showPauseIcon();
 
-        // Atualiza o estado visual (cores) dos botões de shuffle e repeat.
-        void updateShuffleRepeatUI(boolean isShuffleOn, int repeatMode);
+        // Atualiza o estado visual (cores) dos botões de shuffle e repeat (o shuffle inteligente tem uma cor própria).
+        void updateShuffleRepeatUI(boolean isShuffleOn, boolean isSmartShuffle, int repeatMode);
 
         // Mostra o diálogo com a lista de playlists para adicionar a música.
         void showPlaylistsDialog(List<Playlist> playlists);
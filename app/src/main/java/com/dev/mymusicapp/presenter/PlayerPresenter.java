@@ -4,9 +4,11 @@ import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.media3.common.MediaItem;
 import androidx.media3.common.Player;
+import androidx.media3.common.Timeline;
 
 import com.dev.mymusicapp.data.AppDatabase;
 import com.dev.mymusicapp.model.Playlist;
@@ -115,6 +117,14 @@ public class PlayerPresenter implements PlayerContract.Presenter {
             // Quando a música muda, comanda uma atualização completa da UI.
             updateFullUI();
         }
+
+        @Override
+        public void onTimelineChanged(@NonNull Timeline timeline, int reason) {
+            // O serviço retirou da fila músicas que não se conseguem tocar: a lista mostrada acompanha.
+            if (isBound && view != null && reason == Player.TIMELINE_CHANGE_REASON_PLAYLIST_CHANGED) {
+                view.updatePlaylist(musicService.getCurrentSongList());
+            }
+        }
     };
 
     /**
@@ -150,13 +160,13 @@ public class PlayerPresenter implements PlayerContract.Presenter {
         if (isBound && view != null) {
             musicService.toggleShuffleMode();
             // Após mudar o estado, comanda a View para atualizar o ícone correspondente.
-            view.updateShuffleRepeatUI(musicService.isShuffleModeEnabled(), musicService.getRepeatMode());
+            view.updateShuffleRepeatUI(musicService.isShuffleModeEnabled(), musicService.isSmartShuffleEnabled(), musicService.getRepeatMode());
         }
     }
     @Override public void onRepeatClicked() {
         if (isBound && view != null) {
             musicService.toggleRepeatMode();
-            view.updateShuffleRepeatUI(musicService.isShuffleModeEnabled(), musicService.getRepeatMode());
+            view.updateShuffleRepeatUI(musicService.isShuffleModeEnabled(), musicService.isSmartShuffleEnabled(), musicService.getRepeatMode());
         }
     }
     @Override public void onSeekBarChanged(int progress) { if (isBound) musicService.seekTo(progress); }
@@ -184,7 +194,7 @@ public class PlayerPresenter implements PlayerContract.Presenter {
             if (currentSong != null) {
                 view.showSongDetails(currentSong);
                 view.updateProgress(musicService.getCurrentPosition(), currentSong.getDuration());
-                view.updateShuffleRepeatUI(musicService.isShuffleModeEnabled(), musicService.getRepeatMode());
+                view.updateShuffleRepeatUI(musicService.isShuffleModeEnabled(), musicService.isSmartShuffleEnabled(), musicService.getRepeatMode());
                 view.updatePlaylist(musicService.getCurrentSongList());
                 view.updateAdapterHighlight(currentSong.getDataPath());
                 view.scrollToCurrentSong(currentPosition);
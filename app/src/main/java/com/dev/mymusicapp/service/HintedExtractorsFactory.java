@@ -0,0 +1,83 @@
+package com.dev.mymusicapp.service;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.extractor.DefaultExtractorsFactory;
+import androidx.media3.extractor.Extractor;
+import androidx.media3.extractor.ExtractorsFactory;
+import androidx.media3.extractor.amr.AmrExtractor;
+import androidx.media3.extractor.flac.FlacExtractor;
+import androidx.media3.extractor.mkv.MatroskaExtractor;
+import androidx.media3.extractor.mp3.Mp3Extractor;
+import androidx.media3.extractor.mp4.Mp4Extractor;
+import androidx.media3.extractor.ogg.OggExtractor;
+import androidx.media3.extractor.text.DefaultSubtitleParserFactory;
+import androidx.media3.extractor.ts.AdtsExtractor;
+import androidx.media3.extractor.wav.WavExtractor;
+
+import com.dev.mymusicapp.data.ContainerHints;
+import com.dev.mymusicapp.data.ContainerType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HintedExtractorsFactory dá ao ExoPlayer os extratores para cada ficheiro. Quando o formato é conhecido
+ * (ContainerHints) devolve só o extrator desse formato: com um único extrator o ExoPlayer usa-o diretamente,
+ * sem o "sniffing" (ler o início do ficheiro com cada extrator até um o reconhecer).
+ *
+ * Sem dica, ou com SNIFF, devolve a lista do DefaultExtractorsFactory, como antes. Se a dica estiver errada
+ * o player dá erro e o MusicService chama ContainerHints.forget e prepara de novo.
+ */
+@UnstableApi
+final class HintedExtractorsFactory implements ExtractorsFactory {
+
+    private final DefaultExtractorsFactory defaultFactory = new DefaultExtractorsFactory();
+    private final ContainerHints containerHints;
+
+    HintedExtractorsFactory(@NonNull ContainerHints containerHints) {
+        this.containerHints = containerHints;
+    }
+
+    @NonNull
+    @Override
+    public Extractor[] createExtractors() {
+        return defaultFactory.createExtractors();
+    }
+
+    @NonNull
+    @Override
+    public Extractor[] createExtractors(@NonNull Uri uri, @NonNull Map<String, List<String>> responseHeaders) {
+        // Os MediaItem são criados a partir do caminho (MediaItem.fromUri), que é a chave das dicas.
+        ContainerType container = containerHints.get(uri.toString());
+        Extractor extractor = container != null ? createExtractor(container) : null;
+        return extractor != null ? new Extractor[]{extractor} : defaultFactory.createExtractors(uri, responseHeaders);
+    }
+
+    @Nullable
+    private static Extractor createExtractor(ContainerType container) {
+        switch (container) {
+            case MP3:
+                return new Mp3Extractor();
+            case ADTS:
+                return new AdtsExtractor();
+            case FLAC:
+                return new FlacExtractor();
+            case OGG:
+                return new OggExtractor();
+            case MP4:
+                return new Mp4Extractor(new DefaultSubtitleParserFactory());
+            case WAV:
+                return new WavExtractor();
+            case AMR:
+                return new AmrExtractor();
+            case MATROSKA:
+                return new MatroskaExtractor(new DefaultSubtitleParserFactory());
+            default:
+                return null;
+        }
+    }
+}
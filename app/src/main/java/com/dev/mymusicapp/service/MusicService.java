@@ -9,24 +9,51 @@ import android.app.Service;
 import android.content.Intent;
 import android.os.Binder;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.OptIn;
 import androidx.core.app.NotificationCompat;
+import androidx.media3.common.C;
 import androidx.media3.common.MediaItem;
+import androidx.media3.common.PlaybackException;
 import androidx.media3.common.Player;
+import androidx.media3.common.Timeline;
 import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlaybackException;
 import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.source.DefaultMediaSourceFactory;
+import androidx.media3.exoplayer.source.DefaultShuffleOrder;
+import androidx.media3.exoplayer.source.MediaSource;
 import androidx.media3.session.MediaSession;
 import androidx.media3.session.MediaStyleNotificationHelper;
 
 import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.data.AppDatabase;
+import com.dev.mymusicapp.data.ContainerHints;
+import com.dev.mymusicapp.data.LibrarySnapshot;
+import com.dev.mymusicapp.data.MusicLibrary;
+import com.dev.mymusicapp.data.PlayHistoryRecorder;
+import com.dev.mymusicapp.data.PlaylistDao;
+import com.dev.mymusicapp.data.SongStatsDao;
+import com.dev.mymusicapp.data.SortMode;
+import com.dev.mymusicapp.data.UnplayableFiles;
+import com.dev.mymusicapp.model.PlayEvent;
 import com.dev.mymusicapp.model.Song;
+import com.dev.mymusicapp.model.SongStats;
 import com.dev.mymusicapp.view.PlayerActivity;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * MusicService é um Service do Android responsável por gerir a reprodução de música.
@@ -35,6 +62,8 @@ import java.util.List;
  */
 public class MusicService extends Service {
 
+    private static final String TAG = "MusicService";
+
     // O 'Binder' é um objeto que permite que as Activities se "conectem" a este serviço
     // para poderem chamar os seus métodos públicos (ex: play, pause).
     private final IBinder binder = new MusicBinder();
@@ -45,6 +74,39 @@ public class MusicService extends Service {
     // A lista de músicas que está a ser reproduzida atualmente.
     private List<Song> songList;
 
+    // Regista no histórico o que é ouvido (começou, saltada, chegou ao fim), sem I/O nesta thread.
+    private PlayHistoryRecorder historyRecorder;
+    // A música cujo evento "começou" foi o último registado, e que ainda não foi dada como saltada ou terminada.
+    @Nullable
+    private Song historySong;
+
+    // Shuffle inteligente: a ordem é um WeightedShuffleOrder (favorece as músicas pouco ouvidas e evita a mesma(o)
+    // artista seguida(o)), gerado em background sempre que o modo é ligado, a fila muda ou a fila recomeça
+    // (repetir tudo), já com os pesos das audições entretanto feitas.
+    private boolean smartShuffle;
+    private final ExecutorService shuffleExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        runnable.run();
+    }, "SmartShuffle"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Aumenta a cada pedido: uma ordem gerada para uma fila antiga é descartada.
+    private int shuffleGeneration;
+    // A geração da última ordem aplicada ao player: diferente de shuffleGeneration enquanto há uma a ser gerada.
+    private int appliedShuffleGeneration;
+    // Só usados na thread do shuffleExecutor: as estatísticas das músicas de 'smartStatsQueue', lidas uma vez
+    // por fila e depois atualizadas em memória a cada audição (sem voltar a ler a base de dados).
+    private List<Song> smartStatsQueue;
+    private final Map<String, SongStats> smartStats = new HashMap<>();
+
+    // Ficheiros que não se conseguem tocar (em falta, estragados): as próximas PROBE_AHEAD músicas da fila são
+    // verificadas em background a cada mudança e as más são retiradas da fila antes de o player lá chegar.
+    private static final int PROBE_AHEAD = 3;
+    private UnplayableFiles unplayableFiles;
+    // O formato de cada ficheiro, detetado nessas verificações: o player abre-o logo com o extrator certo.
+    private ContainerHints containerHints;
+    // Músicas saltadas seguidas sem nenhuma tocar: evita andar às voltas numa fila só com ficheiros maus.
+    private int consecutiveSkips;
+
     // MediaSession integra o nosso player com o sistema Android (notificações, controlos de ecrã de bloqueio, etc.).
     private MediaSession mediaSession;
 
@@ -66,11 +128,17 @@ public class MusicService extends Service {
      * Chamado quando o serviço é criado pela primeira vez.
      * Ideal para inicializar componentes que só precisam de ser criados uma vez.
      */
+    @OptIn(markerClass = UnstableApi.class)
     @Override
     public void onCreate() {
         super.onCreate();
-        exoPlayer = new ExoPlayer.Builder(this).build();
+        containerHints = ContainerHints.getInstance(this);
+        exoPlayer = new ExoPlayer.Builder(this)
+                .setMediaSourceFactory(new DefaultMediaSourceFactory(this, new HintedExtractorsFactory(containerHints)))
+                .build();
         mediaSession = new MediaSession.Builder(this, exoPlayer).build();
+        historyRecorder = PlayHistoryRecorder.getInstance(this);
+        unplayableFiles = UnplayableFiles.getInstance(this);
         createNotificationChannel();
 
         // Adiciona um listener ao ExoPlayer para reagir a eventos importantes.
@@ -83,6 +151,77 @@ public class MusicService extends Service {
                 Player.Listener.super.onMediaItemTransition(mediaItem, reason);
                 // Quando a música muda, atualizamos a notificação para mostrar os novos dados.
                 updateNotification();
+                // Um ficheiro que já se sabe estar estragado é saltado sem chegar a dar erro.
+                if (skipIfUnplayable()) return;
+                if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_AUTO && isSmartShuffleEnabled()
+                        && exoPlayer.getCurrentMediaItemIndex() == exoPlayer.getCurrentTimeline().getFirstWindowIndex(true)) {
+                    // A fila recomeçou: uma ordem nova, com os pesos já atualizados pelas audições da volta anterior.
+                    rebuildSmartShuffleOrder();
+                }
+                // Também ao repetir a mesma música (REPEAT_MODE_ONE): conta como uma nova audição.
+                recordHistoryStart();
+                probeUpcoming();
+            }
+
+            /**
+             * O player não conseguiu abrir ou descodificar uma música: fica marcada e a reprodução continua.
+             * Se foi a atual, passa-se à seguinte; se foi a seguinte (já a ser carregada), sai da fila.
+             */
+            @Override
+            public void onPlayerError(@NonNull PlaybackException error) {
+                Log.w(TAG, "Erro na reprodução", error);
+                if (!isFileError(error.errorCode)) return;
+                int failedIndex = failedItemIndex(error);
+                if (failedIndex == C.INDEX_UNSET || songList == null || failedIndex >= songList.size()) return;
+                Song song = songList.get(failedIndex);
+                if (containerHints.forget(song.getDataPath())) {
+                    // O formato guardado estava errado: tenta de novo com a deteção normal do ExoPlayer.
+                    exoPlayer.prepare();
+                    return;
+                }
+                unplayableFiles.markBad(song.getDataPath());
+                if (failedIndex != exoPlayer.getCurrentMediaItemIndex()) {
+                    // O erro veio da música seguinte, que estava a ser pré-carregada: o player só o reporta quando
+                    // a atual acaba, e o índice atual ainda aponta para ela. Retira a música estragada da fila
+                    // e continua a partir daí.
+                    List<Integer> failed = new ArrayList<>();
+                    failed.add(failedIndex);
+                    removeFromQueue(failed);
+                    exoPlayer.prepare();
+                    exoPlayer.play();
+                    return;
+                }
+                historySong = null;
+                if (!exoPlayer.hasNextMediaItem() || consecutiveSkips++ >= songList.size()) return;
+                exoPlayer.seekToNextMediaItem();
+                exoPlayer.prepare();
+                exoPlayer.play();
+            }
+
+            /**
+             * Chamado antes da mudança de música: a posição antiga diz até onde a anterior foi ouvida.
+             */
+            @Override
+            public void onPositionDiscontinuity(@NonNull Player.PositionInfo oldPosition,
+                                                @NonNull Player.PositionInfo newPosition, int reason) {
+                if (reason == Player.DISCONTINUITY_REASON_AUTO_TRANSITION) {
+                    // A música anterior chegou ao fim e o player passou sozinho para a seguinte.
+                    recordHistoryEnd(PlayEvent.TYPE_COMPLETE, oldPosition.positionMs);
+                } else if (reason == Player.DISCONTINUITY_REASON_SEEK
+                        && oldPosition.mediaItemIndex != newPosition.mediaItemIndex) {
+                    // O utilizador passou para outra música (botões, notificação, lista) antes do fim.
+                    recordHistoryEnd(PlayEvent.TYPE_SKIP, oldPosition.positionMs);
+                }
+            }
+
+            /**
+             * A última música da lista chegou ao fim (sem repetição não há transição).
+             */
+            @Override
+            public void onPlaybackStateChanged(int playbackState) {
+                if (playbackState == Player.STATE_ENDED) {
+                    recordHistoryEnd(PlayEvent.TYPE_COMPLETE, exoPlayer.getDuration());
+                }
             }
 
             /**
@@ -91,6 +230,7 @@ public class MusicService extends Service {
             @Override
             public void onIsPlayingChanged(boolean isPlaying) {
                 Player.Listener.super.onIsPlayingChanged(isPlaying);
+                if (isPlaying) consecutiveSkips = 0;
                 // Atualizamos a notificação para mostrar o ícone correto de play ou pause nos controlos.
                 updateNotification();
             }
@@ -116,9 +256,19 @@ public class MusicService extends Service {
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         if (intent != null) {
-            ArrayList<Song> receivedSongs = (ArrayList<Song>) intent.getSerializableExtra("SONG_LIST");
+            List<Song> receivedSongs = (ArrayList<Song>) intent.getSerializableExtra("SONG_LIST");
             int position = intent.getIntExtra("CURRENT_POSITION", 0);
 
+            if (intent.getBooleanExtra("PLAY_LIBRARY", false)) {
+                // Toca a biblioteca inteira diretamente da fotografia partilhada, sem a copiar.
+                LibrarySnapshot library = MusicLibrary.getInstance(this).getSnapshot();
+                if (library != null && !library.isEmpty()) {
+                    // Na mesma ordem em que a lista está a ser mostrada (a posição recebida refere-se a ela).
+                    String sortMode = intent.getStringExtra("SORT_MODE");
+                    receivedSongs = library.getSongs(sortMode != null ? SortMode.valueOf(sortMode) : SortMode.TITLE);
+                }
+            }
+
             if (receivedSongs != null) {
                 this.songList = receivedSongs;
                 preparePlaylist(position);
@@ -136,6 +286,9 @@ public class MusicService extends Service {
      * Prepara o ExoPlayer com a lista de músicas e a posição inicial.
      */
     private void preparePlaylist(int startPosition) {
+        // A lista nova substitui a atual: a música que estava a tocar fica como saltada.
+        recordHistoryEnd(PlayEvent.TYPE_SKIP, exoPlayer.getCurrentPosition());
+        consecutiveSkips = 0;
         List<MediaItem> mediaItems = new ArrayList<>();
         // Converte a nossa lista de 'Song' para uma lista de 'MediaItem', que o ExoPlayer entende.
         for (Song song : songList) {
@@ -143,12 +296,233 @@ public class MusicService extends Service {
         }
         // Define a lista de itens e a posição inicial no player.
         exoPlayer.setMediaItems(mediaItems, startPosition, 0);
+        // A fila nova recebe uma ordem uniforme do ExoPlayer; a ponderada é gerada de novo.
+        if (smartShuffle) rebuildSmartShuffleOrder();
         // Prepara o player para a reprodução (carrega os metadados, etc.).
         exoPlayer.prepare();
         // Inicia a reprodução.
         exoPlayer.play();
     }
 
+    // --- Histórico de reprodução ---
+
+    private void recordHistoryStart() {
+        Song song = getCurrentPlayingSong();
+        if (song == null) return;
+        historySong = song;
+        historyRecorder.record(song.getDataPath(), PlayEvent.TYPE_PLAY, 0);
+    }
+
+    private void recordHistoryEnd(int type, long positionMs) {
+        if (historySong == null) return;
+        historyRecorder.record(historySong.getDataPath(), type, Math.max(0, positionMs));
+        updateSmartStats(historySong.getDataPath(), type, Math.max(0, positionMs));
+        historySong = null;
+    }
+
+    // --- Ficheiros que não se conseguem tocar ---
+
+    /**
+     * Se a música atual está na lista de ficheiros maus, passa à seguinte.
+     * @return 'true' se a música atual não vai ser tocada.
+     */
+    private boolean skipIfUnplayable() {
+        Song song = getCurrentPlayingSong();
+        if (song == null || !unplayableFiles.isKnownBad(song.getDataPath())) return false;
+        if (exoPlayer.hasNextMediaItem() && consecutiveSkips++ < songList.size()) {
+            exoPlayer.seekToNextMediaItem();
+        } else {
+            // Não há mais nada tocável: para em vez de tentar o ficheiro.
+            exoPlayer.pause();
+        }
+        return true;
+    }
+
+    /**
+     * O índice na fila do item que causou o erro, a partir do período indicado na exceção.
+     * @return C.INDEX_UNSET se o erro não identifica o item.
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    private int failedItemIndex(PlaybackException error) {
+        if (!(error instanceof ExoPlaybackException)) return C.INDEX_UNSET;
+        MediaSource.MediaPeriodId periodId = ((ExoPlaybackException) error).mediaPeriodId;
+        if (periodId == null) return C.INDEX_UNSET;
+        Timeline timeline = exoPlayer.getCurrentTimeline();
+        int periodIndex = timeline.getIndexOfPeriod(periodId.periodUid);
+        if (periodIndex == C.INDEX_UNSET) return C.INDEX_UNSET;
+        return timeline.getPeriod(periodIndex, new Timeline.Period()).windowIndex;
+    }
+
+    // Os erros que vêm do próprio ficheiro (e não, por exemplo, da saída de áudio).
+    private static boolean isFileError(int errorCode) {
+        switch (errorCode) {
+            case PlaybackException.ERROR_CODE_IO_FILE_NOT_FOUND:
+            case PlaybackException.ERROR_CODE_IO_NO_PERMISSION:
+            case PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE:
+            case PlaybackException.ERROR_CODE_PARSING_CONTAINER_MALFORMED:
+            case PlaybackException.ERROR_CODE_PARSING_CONTAINER_UNSUPPORTED:
+            case PlaybackException.ERROR_CODE_DECODING_FORMAT_UNSUPPORTED:
+            case PlaybackException.ERROR_CODE_DECODING_FORMAT_EXCEEDS_CAPABILITIES:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Verifica em background a música atual e as próximas (pela ordem em que vão tocar, com shuffle e repetição)
+     * e retira da fila as seguintes que não se conseguem tocar.
+     */
+    private void probeUpcoming() {
+        if (songList == null || songList.isEmpty()) return;
+        Timeline timeline = exoPlayer.getCurrentTimeline();
+        if (timeline.isEmpty()) return;
+        int repeatMode = exoPlayer.getRepeatMode() == Player.REPEAT_MODE_ONE ? Player.REPEAT_MODE_OFF : exoPlayer.getRepeatMode();
+        boolean shuffle = exoPlayer.getShuffleModeEnabled();
+        int currentIndex = exoPlayer.getCurrentMediaItemIndex();
+        final List<Song> queue = songList;
+        final List<String> paths = new ArrayList<>(PROBE_AHEAD + 1);
+        final int[] indices = new int[PROBE_AHEAD + 1];
+        // A atual também é verificada (não é retirada): o formato fica guardado para a próxima vez que tocar.
+        int index = currentIndex;
+        indices[0] = currentIndex;
+        paths.add(queue.get(currentIndex).getDataPath());
+        while (paths.size() <= PROBE_AHEAD) {
+            index = timeline.getNextWindowIndex(index, repeatMode, shuffle);
+            if (index == C.INDEX_UNSET || index == currentIndex) break;
+            indices[paths.size()] = index;
+            paths.add(queue.get(index).getDataPath());
+        }
+        unplayableFiles.requestProbe(paths, unplayable -> mainHandler.post(() -> {
+            // Os índices só valem para a mesma fila.
+            if (exoPlayer == null || songList != queue) return;
+            List<Integer> toRemove = new ArrayList<>();
+            for (int i = 0; i < paths.size(); i++) {
+                if (unplayable.contains(paths.get(i)) && indices[i] != exoPlayer.getCurrentMediaItemIndex()) {
+                    toRemove.add(indices[i]);
+                }
+            }
+            removeFromQueue(toRemove);
+        }));
+    }
+
+    /**
+     * Retira estes índices da fila e do player. A lista é copiada: a anterior pode ser partilhada
+     * (a fotografia da biblioteca, o adapter da PlayerActivity).
+     */
+    private void removeFromQueue(List<Integer> indices) {
+        if (indices.isEmpty()) return;
+        // Do maior para o menor, para os índices que faltam não mudarem.
+        indices.sort((a, b) -> Integer.compare(b, a));
+        final List<Song> previous = songList;
+        final List<Song> queue = new ArrayList<>(previous);
+        for (int index : indices) queue.remove(index);
+        songList = queue;
+        for (int index : indices) exoPlayer.removeMediaItem(index);
+        // As estatísticas já lidas servem para a fila nova, que só tem menos músicas.
+        shuffleExecutor.execute(() -> {
+            if (smartStatsQueue == previous) smartStatsQueue = queue;
+        });
+        // A ordem aplicada foi ajustada pelo próprio player (cloneAndRemove); uma que ainda estava a ser gerada
+        // era para a fila antiga e vai ser descartada: é pedida de novo.
+        if (smartShuffle && appliedShuffleGeneration != shuffleGeneration) rebuildSmartShuffleOrder();
+    }
+
+    // --- Shuffle inteligente ---
+
+    /**
+     * Gera em background a ordem ponderada para a fila atual e aplica-a quando estiver pronta
+     * (a música atual fica em primeiro, a reprodução não salta).
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    private void rebuildSmartShuffleOrder() {
+        if (songList == null || songList.isEmpty()) return;
+        final List<Song> queue = songList;
+        final int currentIndex = exoPlayer.getCurrentMediaItemIndex();
+        final int generation = ++shuffleGeneration;
+        final long seed = System.nanoTime();
+        shuffleExecutor.execute(() -> {
+            if (smartStatsQueue != queue) loadSmartStats(queue);
+            double[] weights = new double[queue.size()];
+            int[] artistKeys = new int[queue.size()];
+            Map<String, Integer> artistIds = new HashMap<>();
+            for (int i = 0; i < weights.length; i++) {
+                Song song = queue.get(i);
+                weights[i] = smartShuffleWeight(smartStats.get(song.getDataPath()));
+                String artist = song.getArtist();
+                if (artist == null || artist.isEmpty()) {
+                    artistKeys[i] = -1;
+                } else {
+                    Integer id = artistIds.get(artist);
+                    if (id == null) {
+                        id = artistIds.size();
+                        artistIds.put(artist, id);
+                    }
+                    artistKeys[i] = id;
+                }
+            }
+            WeightedShuffleOrder order = WeightedShuffleOrder.create(weights, artistKeys, currentIndex, seed);
+            mainHandler.post(() -> {
+                // Só se nada mudou entretanto (outra fila, modo desligado, serviço destruído).
+                if (exoPlayer == null || !smartShuffle || generation != shuffleGeneration || songList != queue
+                        || exoPlayer.getMediaItemCount() != order.getLength()) return;
+                exoPlayer.setShuffleOrder(order);
+                appliedShuffleGeneration = generation;
+            });
+        });
+    }
+
+    /**
+     * Lê as estatísticas só das músicas desta fila, em blocos abaixo do limite de parâmetros do SQLite.
+     * Corre na thread do shuffleExecutor.
+     */
+    private void loadSmartStats(List<Song> queue) {
+        smartStats.clear();
+        SongStatsDao dao = AppDatabase.getDatabase(this).songStatsDao();
+        List<String> chunk = new ArrayList<>(PlaylistDao.MAX_BIND_ARGS);
+        for (int i = 0; i < queue.size(); i++) {
+            chunk.add(queue.get(i).getDataPath());
+            if (chunk.size() == PlaylistDao.MAX_BIND_ARGS || i == queue.size() - 1) {
+                for (SongStats stats : dao.getByPaths(chunk)) {
+                    smartStats.put(stats.dataPath, stats);
+                }
+                chunk.clear();
+            }
+        }
+        smartStatsQueue = queue;
+    }
+
+    /**
+     * Aplica um evento do histórico às estatísticas em memória, da mesma forma que o PlayHistoryRecorder as
+     * grava: a próxima ordem gerada já usa o peso novo.
+     */
+    private void updateSmartStats(String dataPath, int type, long positionMs) {
+        PlayEvent event = new PlayEvent();
+        event.dataPath = dataPath;
+        event.type = type;
+        event.timestamp = System.currentTimeMillis();
+        event.positionMs = positionMs;
+        shuffleExecutor.execute(() -> {
+            if (smartStatsQueue == null) return;
+            SongStats stats = smartStats.get(dataPath);
+            if (stats == null) {
+                stats = new SongStats();
+                stats.dataPath = dataPath;
+                smartStats.put(dataPath, stats);
+            }
+            PlayHistoryRecorder.apply(stats, event);
+        });
+    }
+
+    /**
+     * O peso de uma música no shuffle inteligente: as nunca ouvidas valem 1; cada audição e, sobretudo,
+     * cada vez que foi saltada tornam-na menos provável de aparecer cedo.
+     */
+    private static double smartShuffleWeight(@Nullable SongStats stats) {
+        if (stats == null) return 1;
+        return 1.0 / ((1 + stats.playCount) * (1 + 2.0 * stats.skipCount));
+    }
+
     /**
      * Força a atualização da notificação em primeiro plano.
      */
@@ -237,9 +611,23 @@ public class MusicService extends Service {
         if (exoPlayer != null) exoPlayer.removeListener(listener);
     }
 
+    /**
+     * Alterna entre os três modos: sem shuffle → shuffle → shuffle inteligente → sem shuffle.
+     */
+    @OptIn(markerClass = UnstableApi.class)
     public void toggleShuffleMode() {
-        if (exoPlayer != null) {
-            exoPlayer.setShuffleModeEnabled(!exoPlayer.getShuffleModeEnabled());
+        if (exoPlayer == null) return;
+        if (!exoPlayer.getShuffleModeEnabled()) {
+            exoPlayer.setShuffleModeEnabled(true);
+        } else if (!smartShuffle) {
+            smartShuffle = true;
+            rebuildSmartShuffleOrder();
+        } else {
+            smartShuffle = false;
+            shuffleGeneration++;
+            exoPlayer.setShuffleModeEnabled(false);
+            // Da próxima vez o shuffle normal volta a ser uniforme.
+            exoPlayer.setShuffleOrder(new DefaultShuffleOrder(exoPlayer.getMediaItemCount()));
         }
     }
 
@@ -283,6 +671,10 @@ public class MusicService extends Service {
         return exoPlayer != null && exoPlayer.getShuffleModeEnabled();
     }
 
+    public boolean isSmartShuffleEnabled() {
+        return smartShuffle && isShuffleModeEnabled();
+    }
+
     public int getRepeatMode() {
         return exoPlayer != null ? exoPlayer.getRepeatMode() : Player.REPEAT_MODE_OFF;
     }
@@ -294,6 +686,13 @@ public class MusicService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        // Escreve já os eventos pendentes em vez de esperar pela próxima janela.
+        if (exoPlayer != null) {
+            recordHistoryEnd(PlayEvent.TYPE_SKIP, exoPlayer.getCurrentPosition());
+        }
+        historyRecorder.flush();
+        shuffleExecutor.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
         if (mediaSession != null) {
             mediaSession.release();
         }
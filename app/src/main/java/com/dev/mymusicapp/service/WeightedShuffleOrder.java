@@ -0,0 +1,181 @@
+package com.dev.mymusicapp.service;
+
+import androidx.annotation.NonNull;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.source.ShuffleOrder;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * WeightedShuffleOrder é a ordem do "shuffle inteligente": uma permutação da fila em que as músicas com mais
+ * peso tendem a aparecer mais cedo, e em que se evita a mesma(o) artista duas vezes seguidas.
+ *
+ * - A permutação é uma amostragem ponderada sem reposição (Efraimidis-Spirakis): cada música recebe a chave
+ *   ln(u) / peso, com u uniforme em (0, 1], e a ordem é a das chaves, da maior para a menor. É a mesma
+ *   distribuição de sortear uma música de cada vez proporcionalmente ao peso das que faltam, mas custa sempre
+ *   O(n log n), por mais desequilibrados que sejam os pesos: uma fila de 100 mil músicas ordena-se num array
+ *   de longs, sem objetos por música.
+ * - Depois, uma passagem troca cada música que repete a(o) artista da anterior pela primeira das seguintes
+ *   MAX_ARTIST_LOOKAHEAD que seja de outra(o) artista (se não houver, fica como está: numa fila de um só
+ *   artista não há alternativa).
+ * - As inserções e remoções feitas pelo ExoPlayer (cloneAndInsert/cloneAndRemove) mantêm a ordem existente;
+ *   os itens novos entram em posições aleatórias, como no DefaultShuffleOrder, até a ordem ser gerada de novo.
+ */
+@UnstableApi
+public final class WeightedShuffleOrder implements ShuffleOrder {
+
+    private static final int MAX_ARTIST_LOOKAHEAD = 8;
+
+    private final Random random;
+    // A ordem: shuffled[i] é o índice na fila da i-ésima música a tocar.
+    private final int[] shuffled;
+    // O inverso: a posição de cada índice da fila em 'shuffled'.
+    private final int[] indexInShuffled;
+
+    private WeightedShuffleOrder(int[] shuffled, Random random) {
+        this.shuffled = shuffled;
+        this.random = random;
+        indexInShuffled = new int[shuffled.length];
+        for (int i = 0; i < shuffled.length; i++) {
+            indexInShuffled[shuffled[i]] = i;
+        }
+    }
+
+    /**
+     * Gera uma ordem para uma fila com estes pesos.
+     *
+     * @param weights    O peso de cada música da fila (maior = aparece mais cedo). Pesos não positivos contam
+     *                   como o menor peso possível.
+     * @param artistKeys Um identificador da(o) artista de cada música (-1 se desconhecido, nunca conta como igual).
+     * @param firstIndex A música que fica em primeiro (a que está a tocar), ou C.INDEX_UNSET.
+     * @param seed       A semente dos sorteios.
+     */
+    @NonNull
+    public static WeightedShuffleOrder create(@NonNull double[] weights, @NonNull int[] artistKeys, int firstIndex, long seed) {
+        int length = weights.length;
+        Random random = new Random(seed);
+        boolean hasFirst = firstIndex >= 0 && firstIndex < length;
+
+        // Cada entrada: a chave (um float com os bits ajustados para ordenar como int) nos 32 bits altos, o índice
+        // nos baixos. Ordenar os longs ordena pelas chaves.
+        long[] keyed = new long[hasFirst ? length - 1 : length];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (hasFirst && i == firstIndex) continue;
+            double weight = weights[i] > Double.MIN_NORMAL ? weights[i] : Double.MIN_NORMAL;
+            float key = (float) (Math.log(1 - random.nextDouble()) / weight);
+            keyed[count++] = ((long) sortableBits(key) << 32) | i;
+        }
+        Arrays.sort(keyed);
+
+        int[] order = new int[length];
+        int filled = 0;
+        if (hasFirst) order[filled++] = firstIndex;
+        for (int i = keyed.length - 1; i >= 0; i--) {
+            order[filled++] = (int) keyed[i];
+        }
+        spreadArtists(order, artistKeys);
+        return new WeightedShuffleOrder(order, random);
+    }
+
+    // Os bits de um float como int com a mesma ordem (os negativos têm os bits invertidos).
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+
+    // A primeira posição (a música que está a tocar) nunca sai do lugar.
+    private static void spreadArtists(int[] order, int[] artistKeys) {
+        for (int i = 1; i < order.length; i++) {
+            int artist = artistKeys[order[i]];
+            if (artist < 0 || artist != artistKeys[order[i - 1]]) continue;
+            int limit = Math.min(order.length - 1, i + MAX_ARTIST_LOOKAHEAD);
+            for (int j = i + 1; j <= limit; j++) {
+                if (artistKeys[order[j]] != artist) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getLength() {
+        return shuffled.length;
+    }
+
+    @Override
+    public int getNextIndex(int index) {
+        int shuffledIndex = indexInShuffled[index] + 1;
+        return shuffledIndex < shuffled.length ? shuffled[shuffledIndex] : C.INDEX_UNSET;
+    }
+
+    @Override
+    public int getPreviousIndex(int index) {
+        int shuffledIndex = indexInShuffled[index] - 1;
+        return shuffledIndex >= 0 ? shuffled[shuffledIndex] : C.INDEX_UNSET;
+    }
+
+    @Override
+    public int getLastIndex() {
+        return shuffled.length > 0 ? shuffled[shuffled.length - 1] : C.INDEX_UNSET;
+    }
+
+    @Override
+    public int getFirstIndex() {
+        return shuffled.length > 0 ? shuffled[0] : C.INDEX_UNSET;
+    }
+
+    @NonNull
+    @Override
+    public ShuffleOrder cloneAndInsert(int insertionIndex, int insertionCount) {
+        // Os itens novos, baralhados, em posições aleatórias; os índices a partir da inserção avançam.
+        int[] insertionPoints = new int[insertionCount];
+        int[] insertionValues = new int[insertionCount];
+        for (int i = 0; i < insertionCount; i++) {
+            insertionPoints[i] = random.nextInt(shuffled.length + 1);
+            int swap = random.nextInt(i + 1);
+            insertionValues[i] = insertionValues[swap];
+            insertionValues[swap] = i + insertionIndex;
+        }
+        Arrays.sort(insertionPoints);
+        int[] newShuffled = new int[shuffled.length + insertionCount];
+        int indexInOld = 0;
+        int indexInInsertion = 0;
+        for (int i = 0; i < newShuffled.length; i++) {
+            if (indexInInsertion < insertionCount && indexInOld == insertionPoints[indexInInsertion]) {
+                newShuffled[i] = insertionValues[indexInInsertion++];
+            } else {
+                newShuffled[i] = shuffled[indexInOld++];
+                if (newShuffled[i] >= insertionIndex) newShuffled[i] += insertionCount;
+            }
+        }
+        return new WeightedShuffleOrder(newShuffled, new Random(random.nextLong()));
+    }
+
+    @NonNull
+    @Override
+    public ShuffleOrder cloneAndRemove(int indexFrom, int indexToExclusive) {
+        int removed = indexToExclusive - indexFrom;
+        int[] newShuffled = new int[shuffled.length - removed];
+        int found = 0;
+        for (int i = 0; i < shuffled.length; i++) {
+            if (shuffled[i] >= indexFrom && shuffled[i] < indexToExclusive) {
+                found++;
+            } else {
+                newShuffled[i - found] = shuffled[i] >= indexFrom ? shuffled[i] - removed : shuffled[i];
+            }
+        }
+        return new WeightedShuffleOrder(newShuffled, new Random(random.nextLong()));
+    }
+
+    @NonNull
+    @Override
+    public ShuffleOrder cloneAndClear() {
+        return new WeightedShuffleOrder(new int[0], new Random(random.nextLong()));
+    }
+}
@@ -0,0 +1,268 @@
+package com.dev.mymusicapp.view;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityOptionsCompat;
+import androidx.core.view.ViewCompat;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.ConcatAdapter;
+import androidx.recyclerview.widget.LinearLayoutManager;
+
+import com.dev.mymusicapp.adapter.FolderAdapter;
+import com.dev.mymusicapp.adapter.GroupAdapter;
+import com.dev.mymusicapp.adapter.SongAdapter;
+import com.dev.mymusicapp.adapter.SongRowPool;
+import com.dev.mymusicapp.data.FolderTree;
+import com.dev.mymusicapp.data.LibraryGroups;
+import com.dev.mymusicapp.data.LibrarySnapshot;
+import com.dev.mymusicapp.databinding.ActivityBrowseBinding;
+import com.dev.mymusicapp.model.Song;
+import com.dev.mymusicapp.viewmodel.LibraryViewModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * BrowseActivity é a navegação da biblioteca por artista, por álbum e por pasta. A mesma Activity mostra todos os níveis:
+ * - a lista de artistas (ou de álbuns);
+ * - os álbuns de um artista;
+ * - as músicas de um álbum (ou de um álbum de um artista);
+ * - as subpastas e as músicas de uma pasta.
+ *
+ * Os grupos vêm dos índices LibraryGroups e FolderTree da fotografia da biblioteca partilhada, por isso abrir
+ * um nível não faz nenhuma consulta ao MediaStore. Quando a biblioteca é recarregada, o nível atual é atualizado.
+ */
+public class BrowseActivity extends AppCompatActivity implements GroupAdapter.OnGroupClickListener,
+        FolderAdapter.OnFolderClickListener, SongAdapter.OnSongClickListener, SongAdapter.OnSongLongClickListener {
+
+    // Qual lista mostrar no primeiro nível.
+    public static final String EXTRA_MODE = "BROWSE_MODE";
+    public static final String MODE_ARTISTS = "ARTISTS";
+    public static final String MODE_ALBUMS = "ALBUMS";
+    public static final String MODE_FOLDERS = "FOLDERS";
+
+    // O artista e/ou o álbum escolhidos nos níveis anteriores.
+    private static final String EXTRA_ARTIST = "BROWSE_ARTIST";
+    private static final String EXTRA_ALBUM_ID = "BROWSE_ALBUM_ID";
+    // A pasta aberta, pelo caminho completo (os nós da árvore mudam a cada recarregamento).
+    private static final String EXTRA_FOLDER_PATH = "BROWSE_FOLDER_PATH";
+
+    private ActivityBrowseBinding binding;
+    private LibraryViewModel libraryViewModel;
+    private ExecutorService executorService;
+
+    private String mode;
+    private String artistName;
+    private long albumId;
+    private String folderPath;
+
+    private GroupAdapter groupAdapter;
+    private FolderAdapter folderAdapter;
+    private SongAdapter songAdapter;
+    // As músicas mostradas no último nível (para a reprodução).
+    private List<Song> shownSongs = new ArrayList<>();
+
+    /**
+     * Cria a Intent para abrir a navegação no primeiro nível.
+     */
+    @NonNull
+    public static Intent newIntent(@NonNull Context context, @NonNull String mode) {
+        return new Intent(context, BrowseActivity.class).putExtra(EXTRA_MODE, mode);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityBrowseBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+
+        setSupportActionBar(binding.toolbarBrowse);
+        binding.toolbarBrowse.setNavigationOnClickListener(v -> onBackPressed());
+
+        Intent intent = getIntent();
+        mode = intent.getStringExtra(EXTRA_MODE);
+        if (mode == null) mode = MODE_ARTISTS;
+        artistName = intent.getStringExtra(EXTRA_ARTIST);
+        albumId = intent.getLongExtra(EXTRA_ALBUM_ID, -1);
+        folderPath = intent.getStringExtra(EXTRA_FOLDER_PATH);
+
+        executorService = Executors.newSingleThreadExecutor();
+        binding.recyclerViewBrowse.setLayoutManager(new LinearLayoutManager(this));
+        if (MODE_FOLDERS.equals(mode)) {
+            // Uma pasta mostra primeiro as subpastas e depois as músicas, na mesma lista.
+            folderAdapter = new FolderAdapter(this);
+            songAdapter = new SongAdapter(this, this);
+            SongRowPool.getInstance(this).attach(binding.recyclerViewBrowse);
+            // Os tipos de linha não são isolados: assim as linhas de música continuam a vir do pool partilhado.
+            ConcatAdapter.Config config = new ConcatAdapter.Config.Builder().setIsolateViewTypes(false).build();
+            binding.recyclerViewBrowse.setAdapter(new ConcatAdapter(config, folderAdapter, songAdapter));
+        } else if (showsSongs()) {
+            songAdapter = new SongAdapter(this, this);
+            SongRowPool.getInstance(this).attach(binding.recyclerViewBrowse);
+            binding.recyclerViewBrowse.setAdapter(songAdapter);
+        } else {
+            groupAdapter = new GroupAdapter(this);
+            binding.recyclerViewBrowse.setAdapter(groupAdapter);
+        }
+
+        libraryViewModel = new ViewModelProvider(this).get(LibraryViewModel.class);
+        if (libraryViewModel.getLibrary().getValue() == null) {
+            binding.progressBarBrowse.setVisibility(View.VISIBLE);
+        }
+        libraryViewModel.getLibrary().observe(this, this::showLevel);
+        libraryViewModel.loadLibrary();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        executorService.shutdownNow();
+        if (songAdapter != null) {
+            SongRowPool.getInstance(this).detach(binding.recyclerViewBrowse);
+        }
+    }
+
+    private boolean showsSongs() {
+        return albumId != -1;
+    }
+
+    /**
+     * Mostra o nível atual a partir de uma fotografia. O índice de grupos é construído (uma vez por fotografia)
+     * em background.
+     */
+    private void showLevel(@NonNull LibrarySnapshot snapshot) {
+        if (MODE_FOLDERS.equals(mode)) {
+            showFolder(snapshot);
+            return;
+        }
+        executorService.execute(() -> {
+            LibraryGroups groups = snapshot.getGroups();
+            LibraryGroups.Group artist = artistName != null ? groups.findArtist(artistName) : null;
+            LibraryGroups.Group album = showsSongs() ? findAlbum(groups, artist) : null;
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                binding.progressBarBrowse.setVisibility(View.GONE);
+                if ((artistName != null && artist == null) || (showsSongs() && album == null)) {
+                    // O grupo deixou de existir depois de um recarregamento da biblioteca.
+                    Toast.makeText(this, "Este grupo já não existe na biblioteca.", Toast.LENGTH_SHORT).show();
+                    finish();
+                    return;
+                }
+                if (album != null) {
+                    showTitle(album.getName(), GroupAdapter.describe(album));
+                    shownSongs = album.getSongs();
+                    songAdapter.setSongs(shownSongs);
+                } else if (artist != null) {
+                    showTitle(artist.getName(), GroupAdapter.describe(artist));
+                    groupAdapter.setGroups(artist.getChildren());
+                } else if (MODE_ALBUMS.equals(mode)) {
+                    showTitle("Álbuns", groups.getAlbums().size() + " álbuns");
+                    groupAdapter.setGroups(groups.getAlbums());
+                } else {
+                    showTitle("Artistas", groups.getArtists().size() + " artistas");
+                    groupAdapter.setGroups(groups.getArtists());
+                }
+            });
+        });
+    }
+
+    /**
+     * Mostra uma pasta: as subpastas (O(filhos) na árvore) e as músicas que estão diretamente nela.
+     */
+    private void showFolder(@NonNull LibrarySnapshot snapshot) {
+        executorService.execute(() -> {
+            FolderTree tree = snapshot.getFolders();
+            int node = folderPath != null ? tree.findNode(folderPath) : tree.getStartNode();
+            int[] children = node != FolderTree.NO_NODE ? tree.getChildren(node) : new int[0];
+            List<Song> songs = node != FolderTree.NO_NODE ? tree.getSongs(node) : new ArrayList<>();
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                binding.progressBarBrowse.setVisibility(View.GONE);
+                if (node == FolderTree.NO_NODE) {
+                    Toast.makeText(this, "Esta pasta já não existe na biblioteca.", Toast.LENGTH_SHORT).show();
+                    finish();
+                    return;
+                }
+                int count = tree.getSongCount(node);
+                showTitle(tree.getName(node), count + (count == 1 ? " música" : " músicas"));
+                folderAdapter.setFolders(tree, children);
+                shownSongs = songs;
+                songAdapter.setSongs(songs);
+            });
+        });
+    }
+
+    @Nullable
+    private LibraryGroups.Group findAlbum(LibraryGroups groups, @Nullable LibraryGroups.Group artist) {
+        if (artist == null) return groups.findAlbum(albumId);
+        // Dentro de um artista, o álbum só tem as músicas desse artista.
+        for (LibraryGroups.Group child : artist.getChildren()) {
+            if (child.getAlbumId() == albumId) return child;
+        }
+        return null;
+    }
+
+    private void showTitle(String title, String subtitle) {
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle(title);
+            getSupportActionBar().setSubtitle(subtitle);
+        }
+    }
+
+    /**
+     * Abre o nível seguinte: os álbuns de um artista, ou as músicas de um álbum.
+     */
+    @Override
+    public void onGroupClick(LibraryGroups.Group group) {
+        Intent intent = new Intent(this, BrowseActivity.class).putExtra(EXTRA_MODE, mode);
+        if (artistName != null) {
+            // Um álbum dentro de um artista.
+            intent.putExtra(EXTRA_ARTIST, artistName).putExtra(EXTRA_ALBUM_ID, group.getAlbumId());
+        } else if (MODE_ALBUMS.equals(mode)) {
+            intent.putExtra(EXTRA_ALBUM_ID, group.getAlbumId());
+        } else {
+            intent.putExtra(EXTRA_ARTIST, group.getName());
+        }
+        startActivity(intent);
+    }
+
+    /**
+     * Abre uma subpasta.
+     */
+    @Override
+    public void onFolderClick(FolderTree tree, int node) {
+        startActivity(new Intent(this, BrowseActivity.class)
+                .putExtra(EXTRA_MODE, MODE_FOLDERS)
+                .putExtra(EXTRA_FOLDER_PATH, tree.getPath(node)));
+    }
+
+    /**
+     * Toca as músicas do álbum (ou da pasta) a partir da que foi clicada.
+     */
+    @Override
+    public void onSongClick(Song song, View albumArtView) {
+        Intent intent = new Intent(this, PlayerActivity.class);
+        // Só as músicas deste grupo vão para a Intent (um álbum ou uma pasta têm poucas músicas).
+        intent.putExtra("SONG_LIST", new ArrayList<>(shownSongs));
+        intent.putExtra("CURRENT_POSITION", Math.max(0, shownSongs.indexOf(song)));
+        intent.setFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+
+        ActivityOptionsCompat options = ActivityOptionsCompat.makeSceneTransitionAnimation(
+                this, albumArtView, ViewCompat.getTransitionName(albumArtView));
+        startActivity(intent, options.toBundle());
+    }
+
+    @Override
+    public void onSongLongClick(Song song, int position) {
+        // Sem ações de clique longo na navegação.
+    }
+}
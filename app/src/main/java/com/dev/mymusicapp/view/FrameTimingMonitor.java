@@ -0,0 +1,148 @@
+package com.dev.mymusicapp.view;
+
+import android.app.Activity;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Display;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Locale;
+
+/**
+ * FrameTimingMonitor mede os frames desenhados enquanto uma lista está em scroll (FrameMetrics) e,
+ * quando o scroll para, escreve no Logcat um resumo: número de frames, frames que ultrapassaram
+ * o tempo de um refresh do ecrã ("jank") e o tempo gasto na thread principal.
+ *
+ * Serve para comparar o custo do bind das linhas antes e depois de uma alteração. Só é ativado
+ * em builds "debuggable", pelo que não tem qualquer custo na versão publicada.
+ */
+public final class FrameTimingMonitor extends RecyclerView.OnScrollListener implements Window.OnFrameMetricsAvailableListener {
+
+    private static final String TAG = "FrameTiming";
+
+    // Uma única thread recebe as métricas de todos os ecrãs monitorizados.
+    private static Handler metricsHandler;
+
+    private final String label;
+    private final Window window;
+    private final long frameBudgetNanos;
+
+    // Estatísticas do scroll atual. Escritas na thread das métricas e lidas na principal: protegidas por 'this'.
+    private boolean scrolling = false;
+    private int frames;
+    private int jankyFrames;
+    private int droppedReports;
+    private long uiThreadNanos;
+    private long maxUiThreadNanos;
+
+    private FrameTimingMonitor(@NonNull Activity activity, @NonNull String label) {
+        this.label = label;
+        this.window = activity.getWindow();
+        float refreshRate = getRefreshRate(activity);
+        this.frameBudgetNanos = (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60f));
+    }
+
+    /**
+     * Taxa de atualização do ecrã onde a Activity está. No Android 11+ a Activity conhece o seu ecrã;
+     * antes disso só há o ecrã por omissão do WindowManager.
+     */
+    private static float getRefreshRate(@NonNull Activity activity) {
+        Display display;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            display = activity.getDisplay();
+        } else {
+            display = getDefaultDisplay(activity);
+        }
+        return display != null ? display.getRefreshRate() : 0f;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Display getDefaultDisplay(@NonNull Activity activity) {
+        return activity.getWindowManager().getDefaultDisplay();
+    }
+
+    /**
+     * Começa a monitorizar o scroll do RecyclerView. Em builds de produção não faz nada e retorna 'null'.
+     * @param label Nome mostrado no Logcat (ex: o nome do ecrã).
+     */
+    @Nullable
+    public static FrameTimingMonitor attach(@NonNull Activity activity, @NonNull RecyclerView recyclerView, @NonNull String label) {
+        if ((activity.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) {
+            return null;
+        }
+        FrameTimingMonitor monitor = new FrameTimingMonitor(activity, label);
+        monitor.window.addOnFrameMetricsAvailableListener(monitor, getMetricsHandler());
+        recyclerView.addOnScrollListener(monitor);
+        return monitor;
+    }
+
+    /**
+     * Deixa de receber métricas. Deve ser chamado no onDestroy da Activity.
+     */
+    public void detach() {
+        window.removeOnFrameMetricsAvailableListener(this);
+    }
+
+    private static synchronized Handler getMetricsHandler() {
+        if (metricsHandler == null) {
+            HandlerThread thread = new HandlerThread("FrameTimingMonitor");
+            thread.start();
+            metricsHandler = new Handler(thread.getLooper());
+        }
+        return metricsHandler;
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            finishScroll();
+        } else {
+            startScroll();
+        }
+    }
+
+    private synchronized void startScroll() {
+        if (scrolling) return; // Passar de "arrastar" para "fling" continua a ser o mesmo scroll.
+        scrolling = true;
+        frames = 0;
+        jankyFrames = 0;
+        droppedReports = 0;
+        uiThreadNanos = 0;
+        maxUiThreadNanos = 0;
+    }
+
+    private synchronized void finishScroll() {
+        if (!scrolling) return;
+        scrolling = false;
+        if (frames == 0) return;
+        Log.i(TAG, String.format(Locale.ROOT,
+                "%s: %d frames, %d com jank (%.1f%%, orçamento %.2f ms), thread principal média %.2f ms / máx %.2f ms, %d relatórios perdidos",
+                label, frames, jankyFrames, 100f * jankyFrames / frames, frameBudgetNanos / 1_000_000.0,
+                uiThreadNanos / (frames * 1_000_000.0), maxUiThreadNanos / 1_000_000.0, droppedReports));
+    }
+
+    @Override
+    public synchronized void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
+        if (!scrolling) return;
+        frames++;
+        droppedReports += dropCountSinceLastInvocation;
+        if (frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION) > frameBudgetNanos) {
+            jankyFrames++;
+        }
+        // O bind das linhas acontece durante a animação (scroll) e o layout; o desenho também corre na thread principal.
+        long uiThread = frameMetrics.getMetric(FrameMetrics.INPUT_HANDLING_DURATION)
+                + frameMetrics.getMetric(FrameMetrics.ANIMATION_DURATION)
+                + frameMetrics.getMetric(FrameMetrics.LAYOUT_MEASURE_DURATION)
+                + frameMetrics.getMetric(FrameMetrics.DRAW_DURATION);
+        uiThreadNanos += uiThread;
+        maxUiThreadNanos = Math.max(maxUiThreadNanos, uiThread);
+    }
+}
@@ -28,6 +28,7 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.app.ActivityOptionsCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.view.ViewCompat;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.media3.common.MediaItem;
 import androidx.media3.common.Player;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -38,12 +39,17 @@ import com.acrcloud.rec.ACRCloudResult;
 import com.acrcloud.rec.IACRCloudListener;
 
 import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.adapter.AlbumArtPrefetcher;
 import com.dev.mymusicapp.adapter.SongAdapter;
-import com.dev.mymusicapp.data.SongRepository;
+import com.dev.mymusicapp.adapter.SongRowPool;
+import com.dev.mymusicapp.data.LibrarySnapshot;
+import com.dev.mymusicapp.data.SectionIndex;
+import com.dev.mymusicapp.data.SortMode;
 import com.dev.mymusicapp.databinding.ActivityMainBinding;
 import com.dev.mymusicapp.model.Song;
 
 import com.dev.mymusicapp.service.MusicService;
+import com.dev.mymusicapp.viewmodel.LibraryViewModel;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
@@ -62,9 +68,15 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
     private static final int PERMISSION_RECORD_AUDIO_CODE = 103;
     private static final int ALL_PERMISSIONS_REQUEST_CODE = 105;
     private ActivityMainBinding binding;
-    private SongRepository songRepository;
+    private LibraryViewModel libraryViewModel;
     private SongAdapter songAdapter;
-    private List<Song> fullSongList = new ArrayList<>();
+    private AlbumArtPrefetcher albumArtPrefetcher;
+    // Mede os frames do scroll da lista (só em builds de debug; senão fica a null).
+    private FrameTimingMonitor frameTimingMonitor;
+    // A fotografia da biblioteca partilhada (nunca é copiada).
+    private LibrarySnapshot library = LibrarySnapshot.EMPTY;
+    // Indica se ainda temos de repor a posição de scroll guardada no ViewModel.
+    private boolean restoreListStatePending = true;
 
     // --- VARIÁVEIS DA ACRCloud ---
     private ACRCloudClient acrCloudClient;
@@ -118,8 +130,10 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
 
         setSupportActionBar(binding.toolbarMain);
 
-        songRepository = new SongRepository();
+        // O ViewModel sobrevive à rotação; a biblioteca que ele expõe é partilhada por todas as Activities.
+        libraryViewModel = new ViewModelProvider(this).get(LibraryViewModel.class);
         setupRecyclerView();
+        observeLibrary();
         checkAndRequestPermissions();
 
         playerListener = new Player.Listener() {
@@ -132,6 +146,12 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
         setupAcrCloud();
         setupFabMenu();
 
+        // Quando a thread principal ficar livre depois do arranque, pré-inflaciona linhas de música
+        // em background para que os outros ecrãs de listas abram sem inflacionar.
+        Looper.myQueue().addIdleHandler(() -> {
+            SongRowPool.getInstance(this).prewarm();
+            return false; // Executa só uma vez.
+        });
     }
 
     @Override
@@ -141,6 +161,15 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
         bindService(intent, connection, Context.BIND_AUTO_CREATE);
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Guarda a posição de scroll no ViewModel para a repor se a Activity for recriada.
+        if (binding.recyclerViewSongs.getLayoutManager() != null) {
+            libraryViewModel.setListState(binding.recyclerViewSongs.getLayoutManager().onSaveInstanceState());
+        }
+    }
+
     @Override
     protected void onStop() {
         super.onStop();
@@ -164,15 +193,8 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
     }
 
     private int findSongPositionByPath(String dataPath) {
-        if (dataPath == null || fullSongList == null) {
-            return -1;
-        }
-        for (int i = 0; i < fullSongList.size(); i++) {
-            if (fullSongList.get(i).getDataPath().equals(dataPath)) {
-                return i;
-            }
-        }
-        return -1;
+        // Procura no índice da biblioteca em vez de percorrer a lista inteira.
+        return library.getPosition(libraryViewModel.getSortMode(), library.indexOfPath(dataPath));
     }
 
     private void checkAndRequestPermissions() {
@@ -366,8 +388,12 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
         if (isBound && musicService != null && musicService.isSongPlaying(song.getDataPath())) {
             // Lógica para não reiniciar a música.
         } else {
-            int position = fullSongList.indexOf(song);
-            intent.putExtra("SONG_LIST", (ArrayList<Song>) fullSongList);
+            // A lista não é copiada para a Intent: o serviço lê a mesma fotografia da biblioteca partilhada.
+            // O serviço toca a biblioteca na mesma ordem em que está a ser mostrada.
+            SortMode sortMode = libraryViewModel.getSortMode();
+            int position = library.getPosition(sortMode, library.indexOfPath(song.getDataPath()));
+            intent.putExtra("PLAY_LIBRARY", true);
+            intent.putExtra("SORT_MODE", sortMode.name());
             intent.putExtra("CURRENT_POSITION", position);
         }
 
@@ -448,52 +474,168 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
 
         searchView.setQueryHint("Buscar por título ou artista...");
 
+        // Repõe a pesquisa que estava ativa antes de a Activity ser recriada.
+        // É feito antes de registar o listener para não disparar uma filtragem desnecessária.
+        String savedQuery = libraryViewModel.getSearchQuery();
+        if (!savedQuery.isEmpty()) {
+            searchItem.expandActionView();
+            searchView.setQuery(savedQuery, false);
+        }
+
         searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override public boolean onQueryTextSubmit(String query) { return false; }
             @Override public boolean onQueryTextChange(String newText) {
-                filterSongs(newText);
+                filterSongs(newText, true);
                 return true;
             }
         });
+
+        // Marca a ordenação atual no submenu "Ordenar por".
+        menu.findItem(sortMenuItemId(libraryViewModel.getSortMode())).setChecked(true);
         return true;
     }
 
-    //  Filtro com base na escrita ou texto
-    private void filterSongs(String text) {
-        List<Song> filteredList = new ArrayList<>();
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == R.id.action_browse_artists) {
+            startActivity(BrowseActivity.newIntent(this, BrowseActivity.MODE_ARTISTS));
+            return true;
+        }
+        if (item.getItemId() == R.id.action_browse_albums) {
+            startActivity(BrowseActivity.newIntent(this, BrowseActivity.MODE_ALBUMS));
+            return true;
+        }
+        if (item.getItemId() == R.id.action_browse_folders) {
+            startActivity(BrowseActivity.newIntent(this, BrowseActivity.MODE_FOLDERS));
+            return true;
+        }
+        for (SortMode mode : SortMode.values()) {
+            if (item.getItemId() == sortMenuItemId(mode)) {
+                item.setChecked(true);
+                if (mode != libraryViewModel.getSortMode()) {
+                    libraryViewModel.setSortMode(mode);
+                    // As ordens já vêm calculadas na fotografia: mudar é só trocar de lista, sem a comparar.
+                    filterSongs(libraryViewModel.getSearchQuery(), true);
+                    binding.recyclerViewSongs.scrollToPosition(0);
+                }
+                return true;
+            }
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private static int sortMenuItemId(SortMode mode) {
+        switch (mode) {
+            case ARTIST:
+                return R.id.action_sort_artist;
+            case DURATION:
+                return R.id.action_sort_duration;
+            case DATE_ADDED:
+                return R.id.action_sort_date_added;
+            default:
+                return R.id.action_sort_title;
+        }
+    }
+
+    /**
+     * Filtro com base na escrita ou texto.
+     * @param replace 'true' quando a lista muda por inteiro (pesquisa, ordem): é trocada sem a comparar com
+     *                a anterior. Com 'false' (biblioteca recarregada) o DiffUtil só atualiza as linhas alteradas.
+     */
+    private void filterSongs(String text, boolean replace) {
+        libraryViewModel.setSearchQuery(text);
+        // A lista vai ser substituída: os pedidos antecipados apontam para posições da lista antiga.
+        albumArtPrefetcher.cancelAll();
+        SortMode sortMode = libraryViewModel.getSortMode();
+        List<Song> songs = library.getSongs(sortMode);
         if (text.isEmpty()) {
-            filteredList.addAll(fullSongList);
-        } else {
-            String filterPattern = text.toLowerCase().trim();
-            for (Song song : fullSongList) {
-                if (song.getTitle().toLowerCase().contains(filterPattern) ||
-                        song.getArtist().toLowerCase().contains(filterPattern)) {
-                    filteredList.add(song);
+            // Sem pesquisa: a lista e as secções são as da biblioteca, já calculadas.
+            showSongs(songs, library.getSectionIndex(sortMode), replace);
+            return;
+        }
+        List<Song> filteredList = new ArrayList<>();
+        // As secções da lista filtrada são construídas durante a própria filtragem: a ordem da biblioteca
+        // é mantida, por isso basta registar a secção de cada música aceite.
+        SectionIndex.Builder sections = new SectionIndex.Builder();
+        boolean alphabetical = sortMode.isAlphabetical();
+        String filterPattern = text.toLowerCase().trim();
+        for (int i = 0; i < songs.size(); i++) {
+            Song song = songs.get(i);
+            if (song.getTitle().toLowerCase().contains(filterPattern) ||
+                    song.getArtist().toLowerCase().contains(filterPattern)) {
+                filteredList.add(song);
+                if (alphabetical) {
+                    sections.add(library.getSectionLabel(sortMode, library.getLibraryIndex(sortMode, i)));
                 }
             }
         }
-        songAdapter.setSongs(filteredList);
+        showSongs(filteredList, alphabetical ? sections.build() : SectionIndex.EMPTY, replace);
+    }
+
+    /**
+     * Entrega a lista ao adapter. As secções da barra de scroll rápido só mudam quando a lista nova
+     * já está a ser mostrada, para as suas posições apontarem sempre para a lista visível.
+     */
+    private void showSongs(List<Song> songs, SectionIndex sections, boolean replace) {
+        Runnable applySections = () -> binding.fastScroller.setSectionIndex(sections);
+        if (replace) {
+            songAdapter.replaceSongs(songs, applySections);
+        } else {
+            songAdapter.setSongs(songs, applySections);
+        }
     }
 
     private void setupRecyclerView() {
         // Em MainActivity.java, dentro de setupRecyclerView()
         songAdapter = new SongAdapter(this, null); // Passa null para o longClickListener
         binding.recyclerViewSongs.setLayoutManager(new LinearLayoutManager(this));
+        // Partilha as linhas de música com os outros ecrãs de listas.
+        SongRowPool.getInstance(this).attach(binding.recyclerViewSongs);
         binding.recyclerViewSongs.setAdapter(songAdapter);
+        // Antecipa as capas das linhas que vão aparecer durante o scroll.
+        albumArtPrefetcher = AlbumArtPrefetcher.attach(binding.recyclerViewSongs, songAdapter);
+        // Barra de scroll rápido por letra (as secções chegam com a biblioteca, em filterSongs).
+        binding.fastScroller.attachTo(binding.recyclerViewSongs);
+        // Em builds de debug, regista no Logcat o tempo dos frames durante o scroll.
+        frameTimingMonitor = FrameTimingMonitor.attach(this, binding.recyclerViewSongs, "Biblioteca");
     }
 
     private void loadSongs() {
-        // Processa as Musicas presentes do dispositivo
-        binding.progressBar.setVisibility(View.VISIBLE);
-        this.fullSongList = songRepository.getSongs(this);
-        songAdapter.setSongs(this.fullSongList);
-        binding.progressBar.setVisibility(View.GONE);
+        // Pede a biblioteca partilhada. Se já estiver carregada (ex: depois de uma rotação), não há I/O.
+        if (libraryViewModel.getLibrary().getValue() == null) {
+            binding.progressBar.setVisibility(View.VISIBLE);
+        }
+        libraryViewModel.loadLibrary();
+    }
+
+    private void observeLibrary() {
+        // Recebe a lista de músicas sempre que a biblioteca é (re)carregada.
+        libraryViewModel.getLibrary().observe(this, snapshot -> {
+            this.library = snapshot;
+            binding.progressBar.setVisibility(View.GONE);
+            // Reaplica a pesquisa que estava ativa (vazia = lista completa). A biblioteca nova é quase igual
+            // à anterior: a comparação é barata e mantém a posição do scroll.
+            filterSongs(libraryViewModel.getSearchQuery(), false);
+
+            if (restoreListStatePending) {
+                restoreListStatePending = false;
+                if (libraryViewModel.getListState() != null && binding.recyclerViewSongs.getLayoutManager() != null) {
+                    binding.recyclerViewSongs.getLayoutManager().onRestoreInstanceState(libraryViewModel.getListState());
+                }
+            }
+        });
     }
 
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        // Devolve as linhas visíveis ao pool partilhado para o próximo ecrã.
+        SongRowPool.getInstance(this).detach(binding.recyclerViewSongs);
+        albumArtPrefetcher.cancelAll();
+        if (frameTimingMonitor != null) {
+            frameTimingMonitor.detach();
+        }
         if (acrCloudClient != null) {
             acrCloudClient.release();
             acrCloudClient = null;
@@ -26,12 +26,16 @@ import androidx.core.content.ContextCompat;
 import androidx.media3.common.Player;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
-import com.bumptech.glide.Glide;
 import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.adapter.AlbumArtPrefetcher;
 import com.dev.mymusicapp.adapter.SongAdapter;
+import com.dev.mymusicapp.adapter.SongRowPool;
+import com.dev.mymusicapp.data.AlbumArtCache;
+import com.dev.mymusicapp.data.TagIndexer;
 import com.dev.mymusicapp.databinding.ActivityPlayerBinding;
 import com.dev.mymusicapp.model.Playlist;
 import com.dev.mymusicapp.model.Song;
+import com.dev.mymusicapp.model.SongTags;
 import com.dev.mymusicapp.presenter.PlayerContract;
 import com.dev.mymusicapp.presenter.PlayerPresenter;
 import com.dev.mymusicapp.service.MusicService;
@@ -39,6 +43,8 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -53,9 +59,11 @@ public class PlayerActivity extends AppCompatActivity implements PlayerContract.
     private ActivityPlayerBinding binding; // Objeto de ViewBinding para aceder às Views do layout de forma segura.
     private PlayerContract.Presenter presenter; // Referência ao Presenter que contém a lógica de negócio.
     private SongAdapter playerSongAdapter; // Adapter para o RecyclerView que mostra a lista "A Seguir".
+    private AlbumArtPrefetcher albumArtPrefetcher; // Carrega antecipadamente as capas da lista "A Seguir".
     private ObjectAnimator rotationAnimator; // Animador para a rotação da capa do álbum.
     private boolean isBound = false; // Flag para controlar o estado da conexão com o MusicService.
     private Menu optionsMenu; // Referência ao menu da Toolbar para poder alterá-lo dinamicamente.
+    private final ExecutorService tagExecutor = Executors.newSingleThreadExecutor(); // Lê as etiquetas guardadas (Room).
 
     /**
      * Objeto anónimo que gere a conexão (bind) com o MusicService.
@@ -122,13 +130,19 @@ public class PlayerActivity extends AppCompatActivity implements PlayerContract.
     private void startMusicService() {
         Intent intent = getIntent();
         Intent serviceIntent = new Intent(this, MusicService.class);
-        boolean startNewPlayback = intent != null && intent.hasExtra("SONG_LIST");
+        boolean playLibrary = intent != null && intent.getBooleanExtra("PLAY_LIBRARY", false);
+        boolean startNewPlayback = intent != null && (intent.hasExtra("SONG_LIST") || playLibrary);
 
         if (startNewPlayback) {
             // Se recebemos uma nova lista, passamos os dados para o serviço e iniciamo-lo.
-            ArrayList<Song> songList = (ArrayList<Song>) intent.getSerializableExtra("SONG_LIST");
             int currentPosition = intent.getIntExtra("CURRENT_POSITION", 0);
-            serviceIntent.putExtra("SONG_LIST", songList);
+            if (playLibrary) {
+                // A biblioteca inteira não viaja na Intent: o serviço lê-a da MusicLibrary partilhada.
+                serviceIntent.putExtra("PLAY_LIBRARY", true);
+            } else {
+                ArrayList<Song> songList = (ArrayList<Song>) intent.getSerializableExtra("SONG_LIST");
+                serviceIntent.putExtra("SONG_LIST", songList);
+            }
             serviceIntent.putExtra("CURRENT_POSITION", currentPosition);
             startService(serviceIntent);
         }
@@ -142,7 +156,11 @@ public class PlayerActivity extends AppCompatActivity implements PlayerContract.
     private void setupPlayerRecyclerView() {
         playerSongAdapter = new SongAdapter(this, null); // Passa 'this' como listener de clique e 'null' para o clique longo.
         binding.playerRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        // Partilha as linhas de música com os outros ecrãs de listas.
+        SongRowPool.getInstance(this).attach(binding.playerRecyclerView);
         binding.playerRecyclerView.setAdapter(playerSongAdapter);
+        // Antecipa as capas das linhas que vão aparecer durante o scroll.
+        albumArtPrefetcher = AlbumArtPrefetcher.attach(binding.playerRecyclerView, playerSongAdapter);
     }
 
     /**
@@ -219,12 +237,10 @@ public class PlayerActivity extends AppCompatActivity implements PlayerContract.
         binding.titleTextView.setText(song.getTitle());
         binding.artistTextView.setText(song.getArtist());
 
-        Glide.with(this)
-                .load(song.getAlbumArtUri())
-                .placeholder(R.drawable.album_art_placeholder)
-                .error(R.drawable.ic_music_note) // Mostra a nota musical se não houver capa.
-                .circleCrop()
-                .into(binding.albumArtImageView);
+        // A cache guarda uma miniatura circular por álbum e por tamanho; se o álbum não tiver capa,
+        // fica a nota musical.
+        AlbumArtCache.getInstance(this).loadInto(binding.albumArtImageView, song.getAlbumId(),
+                getResources().getDimensionPixelSize(R.dimen.album_art_player_size), R.drawable.ic_music_note);
     }
 
     /**
@@ -246,6 +262,7 @@ public class PlayerActivity extends AppCompatActivity implements PlayerContract.
                     "Duração: " + formatTime(song.getDuration()) + "\n\n" +
                     "Caminho: " + song.getDataPath();
             binding.detailsText.setText(details);
+            showStoredTags(song, details);
         } else {
             // Esconde os detalhes e mostra a playlist.
             binding.detailsContainer.setVisibility(View.GONE);
@@ -253,6 +270,27 @@ public class PlayerActivity extends AppCompatActivity implements PlayerContract.
         }
     }
 
+    /**
+     * Acrescenta aos detalhes as etiquetas lidas do ficheiro pelo TagIndexer, se já tiver sido indexado.
+     */
+    private void showStoredTags(Song song, String details) {
+        tagExecutor.execute(() -> {
+            SongTags tags = TagIndexer.getInstance(this).getTags(song.getDataPath());
+            if (tags == null) return;
+            StringBuilder text = new StringBuilder(details);
+            if (tags.album != null) text.append("\n\nÁlbum: ").append(tags.album);
+            if (tags.trackNumber > 0) text.append("\n\nFaixa: ").append(tags.trackNumber);
+            if (tags.genre != null) text.append("\n\nGénero: ").append(tags.genre);
+            if (tags.year > 0) text.append("\n\nAno: ").append(tags.year);
+            runOnUiThread(() -> {
+                // Só se os detalhes ainda forem desta música.
+                if (!isDestroyed() && details.contentEquals(binding.detailsText.getText())) {
+                    binding.detailsText.setText(text);
+                }
+            });
+        });
+    }
+
     @Override
     public void updateProgress(long currentPosition, long duration) {
         binding.seekBar.setMax((int) duration);
@@ -275,8 +313,9 @@ public class PlayerActivity extends AppCompatActivity implements PlayerContract.
     }
 
     @Override
-    public void updateShuffleRepeatUI(boolean isShuffleOn, int repeatMode) {
-        binding.shuffleButton.setImageTintList(ColorStateList.valueOf(ContextCompat.getColor(this, isShuffleOn ? R.color.teal_200 : android.R.color.white)));
+    public void updateShuffleRepeatUI(boolean isShuffleOn, boolean isSmartShuffle, int repeatMode) {
+        int shuffleColor = !isShuffleOn ? android.R.color.white : isSmartShuffle ? R.color.purple_200 : R.color.teal_200;
+        binding.shuffleButton.setImageTintList(ColorStateList.valueOf(ContextCompat.getColor(this, shuffleColor)));
         if (repeatMode == Player.REPEAT_MODE_OFF) {
             binding.repeatButton.setImageResource(R.drawable.ic_repeat);
             binding.repeatButton.setImageTintList(ColorStateList.valueOf(ContextCompat.getColor(this, android.R.color.white)));
@@ -333,6 +372,8 @@ public class PlayerActivity extends AppCompatActivity implements PlayerContract.
     @Override
     public void updatePlaylist(List<Song> songs) {
         if (playerSongAdapter != null) {
+            // A fila mudou: os pedidos antecipados apontam para posições da fila antiga.
+            albumArtPrefetcher.cancelAll();
             playerSongAdapter.setSongs(songs);
         }
     }
@@ -365,6 +406,10 @@ public class PlayerActivity extends AppCompatActivity implements PlayerContract.
         super.onDestroy();
         // Avisa o Presenter para se desanexar da View.
         presenter.detachView();
+        tagExecutor.shutdownNow();
+        if (albumArtPrefetcher != null) {
+            albumArtPrefetcher.cancelAll();
+        }
         // Se a Activity estiver conectada ao serviço, desconecta-se.
         if (isBound) {
             unbindService(connection);
@@ -374,5 +419,7 @@ public class PlayerActivity extends AppCompatActivity implements PlayerContract.
         if (rotationAnimator != null) {
             rotationAnimator.cancel();
         }
+        // Devolve as linhas da fila ao pool partilhado.
+        SongRowPool.getInstance(this).detach(binding.playerRecyclerView);
     }
 }
\ No newline at end of file
@@ -8,6 +8,8 @@ import android.content.Intent;
 import android.content.ServiceConnection;
 import android.os.Bundle;
 import android.os.IBinder;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.Toast;
 
@@ -15,6 +17,7 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
 import androidx.core.app.ActivityOptionsCompat;
 import androidx.core.view.ViewCompat;
 import androidx.media3.common.MediaItem;
@@ -22,9 +25,14 @@ import androidx.media3.common.Player;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.adapter.AlbumArtPrefetcher;
 import com.dev.mymusicapp.adapter.SongAdapter;
+import com.dev.mymusicapp.adapter.SongRowPool;
 import com.dev.mymusicapp.data.AppDatabase;
+import com.dev.mymusicapp.data.LibrarySnapshot;
+import com.dev.mymusicapp.data.MusicLibrary;
 import com.dev.mymusicapp.databinding.ActivityPlaylistDetailBinding;
+import com.dev.mymusicapp.model.Playlist;
 import com.dev.mymusicapp.model.PlaylistSongCrossRef;
 import com.dev.mymusicapp.model.PlaylistWithSongs;
 import com.dev.mymusicapp.model.Song;
@@ -32,7 +40,11 @@ import com.dev.mymusicapp.service.MusicService;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -46,9 +58,13 @@ public class PlaylistDetailActivity extends AppCompatActivity implements SongAda
     private ActivityPlaylistDetailBinding binding; // Objeto de ViewBinding para a UI.
     private AppDatabase db; // Instância do banco de dados Room.
     private SongAdapter songAdapter; // Adapter para a lista de músicas.
+    private AlbumArtPrefetcher albumArtPrefetcher; // Carrega antecipadamente as capas durante o scroll.
+    private FrameTimingMonitor frameTimingMonitor; // Tempo dos frames durante o scroll (só em debug).
     private ExecutorService executorService; // Para executar tarefas de banco de dados em background.
     private PlaylistWithSongs currentPlaylist; // Objeto que contém a playlist e a sua lista de músicas.
     private int playlistId = -1; // ID da playlist que está a ser exibida.
+    private ActionMode selectionActionMode; // A barra de ações da seleção múltipla, quando está ativa.
+    private Set<String> missingPaths = Collections.emptySet(); // Músicas da playlist cujo ficheiro já não existe (ver SongReconciler).
 
     // Variáveis para a conexão com o MusicService.
     private MusicService musicService;
@@ -64,11 +80,12 @@ public class PlaylistDetailActivity extends AppCompatActivity implements SongAda
             result -> {
                 // Este bloco é executado quando a SelectSongsActivity se fecha.
                 if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
-                    // Se o resultado for OK, extrai a lista de músicas selecionadas.
-                    List<Song> selectedSongs = (List<Song>) result.getData().getSerializableExtra("SELECTED_SONGS");
-                    if (selectedSongs != null && !selectedSongs.isEmpty()) {
+                    // Se o resultado for OK, extrai as posições selecionadas na biblioteca.
+                    long[] selectedPositions = result.getData().getLongArrayExtra(SelectSongsActivity.EXTRA_SELECTED_POSITIONS);
+                    long libraryVersion = result.getData().getLongExtra(SelectSongsActivity.EXTRA_LIBRARY_VERSION, -1);
+                    if (selectedPositions != null && selectedPositions.length > 0) {
                         // Chama o metodo para adicionar as músicas à base de dados.
-                        addSongsToPlaylist(selectedSongs);
+                        addSongsToPlaylist(BitSet.valueOf(selectedPositions), libraryVersion);
                     }
                 }
             });
@@ -137,9 +154,9 @@ public class PlaylistDetailActivity extends AppCompatActivity implements SongAda
             }
         };
 
-        // Se recebemos um ID válido, carregamos as músicas da playlist.
+        // Se recebemos um ID válido, passamos a observar as músicas da playlist.
         if (playlistId != -1) {
-            loadSongsFromPlaylist(playlistId);
+            observeSongsFromPlaylist(playlistId);
         }
     }
 
@@ -166,30 +183,52 @@ public class PlaylistDetailActivity extends AppCompatActivity implements SongAda
         }
     }
 
+    /**
+     * Devolve as linhas visíveis ao pool partilhado quando a Activity é destruída.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        SongRowPool.getInstance(this).detach(binding.recyclerViewSongsInPlaylist);
+        albumArtPrefetcher.cancelAll();
+        if (frameTimingMonitor != null) {
+            frameTimingMonitor.detach();
+        }
+    }
+
     /**
      * Adiciona uma lista de músicas à playlist atual no banco de dados.
      * A operação é executada numa thread de background.
      */
-    private void addSongsToPlaylist(List<Song> songsToAdd) {
+    private void addSongsToPlaylist(BitSet selectedPositions, long libraryVersion) {
         executorService.execute(() -> {
-            int newSongsCount = 0;
-            for (Song song : songsToAdd) {
-                // Verifica se a música já existe para evitar duplicados.
-                if (db.playlistDao().countSongInPlaylist(playlistId, song.getDataPath()) == 0) {
-                    db.playlistDao().insertSong(song);
-                    PlaylistSongCrossRef crossRef = new PlaylistSongCrossRef();
-                    crossRef.playlistId = playlistId;
-                    crossRef.dataPath = song.getDataPath();
-                    db.playlistDao().insertPlaylistSongCrossRef(crossRef);
-                    newSongsCount++;
-                }
+            // As posições referem-se à fotografia da biblioteca que a SelectSongsActivity mostrou.
+            LibrarySnapshot library = MusicLibrary.getInstance(this).awaitSnapshot();
+            if (library.getVersion() != libraryVersion) {
+                // A biblioteca foi recarregada entretanto: as posições já não apontam para as mesmas músicas.
+                runOnUiThread(() -> Toast.makeText(this, "A biblioteca mudou. Selecione as músicas novamente.", Toast.LENGTH_SHORT).show());
+                return;
             }
-            // Exibe uma mensagem de confirmação e atualiza a UI na thread principal.
-            int finalNewSongsCount = newSongsCount;
-            runOnUiThread(() -> {
-                loadSongsFromPlaylist(playlistId);
-                Toast.makeText(this, finalNewSongsCount + " novas músicas adicionadas.", Toast.LENGTH_SHORT).show();
+            List<Song> songs = library.getSongs();
+            int[] newSongsCount = {0};
+            // Todas as inserções correm numa única transação, para que o Room invalide a consulta
+            // observada uma só vez no fim, em vez de uma vez por música.
+            db.runInTransaction(() -> {
+                for (int i = selectedPositions.nextSetBit(0); i >= 0 && i < songs.size(); i = selectedPositions.nextSetBit(i + 1)) {
+                    Song song = songs.get(i);
+                    // Verifica se a música já existe para evitar duplicados.
+                    if (db.playlistDao().countSongInPlaylist(playlistId, song.getDataPath()) == 0) {
+                        db.playlistDao().insertSong(song);
+                        PlaylistSongCrossRef crossRef = new PlaylistSongCrossRef();
+                        crossRef.playlistId = playlistId;
+                        crossRef.dataPath = song.getDataPath();
+                        db.playlistDao().insertPlaylistSongCrossRef(crossRef);
+                        newSongsCount[0]++;
+                    }
+                }
             });
+            // A lista atualiza-se sozinha através do LiveData; aqui só mostramos a confirmação.
+            runOnUiThread(() -> Toast.makeText(this, newSongsCount[0] + " novas músicas adicionadas.", Toast.LENGTH_SHORT).show());
         });
     }
 
@@ -211,24 +250,34 @@ public class PlaylistDetailActivity extends AppCompatActivity implements SongAda
     private void setupRecyclerView() {
         songAdapter = new SongAdapter(this, this);
         binding.recyclerViewSongsInPlaylist.setLayoutManager(new LinearLayoutManager(this));
+        // Partilha as linhas de música com os outros ecrãs de listas.
+        SongRowPool.getInstance(this).attach(binding.recyclerViewSongsInPlaylist);
         binding.recyclerViewSongsInPlaylist.setAdapter(songAdapter);
+        // Antecipa as capas das linhas que vão aparecer durante o scroll.
+        albumArtPrefetcher = AlbumArtPrefetcher.attach(binding.recyclerViewSongsInPlaylist, songAdapter);
+        // Em builds de debug, regista no Logcat o tempo dos frames durante o scroll.
+        frameTimingMonitor = FrameTimingMonitor.attach(this, binding.recyclerViewSongsInPlaylist, "Playlist");
     }
 
     /**
-     * Carrega as músicas da playlist especificada a partir do banco de dados.
-     * A operação é executada numa thread de background.
+     * Observa as músicas da playlist especificada no banco de dados.
+     * O Room executa a consulta em background e volta a emiti-la apenas quando as tabelas
+     * envolvidas mudam, por isso não é preciso recarregar a playlist depois de cada escrita.
      */
-    private void loadSongsFromPlaylist(int playlistId) {
-        executorService.execute(() -> {
-            currentPlaylist = db.playlistDao().getPlaylistWithSongs(playlistId);
-            runOnUiThread(() -> {
-                if (currentPlaylist != null) {
-                    songAdapter.setSongs(currentPlaylist.songs);
-                    // Após carregar a lista, atualiza o destaque.
-                    updateHighlight();
-                }
-            });
+    private void observeSongsFromPlaylist(int playlistId) {
+        db.playlistDao().observePlaylistWithSongs(playlistId).observe(this, playlistWithSongs -> {
+            currentPlaylist = playlistWithSongs;
+            if (currentPlaylist != null) {
+                // O adapter compara a nova lista com a anterior e só atualiza as linhas alteradas.
+                // As posições dos pedidos antecipados podem ter mudado: cancelam-se.
+                albumArtPrefetcher.cancelAll();
+                songAdapter.setSongs(currentPlaylist.songs);
+                // Após receber a lista, atualiza o destaque.
+                updateHighlight();
+            }
         });
+        // As músicas cujo ficheiro desapareceu continuam na lista, mas não entram na fila de reprodução.
+        db.songReconcileDao().observeMissingInPlaylist(playlistId).observe(this, paths -> missingPaths = new HashSet<>(paths));
     }
 
     /**
@@ -243,11 +292,18 @@ public class PlaylistDetailActivity extends AppCompatActivity implements SongAda
         if (isBound && musicService != null && musicService.isSongPlaying(song.getDataPath())) {
             // A intent vai vazia para sinalizar à PlayerActivity para apenas se conectar.
         } else {
-            // Se for uma nova música, envia a lista de reprodução atual e a posição.
+            if (missingPaths.contains(song.getDataPath())) {
+                Toast.makeText(this, "O ficheiro desta música já não existe.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            // Se for uma nova música, envia a lista de reprodução atual (sem os ficheiros em falta) e a posição.
             if (currentPlaylist != null && !currentPlaylist.songs.isEmpty()) {
-                int position = currentPlaylist.songs.indexOf(song);
-                intent.putExtra("SONG_LIST", (ArrayList<Song>) currentPlaylist.songs);
-                intent.putExtra("CURRENT_POSITION", position);
+                ArrayList<Song> queue = new ArrayList<>(currentPlaylist.songs.size());
+                for (Song candidate : currentPlaylist.songs) {
+                    if (!missingPaths.contains(candidate.getDataPath())) queue.add(candidate);
+                }
+                intent.putExtra("SONG_LIST", queue);
+                intent.putExtra("CURRENT_POSITION", queue.indexOf(song));
             }
         }
 
@@ -262,42 +318,122 @@ public class PlaylistDetailActivity extends AppCompatActivity implements SongAda
 
     /**
      * Callback do SongAdapter quando uma música sofre um clique longo.
-     * Mostra um diálogo de confirmação para remover a música.
+     * Entra no modo de seleção múltipla, com esta música já selecionada.
      */
     @Override
-    public void onSongLongClick(Song song) {
+    public void onSongLongClick(Song song, int position) {
+        if (selectionActionMode == null) {
+            selectionActionMode = startSupportActionMode(selectionCallback);
+        }
+        songAdapter.startSelection(position);
+    }
+
+    // --- Seleção múltipla ---
+
+    /**
+     * A barra de ações da seleção: remover, copiar ou mover as músicas selecionadas.
+     * Cada ação é uma única transação no DAO sobre a lista de caminhos; a lista observada volta a emitir
+     * uma vez no fim e o AsyncListDiffer do adapter anima só as linhas que mudaram.
+     */
+    private final ActionMode.Callback selectionCallback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            mode.getMenuInflater().inflate(R.menu.playlist_selection_menu, menu);
+            songAdapter.setOnSelectionChangedListener(count -> {
+                if (count == 0) mode.finish();
+                else mode.setTitle(count + " selecionadas");
+            });
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            List<String> selected = songAdapter.getSelectedPaths();
+            if (item.getItemId() == R.id.action_select_all_songs) {
+                songAdapter.selectAll();
+            } else if (item.getItemId() == R.id.action_remove_selected) {
+                confirmRemoveSelected(selected);
+            } else if (item.getItemId() == R.id.action_copy_to_playlist) {
+                chooseTargetPlaylist(selected, false);
+            } else if (item.getItemId() == R.id.action_move_to_playlist) {
+                chooseTargetPlaylist(selected, true);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            songAdapter.setOnSelectionChangedListener(null);
+            songAdapter.clearSelection();
+            selectionActionMode = null;
+        }
+    };
+
+    private void finishSelection() {
+        if (selectionActionMode != null) selectionActionMode.finish();
+    }
+
+    private void confirmRemoveSelected(List<String> dataPaths) {
         new MaterialAlertDialogBuilder(this, R.style.ThemeOverlay_App_AlertDialog_Destructive)
-                .setTitle("Remover Música")
-                .setMessage("Tem a certeza que quer remover '" + song.getTitle() + "' desta playlist?")
+                .setTitle("Remover Músicas")
+                .setMessage("Tem a certeza que quer remover " + dataPaths.size() + " músicas desta playlist?")
                 .setIcon(R.drawable.ic_delete_warning)
                 .setNegativeButton("Não", null)
                 .setPositiveButton("Sim, remover", (dialog, which) -> {
-                    deleteSongFromPlaylist(song);
+                    finishSelection();
+                    executorService.execute(() -> {
+                        db.playlistDao().deleteSongsFromPlaylist(playlistId, dataPaths);
+                        // A remoção chega à lista através do LiveData; aqui só mostramos a confirmação.
+                        runOnUiThread(() -> Toast.makeText(this, dataPaths.size() + " músicas removidas", Toast.LENGTH_SHORT).show());
+                    });
                 })
                 .show();
     }
 
     /**
-     * Remove uma música da playlist atual no banco de dados.
-     * A operação é executada numa thread de background.
+     * Mostra as outras playlists para escolher o destino de uma cópia ou de uma mudança.
      */
-    private void deleteSongFromPlaylist(Song song) {
+    private void chooseTargetPlaylist(List<String> dataPaths, boolean move) {
         executorService.execute(() -> {
-            db.playlistDao().deleteSongFromPlaylist(playlistId, song.getDataPath());
-            // Atualiza a UI na thread principal.
+            List<Playlist> targets = new ArrayList<>();
+            for (Playlist playlist : db.playlistDao().getAllPlaylists()) {
+                if (playlist.playlistId != playlistId) targets.add(playlist);
+            }
             runOnUiThread(() -> {
-                loadSongsFromPlaylist(playlistId);
-                Toast.makeText(this, "Música removida", Toast.LENGTH_SHORT).show();
+                if (targets.isEmpty()) {
+                    Toast.makeText(this, "Não há outra playlist.", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                String[] names = new String[targets.size()];
+                for (int i = 0; i < names.length; i++) names[i] = targets.get(i).name;
+                new MaterialAlertDialogBuilder(this, R.style.ThemeOverlay_App_AlertDialog_Neutral)
+                        .setTitle(move ? "Mover para" : "Copiar para")
+                        .setItems(names, (dialog, which) -> {
+                            finishSelection();
+                            transferSongs(dataPaths, targets.get(which), move);
+                        })
+                        .setNegativeButton("Cancelar", null)
+                        .show();
             });
         });
     }
 
-    /**
-     * Metodo que foi refatorado, mas cuja chamada pode permanecer em algum lugar.
-     * A lógica foi movida para dentro do 'deleteSongFromPlaylist' para maior clareza.
-     */
-    private void loadSongsFromPlaylistAfterUpdate() {
-        loadSongsFromPlaylist(playlistId);
-        Toast.makeText(this, "Música removida", Toast.LENGTH_SHORT).show();
+    private void transferSongs(List<String> dataPaths, Playlist target, boolean move) {
+        executorService.execute(() -> {
+            if (move) {
+                db.playlistDao().moveSongsToPlaylist(playlistId, target.playlistId, dataPaths);
+            } else {
+                db.playlistDao().copySongsToPlaylist(playlistId, target.playlistId, dataPaths);
+            }
+            String message = dataPaths.size() + (move ? " músicas movidas para '" : " músicas copiadas para '") + target.name + "'";
+            runOnUiThread(() -> Toast.makeText(this, message, Toast.LENGTH_SHORT).show());
+        });
     }
 }
\ No newline at end of file
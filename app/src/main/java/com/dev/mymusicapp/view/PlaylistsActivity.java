@@ -4,20 +4,33 @@ package com.dev.mymusicapp.view;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.database.Cursor;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.Looper;
+import android.provider.OpenableColumns;
 import android.text.InputType;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.ProgressBar;
+import android.widget.RadioButton;
+import android.widget.Spinner;
+import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.acrcloud.rec.ACRCloudClient;
@@ -26,9 +39,18 @@ import com.acrcloud.rec.ACRCloudResult;
 import com.acrcloud.rec.IACRCloudListener;
 import com.dev.mymusicapp.R;
 import com.dev.mymusicapp.adapter.PlaylistAdapter;
+import com.dev.mymusicapp.adapter.SmartListAdapter;
 import com.dev.mymusicapp.data.AppDatabase;
+import com.dev.mymusicapp.data.MusicLibrary;
+import com.dev.mymusicapp.data.PlaylistFiles;
+import com.dev.mymusicapp.data.PlaylistSetOperation;
+import com.dev.mymusicapp.data.RuleField;
+import com.dev.mymusicapp.data.SmartLists;
 import com.dev.mymusicapp.databinding.ActivityPlaylistsBinding;
 import com.dev.mymusicapp.model.Playlist;
+import com.dev.mymusicapp.model.PlaylistRule;
+import com.dev.mymusicapp.model.RulePlaylist;
+import com.dev.mymusicapp.model.SmartList;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.textfield.TextInputEditText;
 
@@ -36,6 +58,10 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -44,13 +70,32 @@ import java.util.concurrent.Executors;
  * PlaylistsActivity é a tela responsável por exibir e gerir as playlists do utilizador.
  * Ela implementa listeners para cliques no adapter e para os resultados da ACRCloud.
  */
-public class PlaylistsActivity extends AppCompatActivity implements PlaylistAdapter.OnPlaylistClickListener, IACRCloudListener, PlaylistAdapter.OnPlaylistLongClickListener {
+public class PlaylistsActivity extends AppCompatActivity implements PlaylistAdapter.OnPlaylistClickListener, IACRCloudListener, PlaylistAdapter.OnPlaylistLongClickListener,
+        SmartListAdapter.OnSmartListClickListener, SmartListAdapter.OnSmartListLongClickListener {
 
     // --- Variáveis de Membro ---
     private ActivityPlaylistsBinding binding; // Objeto de ViewBinding para a UI.
     private AppDatabase db; // Instância da base de dados.
     private PlaylistAdapter adapter; // Adapter para o RecyclerView que mostra as playlists.
+    private SmartListAdapter smartListAdapter; // As listas inteligentes, mostradas antes das playlists.
     private ExecutorService executorService; // Para executar tarefas de base de dados em background.
+    private List<Playlist> playlists = new ArrayList<>(); // As playlists mostradas (para escolher a segunda numa combinação).
+
+    // A playlist a exportar enquanto o utilizador escolhe o ficheiro de destino.
+    private Playlist pendingExport;
+
+    // Importação e exportação de M3U pelo Storage Access Framework: o utilizador escolhe o ficheiro, sem permissões extra.
+    private final ActivityResultLauncher<String[]> importPlaylistLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(),
+            uri -> {
+                if (uri != null) importPlaylist(uri);
+            });
+    private final ActivityResultLauncher<String> exportPlaylistLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("audio/x-mpegurl"),
+            uri -> {
+                if (uri != null && pendingExport != null) exportPlaylist(pendingExport, uri);
+                pendingExport = null;
+            });
 
     // Flag para controlar o estado (aberto/fechado) do menu FAB.
     private boolean isFabMenuOpen = false;
@@ -81,7 +126,7 @@ public class PlaylistsActivity extends AppCompatActivity implements PlaylistAdap
 
         // Configuração da UI e carregamento dos dados iniciais.
         setupRecyclerView();
-        loadPlaylists();
+        observePlaylists();
         setupFabMenu();
         setupAcrCloud();
     }
@@ -91,8 +136,11 @@ public class PlaylistsActivity extends AppCompatActivity implements PlaylistAdap
      */
     private void setupRecyclerView() {
         adapter = new PlaylistAdapter(this, this);
+        smartListAdapter = new SmartListAdapter(this, this);
+        smartListAdapter.setLists(SmartLists.getAll());
         binding.recyclerViewPlaylists.setLayoutManager(new LinearLayoutManager(this));
-        binding.recyclerViewPlaylists.setAdapter(adapter);
+        // As listas inteligentes primeiro e depois as playlists do utilizador, na mesma lista.
+        binding.recyclerViewPlaylists.setAdapter(new ConcatAdapter(smartListAdapter, adapter));
     }
 
     /**
@@ -101,17 +149,93 @@ public class PlaylistsActivity extends AppCompatActivity implements PlaylistAdap
      */
     private void deletePlaylist(Playlist playlist) {
         executorService.execute(() -> {
-            // É importante apagar primeiro as referências na tabela de junção.
-            db.playlistDao().deleteCrossRefsByPlaylistId(playlist.playlistId);
-            // Depois, apaga a playlist da tabela principal.
-            db.playlistDao().deletePlaylistById(playlist.playlistId);
-            // Recarrega a lista de playlists para atualizar a UI.
-            loadPlaylists();
+            // As duas remoções correm numa transação, para que a lista observada só seja invalidada uma vez.
+            db.runInTransaction(() -> {
+                // É importante apagar primeiro as referências na tabela de junção.
+                db.playlistDao().deleteCrossRefsByPlaylistId(playlist.playlistId);
+                // Depois, apaga a playlist da tabela principal.
+                db.playlistDao().deletePlaylistById(playlist.playlistId);
+            });
+            // Não é preciso recarregar: o LiveData volta a emitir a lista sem a playlist apagada.
             // Mostra uma confirmação ao utilizador na thread principal.
             runOnUiThread(() -> Toast.makeText(this, "Playlist apagada.", Toast.LENGTH_SHORT).show());
         });
     }
 
+    // --- Importação e exportação (M3U/M3U8/PLS) ---
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.playlists_menu, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == R.id.action_import_playlist) {
+            // Os tipos com que os gestores de ficheiros costumam identificar M3U e PLS.
+            importPlaylistLauncher.launch(new String[]{"audio/x-mpegurl", "audio/mpegurl", "application/vnd.apple.mpegurl",
+                    "application/x-mpegurl", "audio/x-scpls", "text/plain", "application/octet-stream"});
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * Importa o ficheiro escolhido como uma playlist nova, com o nome do ficheiro.
+     */
+    private void importPlaylist(Uri uri) {
+        String name = playlistNameFromUri(uri);
+        Toast.makeText(this, "A importar '" + name + "'...", Toast.LENGTH_SHORT).show();
+        executorService.execute(() -> {
+            String message;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) throw new IOException("Sem acesso a " + uri);
+                PlaylistFiles.ImportResult result = PlaylistFiles.importPlaylist(db,
+                        MusicLibrary.getInstance(this).awaitSnapshot(), in, name);
+                if (result.playlistId < 0) {
+                    message = "Nenhuma música do ficheiro foi encontrada na biblioteca.";
+                } else {
+                    message = result.matched + " músicas importadas"
+                            + (result.missing > 0 ? " (" + result.missing + " não encontradas)." : ".");
+                }
+            } catch (IOException | SecurityException e) {
+                message = "Não foi possível ler o ficheiro.";
+            }
+            String finalMessage = message;
+            runOnUiThread(() -> Toast.makeText(this, finalMessage, Toast.LENGTH_LONG).show());
+        });
+    }
+
+    private void exportPlaylist(Playlist playlist, Uri uri) {
+        executorService.execute(() -> {
+            String message;
+            try (OutputStream out = getContentResolver().openOutputStream(uri)) {
+                if (out == null) throw new IOException("Sem acesso a " + uri);
+                int written = PlaylistFiles.exportPlaylist(db, playlist.playlistId, out);
+                message = "Playlist exportada (" + written + " músicas).";
+            } catch (IOException | SecurityException e) {
+                message = "Não foi possível escrever o ficheiro.";
+            }
+            String finalMessage = message;
+            runOnUiThread(() -> Toast.makeText(this, finalMessage, Toast.LENGTH_SHORT).show());
+        });
+    }
+
+    // O nome do ficheiro sem a extensão (ex: "Ginásio.m3u8" → "Ginásio").
+    @NonNull
+    private String playlistNameFromUri(Uri uri) {
+        String name = null;
+        try (Cursor cursor = getContentResolver().query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) name = cursor.getString(0);
+        } catch (SecurityException ignored) {
+            // Fica o nome por omissão.
+        }
+        if (name == null || name.isEmpty()) return "Playlist importada";
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
     // --- LÓGICA DO MULTI-FAB ---
 
     /**
@@ -213,14 +337,16 @@ public class PlaylistsActivity extends AppCompatActivity implements PlaylistAdap
     public void onVolumeChanged(double volume) {}
 
     /**
-     * Carrega a lista de playlists do banco de dados e atualiza o adapter.
-     * A operação é executada numa thread de background.
+     * Observa a lista de playlists do banco de dados e atualiza o adapter.
+     * O Room executa a consulta em background e só volta a emitir quando a tabela 'playlists' muda.
      */
-    private void loadPlaylists() {
-        executorService.execute(() -> {
-            List<Playlist> playlists = db.playlistDao().getAllPlaylists();
-            runOnUiThread(() -> adapter.setPlaylists(playlists));
+    private void observePlaylists() {
+        db.playlistDao().observeAllPlaylists().observe(this, playlists -> {
+            this.playlists = playlists;
+            adapter.setPlaylists(playlists);
         });
+        // As playlists com regras aparecem junto das listas inteligentes.
+        db.rulePlaylistDao().observeAll().observe(this, rulePlaylists -> smartListAdapter.setLists(SmartLists.withRulePlaylists(rulePlaylists)));
     }
 
     /**
@@ -301,6 +427,36 @@ public class PlaylistsActivity extends AppCompatActivity implements PlaylistAdap
         startActivity(intent);
     }
 
+    /**
+     * Abre uma lista inteligente (ex: "Mais ouvidas").
+     */
+    @Override
+    public void onSmartListClick(SmartList list) {
+        startActivity(SmartListActivity.newIntent(this, list));
+    }
+
+    /**
+     * Clique longo numa lista inteligente: as playlists com regras podem ser apagadas, as listas fixas não.
+     */
+    @Override
+    public void onSmartListLongClick(SmartList list) {
+        int rulePlaylistId = SmartLists.getRulePlaylistId(list.key);
+        if (rulePlaylistId < 0) return;
+        new MaterialAlertDialogBuilder(this, R.style.ThemeOverlay_App_AlertDialog_Destructive)
+                .setTitle("Apagar Playlist")
+                .setMessage("Tem a certeza que quer apagar a playlist '" + list.name + "'? Esta ação não pode ser desfeita.")
+                .setIcon(R.drawable.ic_delete_warning)
+                .setNegativeButton("Não", (dialog, which) -> dialog.dismiss())
+                .setPositiveButton("Sim, apagar", (dialog, which) -> executorService.execute(() -> {
+                    db.runInTransaction(() -> {
+                        db.rulePlaylistDao().deleteRules(rulePlaylistId);
+                        db.rulePlaylistDao().deletePlaylist(rulePlaylistId);
+                    });
+                    runOnUiThread(() -> Toast.makeText(this, "Playlist apagada.", Toast.LENGTH_SHORT).show());
+                }))
+                .show();
+    }
+
     /**
      * Chamado quando a Activity é destruída. Liberta recursos.
      */
@@ -315,10 +471,78 @@ public class PlaylistsActivity extends AppCompatActivity implements PlaylistAdap
 
     /**
      * Callback do PlaylistAdapter quando uma playlist sofre um clique longo.
-     * Mostra o diálogo de confirmação para apagar.
+     * Mostra as ações sobre a playlist: duplicar, combinar com outra, exportar ou apagar.
      */
     @Override
     public void onPlaylistLongClick(Playlist playlist) {
+        String[] actions = {"Duplicar", "Combinar com outra playlist", "Exportar (M3U)", "Apagar"};
+        new MaterialAlertDialogBuilder(this, R.style.ThemeOverlay_App_AlertDialog_Neutral)
+                .setTitle(playlist.name)
+                .setItems(actions, (dialog, which) -> {
+                    if (which == 0) duplicatePlaylist(playlist);
+                    else if (which == 1) showCombinePlaylistDialog(playlist);
+                    else if (which == 2) {
+                        pendingExport = playlist;
+                        exportPlaylistLauncher.launch(playlist.name + ".m3u8");
+                    }
+                    else confirmDeletePlaylist(playlist);
+                })
+                .show();
+    }
+
+    /**
+     * Duplica a playlist; as músicas são copiadas dentro do SQLite (ver PlaylistDao.duplicatePlaylist).
+     */
+    private void duplicatePlaylist(Playlist playlist) {
+        executorService.execute(() -> {
+            db.playlistDao().duplicatePlaylist(playlist.playlistId, playlist.name + " (cópia)");
+            runOnUiThread(() -> Toast.makeText(this, "Playlist duplicada.", Toast.LENGTH_SHORT).show());
+        });
+    }
+
+    /**
+     * Escolhe a segunda playlist e depois a operação; o resultado é uma playlist nova (ex: "Ginásio − Relax").
+     */
+    private void showCombinePlaylistDialog(Playlist first) {
+        List<Playlist> others = new ArrayList<>();
+        for (Playlist candidate : playlists) {
+            if (candidate.playlistId != first.playlistId) others.add(candidate);
+        }
+        if (others.isEmpty()) {
+            Toast.makeText(this, "Não há outra playlist para combinar.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String[] names = new String[others.size()];
+        for (int i = 0; i < names.length; i++) names[i] = others.get(i).name;
+        new MaterialAlertDialogBuilder(this, R.style.ThemeOverlay_App_AlertDialog_Neutral)
+                .setTitle("Combinar '" + first.name + "' com")
+                .setItems(names, (dialog, which) -> showSetOperationDialog(first, others.get(which)))
+                .setNegativeButton("Cancelar", (dialog, which) -> dialog.dismiss())
+                .show();
+    }
+
+    private void showSetOperationDialog(Playlist first, Playlist second) {
+        PlaylistSetOperation[] operations = PlaylistSetOperation.values();
+        String[] labels = new String[operations.length];
+        for (int i = 0; i < labels.length; i++) labels[i] = operations[i].getLabel();
+        new MaterialAlertDialogBuilder(this, R.style.ThemeOverlay_App_AlertDialog_Neutral)
+                .setTitle(first.name + " e " + second.name)
+                .setItems(labels, (dialog, which) -> {
+                    PlaylistSetOperation operation = operations[which];
+                    String name = operation.resultName(first.name, second.name);
+                    executorService.execute(() -> {
+                        db.playlistDao().createFromSetOperation(name, operation, first.playlistId, second.playlistId);
+                        runOnUiThread(() -> Toast.makeText(this, "Playlist '" + name + "' criada.", Toast.LENGTH_SHORT).show());
+                    });
+                })
+                .setNegativeButton("Cancelar", (dialog, which) -> dialog.dismiss())
+                .show();
+    }
+
+    /**
+     * Mostra o diálogo de confirmação para apagar.
+     */
+    private void confirmDeletePlaylist(Playlist playlist) {
         new MaterialAlertDialogBuilder(this, R.style.ThemeOverlay_App_AlertDialog_Destructive)
                 .setTitle("Apagar Playlist")
                 .setMessage("Tem a certeza que quer apagar a playlist '" + playlist.name + "'? Esta ação não pode ser desfeita.")
@@ -343,16 +567,86 @@ public class PlaylistsActivity extends AppCompatActivity implements PlaylistAdap
             if (!playlistName.isEmpty()) {
                 Playlist newPlaylist = new Playlist();
                 newPlaylist.name = playlistName;
-                executorService.execute(() -> {
-                    db.playlistDao().insertPlaylist(newPlaylist);
-                    loadPlaylists();
-                });
+                executorService.execute(() -> db.playlistDao().insertPlaylist(newPlaylist));
             }
         });
         builder.setNegativeButton("Cancelar", (dialog, which) -> dialog.cancel());
+        builder.setNeutralButton("Com regras", (dialog, which) -> showCreateRulePlaylistDialog());
         builder.show();
     }
 
+    /**
+     * Mostra o diálogo para criar uma playlist com regras: cada regra é um campo (com o operador incluído)
+     * e um valor; as músicas são calculadas pelas regras sempre que a lista é aberta.
+     */
+    private void showCreateRulePlaylistDialog() {
+        View dialogView = LayoutInflater.from(this).inflate(R.layout.dialog_create_rule_playlist, null);
+        TextInputEditText nameInput = dialogView.findViewById(R.id.edit_text_rule_playlist_name);
+        Spinner fieldSpinner = dialogView.findViewById(R.id.spinner_rule_field);
+        TextInputEditText valueInput = dialogView.findViewById(R.id.edit_text_rule_value);
+        TextView rulesText = dialogView.findViewById(R.id.text_view_rules);
+        RadioButton matchAll = dialogView.findViewById(R.id.radio_match_all);
+
+        RuleField[] fields = RuleField.values();
+        List<String> labels = new ArrayList<>(fields.length);
+        for (RuleField field : fields) labels.add(field.getLabel());
+        ArrayAdapter<String> fieldAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, labels);
+        fieldAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        fieldSpinner.setAdapter(fieldAdapter);
+        fieldSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                // Teclado numérico para as regras com números.
+                valueInput.setInputType(fields[position].isNumeric() ? InputType.TYPE_CLASS_NUMBER : InputType.TYPE_CLASS_TEXT);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        List<PlaylistRule> rules = new ArrayList<>();
+        dialogView.findViewById(R.id.button_add_rule).setOnClickListener(v -> {
+            String value = valueInput.getText() != null ? valueInput.getText().toString().trim() : "";
+            if (value.isEmpty()) return;
+            RuleField field = fields[fieldSpinner.getSelectedItemPosition()];
+            PlaylistRule rule = new PlaylistRule();
+            rule.field = field.name();
+            rule.value = value;
+            rules.add(rule);
+            valueInput.setText("");
+            // Mostra as regras já adicionadas, uma por linha.
+            StringBuilder summary = new StringBuilder();
+            for (PlaylistRule added : rules) {
+                if (summary.length() > 0) summary.append('\n');
+                summary.append("• ").append(RuleField.valueOf(added.field).getLabel()).append(": ").append(added.value);
+            }
+            rulesText.setText(summary);
+        });
+
+        new MaterialAlertDialogBuilder(this, R.style.ThemeOverlay_App_AlertDialog_Input)
+                .setTitle("Nova Playlist com Regras")
+                .setIcon(R.drawable.ic_playlist_add)
+                .setView(dialogView)
+                .setPositiveButton("Criar", (dialog, which) -> {
+                    String name = nameInput.getText() != null ? nameInput.getText().toString().trim() : "";
+                    if (name.isEmpty() || rules.isEmpty()) {
+                        Toast.makeText(this, "Indique um nome e pelo menos uma regra.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    RulePlaylist playlist = new RulePlaylist();
+                    playlist.name = name;
+                    playlist.matchAll = matchAll.isChecked();
+                    executorService.execute(() -> db.runInTransaction(() -> {
+                        int id = (int) db.rulePlaylistDao().insertPlaylist(playlist);
+                        for (PlaylistRule rule : rules) rule.rulePlaylistId = id;
+                        db.rulePlaylistDao().insertRules(rules);
+                    }));
+                })
+                .setNegativeButton("Cancelar", (dialog, which) -> dialog.cancel())
+                .show();
+    }
+
     /**
      * Mostra o diálogo personalizado "A ouvir...".
      */
@@ -0,0 +1,186 @@
+package com.dev.mymusicapp.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.dev.mymusicapp.data.SectionIndex;
+
+/**
+ * SectionFastScroller é a barra de scroll rápido da lista de músicas: um "polegar" na margem direita que
+ * pode ser arrastado, com um balão que mostra a letra da secção atual.
+ *
+ * A altura da barra é dividida igualmente pelas secções do SectionIndex (e não pelas músicas), por isso
+ * a letra "M" fica sempre no mesmo sítio, seja qual for o tamanho da secção "A". Arrastar converte a posição
+ * do dedo numa secção e numa posição dentro dela com aritmética simples, sem percorrer a lista.
+ */
+public class SectionFastScroller extends View {
+
+    // Abaixo deste número de músicas o scroll normal chega e a barra fica escondida.
+    private static final int MIN_ITEMS = 50;
+
+    private final Paint thumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint bubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF thumbRect = new RectF();
+
+    private final float touchWidth;
+    private final float thumbWidth;
+    private final float thumbHeight;
+    private final float bubbleRadius;
+
+    private RecyclerView recyclerView;
+    private SectionIndex sectionIndex = SectionIndex.EMPTY;
+
+    // Posição do polegar, de 0 (topo) a 1 (fundo), e se o utilizador o está a arrastar.
+    private float thumbFraction = 0f;
+    private boolean dragging = false;
+    private int currentSection = -1;
+
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+            if (!dragging) {
+                updateThumbFromList();
+            }
+        }
+    };
+
+    public SectionFastScroller(Context context) {
+        this(context, null);
+    }
+
+    public SectionFastScroller(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        touchWidth = dp(32);
+        thumbWidth = dp(6);
+        thumbHeight = dp(48);
+        bubbleRadius = dp(32);
+
+        thumbPaint.setColor(Color.argb(170, 255, 255, 255));
+        bubblePaint.setColor(Color.WHITE);
+        textPaint.setColor(Color.BLACK);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 28, getResources().getDisplayMetrics()));
+        textPaint.setFakeBoldText(true);
+    }
+
+    private float dp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, getResources().getDisplayMetrics());
+    }
+
+    /**
+     * Liga a barra ao RecyclerView (que deve usar um LinearLayoutManager).
+     */
+    public void attachTo(@NonNull RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+        recyclerView.addOnScrollListener(scrollListener);
+    }
+
+    /**
+     * Define as secções da lista que está a ser mostrada. Deve ser chamado sempre que a lista muda (ex: pesquisa).
+     */
+    public void setSectionIndex(@NonNull SectionIndex sectionIndex) {
+        this.sectionIndex = sectionIndex;
+        boolean useful = sectionIndex.getItemCount() >= MIN_ITEMS && sectionIndex.getSectionCount() > 1;
+        setVisibility(useful ? VISIBLE : GONE);
+        updateThumbFromList();
+    }
+
+    /**
+     * Coloca o polegar de acordo com a primeira linha visível: secção dela mais a fração percorrida dentro da secção.
+     */
+    private void updateThumbFromList() {
+        if (recyclerView == null || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) return;
+        int sections = sectionIndex.getSectionCount();
+        int position = ((LinearLayoutManager) recyclerView.getLayoutManager()).findFirstVisibleItemPosition();
+        if (sections == 0 || position == RecyclerView.NO_POSITION) return;
+        int section = sectionIndex.getSectionForPosition(position);
+        float withinSection = (position - sectionIndex.getPositionForSection(section))
+                / (float) Math.max(1, sectionIndex.getSectionSize(section));
+        thumbFraction = Math.min(1f, (section + withinSection) / sections);
+        invalidate();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        int sections = sectionIndex.getSectionCount();
+        if (sections == 0) return false;
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                // Só a faixa junto à margem direita responde; o resto do toque passa para a lista.
+                if (event.getX() < getWidth() - touchWidth) return false;
+                dragging = true;
+                getParent().requestDisallowInterceptTouchEvent(true);
+                scrollToFraction(event.getY());
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (!dragging) return false;
+                scrollToFraction(event.getY());
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                dragging = false;
+                currentSection = -1;
+                getParent().requestDisallowInterceptTouchEvent(false);
+                invalidate();
+                return true;
+            default:
+                return dragging;
+        }
+    }
+
+    /**
+     * Converte a posição vertical do dedo numa secção e numa posição dentro dela, e salta para lá.
+     */
+    private void scrollToFraction(float y) {
+        if (recyclerView == null || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) return;
+        int sections = sectionIndex.getSectionCount();
+        float usable = Math.max(1f, getHeight() - thumbHeight);
+        thumbFraction = Math.max(0f, Math.min(1f, (y - thumbHeight / 2f) / usable));
+
+        float scaled = thumbFraction * sections;
+        int section = Math.min(sections - 1, (int) scaled);
+        int position = sectionIndex.getPositionForSection(section)
+                + (int) ((scaled - section) * sectionIndex.getSectionSize(section));
+        RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
+        // O adapter pode ainda estar a aplicar a lista anterior (diff em background): nunca passar do fim.
+        int itemCount = adapter != null ? adapter.getItemCount() : 0;
+        if (itemCount == 0) return;
+        position = Math.min(position, itemCount - 1);
+
+        currentSection = section;
+        ((LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(position, 0);
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        if (sectionIndex.getSectionCount() == 0) return;
+        float right = getWidth() - dp(4);
+        float top = thumbFraction * (getHeight() - thumbHeight);
+        thumbRect.set(right - thumbWidth, top, right, top + thumbHeight);
+        canvas.drawRoundRect(thumbRect, thumbWidth / 2f, thumbWidth / 2f, thumbPaint);
+
+        if (dragging && currentSection >= 0) {
+            // Balão com a letra da secção, à esquerda do polegar.
+            float cx = thumbRect.left - dp(16) - bubbleRadius;
+            float cy = Math.max(bubbleRadius, Math.min(getHeight() - bubbleRadius, thumbRect.centerY()));
+            canvas.drawCircle(cx, cy, bubbleRadius, bubblePaint);
+            float baseline = cy - (textPaint.descent() + textPaint.ascent()) / 2f;
+            canvas.drawText(sectionIndex.getLabel(currentSection), cx, baseline, textPaint);
+        }
+    }
+}
@@ -9,26 +9,30 @@ import android.view.View;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.dev.mymusicapp.R;
+import com.dev.mymusicapp.adapter.AlbumArtPrefetcher;
 import com.dev.mymusicapp.adapter.SelectSongsAdapter;
-import com.dev.mymusicapp.data.SongRepository;
+import com.dev.mymusicapp.data.LibrarySnapshot;
 import com.dev.mymusicapp.databinding.ActivitySelectSongsBinding;
-import com.dev.mymusicapp.model.Song;
+import com.dev.mymusicapp.viewmodel.LibraryViewModel;
 
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.BitSet;
 
 public class SelectSongsActivity extends AppCompatActivity {
 
+    // Extras do resultado: as posições selecionadas (BitSet.toLongArray) e a versão da LibrarySnapshot a que se referem.
+    public static final String EXTRA_SELECTED_POSITIONS = "SELECTED_POSITIONS";
+    public static final String EXTRA_LIBRARY_VERSION = "LIBRARY_VERSION";
+
     private ActivitySelectSongsBinding binding;
     private SelectSongsAdapter adapter;
-    private SongRepository songRepository;
-    private ExecutorService executorService;
+    private AlbumArtPrefetcher albumArtPrefetcher;
+    private LibraryViewModel libraryViewModel;
+    // A fotografia da biblioteca mostrada na lista; as posições selecionadas referem-se a ela.
+    private LibrarySnapshot library = LibrarySnapshot.EMPTY;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,27 +46,31 @@ public class SelectSongsActivity extends AppCompatActivity {
         binding.toolbarSelectSongs.setNavigationOnClickListener(v -> finish());
 
         // Inicializa os componentes
-        songRepository = new SongRepository();
-        executorService = Executors.newSingleThreadExecutor();
+        libraryViewModel = new ViewModelProvider(this).get(LibraryViewModel.class);
         setupRecyclerView();
         loadAllSongs();
     }
 
     private void setupRecyclerView() {
         adapter = new SelectSongsAdapter();
+        // Mostra na Toolbar quantas músicas estão selecionadas.
+        adapter.setOnSelectionChangedListener(count -> binding.toolbarSelectSongs.setTitle(
+                count == 0 ? "Selecionar Músicas" : count + (count == 1 ? " selecionada" : " selecionadas")));
         binding.recyclerViewSelectSongs.setLayoutManager(new LinearLayoutManager(this));
         binding.recyclerViewSelectSongs.setAdapter(adapter);
+        // Antecipa as capas das linhas que vão aparecer durante o scroll.
+        albumArtPrefetcher = AlbumArtPrefetcher.attach(binding.recyclerViewSelectSongs, adapter);
     }
 
     private void loadAllSongs() {
-        // Busca todas as músicas do dispositivo em background
-        executorService.execute(() -> {
-            List<Song> allSongs = songRepository.getSongs(this);
-            // Atualiza o adapter na thread principal
-            runOnUiThread(() -> {
-                adapter.setSongs(allSongs);
-            });
+        // Usa a biblioteca partilhada: se a MainActivity já a carregou, não há nova leitura do MediaStore.
+        libraryViewModel.getLibrary().observe(this, snapshot -> {
+            library = snapshot;
+            // As posições dos pedidos antecipados deixam de corresponder às linhas da lista nova.
+            albumArtPrefetcher.cancelAll();
+            adapter.setSongs(snapshot.getSongs());
         });
+        libraryViewModel.loadLibrary();
     }
 
     // --- Lógica do Menu ---
@@ -78,18 +86,32 @@ public class SelectSongsActivity extends AppCompatActivity {
         if (item.getItemId() == R.id.action_done_selecting) {
             returnSelectedSongs();
             return true;
+        } else if (item.getItemId() == R.id.action_select_all) {
+            adapter.selectAll();
+            return true;
+        } else if (item.getItemId() == R.id.action_invert_selection) {
+            adapter.invertSelection();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Não vale a pena carregar capas para um ecrã que já fechou.
+        albumArtPrefetcher.cancelAll();
+    }
 
     private void returnSelectedSongs() {
-        // Pede ao adapter a lista de músicas selecionadas
-        ArrayList<Song> selectedSongs = adapter.getSelectedSongs();
+        // A seleção é devolvida como as posições na fotografia da biblioteca (um bit por música),
+        // em vez de uma lista de objetos Song serializados: 50 mil músicas ocupam só ~6 KB.
+        BitSet selectedPositions = adapter.getSelectedPositions();
 
         // Cria um intent para o resultado
         Intent resultIntent = new Intent();
-        resultIntent.putExtra("SELECTED_SONGS", (Serializable) selectedSongs);
+        resultIntent.putExtra(EXTRA_SELECTED_POSITIONS, selectedPositions.toLongArray());
+        resultIntent.putExtra(EXTRA_LIBRARY_VERSION, library.getVersion());
 
         // Define o resultado como OK e envia os dados
         setResult(Activity.RESULT_OK, resultIntent);
@@ -97,4 +119,4 @@ public class SelectSongsActivity extends AppCompatActivity {
         // Fecha esta tela
         finish();
     }
-}
\ No newline at end of file
+}
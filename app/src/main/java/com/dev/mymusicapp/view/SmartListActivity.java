@@ -0,0 +1,154 @@
+package com.dev.mymusicapp.view;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityOptionsCompat;
+import androidx.core.view.ViewCompat;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+
+import com.dev.mymusicapp.adapter.SongAdapter;
+import com.dev.mymusicapp.adapter.SongRowPool;
+import com.dev.mymusicapp.data.LibrarySnapshot;
+import com.dev.mymusicapp.data.SmartLists;
+import com.dev.mymusicapp.databinding.ActivitySmartListBinding;
+import com.dev.mymusicapp.model.SmartList;
+import com.dev.mymusicapp.model.Song;
+import com.dev.mymusicapp.viewmodel.LibraryViewModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * SmartListActivity mostra as músicas de uma lista inteligente (ver SmartLists).
+ *
+ * A consulta devolve só os caminhos, já pela ordem da lista; as músicas vêm da fotografia da biblioteca
+ * partilhada (O(1) por caminho). Músicas do histórico que já não estão na biblioteca são omitidas.
+ * A lista é atualizada quando o Room invalida a tabela consultada ou quando a biblioteca é recarregada.
+ */
+public class SmartListActivity extends AppCompatActivity implements SongAdapter.OnSongClickListener, SongAdapter.OnSongLongClickListener {
+
+    private static final String EXTRA_KEY = "SMART_LIST_KEY";
+    private static final String EXTRA_NAME = "SMART_LIST_NAME";
+
+    private ActivitySmartListBinding binding;
+    private ExecutorService executorService;
+    private SongAdapter songAdapter;
+
+    // Os últimos valores recebidos de cada lado; a lista é recalculada quando qualquer um muda.
+    private List<String> paths;
+    private LibrarySnapshot library;
+    // As músicas mostradas (para a reprodução).
+    private List<Song> shownSongs = new ArrayList<>();
+
+    @NonNull
+    public static Intent newIntent(@NonNull Context context, @NonNull SmartList list) {
+        return new Intent(context, SmartListActivity.class)
+                .putExtra(EXTRA_KEY, list.key)
+                .putExtra(EXTRA_NAME, list.name);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivitySmartListBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+
+        setSupportActionBar(binding.toolbarSmartList);
+        binding.toolbarSmartList.setNavigationOnClickListener(v -> onBackPressed());
+
+        String key = getIntent().getStringExtra(EXTRA_KEY);
+        LiveData<List<String>> source = key != null ? SmartLists.observePaths(this, key) : null;
+        if (source == null) {
+            Toast.makeText(this, "Esta lista já não existe.", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle(getIntent().getStringExtra(EXTRA_NAME));
+        }
+
+        executorService = Executors.newSingleThreadExecutor();
+        songAdapter = new SongAdapter(this, this);
+        binding.recyclerViewSmartList.setLayoutManager(new LinearLayoutManager(this));
+        SongRowPool.getInstance(this).attach(binding.recyclerViewSmartList);
+        binding.recyclerViewSmartList.setAdapter(songAdapter);
+        binding.progressBarSmartList.setVisibility(View.VISIBLE);
+
+        source.observe(this, newPaths -> {
+            paths = newPaths;
+            resolveSongs();
+        });
+        LibraryViewModel libraryViewModel = new ViewModelProvider(this).get(LibraryViewModel.class);
+        libraryViewModel.getLibrary().observe(this, snapshot -> {
+            library = snapshot;
+            resolveSongs();
+        });
+        libraryViewModel.loadLibrary();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (executorService != null) {
+            executorService.shutdownNow();
+            SongRowPool.getInstance(this).detach(binding.recyclerViewSmartList);
+        }
+    }
+
+    /**
+     * Converte os caminhos em músicas da biblioteca, em background (a primeira consulta constrói o índice por caminho).
+     */
+    private void resolveSongs() {
+        List<String> currentPaths = paths;
+        LibrarySnapshot snapshot = library;
+        if (currentPaths == null || snapshot == null) return;
+        executorService.execute(() -> {
+            List<Song> librarySongs = snapshot.getSongs();
+            List<Song> songs = new ArrayList<>(currentPaths.size());
+            for (String path : currentPaths) {
+                int index = snapshot.indexOfPath(path);
+                if (index >= 0) songs.add(librarySongs.get(index));
+            }
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                binding.progressBarSmartList.setVisibility(View.GONE);
+                binding.textViewSmartListEmpty.setVisibility(songs.isEmpty() ? View.VISIBLE : View.GONE);
+                if (getSupportActionBar() != null) {
+                    getSupportActionBar().setSubtitle(songs.size() + (songs.size() == 1 ? " música" : " músicas"));
+                }
+                shownSongs = songs;
+                songAdapter.setSongs(songs);
+            });
+        });
+    }
+
+    /**
+     * Toca a lista a partir da música clicada.
+     */
+    @Override
+    public void onSongClick(Song song, View albumArtView) {
+        Intent intent = new Intent(this, PlayerActivity.class);
+        intent.putExtra("SONG_LIST", new ArrayList<>(shownSongs));
+        intent.putExtra("CURRENT_POSITION", Math.max(0, shownSongs.indexOf(song)));
+        intent.setFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+
+        ActivityOptionsCompat options = ActivityOptionsCompat.makeSceneTransitionAnimation(
+                this, albumArtView, ViewCompat.getTransitionName(albumArtView));
+        startActivity(intent, options.toBundle());
+    }
+
+    @Override
+    public void onSongLongClick(Song song, int position) {
+        // As listas inteligentes não são editáveis.
+    }
+}
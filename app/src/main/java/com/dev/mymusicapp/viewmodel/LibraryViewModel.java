@@ -0,0 +1,79 @@
+package com.dev.mymusicapp.viewmodel;
+
+import android.app.Application;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+
+import com.dev.mymusicapp.data.LibrarySnapshot;
+import com.dev.mymusicapp.data.MusicLibrary;
+import com.dev.mymusicapp.data.SortMode;
+
+/**
+ * LibraryViewModel guarda o estado dos ecrãs que mostram a biblioteca de músicas.
+ * Um ViewModel sobrevive às mudanças de configuração (rotação, modo escuro), por isso a pesquisa
+ * e a posição da lista não se perdem quando a Activity é recriada.
+ * A lista de músicas em si vem da MusicLibrary, que é partilhada por todas as Activities.
+ */
+public class LibraryViewModel extends AndroidViewModel {
+
+    private final MusicLibrary library;
+
+    // O texto atual da barra de pesquisa.
+    private String searchQuery = "";
+
+    // A ordem em que a lista de músicas é mostrada.
+    private SortMode sortMode = SortMode.TITLE;
+
+    // O estado do LayoutManager (posição de scroll) guardado antes de a Activity ser recriada.
+    private Parcelable listState;
+
+    public LibraryViewModel(@NonNull Application application) {
+        super(application);
+        library = MusicLibrary.getInstance(application);
+    }
+
+    /**
+     * Fotografia observável da biblioteca partilhada.
+     */
+    public LiveData<LibrarySnapshot> getLibrary() {
+        return library.getLibrary();
+    }
+
+    /**
+     * Pede o carregamento da biblioteca. Não faz nada se ela já estiver carregada.
+     */
+    public void loadLibrary() {
+        library.loadIfNeeded();
+    }
+
+    @NonNull
+    public String getSearchQuery() {
+        return searchQuery;
+    }
+
+    public void setSearchQuery(@Nullable String searchQuery) {
+        this.searchQuery = searchQuery != null ? searchQuery : "";
+    }
+
+    @NonNull
+    public SortMode getSortMode() {
+        return sortMode;
+    }
+
+    public void setSortMode(@NonNull SortMode sortMode) {
+        this.sortMode = sortMode;
+    }
+
+    @Nullable
+    public Parcelable getListState() {
+        return listState;
+    }
+
+    public void setListState(@Nullable Parcelable listState) {
+        this.listState = listState;
+    }
+}
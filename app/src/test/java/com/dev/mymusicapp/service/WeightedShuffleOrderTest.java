@@ -0,0 +1,206 @@
+package com.dev.mymusicapp.service;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.source.ShuffleOrder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testes do WeightedShuffleOrder: a ordem gerada (permutação, pesos, artistas, custo numa fila grande) e o
+ * contrato do ShuffleOrder que o ExoPlayer usa quando a fila muda (cloneAndInsert/cloneAndRemove/cloneAndClear).
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class WeightedShuffleOrderTest {
+
+    private static final int LARGE_QUEUE = 100_000;
+
+    @Test
+    public void create_isPermutationStartingAtFirstIndex() {
+        double[] weights = new double[1000];
+        Arrays.fill(weights, 1);
+        WeightedShuffleOrder order = WeightedShuffleOrder.create(weights, noArtists(1000), 417, 1);
+        int[] sequence = sequence(order);
+        assertEquals(417, sequence[0]);
+        assertPermutation(sequence, 1000);
+    }
+
+    @Test
+    public void create_withoutFirstIndex_isPermutation() {
+        double[] weights = {0, -1, Double.NaN, 1, 1e300, Double.MIN_VALUE};
+        WeightedShuffleOrder order = WeightedShuffleOrder.create(weights, noArtists(weights.length), C.INDEX_UNSET, 7);
+        assertPermutation(sequence(order), weights.length);
+    }
+
+    /**
+     * O caso que tornava a versão antiga (sorteios repetidos numa AliasTable) quadrática: 40% de músicas nunca
+     * ouvidas e 60% muito ouvidas e saltadas, com pesos cerca de 4000 vezes menores.
+     */
+    @Test(timeout = 1000)
+    public void create_largeSkewedQueue_isFastAndFavoursHeavyItems() {
+        double[] weights = new double[LARGE_QUEUE];
+        for (int i = 0; i < LARGE_QUEUE; i++) {
+            weights[i] = i % 5 < 2 ? 1 : 1.0 / ((1 + 100) * (1 + 2.0 * 20));
+        }
+        WeightedShuffleOrder order = WeightedShuffleOrder.create(weights, noArtists(LARGE_QUEUE), 0, 42);
+        int[] sequence = sequence(order);
+        assertPermutation(sequence, LARGE_QUEUE);
+
+        // As músicas nunca ouvidas ficam praticamente todas na primeira parte da ordem.
+        int heavyInFirstPart = 0;
+        for (int i = 0; i < LARGE_QUEUE * 2 / 5; i++) {
+            if (weights[sequence[i]] == 1) heavyInFirstPart++;
+        }
+        assertTrue("Só " + heavyInFirstPart + " músicas pesadas na primeira parte", heavyInFirstPart > LARGE_QUEUE * 2 / 5 * 0.95);
+    }
+
+    @Test
+    public void create_sameSeed_sameOrder() {
+        double[] weights = new double[500];
+        for (int i = 0; i < weights.length; i++) weights[i] = 1 + i % 7;
+        int[] artists = noArtists(500);
+        assertEquals(Arrays.toString(sequence(WeightedShuffleOrder.create(weights, artists, 3, 99))),
+                Arrays.toString(sequence(WeightedShuffleOrder.create(weights, artists, 3, 99))));
+    }
+
+    @Test
+    public void create_avoidsSameArtistBackToBack() {
+        // Álbuns inteiros na fila: 100 artistas com 20 músicas cada, seguidas. Sem a passagem pelas artistas,
+        // uma ordem aleatória teria cerca de 1% de repetições (~20).
+        int length = 2000;
+        double[] weights = new double[length];
+        int[] artists = new int[length];
+        for (int i = 0; i < length; i++) {
+            weights[i] = 1;
+            artists[i] = i / 20;
+        }
+        int[] sequence = sequence(WeightedShuffleOrder.create(weights, artists, 0, 5));
+        assertPermutation(sequence, length);
+        int repeats = 0;
+        for (int i = 1; i < length; i++) {
+            if (artists[sequence[i]] == artists[sequence[i - 1]]) repeats++;
+        }
+        assertEquals(0, repeats);
+    }
+
+    @Test
+    public void create_unknownArtistsNeverCountAsSame() {
+        double[] weights = {1, 1, 1, 1};
+        int[] artists = {-1, -1, -1, -1};
+        assertPermutation(sequence(WeightedShuffleOrder.create(weights, artists, 2, 3)), 4);
+    }
+
+    @Test
+    public void navigation_isConsistent() {
+        WeightedShuffleOrder order = WeightedShuffleOrder.create(uniform(50), noArtists(50), 10, 11);
+        int[] sequence = sequence(order);
+        assertEquals(50, order.getLength());
+        assertEquals(sequence[0], order.getFirstIndex());
+        assertEquals(sequence[49], order.getLastIndex());
+        assertEquals(C.INDEX_UNSET, order.getPreviousIndex(order.getFirstIndex()));
+        assertEquals(C.INDEX_UNSET, order.getNextIndex(order.getLastIndex()));
+        for (int i = 1; i < sequence.length; i++) {
+            assertEquals(sequence[i - 1], order.getPreviousIndex(sequence[i]));
+        }
+    }
+
+    @Test
+    public void cloneAndInsert_keepsExistingOrderAndAddsNewIndices() {
+        WeightedShuffleOrder order = WeightedShuffleOrder.create(uniform(20), noArtists(20), 0, 13);
+        int[] before = sequence(order);
+        ShuffleOrder inserted = order.cloneAndInsert(5, 3);
+        int[] after = sequence(inserted);
+        assertEquals(23, inserted.getLength());
+        assertPermutation(after, 23);
+
+        // Sem os novos (5, 6, 7), a ordem é a antiga com os índices a partir de 5 avançados 3 posições.
+        int[] kept = new int[20];
+        int count = 0;
+        for (int index : after) {
+            if (index >= 5 && index < 8) continue;
+            kept[count++] = index >= 8 ? index - 3 : index;
+        }
+        assertEquals(Arrays.toString(before), Arrays.toString(kept));
+    }
+
+    @Test
+    public void cloneAndInsert_intoEmptyOrder() {
+        ShuffleOrder order = WeightedShuffleOrder.create(new double[0], new int[0], C.INDEX_UNSET, 1).cloneAndInsert(0, 4);
+        assertEquals(4, order.getLength());
+        assertPermutation(sequence(order), 4);
+    }
+
+    @Test
+    public void cloneAndRemove_keepsRemainingOrder() {
+        WeightedShuffleOrder order = WeightedShuffleOrder.create(uniform(20), noArtists(20), 0, 17);
+        int[] before = sequence(order);
+        ShuffleOrder removed = order.cloneAndRemove(4, 9);
+        int[] after = sequence(removed);
+        assertEquals(15, removed.getLength());
+        assertPermutation(after, 15);
+
+        int[] expected = new int[15];
+        int count = 0;
+        for (int index : before) {
+            if (index >= 4 && index < 9) continue;
+            expected[count++] = index >= 9 ? index - 5 : index;
+        }
+        assertEquals(Arrays.toString(expected), Arrays.toString(after));
+    }
+
+    @Test
+    public void cloneAndRemove_everything() {
+        ShuffleOrder removed = WeightedShuffleOrder.create(uniform(6), noArtists(6), 0, 19).cloneAndRemove(0, 6);
+        assertEquals(0, removed.getLength());
+        assertEquals(C.INDEX_UNSET, removed.getFirstIndex());
+        assertEquals(C.INDEX_UNSET, removed.getLastIndex());
+    }
+
+    @Test
+    public void cloneAndClear_isEmpty() {
+        ShuffleOrder cleared = WeightedShuffleOrder.create(uniform(6), noArtists(6), 0, 23).cloneAndClear();
+        assertEquals(0, cleared.getLength());
+        assertNotEquals(null, cleared);
+    }
+
+    private static double[] uniform(int length) {
+        double[] weights = new double[length];
+        Arrays.fill(weights, 1);
+        return weights;
+    }
+
+    private static int[] noArtists(int length) {
+        int[] artists = new int[length];
+        Arrays.fill(artists, -1);
+        return artists;
+    }
+
+    // A ordem completa, seguindo getNextIndex a partir de getFirstIndex.
+    private static int[] sequence(ShuffleOrder order) {
+        int[] sequence = new int[order.getLength()];
+        int index = order.getFirstIndex();
+        for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = index;
+            index = order.getNextIndex(index);
+        }
+        assertEquals(C.INDEX_UNSET, index);
+        return sequence;
+    }
+
+    private static void assertPermutation(int[] sequence, int length) {
+        assertEquals(length, sequence.length);
+        boolean[] seen = new boolean[length];
+        for (int index : sequence) {
+            assertTrue("Índice fora da fila: " + index, index >= 0 && index < length);
+            assertTrue("Índice repetido: " + index, !seen[index]);
+            seen[index] = true;
+        }
+    }
+}